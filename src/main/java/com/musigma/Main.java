@@ -1,12 +1,15 @@
 package com.musigma;
 
 import com.musigma.controllers.MainController;
+import com.musigma.utils.FestivalExporter;
+import com.musigma.utils.FestivalMergeTool;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Main class to launch the application
@@ -15,14 +18,28 @@ public class Main extends Application {
 
     // Path to the main FXML view file
     private static final String VIEW_PATH = "/com/musigma/views/main-view.fxml";
+    // Command line option to export a festival without launching the interface
+    private static final String EXPORT_OPTION = "--export";
+    // Command line options to compare and merge festival files without launching the interface
+    private static final String DIFF_OPTION = "--diff";
+    private static final String MERGE_OPTION = "--merge";
 
     /**
-     * Main method to launch the application
+     * Main method to launch the application, or to work on festival files headless with
+     * {@code --export <festival file>... <export file>}, {@code --diff <old file> <new file>}
+     * or {@code --merge <base file> <our file> <their file> <merged file>}
      *
      * @param args the arguments passed to the application at launch
      */
     public static void main(String[] args) {
-        launch(args);
+        if (args.length > 0 && args[0].equals(EXPORT_OPTION))
+            System.exit(FestivalExporter.run(Arrays.copyOfRange(args, 1, args.length), System.out, System.err));
+        else if (args.length > 0 && args[0].equals(DIFF_OPTION))
+            System.exit(FestivalMergeTool.runDiff(Arrays.copyOfRange(args, 1, args.length), System.out, System.err));
+        else if (args.length > 0 && args[0].equals(MERGE_OPTION))
+            System.exit(FestivalMergeTool.runMerge(Arrays.copyOfRange(args, 1, args.length), System.out, System.err));
+        else
+            launch(args);
     }
 
     /**
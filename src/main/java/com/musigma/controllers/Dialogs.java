@@ -8,6 +8,7 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.TextArea;
 import javafx.scene.image.Image;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -16,6 +17,7 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
 
@@ -33,6 +35,10 @@ public class Dialogs {
     // Nom de fichier par défaut et extension pour le dialog
     private static final String FILENAME = "Musigma";
     private static final String EXT_NAME = "*.mgm";
+    private static final String TABLES_EXT_NAME = "*.mgdb";
+    private static final String CSV_EXT_NAME = "*.csv";
+    private static final String JSON_EXT_NAME = "*.json";
+    private static final String COLUMNS_EXT_NAME = "*.mgcol";
 
     /**
      * Méthode pour exécuter une opération encapsulée dans un bloc try-catch.
@@ -66,6 +72,27 @@ public class Dialogs {
         alert.showAndWait();
     }
 
+    /**
+     * Affiche un message suivi d'une liste de lignes à parcourir, par exemple des modifications ou des conflits.
+     *
+     * @param message le message à afficher
+     * @param lines   les lignes, affichées dans une zone de texte si elles ne sont pas vides
+     */
+    public static void showReport(String message, List<String> lines) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, message);
+        ((Stage) alert.getDialogPane().getScene().getWindow())
+                .getIcons()
+                .add(new Image(Objects.requireNonNull(Dialogs.class.getResourceAsStream(ICON_PATH))));
+        if (!lines.isEmpty()) {
+            TextArea text = new TextArea(String.join("\n", lines));
+            text.setEditable(false);
+            text.setWrapText(true);
+            alert.getDialogPane().setExpandableContent(text);
+            alert.getDialogPane().setExpanded(true);
+        }
+        alert.showAndWait();
+    }
+
     /**
      * Méthode pour exécuter une opération encapsulée dans un bloc try-catch avec un message de succès.
      *
@@ -93,6 +120,7 @@ public class Dialogs {
     public static FileChooser askFile(String title) {
         FileChooser fc = new FileChooser();
         fc.getExtensionFilters().add(new FileChooser.ExtensionFilter(FILENAME + " Files", EXT_NAME));
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter(FILENAME + " Tables", TABLES_EXT_NAME));
         fc.setTitle(title);
         return fc;
     }
@@ -110,6 +138,36 @@ public class Dialogs {
         return fc;
     }
 
+    /**
+     * Méthode pour afficher un FileChooser d'export, en CSV, en JSON ou en colonnes.
+     *
+     * @param title    titre du FileChooser
+     * @param fileName nom de fichier initial, sans extension
+     * @return FileChooser configuré avec le titre et les extensions d'export
+     */
+    public static FileChooser askExportFile(String title, String fileName) {
+        FileChooser fc = new FileChooser();
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", CSV_EXT_NAME));
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON", JSON_EXT_NAME));
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter(FILENAME + " Colonnes", COLUMNS_EXT_NAME));
+        fc.setTitle(title);
+        fc.setInitialFileName(fileName);
+        return fc;
+    }
+
+    /**
+     * Méthode pour afficher un FileChooser d'import de fichiers CSV.
+     *
+     * @param title titre du FileChooser
+     * @return FileChooser configuré avec le titre et l'extension CSV
+     */
+    public static FileChooser askImportFiles(String title) {
+        FileChooser fc = new FileChooser();
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", CSV_EXT_NAME));
+        fc.setTitle(title);
+        return fc;
+    }
+
     /**
      * Affiche un formulaire de validation avec plusieurs champs personnalisés.
      *
@@ -3,8 +3,25 @@ package com.musigma.controllers;
 import atlantafx.base.theme.CupertinoLight;
 import com.musigma.controllers.workspaces.*;
 import com.musigma.models.Festival;
+import com.musigma.models.FestivalCodec;
+import com.musigma.models.FestivalChange;
+import com.musigma.models.FestivalDiff;
+import com.musigma.models.FestivalMerge;
+import com.musigma.models.FestivalSummary;
+import com.musigma.models.FestivalTree;
+import com.musigma.models.exception.FestivalException;
+import com.musigma.utils.AutoSaver;
+import com.musigma.utils.FestivalCache;
+import com.musigma.utils.FestivalExporter;
+import com.musigma.utils.FestivalImporter;
+import com.musigma.utils.FestivalSaver;
+import com.musigma.utils.FileStamp;
+import com.musigma.utils.FileWatcher;
 import com.musigma.utils.Log;
+import com.musigma.utils.SessionIndex;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.geometry.Insets;
@@ -17,19 +34,29 @@ import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
 import java.awt.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
+import static com.musigma.controllers.Dialogs.askExportFile;
 import static com.musigma.controllers.Dialogs.askFile;
+import static com.musigma.controllers.Dialogs.askImportFiles;
+import static com.musigma.controllers.Dialogs.showError;
+import static com.musigma.controllers.Dialogs.showReport;
 import static com.musigma.controllers.Dialogs.tryCatch;
 
 /**
@@ -55,9 +82,42 @@ public class MainController {
      */
     private static final int MAX_RECENT_FILES = 10;
     /**
-     * Chemin du fichier d'état de la session précédente.
+     * Nombre maximum de festivals fermés gardés en mémoire.
      */
-    private static final String STATE_FILEPATH = "previousSession.ser";
+    private static final int MAX_CACHED_FESTIVALS = 4;
+    /**
+     * Taille estimée maximale des festivals fermés gardés en mémoire (octets).
+     */
+    private static final long MAX_CACHED_SIZE = 256L << 20;
+    /**
+     * Chemin du fichier d'état de la session précédente, l'index des fichiers récents.
+     */
+    private static final String STATE_FILEPATH = "session.idx";
+    /**
+     * Chemin du fichier d'état des versions précédentes, repris dans l'index s'il n'existe pas encore.
+     */
+    private static final String LEGACY_STATE_FILEPATH = "previousSession.ser";
+    /**
+     * Format de la date de début des festivals dans le menu des fichiers récents.
+     */
+    private static final DateTimeFormatter RECENT_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    /**
+     * Exécuteur de la lecture des résumés des fichiers récents, sur un fil d'exécution dédié.
+     */
+    private static final Executor RECENT_FILES_READER = runnable -> {
+        Thread thread = new Thread(runnable, "recent-files-reader");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    /**
+     * Exécuteur des exports, comparaisons et fusions, chacun sur un fil d'exécution dédié.
+     */
+    private static final Executor FESTIVAL_WORKER = runnable -> {
+        Thread thread = new Thread(runnable, "festival-worker");
+        thread.setDaemon(true);
+        thread.start();
+    };
 
     private static final WorkspaceController.WorkspaceRegister[] WORKSPACES = {
             HomeController.REGISTER,
@@ -71,9 +131,14 @@ public class MainController {
 
     private static final String CURRENT_WORKSPACE_STYLECLASS = "currentWorkspace"; // Classe CSS pour l'espace de travail actuel
 
+    private final FestivalSaver saver = new FestivalSaver(Platform::runLater); // Sauvegardes en arrière-plan
+    private final AutoSaver autoSaver = new AutoSaver(Platform::runLater, this::autoSaveFestival); // Sauvegarde automatique
+    private final FestivalCache festivalCache = new FestivalCache(MAX_CACHED_FESTIVALS, MAX_CACHED_SIZE); // Festivals récemment fermés
+    private final FileWatcher fileWatcher = new FileWatcher(Platform::runLater, this::reloadFestival); // Modifications du fichier par ailleurs
     private Festival festival; // Le festival actuel
-    private int festivalHash; // Hash du festival pour détecter les modifications
-    private ArrayList<File> recentFiles; // Liste des fichiers récents
+    private Task<Festival> loading; // Chargement en cours d'un festival
+    private long savedModCount; // Compteur de modifications du festival à sa dernière sauvegarde
+    private SessionIndex sessionIndex; // Index des fichiers récents
     private WorkspaceController.WorkspaceRegister currentWorkspace; // Espace de travail actuel
     private WorkspaceController currentWorkspaceController; // Contrôleur de l'espace de travail actuel
     private Stage stage; // La fenêtre principale
@@ -83,7 +148,17 @@ public class MainController {
     @FXML
     private Menu recentFileMenu; // Menu des fichiers récents
     @FXML
+    private CheckMenuItem autoSaveMenuItem; // Activation de la sauvegarde automatique
+    @FXML
+    private CheckMenuItem compressMenuItem; // Compression du fichier du festival
+    @FXML
     private Pane workspace; // Espace de travail
+    @FXML
+    private HBox loadingBox; // Avancement du chargement d'un festival
+    @FXML
+    private Label loadingLabel; // Fichier en cours de chargement
+    @FXML
+    private ProgressBar loadingProgress; // Barre d'avancement du chargement
 
     /**
      * Initialise le contrôleur principal avec la fenêtre spécifiée.
@@ -93,8 +168,13 @@ public class MainController {
     @FXML
     public void initialize(Stage stage) {
         this.stage = stage;
-        recentFiles = new ArrayList<>();
-        stage.setOnHidden(e -> saveState());
+        recentFileMenu.setOnShowing(e -> refreshRecentFiles());
+        stage.setOnHidden(e -> {
+            saveState();
+            fileWatcher.close();
+            autoSaver.close();
+            saver.close();
+        });
         for (WorkspaceController.WorkspaceRegister workspace : WORKSPACES)
             addWorkspace(workspace);
         loadState();
@@ -106,31 +186,29 @@ public class MainController {
     }
 
     /**
-     * Charge l'état de la session précédente depuis le fichier d'état.
+     * Charge l'état de la session précédente depuis le fichier d'état, puis ouvre le dernier festival en arrière-plan.
      */
     private void loadState() {
         LOGGER.info("Loading previous state");
-        File previousStateFile = new File(STATE_FILEPATH);
-        if (previousStateFile.exists()) {
-            try (
-                    FileInputStream fis = new FileInputStream(previousStateFile);
-                    ObjectInputStream ois = new ObjectInputStream(fis)
-            ) {
-                ArrayList<File> previousRecentFiles = (ArrayList<File>) ois.readObject();
-                if (previousRecentFiles != null && !previousRecentFiles.isEmpty())
-                    recentFiles.addAll(
-                            previousRecentFiles
-                                    .stream()
-                                    .filter(file -> file != null && file.exists())
-                                    .collect(Collectors.toList())
-                    );
-                if (!recentFiles.isEmpty())
-                    loadFestival(Festival.Festival(recentFiles.get(0)));
-                else newFestival();
-            } catch (Exception e) {
-                newFestival();
-            }
-        } else newFestival();
+        sessionIndex = new SessionIndex(MAX_RECENT_FILES);
+        File stateFile = new File(STATE_FILEPATH);
+        File legacyStateFile = new File(LEGACY_STATE_FILEPATH);
+        try {
+            if (stateFile.exists())
+                sessionIndex = SessionIndex.load(stateFile, MAX_RECENT_FILES);
+            else if (legacyStateFile.exists())
+                sessionIndex = SessionIndex.importLegacy(legacyStateFile, MAX_RECENT_FILES);
+        } catch (IOException e) {
+            LOGGER.warning("Previous state cannot be read: " + e.getMessage());
+        }
+        newFestival(); // Utilisable pendant le chargement du dernier festival
+        sessionIndex.getEntries()
+                .stream()
+                .filter(entry -> !entry.isMissing() && entry.getFile().isFile())
+                .findFirst()
+                .ifPresent(entry -> loadFestival(entry.getFile(), null));
+        loadRecentFileMenu();
+        refreshRecentFiles();
         LOGGER.info("Loaded previous state");
     }
 
@@ -142,12 +220,8 @@ public class MainController {
         tryCatch(
                 "Sauvegarde de l'état actuel de l'application impossible",
                 () -> {
-                    try (
-                            FileOutputStream fos = new FileOutputStream(STATE_FILEPATH);
-                            ObjectOutputStream oos = new ObjectOutputStream(fos)
-                    ) {
-                        oos.writeObject(recentFiles);
-                    }
+                    sessionIndex.save(new File(STATE_FILEPATH));
+                    Files.deleteIfExists(Paths.get(LEGACY_STATE_FILEPATH));
                 });
         LOGGER.info("Saved current state");
     }
@@ -188,27 +262,36 @@ public class MainController {
     }
 
     /**
-     * Ajoute un fichier récent à la liste et met à jour le menu des fichiers récents.
+     * Ajoute un fichier récent à l'index et met à jour le menu des fichiers récents.
      *
      * @param file Le fichier à ajouter
      */
     private void addRecentFile(File file) {
-        recentFiles.remove(file);
-        recentFiles.add(0, file);
-        if (recentFiles.size() > MAX_RECENT_FILES)
-            recentFiles.remove(MAX_RECENT_FILES);
-        recentFileMenu.getItems().clear();
+        sessionIndex.add(file);
         loadRecentFileMenu();
+        refreshRecentFiles();
         LOGGER.info("Added recent file");
     }
 
     /**
-     * Charge le menu des fichiers récents.
+     * Relit en arrière-plan le résumé des fichiers récents modifiés depuis leur dernière lecture,
+     * puis met à jour le menu des fichiers récents.
+     */
+    private void refreshRecentFiles() {
+        sessionIndex.refresh(RECENT_FILES_READER, Platform::runLater, this::loadRecentFileMenu);
+    }
+
+    /**
+     * Charge le menu des fichiers récents, avec le résumé de chaque festival.
+     * Les fichiers introuvables sont affichés mais ne peuvent pas être ouverts.
      */
     private void loadRecentFileMenu() {
         LOGGER.info("Loading recent files");
-        for (File file : recentFiles) {
-            MenuItem menu = new MenuItem(file.getName());
+        recentFileMenu.getItems().clear();
+        for (SessionIndex.Entry entry : sessionIndex.getEntries()) {
+            File file = entry.getFile();
+            MenuItem menu = new MenuItem(describeRecentFile(entry));
+            menu.setDisable(entry.isMissing());
             menu.setOnAction(e -> openFestival(file));
             recentFileMenu.getItems().add(menu);
             LOGGER.info("Loaded recent files \"" + file.getName() + "\"");
@@ -216,13 +299,38 @@ public class MainController {
         LOGGER.info("Loaded recent files");
     }
 
+    /**
+     * Décrit un fichier récent dans le menu.
+     *
+     * @param entry L'entrée du fichier dans l'index
+     * @return Le nom du festival, sa date et ses nombres d'éléments, ou le nom du fichier s'il n'a pas pu être lu
+     */
+    private static String describeRecentFile(SessionIndex.Entry entry) {
+        String fileName = entry.getFile().getName();
+        FestivalSummary summary = entry.getSummary();
+        if (entry.isMissing())
+            return String.format("%s (introuvable)", fileName);
+        if (summary == null)
+            return fileName;
+        return String.format(
+                "%s — %s, %d artistes, %d représentations, %d stocks, %d tickets (%s)",
+                summary.getName(),
+                summary.getStart().format(RECENT_DATE_FORMAT),
+                summary.getArtistes(),
+                summary.getRepresentations(),
+                summary.getStocks(),
+                summary.getTicketTypes(),
+                fileName
+        );
+    }
+
     /**
      * Demande à l'utilisateur s'il souhaite sauvegarder le festival actuel s'il a été modifié.
      *
      * @return true si l'utilisateur a choisi de sauvegarder ou de ne pas sauvegarder, false s'il a annulé
      */
     private boolean askToSaveFestival() {
-        if (festivalHash == festival.hashCode()) {
+        if (savedModCount == festival.getModCount()) {
             LOGGER.info("Festival\"" + festival.getName() + "\" didn't changed");
             return true;
         }
@@ -248,12 +356,32 @@ public class MainController {
 
     /**
      * Charge un festival à partir d'un fichier.
+     * Le festival remplacé est gardé en mémoire s'il n'a pas été modifié, pour être rouvert instantanément.
      *
      * @param festival Le festival à charger
+     * @return true si le festival a remplacé le festival actuel, false si l'utilisateur a annulé
      */
-    private void loadFestival(Festival festival) {
-        if (this.festival != null && !askToSaveFestival())
-            return;
+    private boolean loadFestival(Festival festival) {
+        Festival previous = this.festival;
+        if (previous != null) {
+            boolean unchanged = savedModCount == previous.getModCount();
+            if (!askToSaveFestival())
+                return false;
+            if (unchanged && previous != festival)
+                festivalCache.put(previous);
+        }
+        switchFestival(festival, DEFAULT_WORKSPACE);
+        return true;
+    }
+
+    /**
+     * Remplace le festival actuel sans proposer de le sauvegarder. La sauvegarde automatique, la surveillance
+     * du fichier, le menu de compression et l'espace de travail, avec le titre de la fenêtre, suivent le nouveau festival.
+     *
+     * @param festival Le festival à charger
+     * @param register L'espace de travail à afficher
+     */
+    private void switchFestival(Festival festival, WorkspaceController.WorkspaceRegister register) {
         LOGGER.info("Loading festival \"" + festival.getName() + "\"");
         File file = festival.getFile();
         if (file != null)
@@ -262,8 +390,11 @@ public class MainController {
                 "Chargement du festival impossible",
                 () -> {
                     this.festival = festival;
-                    festivalHash = festival.hashCode();
-                    loadWorkspace(DEFAULT_WORKSPACE);
+                    savedModCount = festival.getModCount();
+                    autoSaver.watch(festival);
+                    fileWatcher.watch(file);
+                    compressMenuItem.setSelected(festival.getCompressionLevel() > 0);
+                    loadWorkspace(register);
                     LOGGER.info("Loaded festival \"" + festival.getName() + "\"");
                 });
     }
@@ -302,25 +433,89 @@ public class MainController {
                         LOGGER.info("User cancelled opening");
                         return;
                     }
-                    loadFestival(Festival.Festival(file));
-                    LOGGER.info("Opened another festival");
+                    openFestival(file);
+                    LOGGER.info("Opening another festival");
                 });
     }
 
     /**
      * Ouvre un festival à partir du fichier spécifié.
+     * Un festival récemment fermé et dont le fichier n'a pas changé est rouvert depuis la mémoire, sans relire le fichier.
      *
      * @param file Le fichier du festival à ouvrir
      */
     private void openFestival(File file) {
         LOGGER.info("Opening a festival file");
-        tryCatch(
-                "Ouverture du fichier du festival impossible",
-                () -> {
-                    loadFestival(Festival.Festival(file));
-                    LOGGER.info("Opened a festival file");
-                }
-        );
+        Festival cached = festivalCache.take(file);
+        if (cached == null)
+            loadFestival(file, "Ouverture du fichier du festival impossible");
+        else if (!loadFestival(cached))
+            festivalCache.put(cached); // L'utilisateur a annulé, le festival reste fermé
+    }
+
+    /**
+     * Charge un festival depuis un fichier en arrière-plan, en affichant l'avancement du chargement.
+     * Le festival actuel reste utilisable jusqu'à ce que le nouveau soit entièrement chargé et le remplace.
+     * Un chargement en cours est annulé par le suivant.
+     *
+     * @param file     Le fichier du festival à charger
+     * @param errorMsg Le message affiché si le chargement échoue, null pour ne rien afficher
+     */
+    private void loadFestival(File file, String errorMsg) {
+        if (loading != null)
+            loading.cancel();
+        Task<Festival> task = new Task<>() {
+            @Override
+            protected Festival call() throws Exception {
+                return Festival.load(file, progress -> updateProgress(progress, 1));
+            }
+        };
+        task.setOnSucceeded(e -> {
+            finishLoading(task);
+            loadFestival(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            finishLoading(task);
+            LOGGER.severe("Loading festival file \"" + file.getName() + "\" failed: " + task.getException().getMessage());
+            if (errorMsg != null)
+                showError(errorMsg + " :\n" + task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> {
+            finishLoading(task);
+            LOGGER.info("Cancelled loading festival file \"" + file.getName() + "\"");
+        });
+        loading = task;
+        loadingLabel.setText(String.format("Chargement de %s", file.getName()));
+        loadingProgress.progressProperty().bind(task.progressProperty());
+        loadingBox.setVisible(true);
+        loadingBox.setManaged(true);
+        Thread thread = new Thread(task, "festival-loader");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Loading festival file \"" + file.getName() + "\" in background");
+    }
+
+    /**
+     * Masque l'avancement d'un chargement terminé, s'il n'a pas été remplacé par un autre.
+     *
+     * @param task Le chargement terminé
+     */
+    private void finishLoading(Task<Festival> task) {
+        if (loading != task)
+            return;
+        loading = null;
+        loadingProgress.progressProperty().unbind();
+        loadingBox.setVisible(false);
+        loadingBox.setManaged(false);
+    }
+
+    /**
+     * Annule le chargement en cours, le festival actuel est conservé.
+     */
+    @FXML
+    private void cancelLoading() {
+        if (loading != null)
+            loading.cancel();
     }
 
     /**
@@ -332,15 +527,33 @@ public class MainController {
         if (festival.getFile() == null) {
             LOGGER.info("Current festival without file, asking for one to save");
             saveFestivalAs();
-        } else tryCatch(
-                "Sauvegarde du festival impossible",
-                "Festival sauvegardé",
+        } else writeFestival(false);
+    }
+
+    /**
+     * Écrit le festival actuel dans son fichier en arrière-plan et affiche le résultat une fois l'écriture terminée.
+     *
+     * @param compact true pour réécrire entièrement le fichier, false pour n'y ajouter que les modifications
+     */
+    private void writeFestival(boolean compact) {
+        Festival saved = festival;
+        long modCount = saved.getModCount();
+        Consumer<FestivalException> callback = error -> tryCatch(
+                compact ? "Compaction du festival impossible" : "Sauvegarde du festival impossible",
+                compact ? "Fichier du festival compacté" : "Festival sauvegardé",
                 () -> {
-                    festival.save();
-                    festivalHash = festival.hashCode();
-                    LOGGER.info("Saving current festival");
-                }
-        );
+                    if (error != null)
+                        throw error;
+                    if (festival == saved) {
+                        savedModCount = modCount;
+                        fileWatcher.acknowledge();
+                    }
+                    LOGGER.info("Saved festival \"" + saved.getName() + "\"");
+                });
+        if (compact)
+            saver.compact(saved, callback);
+        else
+            saver.save(saved, callback);
     }
 
     /**
@@ -354,13 +567,253 @@ public class MainController {
             LOGGER.info("User cancelled save");
         } else tryCatch(
                 "Sauvegarde du festival impossible",
-                "Festival sauvegardé",
                 () -> {
                     festival.setFile(file);
+                    fileWatcher.watch(file);
                     addRecentFile(file);
-                    festival.save();
-                    festivalHash = festival.hashCode();
-                    LOGGER.info("Saved festival as \"" + festival.getFile().getName() + "\"");
+                    writeFestival(false);
+                    LOGGER.info("Saving festival as \"" + festival.getFile().getName() + "\"");
+                });
+    }
+
+    /**
+     * Sauvegarde le festival actuel en arrière-plan après ses modifications, sans message en cas de succès.
+     *
+     * @param saved le festival modifié
+     */
+    private void autoSaveFestival(Festival saved) {
+        if (saved != festival)
+            return;
+        long modCount = saved.getModCount();
+        if (modCount == savedModCount && !saver.isSaving())
+            return; // Modifications déjà dans le fichier, par exemple relues depuis celui-ci
+        saver.save(saved, error -> {
+            if (error != null)
+                showError(String.format("Sauvegarde automatique du festival impossible : %s", error.getMessage()));
+            else if (festival == saved) {
+                savedModCount = modCount;
+                fileWatcher.acknowledge();
+            }
+        });
+    }
+
+    /**
+     * Applique au festival actuel les modifications de son fichier faites par ailleurs.
+     * Seuls les éléments modifiés sont mis à jour dans l'espace de travail s'il le permet.
+     * Si le festival a des modifications non sauvegardées, l'utilisateur choisit entre elles et le fichier.
+     *
+     * @param changed le festival relu depuis le fichier
+     * @param stamp   l'empreinte du fichier relu
+     */
+    private void reloadFestival(Festival changed, FileStamp stamp) {
+        if (saver.isSaving() || fileWatcher.isKnown(stamp) || !Objects.equals(changed.getFile(), festival.getFile()))
+            return;
+        fileWatcher.acknowledge(stamp);
+        festival.fileChanged();
+        if (savedModCount != festival.getModCount()) {
+            Alert alert = new Alert(
+                    Alert.AlertType.CONFIRMATION,
+                    String.format("Le fichier du festival \"%s\" a été modifié par ailleurs, voulez-vous le recharger et perdre vos modifications ?", festival.getName()),
+                    ButtonType.YES,
+                    ButtonType.NO
+            );
+            alert.showAndWait();
+            if (!ButtonType.YES.equals(alert.getResult())) {
+                LOGGER.info("User kept unsaved changes over changed file");
+                return;
+            }
+        }
+        LOGGER.info("Reloading festival \"" + festival.getName() + "\" changed on disk");
+        tryCatch(
+                "Rechargement du festival impossible",
+                () -> {
+                    try {
+                        FestivalDiff diff = FestivalDiff.apply(festival, changed);
+                        savedModCount = festival.getModCount();
+                        if (!diff.isEmpty() && !currentWorkspaceController.refresh(diff))
+                            loadWorkspace(currentWorkspace);
+                    } catch (FestivalException e) {
+                        LOGGER.warning("Changes cannot be applied one by one, replacing festival: " + e.getMessage());
+                        festivalCache.invalidate(changed.getFile()); // Une copie gardée serait antérieure au fichier
+                        switchFestival(changed, currentWorkspace);
+                    }
+                });
+    }
+
+    /**
+     * Active ou désactive la sauvegarde automatique selon le menu.
+     */
+    @FXML
+    private void toggleAutoSave() {
+        autoSaver.setEnabled(autoSaveMenuItem.isSelected());
+    }
+
+    /**
+     * Compresse ou décompresse le fichier du festival actuel selon le menu, en le réécrivant s'il existe.
+     */
+    @FXML
+    private void toggleCompression() {
+        tryCatch(
+                "Compression du festival impossible",
+                () -> {
+                    festival.setCompressionLevel(compressMenuItem.isSelected() ? FestivalCodec.DEFAULT_COMPRESSION_LEVEL : 0);
+                    if (festival.getFile() != null)
+                        writeFestival(true);
+                });
+    }
+
+    /**
+     * Réécrit entièrement le fichier du festival actuel, vidant le journal de ses modifications.
+     */
+    @FXML
+    private void compactFestival() {
+        LOGGER.info("Compacting current festival");
+        if (festival.getFile() == null) {
+            LOGGER.info("Current festival without file, asking for one to save");
+            saveFestivalAs();
+        } else writeFestival(true);
+    }
+
+    /**
+     * Importe en une seule fois des artistes, stocks et types de tickets depuis des fichiers CSV,
+     * puis recharge l'espace de travail actuel.
+     */
+    @FXML
+    private void importFestival() {
+        LOGGER.info("Importing into current festival");
+        List<File> files = askImportFiles("Importer").showOpenMultipleDialog(stage);
+        if (files == null) {
+            LOGGER.info("User cancelled import");
+        } else tryCatch(
+                "Import impossible",
+                "Import terminé",
+                () -> {
+                    FestivalImporter.importFiles(festival, files);
+                    loadWorkspace(currentWorkspace);
+                });
+    }
+
+    /**
+     * Exporte les données du festival actuel en CSV ou en JSON, selon l'extension choisie.
+     * L'export lit un instantané du festival en arrière-plan, le festival reste modifiable pendant l'écriture.
+     */
+    @FXML
+    private void exportFestival() {
+        LOGGER.info("Exporting current festival");
+        File file = askExportFile("Exporter", festival.getName()).showSaveDialog(stage);
+        if (file == null) {
+            LOGGER.info("User cancelled export");
+        } else tryCatch(
+                "Export du festival impossible",
+                () -> {
+                    Festival snapshot = festival.snapshot();
+                    FESTIVAL_WORKER.execute(() -> {
+                        FestivalException error = null;
+                        try {
+                            FestivalExporter.export(snapshot, file);
+                        } catch (FestivalException e) {
+                            error = e;
+                        }
+                        FestivalException result = error;
+                        Platform.runLater(() -> tryCatch(
+                                "Export du festival impossible",
+                                "Festival exporté",
+                                () -> {
+                                    if (result != null)
+                                        throw result;
+                                }));
+                    });
+                    LOGGER.info("Exporting festival \"" + snapshot.getName() + "\" in background");
+                });
+    }
+
+    /**
+     * Compare le festival actuel avec un autre fichier du festival et affiche les modifications,
+     * de l'autre fichier vers le festival actuel.
+     * Le fichier est lu et comparé à un instantané du festival en arrière-plan.
+     */
+    @FXML
+    private void compareFestival() {
+        LOGGER.info("Comparing current festival");
+        File file = askFile("Comparer avec").showOpenDialog(stage);
+        if (file == null) {
+            LOGGER.info("User cancelled comparison");
+        } else tryCatch(
+                "Comparaison du festival impossible",
+                () -> {
+                    Festival snapshot = festival.snapshot();
+                    FESTIVAL_WORKER.execute(() -> {
+                        List<FestivalChange> changes = null;
+                        FestivalException error = null;
+                        try {
+                            changes = FestivalTree.of(Festival.Festival(file)).diff(FestivalTree.of(snapshot));
+                        } catch (FestivalException e) {
+                            error = e;
+                        }
+                        List<FestivalChange> result = changes;
+                        FestivalException failure = error;
+                        Platform.runLater(() -> tryCatch(
+                                "Comparaison du festival impossible",
+                                () -> {
+                                    if (failure != null)
+                                        throw failure;
+                                    List<String> lines = new ArrayList<>();
+                                    for (FestivalChange change : result)
+                                        lines.add(change.toString());
+                                    showReport(result.isEmpty()
+                                            ? String.format("Le festival est identique à %s", file.getName())
+                                            : String.format("%d modifications depuis %s", result.size(), file.getName()), lines);
+                                }));
+                    });
+                    LOGGER.info("Comparing festival \"" + snapshot.getName() + "\" in background");
+                });
+    }
+
+    /**
+     * Fusionne dans le festival actuel les modifications d'un autre fichier du festival,
+     * faites depuis une version commune choisie par l'utilisateur. Les conflits sont résolus en faveur du festival actuel.
+     * Les fichiers sont lus et fusionnés avec un instantané du festival en arrière-plan, puis le résultat est appliqué
+     * au festival s'il n'a pas été modifié entre-temps.
+     */
+    @FXML
+    private void mergeFestival() {
+        LOGGER.info("Merging into current festival");
+        File theirs = askFile("Fusionner avec").showOpenDialog(stage);
+        File base = theirs == null ? null : askFile("Version commune").showOpenDialog(stage);
+        if (base == null) {
+            LOGGER.info("User cancelled merge");
+        } else tryCatch(
+                "Fusion du festival impossible",
+                () -> {
+                    Festival ours = festival;
+                    long modCount = ours.getModCount();
+                    Festival snapshot = ours.snapshot();
+                    FESTIVAL_WORKER.execute(() -> {
+                        FestivalMerge merge = null;
+                        FestivalException error = null;
+                        try {
+                            merge = FestivalMerge.merge(Festival.Festival(base), snapshot, Festival.Festival(theirs));
+                        } catch (FestivalException e) {
+                            error = e;
+                        }
+                        FestivalMerge result = merge;
+                        FestivalException failure = error;
+                        Platform.runLater(() -> tryCatch(
+                                "Fusion du festival impossible",
+                                () -> {
+                                    if (failure != null)
+                                        throw failure;
+                                    if (festival != ours || ours.getModCount() != modCount)
+                                        throw new FestivalException("Le festival a été modifié pendant la fusion, elle doit être recommencée");
+                                    FestivalDiff diff = FestivalDiff.apply(festival, result.getFestival());
+                                    if (!diff.isEmpty() && !currentWorkspaceController.refresh(diff))
+                                        loadWorkspace(currentWorkspace);
+                                    showReport(result.hasConflicts()
+                                            ? String.format("Fusion terminée, %d conflits résolus en faveur du festival actuel", result.getConflicts().size())
+                                            : "Fusion terminée sans conflit", result.getConflicts());
+                                }));
+                    });
+                    LOGGER.info("Merging into festival \"" + snapshot.getName() + "\" in background");
                 });
     }
 
@@ -412,6 +865,8 @@ public class MainController {
         LOGGER.info("Loading workspace \"" + register.name + "\"");
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource(register.viewPath));
         workspace.getChildren().setAll((Node) fxmlLoader.load());
+        if (currentWorkspaceController != null)
+            currentWorkspaceController.dispose();
         currentWorkspaceController = fxmlLoader.getController();
         currentWorkspaceController.initialize(festival);
         stage.setTitle(String.format("%s - %s", APP_NAME, register.name));
@@ -1,14 +1,18 @@
 package com.musigma.controllers;
 
 import com.musigma.models.Festival;
+import com.musigma.models.FestivalDiff;
+import com.musigma.models.FestivalListener;
 import javafx.scene.Node;
 
 /**
  * La classe abstraite WorkspaceController est la base pour les contrôleurs qui
  * manipulent les espaces de travail dans l'application. Elle fait office
  * de base a chaque workspace afin de structurer l'application.
+ * Le contrôleur écoute les modifications du festival tant que son espace de travail est affiché,
+ * pour mettre à jour ses vues élément par élément (voir {@link FestivalListener}).
  */
-public abstract class WorkspaceController {
+public abstract class WorkspaceController implements FestivalListener {
 
     /**
      * Le festival à manipuler.
@@ -22,6 +26,26 @@ public abstract class WorkspaceController {
      */
     public void initialize(Festival festival) {
         this.festival = festival;
+        festival.addListener(this);
+    }
+
+    /**
+     * Arrête d'écouter le festival, lorsque l'espace de travail est remplacé.
+     */
+    public void dispose() {
+        if (festival != null)
+            festival.removeListener(this);
+    }
+
+    /**
+     * Met à jour l'espace de travail après des modifications du festival faites par ailleurs,
+     * en ne reprenant que les éléments modifiés.
+     *
+     * @param diff les éléments du festival ajoutés, retirés ou modifiés
+     * @return true si l'espace de travail est à jour, false s'il doit être rechargé
+     */
+    public boolean refresh(FestivalDiff diff) {
+        return false;
     }
 
     /**
@@ -10,17 +10,21 @@ import com.musigma.controllers.components.IntTextField;
 import com.musigma.controllers.components.RequiredTextField;
 import com.musigma.models.Artiste;
 import com.musigma.models.Festival;
+import com.musigma.models.FestivalDiff;
 import com.musigma.models.Representation;
 import com.musigma.models.exception.ArtisteException;
 import com.musigma.models.exception.FestivalException;
 import com.musigma.models.exception.RepresentationException;
+import javafx.application.Platform;
 import javafx.event.Event;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.ArrayList;
+import java.util.HashMap;
+
+import static com.musigma.controllers.Dialogs.showError;
 
 /**
  * Contrôleur pour l'espace de travail Calendrier.
@@ -50,45 +54,42 @@ public class CalendarController extends WorkspaceController {
     @FXML
     RequiredTextField nomEvent;
 
-    private final ArrayList<Entry<?>> entries = new ArrayList<>();
+    private Calendar calendar;
+
+    /**
+     * Entrée du planning de chaque représentation, tenue à jour à chaque modification du festival.
+     */
+    private final HashMap<Representation, Entry<Representation>> entries = new HashMap<>();
+
+    /**
+     * Vrai pendant la mise à jour d'une entrée depuis le modèle, pour ne pas la renvoyer au modèle.
+     */
+    private boolean updating;
 
     /**
      * Initialise le contrôleur avec les données du festival.
+     * Le planning suit ensuite les représentations ajoutées, retirées ou modifiées.
      *
      * @param festival le festival à gérer
      */
     public void initialize(Festival festival) {
         super.initialize(festival);
-        Calendar calendar = new Calendar("Planning");
+        calendar = new Calendar("Planning");
         CalendarSource calendarSource = new CalendarSource("Festival");
         calendarSource.getCalendars().add(calendar);
         calendarView.getCalendarSources().add(calendarSource);
         calendar.addEventHandler(this::addToModel);
 
-        //ajoutes des Entrée dans la liste entries pour ensuite les ajouter dans le planning
-        for (Representation r : festival.getRepresentations()) {
-            Entry<?> tempEntry = new Entry<>(r.getArtiste().getName());
-            tempEntry.changeStartTime(LocalTime.from(festival.getStart().plusMinutes(r.getStartDelta())));
-            tempEntry.changeEndTime(LocalTime.from(festival.getStart().plusMinutes(r.getStartDelta())).plusMinutes(r.getDuration()));
-            entries.add(tempEntry);
-        }
-
-        //ajout des entrée sur le planning
-        for (Entry<?> e : entries) {
-            calendar.addEntry(e);
-        }
-
+        //ajout des représentations sur le planning
+        for (Representation r : festival.getRepresentations())
+            addEntry(r);
 
         //Ajoute de l'event avec les parametre rentré
         addEventButton.setOnAction(e -> {
-            Entry<Representation> entry = new Entry<>(nomEvent.getText());
-            entry.changeStartTime(LocalTime.of(dateDebut.getValue(), 0));
-            entry.changeEndTime(LocalTime.of(dateFin.getValue(), 0));
-            calendar.addEntry(entry);
             try {
                 addRep(nomEvent.getText(),
                         LocalDateTime.of(2024, 06, 20, dateDebut.getValue(), 0),
-                        entry.getEndTime().getHour() - entry.getStartTime().getHour(),
+                        dateFin.getValue() - dateDebut.getValue(),
                         scene.getText()
                 );
             } catch (ArtisteException | FestivalException ex) {
@@ -99,51 +100,140 @@ public class CalendarController extends WorkspaceController {
 
     /**
      * Gère les événements du calendrier pour mettre à jour le modèle de données.
+     * La représentation de l'entrée modifiée est retrouvée directement, sans parcourir le festival.
      *
-     * @param event l'événement du calendrier
+     * @param calendarEvent l'événement du calendrier
      */
-    private void addToModel(Event event) {
-        if (event.getEventType() == CalendarEvent.ENTRY_TITLE_CHANGED) {
-            //changer nom
-            for (Representation r : festival.getRepresentations()) {
-                if (r.getArtiste().getName().equals(((Entry<?>) event.getSource()).getTitle())) {
-                    try {
-                        r.getArtiste().setName(((Entry<?>) event.getSource()).getTitle());
-                    } catch (ArtisteException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+    private void addToModel(Event calendarEvent) {
+        if (updating || !(calendarEvent instanceof CalendarEvent))
+            return;
+        CalendarEvent event = (CalendarEvent) calendarEvent;
+        Entry<?> entry = event.getEntry();
+        if (entry == null || !(entry.getUserObject() instanceof Representation))
+            return;
+        Representation r = (Representation) entry.getUserObject();
+        try {
+            if (event.getEventType() == CalendarEvent.ENTRY_TITLE_CHANGED) {
+                //changer nom
+                if (r.getArtiste() != null)
+                    r.getArtiste().setName(entry.getTitle());
+            } else if (event.getEventType() == CalendarEvent.ENTRY_INTERVAL_CHANGED) {
+                //changer l'heure de début et de fin, lues avant que le modèle ne mette l'entrée à jour
+                int start = minutes(entry.getStartTime());
+                int end = minutes(entry.getEndTime());
+                r.setSchedule(start - minutes(festival.getStart().toLocalTime()), end - start);
+            } else if (event.getEventType() == CalendarEvent.ENTRY_CALENDAR_CHANGED && entry.getCalendar() == null) {
+                //pour supprimer la représentation
+                festival.removeRepresentation(r);
             }
-        } else if (event.getEventType() == CalendarEvent.ENTRY_INTERVAL_CHANGED) {
-            //changer l'heure de début et de fin
-            for (Representation r : festival.getRepresentations()) {
-                if (r.getArtiste().getName().equals(event.getSource())) {
-                    try {
-                        r.setStartDelta(((Entry<?>) event.getSource()).getStartTime().getHour() * 60 + ((Entry<?>) event.getSource()).getStartTime().getMinute());
-                    } catch (RepresentationException e) {
-                        throw new RuntimeException(e);
-                    }
+        } catch (ArtisteException | RepresentationException | FestivalException e) {
+            // Le modèle a refusé la modification : l'entrée reprend la place de sa représentation
+            Entry<Representation> restored = entries.get(r);
+            if (restored != null) {
+                updateEntry(restored, r);
+                if (restored.getCalendar() == null) {
+                    updating = true;
                     try {
-                        r.setDuration((((Entry<?>) event.getSource()).getEndTime().getHour() * 60 + ((Entry<?>) event.getSource()).getEndTime().getMinute()) - ((Entry<?>) event.getSource()).getStartTime().getHour() * 60 + ((Entry<?>) event.getSource()).getStartTime().getMinute());
-                    } catch (RepresentationException e) {
-                        throw new RuntimeException(e);
+                        calendar.addEntry(restored);
+                    } finally {
+                        updating = false;
                     }
                 }
             }
-        } else if (event.getEventType().equals(CalendarEvent.NULL_SOURCE_TARGET)) {
-            //pour supprimer l'artiste
-            for (Representation r : festival.getRepresentations()) {
-                if (r.getArtiste().getName().equals(((Entry<?>) event.getSource()).getTitle())) {
-                    try {
-                        festival.removeRepresentation(r);
-                    } catch (FestivalException e) {
-                        throw new RuntimeException(e);
-                    }
+            Platform.runLater(() -> showError(e.getMessage())); // Après la fin du déplacement en cours
+        }
+    }
+
+    private static int minutes(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Le planning suit déjà les modifications du festival, quelle qu'en soit l'origine.
+     *
+     * @param diff les éléments du festival ajoutés, retirés ou modifiés
+     * @return true, le planning est toujours à jour
+     */
+    @Override
+    public boolean refresh(FestivalDiff diff) {
+        return true;
+    }
+
+    /**
+     * Ajoute au planning la représentation ajoutée au festival.
+     */
+    @Override
+    public void elementAdded(Object source, String collection, int index, Object element) {
+        if (source == festival && "representations".equals(collection))
+            addEntry((Representation) element);
+    }
+
+    /**
+     * Retire du planning la représentation retirée du festival.
+     */
+    @Override
+    public void elementRemoved(Object source, String collection, int index, Object element) {
+        if (source == festival && "representations".equals(collection)) {
+            Entry<Representation> entry = entries.remove(element);
+            if (entry != null) {
+                updating = true;
+                try {
+                    entry.removeFromCalendar();
+                } finally {
+                    updating = false;
                 }
             }
         }
     }
 
+    /**
+     * Met à jour l'entrée de la représentation modifiée, ou les titres des représentations de l'artiste renommé.
+     */
+    @Override
+    public void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        if (source instanceof Representation) {
+            Entry<Representation> entry = entries.get(source);
+            if (entry != null)
+                updateEntry(entry, (Representation) source);
+        } else if (source instanceof Artiste && "name".equals(property)) {
+            for (Representation r : festival.getRepresentations((Artiste) source)) {
+                Entry<Representation> entry = entries.get(r);
+                if (entry != null)
+                    updateEntry(entry, r);
+            }
+        } else if (source == festival && "start".equals(property)) {
+            entries.forEach((r, entry) -> updateEntry(entry, r));
+        }
+    }
+
+    private void addEntry(Representation r) {
+        Entry<Representation> entry = new Entry<>();
+        entry.setUserObject(r);
+        updateEntry(entry, r);
+        entries.put(r, entry);
+        updating = true;
+        try {
+            calendar.addEntry(entry);
+        } finally {
+            updating = false;
+        }
+    }
+
+    /**
+     * Reporte le titre et les horaires d'une représentation sur son entrée.
+     */
+    private void updateEntry(Entry<Representation> entry, Representation r) {
+        updating = true;
+        try {
+            entry.setTitle(r.getArtiste() == null ? r.getScene() : r.getArtiste().getName());
+            LocalDateTime start = festival.getStart().plusMinutes(r.getStartDelta());
+            entry.changeStartTime(LocalTime.from(start));
+            entry.changeEndTime(LocalTime.from(start).plusMinutes(r.getDuration()));
+        } finally {
+            updating = false;
+        }
+    }
+
     /**
      * Ajoute une représentation au festival.
      *
@@ -155,15 +245,12 @@ public class CalendarController extends WorkspaceController {
      * @throws FestivalException en cas d'erreur liée au festival
      */
     public void addRep(String artisteName, LocalDateTime start, int duration, String scene) throws ArtisteException, FestivalException {
-        Entry<Representation> entry = new Entry<>(artisteName);
-        entry.setInterval(start, start.plusHours(duration));
         Representation representation = new Representation(
                 ((start.getHour() * 60) + start.getMinute()) - ((festival.getStart().getHour() * 60) + festival.getStart().getMinute()),
                 ((start.plusHours(duration).getHour() * 60) + start.plusHours(duration).getMinute()) - ((start.getHour() * 60) + start.getMinute()),
                 scene,
                 new Artiste(artisteName, "Rock", 10)
         );
-        entry.setUserObject(representation);
         festival.addRepresentation(representation);
     }
 }
@@ -8,6 +8,7 @@ import com.musigma.controllers.components.FloatTextField;
 import com.musigma.controllers.components.IntTextField;
 import com.musigma.controllers.components.RequiredTextField;
 import com.musigma.models.Festival;
+import com.musigma.models.FestivalDiff;
 import com.musigma.models.Stock;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
@@ -16,8 +17,6 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.util.Callback;
 
-import java.util.List;
-
 import static com.musigma.controllers.Dialogs.askValidForm;
 import static com.musigma.controllers.Dialogs.tryCatch;
 
@@ -55,15 +54,24 @@ public class StockController extends WorkspaceController {
     @FXML
     Label total;
 
+    /**
+     * Valeur totale des stocks, tenue à jour à chaque modification.
+     */
+    private double totalValue;
+
     /**
      * Initialise le contrôleur. Charge les stocks du festival dans la table. Définit les colonnes de la table. Définit les listeners pour les champs de saisie.
      * Définit un bouton de suppression pour chaque ligne de la table. Définit la modification des noms, quantités et prix des stocks.
+     * La table et le total suivent ensuite les modifications du festival.
      *
      * @param festival le festival
      */
     public void initialize(Festival festival) {
         super.initialize(festival);
         tableView.getItems().addAll(festival.getStocks());
+        for (Stock stock : festival.getStocks())
+            totalValue += stock.getPrix() * stock.getQuantity();
+        totalPrix();
         tableView.setEditable(true); // Permet l'édition de la TableView
 
         nameColumn.setCellValueFactory(f -> new SimpleStringProperty(f.getValue().getName()));
@@ -95,6 +103,61 @@ public class StockController extends WorkspaceController {
         addDeleteButtonToTable();
     }
 
+    /**
+     * La table et le total suivent déjà les modifications du festival, quelle qu'en soit l'origine.
+     *
+     * @param diff les éléments du festival ajoutés, retirés ou modifiés
+     * @return true, la table est toujours à jour
+     */
+    @Override
+    public boolean refresh(FestivalDiff diff) {
+        return true;
+    }
+
+    /**
+     * Ajoute le stock ajouté au festival à la table et à son total.
+     */
+    @Override
+    public void elementAdded(Object source, String collection, int index, Object element) {
+        if (source != festival || !"stocks".equals(collection))
+            return;
+        Stock stock = (Stock) element;
+        tableView.getItems().add(Math.min(index, tableView.getItems().size()), stock);
+        totalValue += stock.getPrix() * stock.getQuantity();
+        totalPrix();
+    }
+
+    /**
+     * Retire le stock retiré du festival de la table et de son total.
+     */
+    @Override
+    public void elementRemoved(Object source, String collection, int index, Object element) {
+        if (source != festival || !"stocks".equals(collection))
+            return;
+        Stock stock = (Stock) element;
+        tableView.getItems().remove(stock);
+        totalValue -= stock.getPrix() * stock.getQuantity();
+        totalPrix();
+    }
+
+    /**
+     * Réaffiche le stock modifié et corrige le total de la différence de sa valeur.
+     */
+    @Override
+    public void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        if (!(source instanceof Stock))
+            return;
+        Stock stock = (Stock) source;
+        if ("quantity".equals(property)) {
+            totalValue += stock.getPrix() * ((Integer) newValue - (Integer) oldValue);
+            totalPrix();
+        } else if ("prix".equals(property)) {
+            totalValue += ((Double) newValue - (Double) oldValue) * stock.getQuantity();
+            totalPrix();
+        }
+        tableView.refresh();
+    }
+
     /**
      * Ajoute un bouton de suppression à la table, crée une colonne d'action avec le bouton de suppression.
      * Lorsque le bouton est cliqué, la ligne correspondante est supprimée de la table.
@@ -121,11 +184,7 @@ public class StockController extends WorkspaceController {
                                 Stock stock = getTableView().getItems().get(getIndex());
                                 tryCatch(
                                         "Impossible de supprimer le stock",
-                                        () -> {
-                                            festival.removeStock(stock);
-                                            getTableView().getItems().remove(stock);
-                                            totalPrix();
-                                        });
+                                        () -> festival.removeStock(stock));
                             });
                         }
                     }
@@ -160,25 +219,18 @@ public class StockController extends WorkspaceController {
                             price.node.getValue()
                     );
                     festival.addStock(stock);
-                    tableView.getItems().add(stock);
-                    totalPrix();
                 }
         );
     }
 
     /**
-     * Calcule le prix total des stocks.
+     * Affiche le prix total des stocks.
      */
     private void totalPrix() {
-        List<Stock> stocks = tableView.getItems();
-        if (stocks.size() == 0)
+        if (tableView.getItems().isEmpty()) {
+            totalValue = 0;
             total.setText("");
-        else {
-            double t = 0;
-            for (Stock stock : stocks) {
-                t += stock.getPrix() * stock.getQuantity();
-            }
-            total.setText(String.format("Total : %.2f €", t));
-        }
+        } else
+            total.setText(String.format("Total : %.2f €", totalValue));
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import com.musigma.controllers.components.IntTextField;
 import com.musigma.controllers.components.RequiredTextField;
 import com.musigma.models.Avantage;
 import com.musigma.models.Festival;
+import com.musigma.models.FestivalDiff;
 import com.musigma.models.Stock;
 import com.musigma.models.TypeTicket;
 import javafx.beans.property.ReadOnlyObjectWrapper;
@@ -16,6 +17,8 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.util.Callback;
 
+import java.util.HashMap;
+
 import static com.musigma.controllers.Dialogs.*;
 
 /**
@@ -34,6 +37,11 @@ public class TicketController extends WorkspaceController {
     @FXML
     TabPane tabPane;
 
+    /**
+     * Onglet de chaque type de ticket, pour retrouver celui à mettre à jour.
+     */
+    private final HashMap<TypeTicket, Tab> tabs = new HashMap<>();
+
     /**
      * Initialisation de l'espace de travail, restauration des onglets et ajout des écouteurs , definition des actions des boutons
      * definition de la comboBox et verification des tickets
@@ -59,7 +67,7 @@ public class TicketController extends WorkspaceController {
      * Ajoute un ticket. Si les champs de saisie sont valides, un ticket est créé et ajouté à la liste.
      * Sauvegarde le ticket dans la liste des tickets du festival. Crée un onglet pour le ticket.
      *
-     * @see #createTab(TypeTicket)
+     * @see #createTab(TypeTicket, int)
      * @see #initialize(Festival)
      */
     @FXML
@@ -75,14 +83,12 @@ public class TicketController extends WorkspaceController {
                 () -> {
                     TypeTicket ticket = new TypeTicket(nameTicket.node.getText(), quantiteTicket.node.getValue(), priceTicket.node.getValue());
                     festival.addTicketType(ticket);
-                    createTab(ticket);
                 }
         );
     }
 
     /**
      * Met à jour un ticket. Si les champs de saisie sont valides, les détails du ticket sont mis à jour.
-     * Restaure les onglets après la mise à jour.
      */
     @FXML
     private void updTicket() {
@@ -106,8 +112,6 @@ public class TicketController extends WorkspaceController {
                         ticket.setType(nameTicket.node.getText());
                         ticket.setQuantity(quantiteTicket.node.getValue());
                         ticket.setPrice(priceTicket.node.getValue());
-                        tabPane.getTabs().clear();
-                        restoreTab();
                     }
             );
         }
@@ -115,7 +119,6 @@ public class TicketController extends WorkspaceController {
 
     /**
      * Supprime un ticket sélectionné. Affiche une erreur si aucun ticket n'est disponible.
-     * Restaure les onglets après la suppression.
      */
     @FXML
     private void removeTicket() {
@@ -125,18 +128,14 @@ public class TicketController extends WorkspaceController {
             TypeTicket ticket = festival.getTicketTypes().get(tabPane.getSelectionModel().getSelectedIndex());
             tryCatch(
                     "Impossible de supprimer le type de ticket",
-                    () -> {
-                        festival.removeTicketType(ticket);
-                        tabPane.getTabs().clear();
-                        restoreTab();
-                    }
+                    () -> festival.removeTicketType(ticket)
             );
         }
     }
 
     /**
      * Ajoute un avantage à un ticket. Si les champs de saisie sont valides, un avantage est créé et ajouté à la liste.
-     * Sauvegarde l'avantage dans la liste des avantages du ticket. Ajoute l'avantage au TableView.
+     * Sauvegarde l'avantage dans la liste des avantages du ticket et du stock.
      *
      * @see #initialize(Festival)
      */
@@ -166,9 +165,6 @@ public class TicketController extends WorkspaceController {
                                 quantityByTicket.node.getValue()
                         );
                         avantage.connect();
-                        TableView<Avantage> tableView = (TableView<Avantage>) tabPane.getSelectionModel().getSelectedItem().getContent();
-                        tableView.getItems().add(avantage);
-                        ticket.addAvantage(avantage);
                     }
             );
         }
@@ -180,11 +176,12 @@ public class TicketController extends WorkspaceController {
      * Ajoute un bouton de suppression pour chaque ligne de la table.
      *
      * @param ticket TypeTicket Ticket
+     * @param index  int Position de l'onglet, celle du ticket dans le festival
      * @see #renameTab(Tab, TypeTicket, boolean)
      * @see #addDeleteButtonToTable(TableView, TableColumn)
      * @see #initialize(Festival)
      */
-    private void createTab(TypeTicket ticket) {
+    private void createTab(TypeTicket ticket, int index) {
         Tab newTab = new Tab(ticket.getType());
         renameTab(newTab, ticket, tabPane.getTabs().isEmpty());
         TableView<Avantage> avantageTableView = new TableView<>();
@@ -208,7 +205,9 @@ public class TicketController extends WorkspaceController {
                     () -> avantage.setQuantityByTicket(event.getNewValue()));
         });
 
-        tabPane.getTabs().add(newTab);
+        avantageTableView.getItems().addAll(ticket.getAvantages());
+        tabs.put(ticket, newTab);
+        tabPane.getTabs().add(index, newTab);
         tabPane.getSelectionModel().select(newTab);
     }
 
@@ -237,10 +236,7 @@ public class TicketController extends WorkspaceController {
                                 Avantage avantage = getTableView().getItems().get(getIndex());
                                 tryCatch(
                                         "Impossible de supprimer l'avantage",
-                                        () -> {
-                                            festival.getTicketTypes().get(tabPane.getSelectionModel().getSelectedIndex()).removeAvantage(avantage);
-                                            getTableView().getItems().remove(avantage);
-                                        });
+                                        () -> festival.getTicketTypes().get(tabPane.getSelectionModel().getSelectedIndex()).removeAvantage(avantage));
                             });
                         }
                     }
@@ -252,22 +248,91 @@ public class TicketController extends WorkspaceController {
     }
 
     /**
-     * Restaure les onglets pour les tickets. Ajoute les avantages des tickets aux TableView.
+     * Restaure les onglets pour les tickets, avec leurs avantages.
      *
-     * @see #createTab(TypeTicket)
+     * @see #createTab(TypeTicket, int)
      */
     private void restoreTab() {
-        for (int i = 0; i < festival.getTicketTypes().size(); i++) {
-            TypeTicket ticketType = festival.getTicketTypes().get(i);
-            createTab(ticketType);
-            Tab tab = tabPane.getTabs().get(i);
-            TableView<Avantage> tableView = (TableView<Avantage>) tab.getContent();
-            for (Avantage avantage : ticketType.getAvantages()) {
-                tableView.getItems().add(avantage);
+        for (int i = 0; i < festival.getTicketTypes().size(); i++)
+            createTab(festival.getTicketTypes().get(i), i);
+    }
+
+    /**
+     * Les onglets suivent déjà les modifications du festival, quelle qu'en soit l'origine.
+     *
+     * @param diff les éléments du festival ajoutés, retirés ou modifiés
+     * @return true, les onglets sont toujours à jour
+     */
+    @Override
+    public boolean refresh(FestivalDiff diff) {
+        return true;
+    }
+
+    /**
+     * Crée l'onglet du ticket ajouté au festival, ou ajoute l'avantage ajouté à la table de son ticket.
+     */
+    @Override
+    public void elementAdded(Object source, String collection, int index, Object element) {
+        if (source == festival && "ticketTypes".equals(collection))
+            createTab((TypeTicket) element, index);
+        else if (source instanceof TypeTicket && "avantages".equals(collection)) {
+            TableView<Avantage> tableView = avantageTable((TypeTicket) source);
+            if (tableView != null)
+                tableView.getItems().add(Math.min(index, tableView.getItems().size()), (Avantage) element);
+        }
+    }
+
+    /**
+     * Retire l'onglet du ticket retiré du festival, ou l'avantage retiré de la table de son ticket.
+     */
+    @Override
+    public void elementRemoved(Object source, String collection, int index, Object element) {
+        if (source == festival && "ticketTypes".equals(collection)) {
+            Tab tab = tabs.remove(element);
+            if (tab != null)
+                tabPane.getTabs().remove(tab);
+        } else if (source instanceof TypeTicket && "avantages".equals(collection)) {
+            TableView<Avantage> tableView = avantageTable((TypeTicket) source);
+            if (tableView != null)
+                tableView.getItems().remove(element);
+        }
+    }
+
+    /**
+     * Renomme l'onglet du ticket modifié, ou réaffiche la table des avantages concernés
+     * par la modification d'un avantage ou du nom d'un stock.
+     */
+    @Override
+    public void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        if (source instanceof TypeTicket) {
+            TypeTicket ticket = (TypeTicket) source;
+            Tab tab = tabs.get(ticket);
+            if (tab != null) {
+                renameTab(tab, ticket, tabPane.getTabs().size() == 1);
+                if (tab.isSelected())
+                    tab.setText(describe(ticket));
+            }
+        } else if (source instanceof Avantage) {
+            TableView<Avantage> tableView = avantageTable(((Avantage) source).getTicketType());
+            if (tableView != null)
+                tableView.refresh();
+        } else if (source instanceof Stock && "name".equals(property)) {
+            for (Avantage avantage : ((Stock) source).getAvantages()) {
+                TableView<Avantage> tableView = avantageTable(avantage.getTicketType());
+                if (tableView != null)
+                    tableView.refresh();
             }
         }
     }
 
+    /**
+     * Retourne la table des avantages d'un ticket, null s'il n'a pas d'onglet.
+     */
+    private TableView<Avantage> avantageTable(TypeTicket ticket) {
+        Tab tab = tabs.get(ticket);
+        return tab == null ? null : (TableView<Avantage>) tab.getContent();
+    }
+
     /**
      * Renomme un onglet. Si l'onglet est sélectionné, le nom de l'onglet est affiché avec le nombre de tickets et le prix.
      *
@@ -277,17 +342,27 @@ public class TicketController extends WorkspaceController {
      */
     private void renameTab(Tab tab, TypeTicket ticket, boolean isFirstTab) {
         if (isFirstTab) {
-            tab.setText(ticket.getType() + " (" + ticket.getQuantity() + " tickets, " + ticket.getPrice() + " €)");
+            tab.setText(describe(ticket));
         } else {
             tab.setText(ticket.getType());
         }
 
         tab.setOnSelectionChanged(e -> {
             if (tab.isSelected()) {
-                tab.setText(ticket.getType() + " (" + ticket.getQuantity() + " tickets, " + ticket.getPrice() + " €)");
+                tab.setText(describe(ticket));
             } else if (!isFirstTab) {
                 tab.setText(ticket.getType());
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Retourne le nom du ticket avec le nombre de tickets et le prix, affiché dans l'onglet sélectionné.
+     *
+     * @param ticket TypeTicket Ticket
+     * @return le nom détaillé du ticket
+     */
+    private static String describe(TypeTicket ticket) {
+        return ticket.getType() + " (" + ticket.getQuantity() + " tickets, " + ticket.getPrice() + " €)";
+    }
+}
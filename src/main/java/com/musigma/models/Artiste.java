@@ -3,8 +3,8 @@ package com.musigma.models;
 import com.musigma.models.exception.ArtisteException;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Collections;
+import java.util.SortedSet;
 import java.util.logging.Logger;
 
 import static com.musigma.utils.Log.getLogger;
@@ -14,14 +14,22 @@ import static com.musigma.utils.Log.getLogger;
  */
 public class Artiste implements Serializable {
 
+    /**
+     * Identifiant de sérialisation des premières versions (voir {@link Festival}).
+     */
+    private static final long serialVersionUID = 5121618087156236025L;
     /**
      * Logger de la classe Artiste.
      */
     private static final Logger LOGGER = getLogger(Artiste.class);
     /**
-     * Liste des représentations de l'artiste.
+     * Festival auquel appartient l'artiste, ou dont une représentation le référence.
      */
-    private final ArrayList<Representation> representations;
+    transient Festival festival;
+    /**
+     * Identifiant de l'artiste dans son festival, 0 s'il n'a jamais été ajouté à un festival.
+     */
+    transient long id;
     /**
      * Nom de l'artiste.
      */
@@ -45,7 +53,6 @@ public class Artiste implements Serializable {
      */
     public Artiste(String name, String genre, float price) throws ArtisteException {
         LOGGER.info("Initialized Artiste");
-        representations = new ArrayList<>();
         setName(name);
         setGenre(genre);
         setPrice(price);
@@ -68,10 +75,16 @@ public class Artiste implements Serializable {
      * @throws ArtisteException si le nom est null ou vide
      */
     public void setName(String name) throws ArtisteException {
+        checkWritable();
         if (name == null || name.isBlank())
             throw new ArtisteException("Le nom est null ou vide, doit être défini");
+        String oldName = this.name;
         this.name = name;
         LOGGER.info("Set Artiste.name");
+        if (festival != null) {
+            festival.renamed(this, id, oldName);
+            festival.firePropertyChanged(this, "name", oldName, name);
+        }
     }
 
     /**
@@ -90,10 +103,16 @@ public class Artiste implements Serializable {
      * @throws ArtisteException si le genre est null ou vide
      */
     public void setGenre(String genre) throws ArtisteException {
+        checkWritable();
         if (genre == null || genre.isBlank())
             throw new ArtisteException("Le genre est null ou vide, doit être défini");
+        String oldGenre = this.genre;
         this.genre = genre;
         LOGGER.info("Set Artiste.genre");
+        if (festival != null) {
+            intern(festival.genreDictionary());
+            festival.firePropertyChanged(this, "genre", oldGenre, genre);
+        }
     }
 
     /**
@@ -112,56 +131,50 @@ public class Artiste implements Serializable {
      * @throws ArtisteException si le prix est négatif
      */
     public void setPrice(float price) throws ArtisteException {
+        checkWritable();
         if (price < 0)
             throw new ArtisteException("Le prix est négatif, doit être positif");
+        float oldPrice = this.price;
         this.price = price;
         LOGGER.info("Set Artiste.price");
+        if (festival != null)
+            festival.firePropertyChanged(this, "price", oldPrice, price);
     }
 
     /**
-     * Ajoute une représentation à la liste des représentations de l'artiste.
+     * Retourne les représentations dont il est l'artiste, tenues à jour par son festival
+     * (voir {@link Festival#getRepresentations(Artiste)}).
      *
-     * @param representation la représentation à ajouter
-     * @throws ArtisteException si la représentation est null
-     */
-    public void addRepresentation(Representation representation) throws ArtisteException {
-        if (representation == null)
-            throw new ArtisteException("La représentation est null, doit être défini");
-        representations.add(representation);
-        LOGGER.info("Added Representation to Artiste.representations");
+     * @return les représentations triées par début, non modifiables, vides si l'artiste n'est lié à aucun festival
+     */
+    public SortedSet<Representation> getRepresentations() {
+        return festival == null ? Collections.emptySortedSet() : festival.getRepresentations(this);
     }
 
     /**
-     * Supprime une représentation de la liste des représentations de l'artiste.
+     * Remplace le genre par l'instance du dictionnaire des genres du festival.
      *
-     * @param representation la représentation à supprimer
-     * @throws ArtisteException si la représentation n'a pas été trouvée
+     * @param genres le dictionnaire des genres du festival
      */
-    public void removeRepresentation(Representation representation) throws ArtisteException {
-        if (!representations.remove(representation))
-            throw new ArtisteException("La représentation n'a pas été trouvée");
-        LOGGER.info("Removed Representation from Artiste.representations");
+    void intern(FestivalDictionary genres) {
+        genre = genres.intern(genre);
     }
 
     /**
-     * Retourne la liste des représentations de l'artiste.
+     * Retourne l'identifiant de l'artiste, attribué par son festival et conservé ensuite,
+     * même si l'artiste est modifié.
      *
-     * @return la liste des représentations
+     * @return l'identifiant, 0 si l'artiste n'a jamais été ajouté à un festival
      */
-    public ArrayList<Representation> getRepresentations() {
-        return representations;
+    public long getId() {
+        return id;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Artiste artiste = (Artiste) o;
-        return Float.compare(price, artiste.price) == 0 && Objects.equals(name, artiste.name) && Objects.equals(genre, artiste.genre) && Objects.equals(representations, artiste.representations);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(name, genre, price, representations);
+    /**
+     * Vérifie que l'artiste n'est pas la copie d'un instantané (voir {@link Festival#snapshot()}).
+     */
+    private void checkWritable() throws ArtisteException {
+        if (festival != null && festival.isSnapshot())
+            throw new ArtisteException(Festival.READ_ONLY_MESSAGE);
     }
 }
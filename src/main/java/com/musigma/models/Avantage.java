@@ -5,7 +5,6 @@ import com.musigma.models.exception.StockException;
 import com.musigma.models.exception.TypeTicketException;
 
 import java.io.Serializable;
-import java.util.Objects;
 import java.util.logging.Logger;
 
 import static com.musigma.utils.Log.getLogger;
@@ -16,6 +15,10 @@ import static com.musigma.utils.Log.getLogger;
  */
 public class Avantage implements Serializable {
 
+    /**
+     * Identifiant de sérialisation des premières versions (voir {@link Festival}).
+     */
+    private static final long serialVersionUID = -8179158204163245309L;
     /**
      * Logger de la classe Avantage.
      */
@@ -78,6 +81,18 @@ public class Avantage implements Serializable {
         LOGGER.info("Disconnected stock and ticket from avantage");
     }
 
+    /**
+     * Indique si cet avantage est relié à son type de ticket.
+     *
+     * @return true si l'avantage fait partie des avantages de son type de ticket, false sinon
+     */
+    boolean isConnected() {
+        for (Avantage avantage : ticketType.getAvantages())
+            if (avantage == this)
+                return true;
+        return false;
+    }
+
     /**
      * Retourne la quantité d'objet du stock par ticket.
      *
@@ -94,12 +109,17 @@ public class Avantage implements Serializable {
      * @throws AvantageException si la quantité est inférieure ou égale à zéro
      */
     public void setQuantityByTicket(int quantityByTicket) throws AvantageException {
+        if (ticketType.festival != null && ticketType.festival.isSnapshot())
+            throw new AvantageException(Festival.READ_ONLY_MESSAGE);
         if (quantityByTicket <= 0)
             throw new AvantageException("La quantité par ticket est inférieure ou égale à zéro, doit être positive");
         if (stock.isFixed() && quantityByTicket * ticketType.getQuantity() > stock.getQuantity())
             throw new AvantageException("La quantité par ticket multipié par le nombre de ticket surpasse les stocks");
+        int oldQuantityByTicket = this.quantityByTicket;
         this.quantityByTicket = quantityByTicket;
         LOGGER.info("Set Avantage.quantityByTicket");
+        if (ticketType.festival != null && isConnected())
+            ticketType.festival.firePropertyChanged(this, "quantityByTicket", oldQuantityByTicket, quantityByTicket);
     }
 
     /**
@@ -120,32 +140,4 @@ public class Avantage implements Serializable {
         return stock;
     }
 
-    @Override
-    public boolean equals(Object o) {
-        // On utilise les hashcode des ticketType et stock afin d'éviter un stackOverflow
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Avantage avantage = (Avantage) o;
-        return quantityByTicket == avantage.quantityByTicket &&
-                Objects.equals(ticketType.hashCode(), avantage.ticketType.hashCode()) &&
-                Objects.equals(stock.hashCode(), avantage.stock.hashCode());
-    }
-
-    @Override
-    public int hashCode() {
-        // On n'utilise pas les hashcode des avantages de ticketType et stock afin d'éviter un stackOverflow
-        return Objects.hash(
-                quantityByTicket,
-                Objects.hash(
-                        ticketType.getType(),
-                        ticketType.getQuantity(),
-                        ticketType.getPrice()
-                ), // Pseudo hashcode pour ticketType
-                Objects.hash(
-                        stock.getName(),
-                        stock.getQuantity(),
-                        stock.isFixed()
-                ) // Pseudo hashcode pour stock
-        );
-    }
 }
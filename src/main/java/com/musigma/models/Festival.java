@@ -1,6 +1,9 @@
 package com.musigma.models;
 
+import com.musigma.models.exception.ArtisteException;
+import com.musigma.models.exception.AvantageException;
 import com.musigma.models.exception.FestivalException;
+import com.musigma.models.exception.RepresentationException;
 import com.musigma.models.exception.StockException;
 import com.musigma.models.exception.TypeTicketException;
 import org.ojalgo.optimisation.Expression;
@@ -9,12 +12,13 @@ import org.ojalgo.optimisation.Optimisation;
 import org.ojalgo.optimisation.Variable;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Objects;
-import java.util.TreeSet;
+import java.util.*;
+import java.util.function.DoubleConsumer;
 import java.util.logging.Logger;
 
 import static com.musigma.utils.Log.getLogger;
@@ -27,11 +31,21 @@ import static com.musigma.utils.Log.getLogger;
 public class Festival implements Serializable {
 
     private static final float AVERAGE_AREA_BY_PEOPLE = .42f;
+    /**
+     * Identifiant de sérialisation, fixé à celui calculé pour les premières versions des modèles :
+     * les fichiers sérialisés qu'elles ont enregistrés restent lisibles malgré l'évolution des classes.
+     * Les autres modèles fixent le leur de la même façon.
+     */
+    private static final long serialVersionUID = -1369344368259916957L;
 
     /**
      * Logger pour afficher les logs.
      */
     private static final Logger LOGGER = getLogger(Festival.class);
+    /**
+     * Message des modifications refusées par un instantané.
+     */
+    static final String READ_ONLY_MESSAGE = "Le festival est un instantané, en lecture seule";
     /**
      * Liste des artistes du festival.
      */
@@ -48,6 +62,80 @@ public class Festival implements Serializable {
      * Liste des représentations du festival.
      */
     private final TreeSet<Representation> representations;
+    /**
+     * Sections du fichier encore à décoder, null si le festival est entièrement chargé.
+     */
+    transient FestivalCodec.LazySections sections = null;
+    /**
+     * Génération du fichier, tirée à chaque réécriture complète et reprise par son journal.
+     */
+    transient long generation = 0;
+    /**
+     * Stockage qui enregistre le festival dans son fichier, null s'il n'a pas encore été enregistré.
+     */
+    transient FestivalStorage storage = null;
+    /**
+     * Écouteurs notifiés des modifications du festival.
+     */
+    private transient List<FestivalListener> listeners = null;
+    /**
+     * Profondeur des modifications en cours qui découlent d'une autre modification.
+     */
+    private transient int cascading = 0;
+    /**
+     * Nombre de modifications du festival et de ses éléments depuis sa création ou son chargement.
+     */
+    private transient long modCount = 0;
+    /**
+     * Artistes, représentations, stocks et types de tickets du festival par identifiant.
+     */
+    private transient HashMap<Long, Object> elements = null;
+    /**
+     * Plus grand identifiant attribué aux éléments du festival, enregistré avec eux dans son fichier
+     * pour que les éléments ajoutés ensuite ne reprennent pas l'identifiant d'un élément pas encore décodé.
+     */
+    transient long lastId = 0;
+    /**
+     * Stocks du festival par nom.
+     */
+    private transient HashMap<String, Stock> stocksByName = null;
+    /**
+     * Types de tickets du festival par type.
+     */
+    private transient HashMap<String, TypeTicket> ticketTypesByName = null;
+    /**
+     * Artistes du festival par nom, dans l'ordre du festival pour les homonymes.
+     */
+    private transient HashMap<String, List<Artiste>> artistesByName = null;
+    /**
+     * Planning de chaque scène, par code dans le dictionnaire des scènes : ses représentations par début.
+     * Celles d'une même scène ne se chevauchent pas, seule la dernière commencée avant un créneau peut donc encore y être en cours.
+     */
+    private transient HashMap<Integer, TreeMap<Integer, Representation>> scenes = null;
+    /**
+     * Représentations du festival par artiste, triées par début, selon l'artiste de chaque représentation.
+     */
+    private transient HashMap<Artiste, TreeSet<Representation>> shows = null;
+    /**
+     * Scènes des représentations du festival, partagées par les représentations et comparées par code.
+     */
+    private transient FestivalDictionary sceneDictionary = null;
+    /**
+     * Genres des artistes du festival, partagés par les artistes.
+     */
+    private transient FestivalDictionary genreDictionary = null;
+    /**
+     * Copies des éléments partagées par les instantanés, null avant le premier instantané.
+     */
+    private transient FestivalSnapshot snapshots = null;
+    /**
+     * Si le festival est un instantané en lecture seule (voir {@link #snapshot()}).
+     */
+    private transient boolean frozen = false;
+    /**
+     * Niveau de compression du fichier, de 1 à 9, ou 0 si le fichier n'est pas compressé.
+     */
+    transient int compressionLevel = 0;
     /**
      * Fichier associé à ce festival.
      */
@@ -98,46 +186,636 @@ public class Festival implements Serializable {
     }
 
     /**
-     * Méthode statique pour charger un festival depuis un fichier sérialisé.
+     * Constructeur d'un instantané du festival, qui partage les copies de ses éléments.
+     */
+    private Festival(Festival festival, FestivalSnapshot.Cast cast, FestivalSnapshot.Billing billing) {
+        artistes = cast.artistes;
+        representations = cast.representations;
+        stocks = billing.stocks;
+        ticketTypes = billing.ticketTypes;
+        name = festival.name;
+        start = festival.start;
+        locationPrice = festival.locationPrice;
+        area = festival.area;
+        location = festival.location;
+        generation = festival.generation;
+        compressionLevel = festival.compressionLevel;
+        lastId = festival.lastId;
+        frozen = true;
+    }
+
+    /**
+     * Restaure un festival lu depuis un fichier, sans revalider la date de début
+     * qui peut être passée depuis l'enregistrement.
+     *
+     * @param name          le nom du festival
+     * @param start         la date de début du festival
+     * @param locationPrice le prix de location du festival
+     * @param area          la superficie du festival
+     * @param location      l'emplacement du festival
+     * @return le festival restauré
+     * @throws FestivalException si les autres valeurs ne sont pas valides
+     */
+    static Festival restore(String name, LocalDateTime start, float locationPrice, float area, String location) throws FestivalException {
+        Festival festival = new Festival(name, LocalDateTime.now(), locationPrice, area, location);
+        festival.restoreStart(start);
+        return festival;
+    }
+
+    /**
+     * Restaure la date de début du festival sans la revalider.
+     *
+     * @param start la date de début du festival
+     */
+    void restoreStart(LocalDateTime start) {
+        LocalDateTime oldStart = this.start;
+        this.start = start;
+        firePropertyChanged(this, "start", oldStart, start);
+    }
+
+    /**
+     * Méthode statique pour charger un festival depuis un fichier.
+     * Les fichiers au format binaire de {@link FestivalCodec}, compressés ou non, les fichiers de tables
+     * (voir {@link TableStorage}) et les anciens fichiers sérialisés sont acceptés.
+     * Le fichier est projeté en mémoire : seules les informations du festival sont lues à l'ouverture,
+     * les artistes, représentations, stocks et types de tickets le sont au premier accès.
+     * Les modifications enregistrées dans le journal du fichier depuis sa dernière réécriture complète sont rejouées.
+     * Les fichiers de tables sont lus entièrement à l'ouverture.
      *
      * @param file le chemin du fichier à charger
      * @return le festival chargé depuis le fichier
      * @throws FestivalException si le fichier n'est pas défini
      */
     public static Festival Festival(File file) throws FestivalException {
-        try (
-                FileInputStream fis = new FileInputStream(file.getAbsolutePath());
-                ObjectInputStream ois = new ObjectInputStream(fis)
-        ) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
             LOGGER.info(String.format("Reading file %s", file.getAbsolutePath()));
-            Festival festival = (Festival) ois.readObject();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Festival festival;
+            if (TableStorage.isTable(buffer)) {
+                festival = TableStorage.read(file, buffer);
+            } else {
+                festival = FestivalCodec.isEncoded(buffer)
+                        ? FestivalCodec.read(buffer)
+                        : (Festival) new ObjectInputStream(FestivalCodec.asStream(buffer)).readObject();
+                festival.storage = FileStorage.open(festival, file);
+            }
             festival.file = file;
             LOGGER.info(String.format("Loaded festival \"%s\" from file %s", festival.getName(), file.getAbsolutePath()));
             return festival;
+        } catch (InvalidClassException e) {
+            throw new FestivalException("Le fichier du festival a été enregistré par une version incompatible de l'application");
         } catch (IOException e) {
             throw new FestivalException("Le fichier du festival ne peut pas être lu");
         } catch (ClassNotFoundException e) {
-            throw new FestivalException("Le fichier du festival est corrompue");
+            throw new FestivalException("Le fichier du festival est corrompu");
+        }
+    }
+
+    /**
+     * Charge entièrement un festival depuis un fichier, en indiquant l'avancement du chargement.
+     * Destinée à un fil d'exécution d'arrière-plan : contrairement à {@link #Festival(File)},
+     * toutes les collections sont décodées avant de rendre le festival, qui ne lit donc plus le fichier ensuite.
+     * Le chargement est abandonné entre deux étapes si le fil d'exécution est interrompu.
+     *
+     * @param file     le chemin du fichier à charger
+     * @param progress appelé depuis le fil d'exécution du chargement avec l'avancement, de 0 à 1
+     * @return le festival entièrement chargé
+     * @throws FestivalException    si le fichier ne peut pas être lu ou est corrompu
+     * @throws InterruptedException si le fil d'exécution a été interrompu pendant le chargement
+     */
+    public static Festival load(File file, DoubleConsumer progress) throws FestivalException, InterruptedException {
+        progress.accept(0);
+        checkInterrupted();
+        Festival festival;
+        try {
+            festival = Festival(file);
+        } catch (FestivalException e) {
+            checkInterrupted(); // La projection du fichier échoue si le fil est interrompu pendant la lecture
+            throw e;
         }
+        FestivalCodec.LazySections sections = festival.sections;
+        if (sections != null) {
+            double total = sections.size();
+            long cast = sections.castSize(), billing = sections.billingSize();
+            try {
+                progress.accept((total - cast - billing) / total);
+                checkInterrupted();
+                festival.loadCast();
+                progress.accept((total - billing) / total);
+                checkInterrupted();
+                festival.loadBilling();
+            } catch (IllegalStateException e) {
+                throw new FestivalException(e.getMessage());
+            }
+        }
+        progress.accept(1);
+        return festival;
+    }
+
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException("Chargement du festival annulé");
     }
 
     /**
-     * Méthode pour sauvegarder le festival dans un fichier sérialisé.
+     * Méthode pour sauvegarder le festival dans un fichier au format de {@link FestivalCodec}.
+     * Équivaut à exécuter immédiatement l'écriture préparée par {@link #prepareSave()}.
      *
      * @throws FestivalException si le fichier n'est pas défini
      */
     public void save() throws FestivalException {
+        prepareSave().commit();
+    }
+
+    /**
+     * Prépare la sauvegarde du festival dans son fichier.
+     * Seules les modifications faites depuis la dernière sauvegarde sont écrites : ajoutées au journal du fichier,
+     * qui est compacté lorsqu'il dépasse la taille du fichier lui-même, ou aux lignes modifiées d'un fichier de tables.
+     * Le fichier est entièrement réécrit s'il n'existe pas encore ou si le festival a changé de fichier.
+     *
+     * @return l'écriture à exécuter, éventuellement depuis un autre fil d'exécution
+     * @throws FestivalException si le fichier n'est pas défini
+     */
+    public FestivalWrite prepareSave() throws FestivalException {
         if (file == null)
             throw new FestivalException("Le fichier du festival n'a pas été spécifié");
-        try (
-                FileOutputStream fos = new FileOutputStream(file.getAbsolutePath());
-                ObjectOutputStream oos = new ObjectOutputStream(fos)
-        ) {
-            oos.writeObject(this);
-            LOGGER.info(String.format("Saved festival 0x%x to file %s", super.hashCode(), file.getAbsolutePath()));
-        } catch (Exception e) {
-            throw new FestivalException("Le festival n'arrive pas à enregister le fichier");
+        if (storage == null || !storage.getFile().equals(file))
+            return prepareCompact();
+        return storage.prepareSave(this);
+    }
+
+    /**
+     * Réécrit entièrement le fichier du festival et vide son journal.
+     *
+     * @throws FestivalException si le fichier n'est pas défini
+     */
+    public void compact() throws FestivalException {
+        prepareCompact().commit();
+    }
+
+    /**
+     * Prépare la réécriture complète du fichier du festival.
+     * Le stockage est choisi d'après l'extension du fichier : un fichier {@value TableStorage#EXTENSION} est écrit
+     * sous forme de tables, les autres au format de {@link FestivalCodec}.
+     * Le fichier est d'abord écrit à côté puis remplace l'ancien, qui reste intact si l'écriture est interrompue.
+     *
+     * @return l'écriture à exécuter, éventuellement depuis un autre fil d'exécution
+     * @throws FestivalException si le fichier n'est pas défini
+     */
+    public FestivalWrite prepareCompact() throws FestivalException {
+        if (file == null)
+            throw new FestivalException("Le fichier du festival n'a pas été spécifié");
+        if (storage == null || !storage.getFile().equals(file)) {
+            if (storage != null)
+                storage.detach(this);
+            storage = TableStorage.isTableFile(file) ? new TableStorage(file) : new FileStorage(file);
+        }
+        return storage.prepareCompact(this);
+    }
+
+    /**
+     * Signale que le fichier du festival a été modifié par une autre application :
+     * la prochaine sauvegarde le réécrit entièrement au lieu d'y ajouter les modifications.
+     */
+    public void fileChanged() {
+        if (storage != null)
+            storage.invalidate();
+    }
+
+    /**
+     * Décode toutes les sections du fichier qui ne l'ont pas encore été.
+     * Après cet appel, le festival ne dépend plus du fichier dont il a été chargé.
+     *
+     * @throws FestivalException si le fichier du festival est corrompu
+     */
+    public void materialize() throws FestivalException {
+        try {
+            loadCast();
+            loadBilling();
+        } catch (IllegalStateException e) {
+            throw new FestivalException(e.getMessage());
+        }
+    }
+
+    /**
+     * Retourne un instantané du festival : une copie de son état actuel en lecture seule, sans fichier,
+     * qu'un autre fil d'exécution peut lire pendant que le festival continue d'être modifié,
+     * par exemple pour l'encoder ou l'exporter en arrière-plan.
+     * <p>
+     * Les éléments sont copiés au premier instantané puis partagés par les suivants : seuls les éléments modifiés
+     * depuis l'instantané précédent, et les copies qui les référencent, sont recopiés (voir {@link FestivalSnapshot}).
+     * Les copies gardent les identifiants des éléments, mais ne sont pas indexées : l'instantané se parcourt
+     * par ses collections, les recherches par identifiant, nom ou scène n'y trouvent rien, pas plus que les
+     * représentations d'un artiste. Ses collections ne sont pas modifiables, et ses méthodes de modification comme
+     * celles de ses éléments lèvent une exception. Doit être appelé depuis le fil d'exécution qui modifie le festival.
+     *
+     * @return l'instantané, le festival lui-même s'il est déjà un instantané
+     * @throws FestivalException si le festival ne peut pas être entièrement décodé ou copié
+     */
+    public Festival snapshot() throws FestivalException {
+        if (frozen)
+            return this;
+        materialize();
+        if (snapshots == null)
+            snapshots = new FestivalSnapshot();
+        Festival snapshot;
+        try {
+            snapshot = new Festival(this, snapshots.copyCast(this), snapshots.copyBilling(this));
+        } catch (ArtisteException | StockException | TypeTicketException | AvantageException e) {
+            throw new FestivalException(String.format("Le festival ne peut pas être copié : %s", e.getMessage()));
+        }
+        snapshots.attach(snapshot);
+        LOGGER.info(String.format("Took snapshot of festival \"%s\"", name));
+        return snapshot;
+    }
+
+    /**
+     * Indique si le festival est un instantané en lecture seule.
+     *
+     * @return true si le festival a été créé par {@link #snapshot()}, false sinon
+     */
+    public boolean isSnapshot() {
+        return frozen;
+    }
+
+    private void checkWritable() throws FestivalException {
+        if (frozen)
+            throw new FestivalException(READ_ONLY_MESSAGE);
+    }
+
+    /**
+     * Indique si toutes les collections du festival ont été décodées.
+     *
+     * @return true si le festival est entièrement chargé, false sinon
+     */
+    public boolean isMaterialized() {
+        return sections == null;
+    }
+
+    /**
+     * Décode les artistes et représentations s'ils sont encore dans le fichier.
+     */
+    private void loadCast() {
+        if (sections != null)
+            sections.loadCast(this);
+    }
+
+    /**
+     * Décode les stocks, types de tickets et avantages s'ils sont encore dans le fichier.
+     */
+    private void loadBilling() {
+        if (sections != null)
+            sections.loadBilling(this);
+    }
+
+    /**
+     * Charge entièrement le festival avant une sérialisation Java.
+     *
+     * @param out le flux de sérialisation
+     * @throws IOException si l'écriture échoue
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        loadCast();
+        loadBilling();
+        out.defaultWriteObject();
+    }
+
+    /**
+     * Rattache les éléments désérialisés au festival.
+     *
+     * @param in le flux de désérialisation
+     * @throws IOException            si la lecture échoue
+     * @throws ClassNotFoundException si une classe du flux est inconnue
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        adopt();
+    }
+
+    /**
+     * Rattache au festival les éléments qui lui ont été ajoutés sans passer par ses méthodes,
+     * lors d'un décodage ou d'une désérialisation.
+     */
+    void adopt() {
+        for (Artiste artiste : artistes) {
+            artiste.festival = this;
+            artiste.id = register(artiste.id, artiste);
+        }
+        for (Representation representation : representations) {
+            representation.festival = this;
+            representation.id = register(representation.id, representation);
+            if (representation.getArtiste() != null)
+                representation.getArtiste().festival = this;
+        }
+        for (Stock stock : stocks) {
+            stock.festival = this;
+            stock.id = register(stock.id, stock);
+        }
+        for (TypeTicket ticketType : ticketTypes) {
+            ticketType.festival = this;
+            ticketType.id = register(ticketType.id, ticketType);
+        }
+    }
+
+    /**
+     * Enregistre un élément dans l'index par identifiant et dans celui par nom ou par scène. Son identifiant est conservé s'il est libre,
+     * sinon un nouvel identifiant lui est attribué.
+     *
+     * @param id      l'identifiant actuel de l'élément, 0 s'il n'en a pas
+     * @param element l'élément
+     * @return l'identifiant de l'élément dans le festival
+     */
+    private long register(long id, Object element) {
+        if (elements == null)
+            elements = new HashMap<>();
+        Object registered = id == 0 ? null : elements.get(id);
+        if (id == 0 || (registered != null && registered != element))
+            id = ++lastId;
+        else
+            lastId = Math.max(lastId, id);
+        elements.put(id, element);
+        index(element, name(element));
+        return id;
+    }
+
+    /**
+     * Enregistre un élément ajouté au festival (voir {@link #register(long, Object)}). L'identifiant qu'il porte déjà
+     * peut être celui d'un élément du fichier pas encore décodé : le festival est alors entièrement décodé avant,
+     * pour que ce dernier garde l'identifiant écrit dans le fichier et que le journal le désigne toujours.
+     *
+     * @param id      l'identifiant actuel de l'élément, 0 s'il n'en a pas
+     * @param element l'élément
+     * @return l'identifiant de l'élément dans le festival
+     */
+    private long claim(long id, Object element) {
+        if (id != 0 && id <= lastId && sections != null && (elements == null || !elements.containsKey(id))) {
+            loadCast();
+            loadBilling();
         }
+        return register(id, element);
+    }
+
+    /**
+     * Retourne l'identifiant d'un artiste du festival ou référencé par une de ses représentations. Un artiste
+     * hors festival reçoit un nouvel identifiant s'il n'en a pas ou si le sien désigne un autre élément,
+     * sans être enregistré parmi les éléments du festival.
+     *
+     * @param artiste l'artiste
+     * @return l'identifiant de l'artiste, distinct de ceux des autres éléments du festival
+     */
+    long identify(Artiste artiste) {
+        Object registered = elements == null ? null : elements.get(artiste.id);
+        if (artiste.id == 0 || (registered != null && registered != artiste))
+            artiste.id = ++lastId;
+        else
+            lastId = Math.max(lastId, artiste.id);
+        return artiste.id;
+    }
+
+    private void unregister(long id) {
+        Object element = elements == null ? null : elements.remove(id);
+        if (element != null)
+            unindex(element, name(element));
+    }
+
+    /**
+     * Retourne la clé d'un élément dans son index : le nom d'un stock ou d'un artiste, le type d'un ticket,
+     * la scène d'une représentation.
+     */
+    private static String name(Object element) {
+        if (element instanceof Representation)
+            return ((Representation) element).getScene();
+        if (element instanceof Stock)
+            return ((Stock) element).getName();
+        if (element instanceof TypeTicket)
+            return ((TypeTicket) element).getType();
+        if (element instanceof Artiste)
+            return ((Artiste) element).getName();
+        return null;
+    }
+
+    private void index(Object element, String name) {
+        if (element instanceof Stock) {
+            if (stocksByName == null)
+                stocksByName = new HashMap<>();
+            stocksByName.put(name, (Stock) element);
+        } else if (element instanceof TypeTicket) {
+            if (ticketTypesByName == null)
+                ticketTypesByName = new HashMap<>();
+            ticketTypesByName.put(name, (TypeTicket) element);
+        } else if (element instanceof Artiste) {
+            if (artistesByName == null)
+                artistesByName = new HashMap<>();
+            List<Artiste> homonyms = artistesByName.computeIfAbsent(name, key -> new ArrayList<>(1));
+            if (homonyms.stream().noneMatch(artiste -> artiste == element))
+                homonyms.add((Artiste) element);
+            ((Artiste) element).intern(genreDictionary());
+        } else if (element instanceof Representation) {
+            if (scenes == null)
+                scenes = new HashMap<>();
+            Representation representation = (Representation) element;
+            representation.intern(sceneDictionary());
+            scenes.computeIfAbsent(representation.sceneCode, key -> new TreeMap<>()).put(representation.getStartDelta(), representation);
+            link(representation, representation.getArtiste());
+        }
+    }
+
+    private void unindex(Object element, String name) {
+        if (element instanceof Stock) {
+            if (stocksByName != null)
+                stocksByName.remove(name, element);
+        } else if (element instanceof TypeTicket) {
+            if (ticketTypesByName != null)
+                ticketTypesByName.remove(name, element);
+        } else if (element instanceof Artiste && artistesByName != null) {
+            List<Artiste> homonyms = artistesByName.get(name);
+            if (homonyms != null) {
+                homonyms.removeIf(artiste -> artiste == element);
+                if (homonyms.isEmpty())
+                    artistesByName.remove(name);
+            }
+        } else if (element instanceof Representation && scenes != null) {
+            Representation representation = (Representation) element;
+            TreeMap<Integer, Representation> schedule = scenes.get(representation.sceneCode);
+            if (schedule != null) {
+                schedule.remove(representation.getStartDelta(), representation);
+                if (schedule.isEmpty())
+                    scenes.remove(representation.sceneCode);
+            }
+            unlink((Representation) element, ((Representation) element).getArtiste());
+        }
+    }
+
+    /**
+     * Retourne le dictionnaire des scènes du festival.
+     *
+     * @return le dictionnaire des scènes
+     */
+    FestivalDictionary sceneDictionary() {
+        if (sceneDictionary == null)
+            sceneDictionary = new FestivalDictionary();
+        return sceneDictionary;
+    }
+
+    /**
+     * Retourne le dictionnaire des genres du festival.
+     *
+     * @return le dictionnaire des genres
+     */
+    FestivalDictionary genreDictionary() {
+        if (genreDictionary == null)
+            genreDictionary = new FestivalDictionary();
+        return genreDictionary;
+    }
+
+    private void link(Representation representation, Artiste artiste) {
+        if (artiste == null)
+            return;
+        if (shows == null)
+            shows = new HashMap<>();
+        shows.computeIfAbsent(artiste, key -> new TreeSet<>()).add(representation);
+    }
+
+    private void unlink(Representation representation, Artiste artiste) {
+        TreeSet<Representation> linked = artiste == null || shows == null ? null : shows.get(artiste);
+        if (linked != null && linked.remove(representation) && linked.isEmpty())
+            shows.remove(artiste);
+    }
+
+    /**
+     * Met à jour l'index des représentations par artiste après le changement d'artiste d'une représentation du festival.
+     *
+     * @param representation la représentation modifiée
+     * @param oldArtiste     son ancien artiste
+     */
+    void relinked(Representation representation, Artiste oldArtiste) {
+        if (elements == null || elements.get(representation.id) != representation)
+            return;
+        unlink(representation, oldArtiste);
+        link(representation, representation.getArtiste());
+    }
+
+    /**
+     * Met à jour l'index par nom après le renommage d'un élément, s'il fait partie du festival.
+     *
+     * @param element l'élément renommé
+     * @param id      l'identifiant de l'élément
+     * @param oldName son ancien nom
+     */
+    void renamed(Object element, long id, String oldName) {
+        if (elements == null || elements.get(id) != element)
+            return;
+        unindex(element, oldName);
+        index(element, name(element));
+    }
+
+    /**
+     * Déplace une représentation du festival dans le planning, après avoir vérifié qu'elle n'y entre en collision
+     * avec aucune autre. La représentation est retirée des collections triées le temps de sa modification.
+     *
+     * @param representation la représentation à déplacer
+     * @param startDelta     son nouveau début
+     * @param duration       sa nouvelle durée
+     * @param scene          sa nouvelle scène
+     * @param change         la modification de la représentation
+     * @throws RepresentationException si la représentation entrerait en collision avec une autre
+     */
+    void reschedule(Representation representation, int startDelta, int duration, String scene, Runnable change) throws RepresentationException {
+        int sceneCode = Objects.equals(scene, representation.getScene()) ? representation.sceneCode : sceneDictionary().find(scene);
+        List<Representation> collisions = findRepresentations(sceneCode, startDelta, duration);
+        collisions.removeIf(other -> other == representation);
+        if (!collisions.isEmpty())
+            throw new RepresentationException(String.format("La représentation rentrerait en collision avec %s, les départs/durées doivent être modifié", describe(collisions)));
+        boolean scheduled = representations.remove(representation);
+        unindex(representation, representation.getScene());
+        change.run();
+        if (scheduled)
+            representations.add(representation);
+        index(representation, scene);
+    }
+
+    private static String describe(List<Representation> representations) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < representations.size() - 1; i++)
+            joiner.add(String.valueOf(representations.get(i)));
+        return representations.size() == 1
+                ? String.valueOf(representations.get(0))
+                : String.format("%s et %s", joiner, representations.get(representations.size() - 1));
+    }
+
+    private <T> T element(long id, Class<T> type) {
+        Object element = elements == null ? null : elements.get(id);
+        return type.isInstance(element) ? type.cast(element) : null;
+    }
+
+    /**
+     * Ajoute un écouteur notifié des modifications du festival et de ses éléments.
+     *
+     * @param listener l'écouteur à ajouter
+     */
+    public void addListener(FestivalListener listener) {
+        if (listeners == null)
+            listeners = new ArrayList<>();
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un écouteur du festival.
+     *
+     * @param listener l'écouteur à retirer
+     */
+    public void removeListener(FestivalListener listener) {
+        if (listeners != null)
+            listeners.remove(listener);
+    }
+
+    /**
+     * Retourne le compteur de modifications du festival, incrémenté par chaque modification notifiée
+     * du festival ou de ses éléments. Deux valeurs égales à des moments différents garantissent
+     * qu'aucune modification n'a eu lieu entre-temps, sans parcourir le festival comme {@link #hashCode()}.
+     *
+     * @return le nombre de modifications depuis la création ou le chargement du festival
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Indique si les modifications en cours découlent d'une autre modification déjà notifiée,
+     * comme la déconnexion des avantages d'un stock retiré du festival.
+     *
+     * @return true si la modification en cours est une conséquence d'une autre, false sinon
+     */
+    boolean isCascading() {
+        return cascading > 0;
+    }
+
+
+    void firePropertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        modCount++;
+        if (snapshots != null)
+            snapshots.touched(this, source, null);
+        if (listeners != null)
+            for (FestivalListener listener : listeners)
+                listener.propertyChanged(source, property, oldValue, newValue);
+    }
+
+    void fireElementAdded(Object source, String collection, int index, Object element) {
+        modCount++;
+        if (snapshots != null)
+            snapshots.touched(this, source, element);
+        if (listeners != null)
+            for (FestivalListener listener : listeners)
+                listener.elementAdded(source, collection, index, element);
+    }
+
+    void fireElementRemoved(Object source, String collection, int index, Object element) {
+        modCount++;
+        if (snapshots != null)
+            snapshots.touched(this, source, element);
+        if (listeners != null)
+            for (FestivalListener listener : listeners)
+                listener.elementRemoved(source, collection, index, element);
     }
 
     /**
@@ -149,6 +827,43 @@ public class Festival implements Serializable {
         return file;
     }
 
+    /**
+     * Retourne le fichier du journal des modifications associé à un fichier de festival.
+     * Il est écrit à côté du fichier et fait partie du festival enregistré.
+     *
+     * @param file le fichier du festival
+     * @return le fichier du journal, qui peut ne pas exister
+     */
+    public static File journalOf(File file) {
+        return FestivalJournal.fileOf(file);
+    }
+
+    /**
+     * Retourne le niveau de compression du fichier du festival.
+     *
+     * @return le niveau de compression, de 1 à 9, ou 0 si le fichier n'est pas compressé
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Définit le niveau de compression du fichier du festival (voir {@link FestivalCodec#compress}).
+     * Un changement de niveau provoque la réécriture complète du fichier à la prochaine sauvegarde.
+     *
+     * @param compressionLevel le niveau de compression, de 1 (le plus rapide) à 9 (le plus compact), ou 0 pour ne pas compresser
+     * @throws FestivalException si le niveau n'est pas compris entre 0 et 9
+     */
+    public void setCompressionLevel(int compressionLevel) throws FestivalException {
+        checkWritable();
+        if (compressionLevel < 0 || compressionLevel > 9)
+            throw new FestivalException("Le niveau de compression du festival doit être compris entre 0 et 9");
+        if (compressionLevel != this.compressionLevel && storage != null)
+            storage.invalidate(); // Le journal ne s'ajoute qu'à un fichier écrit avec le même niveau
+        this.compressionLevel = compressionLevel;
+        LOGGER.info("Set Festival.compressionLevel");
+    }
+
     /**
      * Définit le fichier associé à ce festival.
      * Ce chemin est utilisé pour la sauvegarde et le chargement du festival.
@@ -157,6 +872,7 @@ public class Festival implements Serializable {
      * @throws FestivalException si le fichier est null
      */
     public void setFile(File file) throws FestivalException {
+        checkWritable();
         if (file == null)
             throw new FestivalException("Le fichier du festival est null, doit être défini");
         this.file = file;
@@ -179,10 +895,13 @@ public class Festival implements Serializable {
      * @throws FestivalException si le nom est null ou vide
      */
     public void setName(String name) throws FestivalException {
+        checkWritable();
         if (name == null || name.isEmpty())
             throw new FestivalException("Le nom est null ou vide, doit être défini");
+        String oldName = this.name;
         this.name = name;
         LOGGER.info("Set Festival.name");
+        firePropertyChanged(this, "name", oldName, name);
     }
 
     /**
@@ -201,11 +920,14 @@ public class Festival implements Serializable {
      * @throws FestivalException si la date est antérieure à la date actuelle
      */
     public void setStart(LocalDateTime start) throws FestivalException {
+        checkWritable();
         if (LocalDate.now().isAfter(start.toLocalDate())) {
             throw new FestivalException("La date est antérieure à la date d'aujourd'hui, doit précéder la date d'aujourd'hui");
         }
+        LocalDateTime oldStart = this.start;
         this.start = start;
-        LOGGER.info("Set Festival.name");
+        LOGGER.info("Set Festival.start");
+        firePropertyChanged(this, "start", oldStart, start);
     }
 
     /**
@@ -224,10 +946,13 @@ public class Festival implements Serializable {
      * @throws FestivalException si le prix est négatif
      */
     public void setLocationPrice(float locationPrice) throws FestivalException {
+        checkWritable();
         if (locationPrice < 0)
             throw new FestivalException("Le prix de location est négatif, doit être positif");
+        float oldLocationPrice = this.locationPrice;
         this.locationPrice = locationPrice;
         LOGGER.info("Set Festival.locationPrice");
+        firePropertyChanged(this, "locationPrice", oldLocationPrice, locationPrice);
     }
 
     /**
@@ -246,10 +971,13 @@ public class Festival implements Serializable {
      * @throws FestivalException si la superficie est négative
      */
     public void setArea(float area) throws FestivalException {
+        checkWritable();
         if (area <= 0)
             throw new FestivalException("La superficie est négative ou nulle (0), doit être positive");
+        float oldArea = this.area;
         this.area = area;
         LOGGER.info("Set Festival.area");
+        firePropertyChanged(this, "area", oldArea, area);
     }
 
     /**
@@ -268,10 +996,13 @@ public class Festival implements Serializable {
      * @throws FestivalException si l'emplacement est null ou vide
      */
     public void setLocation(String location) throws FestivalException {
+        checkWritable();
         if (location == null || location.isEmpty())
             throw new FestivalException("L'emplacement de location est null ou vide, doit être défini");
+        String oldLocation = this.location;
         this.location = location;
         LOGGER.info("Set Festival.location");
+        firePropertyChanged(this, "location", oldLocation, location);
     }
 
     /**
@@ -281,10 +1012,37 @@ public class Festival implements Serializable {
      * @throws FestivalException si l'artiste est null
      */
     public void addArtiste(Artiste artiste) throws FestivalException {
+        checkWritable();
         if (artiste == null)
             throw new FestivalException("L'artiste est null, doit être défini");
+        loadCast();
         artistes.add(artiste);
+        artiste.festival = this;
+        artiste.id = claim(artiste.id, artiste);
         LOGGER.info("Added Artiste to Festival.artistes");
+        fireElementAdded(this, "artistes", artistes.size() - 1, artiste);
+    }
+
+    /**
+     * Ajoute des artistes à la fin de la liste des artistes du festival, en une seule fois.
+     *
+     * @param added les artistes à ajouter
+     * @throws FestivalException si un artiste est null, aucun n'est alors ajouté
+     */
+    public void addArtistes(Collection<Artiste> added) throws FestivalException {
+        checkWritable();
+        for (Artiste artiste : added)
+            if (artiste == null)
+                throw new FestivalException("L'artiste est null, doit être défini");
+        loadCast();
+        artistes.ensureCapacity(artistes.size() + added.size());
+        for (Artiste artiste : added) {
+            artistes.add(artiste);
+            artiste.festival = this;
+            artiste.id = claim(artiste.id, artiste);
+            fireElementAdded(this, "artistes", artistes.size() - 1, artiste);
+        }
+        LOGGER.info(String.format("Added %d Artiste to Festival.artistes", added.size()));
     }
 
     /**
@@ -294,18 +1052,50 @@ public class Festival implements Serializable {
      * @throws FestivalException si l'artiste n'a pas été trouvé
      */
     public void removeArtiste(Artiste artiste) throws FestivalException {
-        if (!artistes.remove(artiste))
+        checkWritable();
+        loadCast();
+        int index = artiste == null || getArtiste(artiste.id) != artiste ? -1 : artistes.indexOf(artiste);
+        if (index < 0)
             throw new FestivalException("L'artiste n'a pas été trouvé");
+        Artiste removed = artistes.remove(index);
+        unregister(removed.id);
+        if (getRepresentations(removed).isEmpty())
+            removed.festival = null;
         LOGGER.info("Removed Artiste from Festival.artistes");
+        fireElementRemoved(this, "artistes", index, removed);
     }
 
     /**
      * Retourne la liste des artistes du festival.
      *
-     * @return la liste des artistes
+     * @return la liste des artistes, non modifiable si le festival est un instantané
+     */
+    public List<Artiste> getArtistes() {
+        loadCast();
+        return frozen ? Collections.unmodifiableList(artistes) : artistes;
+    }
+
+    /**
+     * Retourne un artiste du festival à partir de son identifiant (voir {@link Artiste#getId()}).
+     *
+     * @param id l'identifiant de l'artiste
+     * @return l'artiste, null s'il ne fait pas partie du festival
+     */
+    public Artiste getArtiste(long id) {
+        loadCast();
+        return element(id, Artiste.class);
+    }
+
+    /**
+     * Retourne un artiste du festival à partir de son nom, sans parcourir la liste des artistes.
+     *
+     * @param name le nom de l'artiste
+     * @return le premier artiste de ce nom dans l'ordre du festival, null si aucun ne porte ce nom
      */
-    public ArrayList<Artiste> getArtistes() {
-        return artistes;
+    public Artiste findArtiste(String name) {
+        loadCast();
+        List<Artiste> homonyms = artistesByName == null ? null : artistesByName.get(name);
+        return homonyms == null ? null : homonyms.get(0);
     }
 
     /**
@@ -315,22 +1105,22 @@ public class Festival implements Serializable {
      * @throws FestivalException si la représentation est null ou en collision avec une autre
      */
     public void addRepresentation(Representation representation) throws FestivalException {
+        checkWritable();
         if (representation == null)
             throw new FestivalException("La représentation est null, doit être défini");
+        loadCast();
 
-        Representation top = representations.ceiling(representation),
-                bottom = representations.floor(representation);
-
-        if (top != null && top.isColliding(representation))
-            if (bottom != null && bottom.isColliding(representation))
-                throw new FestivalException(String.format("La représentation rentre en collision avec %s et %s, les départs/durées doivent être modifié", bottom, top));
-            else
-                throw new FestivalException(String.format("La représentation rentre en collision avec %s, les départs/durées doivent être modifié", top));
-        else if (bottom != null && bottom.isColliding(representation))
-            throw new FestivalException(String.format("La représentation rentre en collision avec %s, les départs/durées doivent être modifié", bottom));
+        List<Representation> collisions = findRepresentations(sceneDictionary().find(representation.getScene()), representation.getStartDelta(), representation.getDuration());
+        if (!collisions.isEmpty())
+            throw new FestivalException(String.format("La représentation rentre en collision avec %s, les départs/durées doivent être modifié", describe(collisions)));
 
         representations.add(representation);
+        representation.festival = this;
+        representation.id = claim(representation.id, representation);
+        if (representation.getArtiste() != null && representation.getArtiste().festival == null)
+            representation.getArtiste().festival = this;
         LOGGER.info("Added Representation to Festival.representations");
+        fireElementAdded(this, "representations", -1, representation);
     }
 
     /**
@@ -340,18 +1130,77 @@ public class Festival implements Serializable {
      * @throws FestivalException si la représentation n'a pas été trouvée
      */
     public void removeRepresentation(Representation representation) throws FestivalException {
-        if (!representations.remove(representation))
+        checkWritable();
+        loadCast();
+        Representation removed = representations.floor(representation);
+        if (removed == null || removed.compareTo(representation) != 0)
             throw new FestivalException("La représentation n'a pas été trouvée");
+        representations.remove(removed);
+        unregister(removed.id);
+        removed.festival = null;
         LOGGER.info("Removed Representation from Festival.representations");
+        fireElementRemoved(this, "representations", -1, removed);
     }
 
     /**
      * Retourne la liste des représentations du festival.
      *
-     * @return la liste des représentations
+     * @return la liste des représentations, non modifiable si le festival est un instantané
+     */
+    public NavigableSet<Representation> getRepresentations() {
+        loadCast();
+        return frozen ? Collections.unmodifiableNavigableSet(representations) : representations;
+    }
+
+    /**
+     * Retourne une représentation du festival à partir de son identifiant (voir {@link Representation#getId()}).
+     *
+     * @param id l'identifiant de la représentation
+     * @return la représentation, null si elle ne fait pas partie du festival
+     */
+    public Representation getRepresentation(long id) {
+        loadCast();
+        return element(id, Representation.class);
+    }
+
+    /**
+     * Retourne les représentations d'un artiste, qu'il fasse partie des artistes du festival ou non,
+     * sans parcourir les représentations des autres artistes.
+     *
+     * @param artiste l'artiste
+     * @return les représentations dont il est l'artiste, triées par début, non modifiables
      */
-    public TreeSet<Representation> getRepresentations() {
-        return representations;
+    public SortedSet<Representation> getRepresentations(Artiste artiste) {
+        loadCast();
+        TreeSet<Representation> linked = shows == null ? null : shows.get(artiste);
+        return linked == null ? Collections.emptySortedSet() : Collections.unmodifiableSortedSet(linked);
+    }
+
+    /**
+     * Retourne les représentations d'une scène qui chevauchent un créneau, dans l'ordre du planning.
+     * Seules les représentations trouvées sont parcourues, en plus de la recherche dans le planning de la scène.
+     *
+     * @param scene      la scène
+     * @param startDelta le début du créneau, en minutes depuis le début du festival
+     * @param duration   la durée du créneau en minutes
+     * @return les représentations de la scène en collision avec le créneau
+     */
+    public List<Representation> findRepresentations(String scene, int startDelta, int duration) {
+        loadCast();
+        return findRepresentations(sceneDictionary().find(scene), startDelta, duration);
+    }
+
+    private List<Representation> findRepresentations(int sceneCode, int startDelta, int duration) {
+        List<Representation> found = new ArrayList<>();
+        TreeMap<Integer, Representation> schedule = scenes == null || sceneCode == FestivalDictionary.NONE ? null : scenes.get(sceneCode);
+        if (schedule == null)
+            return found;
+        Map.Entry<Integer, Representation> before = schedule.lowerEntry(startDelta);
+        if (before != null && before.getKey() + before.getValue().getDuration() > startDelta)
+            found.add(before.getValue());
+        // Un créneau vide occupe tout de même sa minute de début
+        found.addAll(schedule.subMap(startDelta, true, startDelta + Math.max(duration, 1), false).values());
+        return found;
     }
 
     /**
@@ -361,12 +1210,47 @@ public class Festival implements Serializable {
      * @throws FestivalException si le type de ticket est null
      */
     public void addTicketType(TypeTicket ticketType) throws FestivalException {
+        checkWritable();
         if (ticketType == null)
             throw new FestivalException("Le type de ticket est null, doit être défini");
-        if (ticketTypes.stream().anyMatch(t -> Objects.equals(t.getType(), ticketType.getType())))
+        loadBilling();
+        if (findTicketType(ticketType.getType()) != null)
             throw new FestivalException("Un autre type ticket existe avec le même nom");
         ticketTypes.add(ticketType);
+        ticketType.festival = this;
+        ticketType.id = claim(ticketType.id, ticketType);
         LOGGER.info("Added TypeTicket to Festival.ticketTypes");
+        fireElementAdded(this, "ticketTypes", ticketTypes.size() - 1, ticketType);
+    }
+
+    /**
+     * Ajoute des types de tickets à la fin de la liste des types de tickets du festival, en une seule fois.
+     * Les noms sont vérifiés contre l'index de ceux du festival, puis entre eux.
+     *
+     * @param added les types de tickets à ajouter
+     * @throws FestivalException si un type de ticket est null ou si des noms sont déjà pris, aucun n'est alors ajouté
+     */
+    public void addTicketTypes(Collection<TypeTicket> added) throws FestivalException {
+        checkWritable();
+        for (TypeTicket ticketType : added)
+            if (ticketType == null)
+                throw new FestivalException("Le type de ticket est null, doit être défini");
+        loadBilling();
+        HashSet<String> names = new HashSet<>();
+        List<String> duplicates = new ArrayList<>();
+        for (TypeTicket ticketType : added)
+            if (findTicketType(ticketType.getType()) != null || !names.add(ticketType.getType()))
+                duplicates.add(ticketType.getType());
+        if (!duplicates.isEmpty())
+            throw new FestivalException(String.format("D'autres types de tickets existent avec les mêmes noms : %s", String.join(", ", duplicates)));
+        ticketTypes.ensureCapacity(ticketTypes.size() + added.size());
+        for (TypeTicket ticketType : added) {
+            ticketTypes.add(ticketType);
+            ticketType.festival = this;
+            ticketType.id = claim(ticketType.id, ticketType);
+            fireElementAdded(this, "ticketTypes", ticketTypes.size() - 1, ticketType);
+        }
+        LOGGER.info(String.format("Added %d TypeTicket to Festival.ticketTypes", added.size()));
     }
 
     /**
@@ -376,18 +1260,48 @@ public class Festival implements Serializable {
      * @throws FestivalException si le type de ticket n'a pas été trouvé
      */
     public void removeTicketType(TypeTicket ticketType) throws FestivalException {
-        if (!ticketTypes.remove(ticketType))
+        checkWritable();
+        loadBilling();
+        int index = ticketType == null || findTicketType(ticketType.getType()) != ticketType ? -1 : ticketTypes.indexOf(ticketType);
+        if (index < 0)
             throw new FestivalException("Le type de ticket n'a pas été trouvé");
+        TypeTicket removed = ticketTypes.remove(index);
+        unregister(removed.id);
+        removed.festival = null;
         LOGGER.info("Removed TypeTicket from.ticketTypes");
+        fireElementRemoved(this, "ticketTypes", index, removed);
     }
 
     /**
      * Retourne la liste des types de tickets du festival.
      *
-     * @return la liste des types de tickets
+     * @return la liste des types de tickets, non modifiable si le festival est un instantané
+     */
+    public List<TypeTicket> getTicketTypes() {
+        loadBilling();
+        return frozen ? Collections.unmodifiableList(ticketTypes) : ticketTypes;
+    }
+
+    /**
+     * Retourne un type de ticket du festival à partir de son identifiant (voir {@link TypeTicket#getId()}).
+     *
+     * @param id l'identifiant du type de ticket
+     * @return le type de ticket, null s'il ne fait pas partie du festival
+     */
+    public TypeTicket getTicketType(long id) {
+        loadBilling();
+        return element(id, TypeTicket.class);
+    }
+
+    /**
+     * Retourne un type de ticket du festival à partir de son type, sans parcourir la liste des types de tickets.
+     *
+     * @param type le type du ticket
+     * @return le type de ticket, null si aucun ne porte ce type
      */
-    public ArrayList<TypeTicket> getTicketTypes() {
-        return ticketTypes;
+    public TypeTicket findTicketType(String type) {
+        loadBilling();
+        return ticketTypesByName == null ? null : ticketTypesByName.get(type);
     }
 
     /**
@@ -397,12 +1311,47 @@ public class Festival implements Serializable {
      * @throws FestivalException si le stock est null
      */
     public void addStock(Stock stock) throws FestivalException {
+        checkWritable();
         if (stock == null)
             throw new FestivalException("Le stock est null, doit être défini");
-        if (stocks.stream().anyMatch(s -> Objects.equals(s.getName(), stock.getName())))
+        loadBilling();
+        if (findStock(stock.getName()) != null)
             throw new FestivalException("Un autre stock existe avec le même nom");
         stocks.add(stock);
+        stock.festival = this;
+        stock.id = claim(stock.id, stock);
         LOGGER.info("Added Stock to Festival.stocks");
+        fireElementAdded(this, "stocks", stocks.size() - 1, stock);
+    }
+
+    /**
+     * Ajoute des stocks à la fin de la liste des stocks du festival, en une seule fois.
+     * Les noms sont vérifiés contre l'index de ceux du festival, puis entre eux.
+     *
+     * @param added les stocks à ajouter
+     * @throws FestivalException si un stock est null ou si des noms sont déjà pris, aucun n'est alors ajouté
+     */
+    public void addStocks(Collection<Stock> added) throws FestivalException {
+        checkWritable();
+        for (Stock stock : added)
+            if (stock == null)
+                throw new FestivalException("Le stock est null, doit être défini");
+        loadBilling();
+        HashSet<String> names = new HashSet<>();
+        List<String> duplicates = new ArrayList<>();
+        for (Stock stock : added)
+            if (findStock(stock.getName()) != null || !names.add(stock.getName()))
+                duplicates.add(stock.getName());
+        if (!duplicates.isEmpty())
+            throw new FestivalException(String.format("D'autres stocks existent avec les mêmes noms : %s", String.join(", ", duplicates)));
+        stocks.ensureCapacity(stocks.size() + added.size());
+        for (Stock stock : added) {
+            stocks.add(stock);
+            stock.festival = this;
+            stock.id = claim(stock.id, stock);
+            fireElementAdded(this, "stocks", stocks.size() - 1, stock);
+        }
+        LOGGER.info(String.format("Added %d Stock to Festival.stocks", added.size()));
     }
 
     /**
@@ -414,21 +1363,56 @@ public class Festival implements Serializable {
      * @throws StockException      si un avantage ne veux pas changer de quantité
      */
     public void removeStock(Stock stock) throws FestivalException, TypeTicketException, StockException {
-        if (!stocks.remove(stock))
+        checkWritable();
+        loadBilling();
+        int index = stock == null || findStock(stock.getName()) != stock ? -1 : stocks.indexOf(stock);
+        if (index < 0)
             throw new FestivalException("Le stock n'a pas été trouvé");
-        ArrayList<Avantage> oldAvantages = (ArrayList<Avantage>) stock.getAvantages().clone();
-        for (Avantage avantage : oldAvantages)
-            avantage.disconnect();
+        Stock removed = stocks.remove(index);
+        unregister(removed.id);
+        removed.festival = null;
+        fireElementRemoved(this, "stocks", index, removed);
+        ArrayList<Avantage> oldAvantages = new ArrayList<>(stock.getAvantages());
+        cascading++;
+        try {
+            for (Avantage avantage : oldAvantages)
+                avantage.disconnect();
+        } finally {
+            cascading--;
+        }
         LOGGER.info("Removed Stock from Festival.stocks");
     }
 
     /**
      * Retourne la liste des stocks du festival.
      *
-     * @return la liste des stocks
+     * @return la liste des stocks, non modifiable si le festival est un instantané
+     */
+    public List<Stock> getStocks() {
+        loadBilling();
+        return frozen ? Collections.unmodifiableList(stocks) : stocks;
+    }
+
+    /**
+     * Retourne un stock du festival à partir de son identifiant (voir {@link Stock#getId()}).
+     *
+     * @param id l'identifiant du stock
+     * @return le stock, null s'il ne fait pas partie du festival
+     */
+    public Stock getStock(long id) {
+        loadBilling();
+        return element(id, Stock.class);
+    }
+
+    /**
+     * Retourne un stock du festival à partir de son nom, sans parcourir la liste des stocks.
+     *
+     * @param name le nom du stock
+     * @return le stock, null si aucun ne porte ce nom
      */
-    public ArrayList<Stock> getStocks() {
-        return stocks;
+    public Stock findStock(String name) {
+        loadBilling();
+        return stocksByName == null ? null : stocksByName.get(name);
     }
 
     /**
@@ -439,7 +1423,10 @@ public class Festival implements Serializable {
      * @throws TypeTicketException si un ticket ne veux pas changer de quantité
      */
     public double optimizeResult() throws TypeTicketException {
+        if (frozen)
+            throw new TypeTicketException(READ_ONLY_MESSAGE);
         LOGGER.info("Calculated best quantity of ticket to sold");
+        loadBilling();
 
         ExpressionsBasedModel model = new ExpressionsBasedModel();
         HashMap<Stock, Expression> constraints = new HashMap<>();
@@ -484,27 +1471,28 @@ public class Festival implements Serializable {
     }
 
     /**
-     * Retourne le prix total du festival.
-     * Le prix total est calculé en additionnant le prix de location et le prix des stocks.
+     * Compare le fichier et le contenu de deux festivals : leurs propriétés et celles de tous leurs éléments,
+     * dans l'ordre (voir {@link FestivalTree}). Les éléments eux-mêmes ne sont égaux qu'à eux-mêmes.
      *
      * @param o l'objet à comparer
-     * @return true si les objets sont égaux, false sinon
+     * @return true si les festivals ont le même fichier et le même contenu, false sinon
      */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Festival festival = (Festival) o;
-        return Float.compare(locationPrice, festival.locationPrice) == 0 && Double.compare(area, festival.area) == 0 && Objects.equals(file, festival.file) && Objects.equals(name, festival.name) && Objects.equals(start, festival.start) && Objects.equals(location, festival.location) && Objects.equals(artistes, festival.artistes) && Objects.equals(ticketTypes, festival.ticketTypes) && Objects.equals(stocks, festival.stocks) && Objects.equals(representations, festival.representations);
+        return Objects.equals(file, festival.file) && new FestivalTree(this).sameContent(new FestivalTree(festival));
     }
 
     /**
-     * Retourne le hashcode du festival.
+     * Retourne le hashcode du festival, calculé à partir de son fichier et du hash racine de son contenu,
+     * en cohérence avec {@link #equals(Object)}.
      *
      * @return le hashcode du festival
      */
     @Override
     public int hashCode() {
-        return Objects.hash(file, name, start, locationPrice, location, area, artistes, ticketTypes, stocks, representations);
+        return Objects.hash(file, new FestivalTree(this).getRootHash());
     }
 }
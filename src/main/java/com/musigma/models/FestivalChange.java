@@ -0,0 +1,175 @@
+package com.musigma.models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * La classe FestivalChange représente la modification d'un élément entre deux versions d'un festival
+ * (voir {@link FestivalTree#diff(FestivalTree)}) : son ajout, sa suppression ou la modification de ses propriétés.
+ */
+public final class FestivalChange {
+
+    /**
+     * Nature de la modification.
+     */
+    public enum Kind {
+        ADDED("Ajout"),
+        REMOVED("Suppression"),
+        CHANGED("Modification");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Retourne le nom de la modification, pour l'affichage.
+         *
+         * @return le nom de la modification
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Valeurs d'une propriété avant et après la modification, null si l'élément n'existe pas dans la version.
+     */
+    public static final class Property {
+        private final String name;
+        private final Object oldValue;
+        private final Object newValue;
+
+        private Property(String name, Object oldValue, Object newValue) {
+            this.name = name;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * Retourne le nom de la propriété.
+         *
+         * @return le nom de la propriété
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retourne la valeur de la propriété dans la première version.
+         *
+         * @return l'ancienne valeur
+         */
+        public Object getOldValue() {
+            return oldValue;
+        }
+
+        /**
+         * Retourne la valeur de la propriété dans l'autre version.
+         *
+         * @return la nouvelle valeur
+         */
+        public Object getNewValue() {
+            return newValue;
+        }
+    }
+
+    private final FestivalTree.Section section;
+    private final String key;
+    private final Kind kind;
+    private final List<Property> properties;
+    /**
+     * Position de l'élément dans sa section, pour trier les modifications.
+     */
+    final int order;
+
+    private FestivalChange(FestivalTree.Section section, String key, Kind kind, List<Property> properties, int order) {
+        this.section = section;
+        this.key = key;
+        this.kind = kind;
+        this.properties = properties;
+        this.order = order;
+    }
+
+    static FestivalChange added(FestivalTree.Section section, FestivalTree.Entry entry) {
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, Object> property : entry.properties.entrySet())
+            properties.add(new Property(property.getKey(), null, property.getValue()));
+        return new FestivalChange(section, entry.key, Kind.ADDED, properties, entry.order);
+    }
+
+    static FestivalChange removed(FestivalTree.Section section, FestivalTree.Entry entry) {
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, Object> property : entry.properties.entrySet())
+            properties.add(new Property(property.getKey(), property.getValue(), null));
+        return new FestivalChange(section, entry.key, Kind.REMOVED, properties, entry.order);
+    }
+
+    static FestivalChange changed(FestivalTree.Section section, FestivalTree.Entry entry, FestivalTree.Entry other) {
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, Object> property : entry.properties.entrySet()) {
+            Object newValue = other.properties.get(property.getKey());
+            if (!Objects.equals(property.getValue(), newValue))
+                properties.add(new Property(property.getKey(), property.getValue(), newValue));
+        }
+        return new FestivalChange(section, entry.key, Kind.CHANGED, properties, entry.order);
+    }
+
+    /**
+     * Retourne la section de l'élément modifié.
+     *
+     * @return la section
+     */
+    public FestivalTree.Section getSection() {
+        return section;
+    }
+
+    /**
+     * Retourne la clé de l'élément modifié : son nom, son type ou le début en minutes et la scène de la représentation.
+     *
+     * @return la clé de l'élément
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Retourne la nature de la modification.
+     *
+     * @return la nature de la modification
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Retourne les propriétés modifiées, ou toutes celles de l'élément ajouté ou supprimé.
+     *
+     * @return les propriétés
+     */
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Décrit la modification sur une ligne, par exemple {@code Modification : Stock "Coca" : price 2.5 → 3.0}.
+     *
+     * @return la description de la modification
+     */
+    @Override
+    public String toString() {
+        String element = section == FestivalTree.Section.FESTIVAL ? section.getLabel() : String.format("%s \"%s\"", section.getLabel(), key);
+        if (kind == Kind.REMOVED)
+            return String.format("%s : %s", kind.getLabel(), element);
+        StringJoiner details = new StringJoiner(", ");
+        for (Property property : properties)
+            details.add(kind == Kind.ADDED
+                    ? String.format("%s %s", property.name, property.newValue)
+                    : String.format("%s %s → %s", property.name, property.oldValue, property.newValue));
+        return String.format("%s : %s : %s", kind.getLabel(), element, details);
+    }
+}
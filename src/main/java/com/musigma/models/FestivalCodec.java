@@ -0,0 +1,865 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import static com.musigma.utils.Log.getLogger;
+
+/**
+ * La classe FestivalCodec encode et décode un festival dans le format binaire des fichiers .mgm.
+ * <p>
+ * Chaque entité est écrite champ par champ par un encodeur dédié, sans descripteur de classe.
+ * Le fichier commence par un en-tête et une table des sections, suivis des sections :
+ * <pre>
+ * en-tête          : MAGIC (int), VERSION (short), version compatible (short), nombre de sections (short)
+ * table            : (identifiant (short), position (long), taille (int)) par section
+ * section          : schéma (nombre de champs (byte), puis un type par champ (byte)), puis le contenu
+ * festival         : nom, début, prix de location, superficie, emplacement, génération (long, voir {@link FestivalJournal}),
+ *                    plus grand identifiant attribué (long)
+ * artistes         : nombre d'artistes du festival, nombre d'artistes hors festival, dictionnaire des genres,
+ *                    puis (nom, code du genre, prix, identifiant)
+ * représentations  : nombre, dictionnaire des scènes, puis (début, durée, code de la scène, index de l'artiste, identifiant)
+ * dictionnaire     : nombre de textes, puis les textes dans l'ordre de leur code
+ * stocks           : nombre, puis (nom, quantité, fixe, prix, identifiant)
+ * types de tickets : nombre, puis (type, quantité, prix, identifiant)
+ * avantages        : nombre, puis (index du ticket, index du stock, quantité par ticket)
+ * </pre>
+ * Les références entre objets sont écrites sous forme d'index dans les listes du festival,
+ * ce qui évite de suivre les liens cycliques entre {@link Avantage}, {@link Stock} et {@link TypeTicket}.
+ * Les genres et les scènes, répétés d'un élément à l'autre, sont écrits une seule fois dans le dictionnaire
+ * de leur section (voir {@link FestivalDictionary}), les éléments n'en gardant que le code.
+ * Les identifiants des éléments (voir {@link Festival#getArtiste(long)}) sont conservés d'une réécriture à l'autre,
+ * le journal du fichier désignant les éléments par leur identifiant.
+ * <p>
+ * Le format peut évoluer sans empêcher les versions précédentes de lire les fichiers : la version compatible
+ * est la plus ancienne version du codec capable de les lire. Un lecteur ignore les sections qu'il ne connaît pas,
+ * grâce à la table, et les champs ajoutés à la fin des éléments d'une section, grâce au schéma de la section.
+ * Ajouter un champ ou une section ne change donc pas la version compatible, contrairement à la modification
+ * d'un champ existant. Les fichiers sérialisés des premières versions de l'application sont lus par
+ * {@link Festival#Festival(java.io.File)} et réécrits dans ce format à leur prochaine sauvegarde.
+ * <p>
+ * À la lecture, seule la section du festival est décodée. Les artistes et représentations d'une part,
+ * les stocks, types de tickets et avantages d'autre part, ne sont décodés qu'au premier accès
+ * à l'une de leurs collections (voir {@link LazySections}).
+ * <p>
+ * Un fichier peut aussi être compressé : il commence alors par {@link #COMPRESSED_MAGIC} et le niveau de compression
+ * (byte), suivis du contenu ci-dessus compressé en flux Deflate (zlib). Il est décompressé en mémoire à l'ouverture,
+ * les collections restant décodées au premier accès.
+ */
+public final class FestivalCodec {
+
+    /**
+     * Nombre magique en tête des fichiers encodés ("MGM" suivi d'un octet nul).
+     */
+    public static final int MAGIC = 0x4D474D00;
+    /**
+     * Nombre magique en tête des fichiers encodés puis compressés ("MGMZ").
+     */
+    public static final int COMPRESSED_MAGIC = 0x4D474D5A;
+    /**
+     * Niveau de compression proposé par défaut, bon compromis entre taille et temps d'écriture.
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+    /**
+     * Version du format écrite par ce codec.
+     */
+    public static final short VERSION = 1;
+    /**
+     * Plus ancienne version du codec capable de lire les fichiers écrits par celui-ci.
+     */
+    public static final short COMPATIBLE_VERSION = 1;
+    /**
+     * Identifiant de la section des informations du festival.
+     */
+    static final short SECTION_FESTIVAL = 1;
+    /**
+     * Identifiant de la section des artistes.
+     */
+    static final short SECTION_ARTISTES = 2;
+    /**
+     * Identifiant de la section des représentations.
+     */
+    static final short SECTION_REPRESENTATIONS = 3;
+    /**
+     * Identifiant de la section des stocks.
+     */
+    static final short SECTION_STOCKS = 4;
+    /**
+     * Identifiant de la section des types de tickets.
+     */
+    static final short SECTION_TICKET_TYPES = 5;
+    /**
+     * Identifiant de la section des avantages.
+     */
+    static final short SECTION_AVANTAGES = 6;
+    /**
+     * Taille d'une entrée de la table des sections.
+     */
+    private static final int TABLE_ENTRY_SIZE = Short.BYTES + Long.BYTES + Integer.BYTES;
+    /**
+     * Schémas des sections écrites par ce codec.
+     */
+    private static final Schema FESTIVAL_SCHEMA = new Schema(Schema.STRING, Schema.DATE_TIME, Schema.FLOAT, Schema.FLOAT, Schema.STRING, Schema.LONG, Schema.LONG),
+            ARTISTE_SCHEMA = new Schema(Schema.STRING, Schema.INT, Schema.FLOAT, Schema.LONG),
+            REPRESENTATION_SCHEMA = new Schema(Schema.INT, Schema.INT, Schema.INT, Schema.INT, Schema.LONG),
+            STOCK_SCHEMA = new Schema(Schema.STRING, Schema.INT, Schema.BOOLEAN, Schema.DOUBLE, Schema.LONG),
+            TICKET_TYPE_SCHEMA = new Schema(Schema.STRING, Schema.INT, Schema.FLOAT, Schema.LONG),
+            AVANTAGE_SCHEMA = new Schema(Schema.INT, Schema.INT, Schema.INT);
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = getLogger(FestivalCodec.class);
+
+    private FestivalCodec() {
+    }
+
+    /**
+     * Indique si le contenu commence par l'en-tête de ce format, sans déplacer la position du tampon.
+     *
+     * @param buffer le contenu à inspecter
+     * @return true si le contenu est au format binaire du codec, compressé ou non, false sinon (ancien format sérialisé)
+     */
+    public static boolean isEncoded(ByteBuffer buffer) {
+        return buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) == MAGIC || isCompressed(buffer);
+    }
+
+    /**
+     * Indique si le contenu commence par l'en-tête d'un festival compressé, sans déplacer la position du tampon.
+     *
+     * @param buffer le contenu à inspecter
+     * @return true si le contenu est compressé, false sinon
+     */
+    public static boolean isCompressed(ByteBuffer buffer) {
+        return buffer.remaining() >= Integer.BYTES + Byte.BYTES && buffer.getInt(buffer.position()) == COMPRESSED_MAGIC;
+    }
+
+    /**
+     * Compresse un festival déjà encodé par {@link #write(Festival, DataOutput)} dans le flux, sans le fermer.
+     * La compression se fait au fil de l'écriture, sans copie intermédiaire du contenu compressé.
+     *
+     * @param encoded le festival encodé
+     * @param out     le flux de sortie
+     * @param level   le niveau de compression, de 1 (le plus rapide) à 9 (le plus compact)
+     * @throws IOException si l'écriture échoue
+     */
+    public static void compress(byte[] encoded, OutputStream out, int level) throws IOException {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException(String.format("Invalid compression level %d", level));
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(COMPRESSED_MAGIC);
+        header.writeByte(level);
+        header.flush();
+        Deflater deflater = new Deflater(level);
+        try {
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, 1 << 16);
+            deflated.write(encoded);
+            deflated.finish();
+            deflated.flush();
+        } finally {
+            deflater.end();
+        }
+        LOGGER.info(String.format("Compressed %d bytes at level %d", encoded.length, level));
+    }
+
+    /**
+     * Décompresse en mémoire le contenu d'un festival compressé.
+     *
+     * @param buffer le contenu compressé, positionné sur le nombre magique
+     * @return le festival encodé, positionné sur son nombre magique
+     * @throws IOException       si la lecture échoue
+     * @throws FestivalException si le contenu compressé est corrompu
+     */
+    static ByteBuffer decompress(ByteBuffer buffer) throws IOException, FestivalException {
+        ByteBuffer content = buffer.slice();
+        content.position(Integer.BYTES + Byte.BYTES);
+        Inflater inflater = new Inflater();
+        try (InputStream in = new InflaterInputStream(asStream(content), inflater, 1 << 16)) {
+            byte[] encoded = in.readAllBytes();
+            LOGGER.info(String.format("Decompressed %d bytes from %d", encoded.length, content.limit()));
+            return ByteBuffer.wrap(encoded);
+        } catch (ZipException | EOFException e) {
+            throw new FestivalException("Le fichier du festival est corrompu : contenu compressé invalide");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Encode le festival dans le flux.
+     *
+     * @param festival le festival à encoder
+     * @param out      le flux de sortie
+     * @throws IOException si l'écriture échoue
+     */
+    public static void write(Festival festival, DataOutput out) throws IOException {
+        Map<Short, byte[]> sections = new LinkedHashMap<>();
+        sections.put(SECTION_FESTIVAL, section(FESTIVAL_SCHEMA, o -> writeHeader(festival, o)));
+        List<Artiste> artistes = new ArrayList<>();
+        sections.put(SECTION_ARTISTES, section(ARTISTE_SCHEMA, o -> artistes.addAll(writeArtistes(festival, o))));
+        sections.put(SECTION_REPRESENTATIONS, section(REPRESENTATION_SCHEMA, o -> writeRepresentations(festival, artistes, o)));
+        sections.put(SECTION_STOCKS, section(STOCK_SCHEMA, o -> writeStocks(festival, o)));
+        sections.put(SECTION_TICKET_TYPES, section(TICKET_TYPE_SCHEMA, o -> writeTicketTypes(festival, o)));
+        sections.put(SECTION_AVANTAGES, section(AVANTAGE_SCHEMA, o -> writeAvantages(festival, o)));
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(COMPATIBLE_VERSION);
+        out.writeShort(sections.size());
+        long offset = Integer.BYTES + 3 * Short.BYTES + (long) sections.size() * TABLE_ENTRY_SIZE;
+        for (Map.Entry<Short, byte[]> section : sections.entrySet()) {
+            out.writeShort(section.getKey());
+            out.writeLong(offset);
+            out.writeInt(section.getValue().length);
+            offset += section.getValue().length;
+        }
+        for (byte[] section : sections.values())
+            out.write(section);
+        LOGGER.info(String.format("Encoded festival \"%s\"", festival.getName()));
+    }
+
+    /**
+     * Ouvre un festival encodé. Seules les informations du festival sont décodées immédiatement,
+     * les collections le sont au premier accès en lisant directement le tampon.
+     * Le tampon, par exemple un {@link java.nio.MappedByteBuffer}, doit rester valide
+     * jusqu'à ce que le festival soit entièrement chargé.
+     *
+     * Un contenu compressé est d'abord décompressé en mémoire.
+     *
+     * @param buffer le contenu encodé, positionné sur le nombre magique
+     * @return le festival ouvert, sans fichier associé
+     * @throws IOException       si la lecture échoue
+     * @throws FestivalException si le contenu n'est pas un festival valide
+     */
+    public static Festival read(ByteBuffer buffer) throws IOException, FestivalException {
+        ByteBuffer content = buffer.slice();
+        if (isCompressed(content)) {
+            int level = content.get(Integer.BYTES);
+            Festival festival = read(decompress(content));
+            festival.compressionLevel = level;
+            return festival;
+        }
+        if (!isEncoded(content))
+            throw new FestivalException("Le fichier n'est pas un fichier de festival");
+        int header = Integer.BYTES + 3 * Short.BYTES;
+        if (content.remaining() < header)
+            throw new FestivalException("Le fichier du festival est corrompu : en-tête incomplet");
+        short version = content.getShort(Integer.BYTES);
+        short compatible = content.getShort(Integer.BYTES + Short.BYTES);
+        if (compatible > VERSION)
+            throw new FestivalException(String.format("Le fichier du festival est au format %d, non supporté par cette version (%d)", version, VERSION));
+        int count = content.getShort(header - Short.BYTES);
+        Map<Short, ByteBuffer> sections = new HashMap<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                int entry = header + i * TABLE_ENTRY_SIZE;
+                short id = content.getShort(entry);
+                int offset = Math.toIntExact(content.getLong(entry + Short.BYTES));
+                int length = content.getInt(entry + Short.BYTES + Long.BYTES);
+                sections.put(id, slice(content, offset, length));
+            }
+        } catch (IndexOutOfBoundsException | ArithmeticException | IllegalArgumentException e) {
+            throw new FestivalException("Le fichier du festival est corrompu : table des sections invalide");
+        }
+        DataInputStream in = section(sections, SECTION_FESTIVAL);
+        Schema.read(in, FESTIVAL_SCHEMA);
+        Festival festival = readHeader(in);
+        festival.generation = in.readLong();
+        festival.lastId = in.readLong();
+        festival.sections = new LazySections(sections);
+        LOGGER.info(String.format("Opened festival \"%s\" with %d sections", festival.getName(), count));
+        return festival;
+    }
+
+    /**
+     * Retourne un flux de lecture sur le contenu restant du tampon, sans le copier.
+     *
+     * @param buffer le tampon à lire
+     * @return le flux de lecture
+     */
+    public static InputStream asStream(ByteBuffer buffer) {
+        ByteBuffer content = buffer.slice();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return content.hasRemaining() ? content.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if (!content.hasRemaining())
+                    return -1;
+                length = Math.min(length, content.remaining());
+                content.get(bytes, offset, length);
+                return length;
+            }
+
+            @Override
+            public int available() {
+                return content.remaining();
+            }
+        };
+    }
+
+    /**
+     * Sections d'un festival ouvert qui n'ont pas encore été décodées.
+     * Les collections sont décodées par groupes de sections dépendantes :
+     * les artistes avec les représentations, les stocks avec les types de tickets et les avantages.
+     * Une fois tous les groupes décodés, le festival ne référence plus le tampon.
+     */
+    static final class LazySections {
+        /**
+         * Contenu de chaque section, par identifiant.
+         */
+        private final Map<Short, ByteBuffer> sections;
+        /**
+         * Si les artistes et les représentations ont été décodés.
+         */
+        private boolean castLoaded;
+        /**
+         * Si les stocks, types de tickets et avantages ont été décodés.
+         */
+        private boolean billingLoaded;
+
+        private LazySections(Map<Short, ByteBuffer> sections) {
+            this.sections = sections;
+        }
+
+        /**
+         * Décode les artistes et les représentations du festival s'ils ne l'ont pas encore été.
+         * Ils ne sont ajoutés au festival qu'une fois les deux sections entièrement décodées :
+         * après une erreur, le festival reste sans artistes ni représentations et l'accès suivant échoue de même.
+         *
+         * @param festival le festival à compléter
+         * @throws IllegalStateException si les sections sont corrompues
+         */
+        void loadCast(Festival festival) {
+            if (castLoaded)
+                return;
+            List<Artiste> members = new ArrayList<>();
+            List<Representation> representations;
+            try {
+                List<Artiste> artistes = readArtistes(section(sections, SECTION_ARTISTES), members);
+                representations = readRepresentations(artistes, section(sections, SECTION_REPRESENTATIONS));
+            } catch (IOException | FestivalException | ArtisteException | RuntimeException e) {
+                throw corrupted(e);
+            }
+            castLoaded = true;
+            festival.getArtistes().addAll(members);
+            festival.getRepresentations().addAll(representations);
+            festival.adopt();
+            release(festival);
+            LOGGER.info(String.format("Loaded %d artistes of festival \"%s\"", members.size(), festival.getName()));
+        }
+
+        /**
+         * Décode les stocks, types de tickets et avantages du festival s'ils ne l'ont pas encore été.
+         * Comme pour {@link #loadCast(Festival)}, ils ne sont ajoutés au festival qu'une fois entièrement décodés.
+         *
+         * @param festival le festival à compléter
+         * @throws IllegalStateException si les sections sont corrompues
+         */
+        void loadBilling(Festival festival) {
+            if (billingLoaded)
+                return;
+            List<Stock> stocks;
+            List<TypeTicket> ticketTypes;
+            try {
+                stocks = readStocks(section(sections, SECTION_STOCKS));
+                ticketTypes = readTicketTypes(section(sections, SECTION_TICKET_TYPES));
+                readAvantages(ticketTypes, stocks, section(sections, SECTION_AVANTAGES));
+            } catch (IOException | FestivalException | StockException | TypeTicketException | AvantageException | RuntimeException e) {
+                throw corrupted(e);
+            }
+            billingLoaded = true;
+            festival.getStocks().addAll(stocks);
+            festival.getTicketTypes().addAll(ticketTypes);
+            festival.adopt();
+            release(festival);
+            LOGGER.info(String.format("Loaded %d stocks of festival \"%s\"", stocks.size(), festival.getName()));
+        }
+
+        /**
+         * Indique si les artistes et les représentations ont été décodés.
+         *
+         * @return true s'ils sont décodés, false s'ils sont encore dans le fichier
+         */
+        boolean isCastLoaded() {
+            return castLoaded;
+        }
+
+        /**
+         * Indique si les stocks, types de tickets et avantages ont été décodés.
+         *
+         * @return true s'ils sont décodés, false s'ils sont encore dans le fichier
+         */
+        boolean isBillingLoaded() {
+            return billingLoaded;
+        }
+
+        /**
+         * Lit le nombre d'éléments en tête d'une section, sans la décoder.
+         * Pour les artistes, seuls ceux du festival sont comptés.
+         *
+         * @param id l'identifiant de la section
+         * @return le nombre d'éléments de la section
+         * @throws FestivalException si la section est absente ou vide
+         */
+        int count(short id) throws FestivalException {
+            ByteBuffer section = sections.get(id);
+            int position = section != null && section.hasRemaining() ? 1 + section.get(0) : 0; // Après le schéma
+            if (section == null || section.remaining() < position + Integer.BYTES)
+                throw new FestivalException(String.format("Le fichier du festival est corrompu : section %d absente", id));
+            return section.getInt(position);
+        }
+
+        /**
+         * Retourne la taille des sections des artistes et représentations restant à décoder.
+         *
+         * @return la taille en octets, 0 s'ils sont déjà décodés
+         */
+        long castSize() {
+            return castLoaded ? 0 : size(SECTION_ARTISTES, SECTION_REPRESENTATIONS);
+        }
+
+        /**
+         * Retourne la taille des sections des stocks, types de tickets et avantages restant à décoder.
+         *
+         * @return la taille en octets, 0 s'ils sont déjà décodés
+         */
+        long billingSize() {
+            return billingLoaded ? 0 : size(SECTION_STOCKS, SECTION_TICKET_TYPES, SECTION_AVANTAGES);
+        }
+
+        /**
+         * Retourne la taille de toutes les sections du fichier.
+         *
+         * @return la taille en octets
+         */
+        long size() {
+            long size = 0;
+            for (ByteBuffer section : sections.values())
+                size += section.remaining();
+            return size;
+        }
+
+        private long size(short... ids) {
+            long size = 0;
+            for (short id : ids) {
+                ByteBuffer section = sections.get(id);
+                if (section != null)
+                    size += section.remaining();
+            }
+            return size;
+        }
+
+        private void release(Festival festival) {
+            if (castLoaded && billingLoaded)
+                festival.sections = null;
+        }
+
+        private static IllegalStateException corrupted(Exception e) {
+            return new IllegalStateException(String.format("Le fichier du festival est corrompu : %s", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Encode une section en mémoire, précédée de son schéma.
+     */
+    private static byte[] section(Schema schema, SectionWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        schema.write(out);
+        writer.write(out);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Retourne un flux de lecture sur une section, ou lève une exception si elle est absente.
+     */
+    private static DataInputStream section(Map<Short, ByteBuffer> sections, short id) throws FestivalException {
+        ByteBuffer section = sections.get(id);
+        if (section == null)
+            throw new FestivalException(String.format("Le fichier du festival est corrompu : section %d absente", id));
+        return new DataInputStream(asStream(section));
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length);
+        slice.position(offset);
+        return slice.slice();
+    }
+
+    /**
+     * Encodeur d'une section.
+     */
+    @FunctionalInterface
+    private interface SectionWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private static void writeHeader(Festival festival, DataOutput out) throws IOException {
+        out.writeUTF(festival.getName());
+        writeDateTime(festival.getStart(), out);
+        out.writeFloat(festival.getLocationPrice());
+        out.writeFloat(festival.getArea());
+        out.writeUTF(festival.getLocation());
+        out.writeLong(festival.generation);
+        out.writeLong(festival.lastId);
+    }
+
+    private static Festival readHeader(DataInput in) throws IOException, FestivalException {
+        String name = in.readUTF();
+        LocalDateTime start = readDateTime(in);
+        float locationPrice = in.readFloat();
+        float area = in.readFloat();
+        String location = in.readUTF();
+        return Festival.restore(name, start, locationPrice, area, location);
+    }
+
+    /**
+     * Écrit les artistes du festival, suivis des artistes référencés par une représentation
+     * sans faire partie du festival.
+     *
+     * @return la table des artistes écrits, dans l'ordre des index utilisés par les représentations
+     */
+    private static List<Artiste> writeArtistes(Festival festival, DataOutput out) throws IOException {
+        List<Artiste> artistes = new ArrayList<>(festival.getArtistes());
+        IdentityHashMap<Artiste, Boolean> known = new IdentityHashMap<>();
+        for (Artiste artiste : artistes)
+            known.put(artiste, true);
+        for (Representation representation : festival.getRepresentations()) {
+            Artiste artiste = representation.getArtiste();
+            if (artiste != null && known.put(artiste, true) == null)
+                artistes.add(artiste);
+        }
+        FestivalDictionary genres = new FestivalDictionary();
+        for (Artiste artiste : artistes)
+            genres.code(artiste.getGenre());
+        out.writeInt(festival.getArtistes().size());
+        out.writeInt(artistes.size() - festival.getArtistes().size());
+        writeDictionary(genres, out);
+        for (Artiste artiste : artistes) {
+            out.writeUTF(artiste.getName());
+            out.writeInt(genres.code(artiste.getGenre()));
+            out.writeFloat(artiste.getPrice());
+            out.writeLong(artiste.id);
+        }
+        return artistes;
+    }
+
+    /**
+     * Lit les artistes, ceux du festival puis ceux référencés par une représentation sans en faire partie.
+     *
+     * @param members reçoit les artistes du festival
+     * @return la table des artistes lus, dans l'ordre des index utilisés par les représentations
+     */
+    private static List<Artiste> readArtistes(DataInput in, List<Artiste> members) throws IOException, ArtisteException {
+        Schema schema = Schema.read(in, ARTISTE_SCHEMA);
+        int count = in.readInt();
+        int orphans = in.readInt();
+        String[] genres = readDictionary(in);
+        List<Artiste> artistes = new ArrayList<>(count + orphans);
+        for (int i = 0; i < count + orphans; i++) {
+            String name = in.readUTF();
+            String genre = lookup(genres, in.readInt());
+            Artiste artiste = new Artiste(name, genre, in.readFloat());
+            artiste.id = in.readLong();
+            schema.skip(in);
+            artistes.add(artiste);
+            if (i < count)
+                members.add(artiste);
+        }
+        return artistes;
+    }
+
+    /**
+     * Écrit les représentations, chacune avec l'index de son artiste dans la table des artistes.
+     */
+    private static void writeRepresentations(Festival festival, List<Artiste> artistes, DataOutput out) throws IOException {
+        IdentityHashMap<Artiste, Integer> artisteIndexes = indexes(artistes);
+        FestivalDictionary scenes = new FestivalDictionary();
+        for (Representation representation : festival.getRepresentations())
+            scenes.code(representation.getScene());
+        out.writeInt(festival.getRepresentations().size());
+        writeDictionary(scenes, out);
+        for (Representation representation : festival.getRepresentations()) {
+            out.writeInt(representation.getStartDelta());
+            out.writeInt(representation.getDuration());
+            out.writeInt(scenes.code(representation.getScene()));
+            Integer artisteIndex = artisteIndexes.get(representation.getArtiste());
+            out.writeInt(artisteIndex == null ? -1 : artisteIndex);
+            out.writeLong(representation.id);
+        }
+    }
+
+    private static List<Representation> readRepresentations(List<Artiste> artistes, DataInput in) throws IOException, ArtisteException {
+        Schema schema = Schema.read(in, REPRESENTATION_SCHEMA);
+        int count = in.readInt();
+        String[] scenes = readDictionary(in);
+        List<Representation> representations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int startDelta = in.readInt();
+            int duration = in.readInt();
+            String scene = lookup(scenes, in.readInt());
+            int artisteIndex = in.readInt();
+            long id = in.readLong();
+            schema.skip(in);
+            Representation representation = new Representation(startDelta, duration, scene, artisteIndex < 0 ? null : artistes.get(artisteIndex));
+            representation.id = id;
+            representations.add(representation);
+        }
+        return representations;
+    }
+
+    private static void writeStocks(Festival festival, DataOutput out) throws IOException {
+        out.writeInt(festival.getStocks().size());
+        for (Stock stock : festival.getStocks()) {
+            out.writeUTF(stock.getName());
+            out.writeInt(stock.getQuantity());
+            out.writeBoolean(stock.isFixed());
+            out.writeDouble(stock.getPrix());
+            out.writeLong(stock.id);
+        }
+    }
+
+    private static List<Stock> readStocks(DataInput in) throws IOException, StockException {
+        Schema schema = Schema.read(in, STOCK_SCHEMA);
+        int count = in.readInt();
+        List<Stock> stocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Stock stock = new Stock(in.readUTF(), in.readInt(), in.readBoolean(), in.readDouble());
+            stock.id = in.readLong();
+            schema.skip(in);
+            stocks.add(stock);
+        }
+        return stocks;
+    }
+
+    private static void writeTicketTypes(Festival festival, DataOutput out) throws IOException {
+        out.writeInt(festival.getTicketTypes().size());
+        for (TypeTicket ticketType : festival.getTicketTypes()) {
+            out.writeUTF(ticketType.getType());
+            out.writeInt(ticketType.getQuantity());
+            out.writeFloat(ticketType.getPrice());
+            out.writeLong(ticketType.id);
+        }
+    }
+
+    private static List<TypeTicket> readTicketTypes(DataInput in) throws IOException, TypeTicketException {
+        Schema schema = Schema.read(in, TICKET_TYPE_SCHEMA);
+        int count = in.readInt();
+        List<TypeTicket> ticketTypes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TypeTicket ticketType = new TypeTicket(in.readUTF(), in.readInt(), in.readFloat());
+            ticketType.id = in.readLong();
+            schema.skip(in);
+            ticketTypes.add(ticketType);
+        }
+        return ticketTypes;
+    }
+
+    /**
+     * Écrit les avantages des types de tickets sous forme de triplets (ticket, stock, quantité).
+     * Les avantages dont le stock ne fait pas partie du festival sont ignorés.
+     */
+    private static void writeAvantages(Festival festival, DataOutput out) throws IOException {
+        IdentityHashMap<Stock, Integer> stockIndexes = indexes(festival.getStocks());
+        List<int[]> edges = new ArrayList<>();
+        for (int t = 0; t < festival.getTicketTypes().size(); t++)
+            for (Avantage avantage : festival.getTicketTypes().get(t).getAvantages()) {
+                Integer s = stockIndexes.get(avantage.getStock());
+                if (s == null)
+                    LOGGER.warning(String.format("Skipped avantage on stock \"%s\" outside of the festival", avantage.getStock().getName()));
+                else
+                    edges.add(new int[]{t, s, avantage.getQuantityByTicket()});
+            }
+        out.writeInt(edges.size());
+        for (int[] edge : edges) {
+            out.writeInt(edge[0]);
+            out.writeInt(edge[1]);
+            out.writeInt(edge[2]);
+        }
+    }
+
+    /**
+     * Lit les avantages et les relie à leur type de ticket et à leur stock.
+     * Les stocks sont défixés le temps de la lecture pour ne pas revalider des quantités
+     * déjà acceptées lors de l'enregistrement.
+     */
+    private static void readAvantages(List<TypeTicket> ticketTypes, List<Stock> stocks, DataInput in) throws IOException, TypeTicketException, StockException, AvantageException {
+        Schema schema = Schema.read(in, AVANTAGE_SCHEMA);
+        int count = in.readInt();
+        boolean[] fixed = new boolean[stocks.size()];
+        for (int i = 0; i < stocks.size(); i++) {
+            fixed[i] = stocks.get(i).isFixed();
+            stocks.get(i).setFixed(false);
+        }
+        for (int i = 0; i < count; i++) {
+            TypeTicket ticketType = ticketTypes.get(in.readInt());
+            Stock stock = stocks.get(in.readInt());
+            Avantage avantage = new Avantage(ticketType, stock, in.readInt());
+            schema.skip(in);
+            ticketType.getAvantages().add(avantage);
+            stock.getAvantages().add(avantage);
+        }
+        for (int i = 0; i < stocks.size(); i++)
+            stocks.get(i).setFixed(fixed[i]);
+    }
+
+    /**
+     * Crée un avantage lu depuis un fichier sans revalider sa quantité par ticket,
+     * acceptée lorsqu'il a été enregistré.
+     *
+     * @param ticketType       le type de ticket de l'avantage
+     * @param stock            le stock de l'avantage
+     * @param quantityByTicket la quantité par ticket
+     * @return l'avantage, pas encore relié à son type de ticket ni à son stock
+     * @throws AvantageException   si la quantité par ticket est négative ou nulle
+     * @throws TypeTicketException si une exception relative au type de ticket survient
+     * @throws StockException      si une exception relative au stock survient
+     */
+    static Avantage restoreAvantage(TypeTicket ticketType, Stock stock, int quantityByTicket) throws AvantageException, TypeTicketException, StockException {
+        boolean fixed = stock.isFixed();
+        stock.setFixed(false);
+        try {
+            return new Avantage(ticketType, stock, quantityByTicket);
+        } finally {
+            stock.setFixed(fixed);
+        }
+    }
+
+    private static void writeDictionary(FestivalDictionary dictionary, DataOutput out) throws IOException {
+        out.writeInt(dictionary.size());
+        for (int code = 0; code < dictionary.size(); code++)
+            out.writeUTF(dictionary.get(code));
+    }
+
+    private static String[] readDictionary(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException(String.format("dictionnaire de %d textes", count));
+        String[] values = new String[count];
+        for (int code = 0; code < values.length; code++)
+            values[code] = in.readUTF();
+        return values;
+    }
+
+    /**
+     * Retourne le texte d'un code lu dans une section, en vérifiant qu'il figure dans le dictionnaire de la section.
+     */
+    private static String lookup(String[] dictionary, int code) throws IOException {
+        if (code == FestivalDictionary.NONE)
+            return null;
+        if (code < 0 || code >= dictionary.length)
+            throw new IOException(String.format("code %d absent du dictionnaire", code));
+        return dictionary[code];
+    }
+
+    static void writeDateTime(LocalDateTime dateTime, DataOutput out) throws IOException {
+        out.writeLong(dateTime.toLocalDate().toEpochDay());
+        out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+    }
+
+    static LocalDateTime readDateTime(DataInput in) throws IOException {
+        return LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong()));
+    }
+
+    private static <T> IdentityHashMap<T, Integer> indexes(List<T> list) {
+        IdentityHashMap<T, Integer> indexes = new IdentityHashMap<>(list.size());
+        for (int i = 0; i < list.size(); i++)
+            indexes.put(list.get(i), i);
+        return indexes;
+    }
+
+    /**
+     * Schéma des éléments d'une section : le type de chacun de leurs champs, dans l'ordre d'écriture.
+     * Il permet de sauter les champs ajoutés par une version plus récente du codec.
+     */
+    private static final class Schema {
+        private static final byte STRING = 'S', INT = 'I', LONG = 'J', FLOAT = 'F', DOUBLE = 'D', BOOLEAN = 'Z', DATE_TIME = 'T';
+
+        /**
+         * Type de chaque champ.
+         */
+        private final byte[] types;
+        /**
+         * Nombre de champs connus de ce codec, lus avant ceux à sauter.
+         */
+        private final int known;
+
+        private Schema(byte... types) {
+            this(types, types.length);
+        }
+
+        private Schema(byte[] types, int known) {
+            this.types = types;
+            this.known = known;
+        }
+
+        /**
+         * Lit le schéma en tête d'une section et vérifie qu'il commence par les champs connus de ce codec.
+         *
+         * @param in       le contenu de la section
+         * @param expected le schéma écrit par ce codec
+         */
+        private static Schema read(DataInput in, Schema expected) throws IOException {
+            byte[] types = new byte[in.readUnsignedByte()];
+            in.readFully(types);
+            if (types.length < expected.types.length)
+                throw new IOException(String.format("%d champs au lieu de %d", types.length, expected.types.length));
+            for (int i = 0; i < expected.types.length; i++)
+                if (types[i] != expected.types[i])
+                    throw new IOException(String.format("champ %d de type %c au lieu de %c", i, types[i], expected.types[i]));
+            return new Schema(types, expected.types.length);
+        }
+
+        private void write(DataOutput out) throws IOException {
+            out.writeByte(types.length);
+            out.write(types);
+        }
+
+        /**
+         * Saute les champs d'un élément à partir du premier champ inconnu de ce codec.
+         *
+         * @param in le contenu de la section, positionné après les champs connus
+         */
+        private void skip(DataInput in) throws IOException {
+            for (int i = known; i < types.length; i++) {
+                switch (types[i]) {
+                    case STRING:
+                        in.skipBytes(in.readUnsignedShort());
+                        break;
+                    case INT:
+                    case FLOAT:
+                        in.skipBytes(Integer.BYTES);
+                        break;
+                    case LONG:
+                    case DOUBLE:
+                        in.skipBytes(Long.BYTES);
+                        break;
+                    case BOOLEAN:
+                        in.skipBytes(1);
+                        break;
+                    case DATE_TIME:
+                        in.skipBytes(2 * Long.BYTES);
+                        break;
+                    default:
+                        throw new IOException(String.format("Champ de type %c inconnu", types[i]));
+                }
+            }
+        }
+    }
+}
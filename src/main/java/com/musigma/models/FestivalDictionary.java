@@ -0,0 +1,82 @@
+package com.musigma.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * La classe FestivalDictionary associe à chaque texte distinct d'un festival, par exemple ses scènes ou ses genres,
+ * un code entier attribué dans l'ordre d'apparition.
+ * <p>
+ * Les éléments du festival partagent l'instance du dictionnaire au lieu de garder chacun la leur,
+ * et deux textes du même dictionnaire se comparent par leur code. Un code n'est jamais réattribué,
+ * même si plus aucun élément n'utilise son texte.
+ */
+final class FestivalDictionary {
+
+    /**
+     * Code des textes absents (null).
+     */
+    static final int NONE = -1;
+
+    private final ArrayList<String> values = new ArrayList<>();
+    private final HashMap<String, Integer> codes = new HashMap<>();
+
+    /**
+     * Retourne le code d'un texte, en l'ajoutant au dictionnaire s'il n'y est pas encore.
+     *
+     * @param value le texte
+     * @return le code du texte, {@link #NONE} si le texte est null
+     */
+    int code(String value) {
+        if (value == null)
+            return NONE;
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Retourne le code d'un texte sans l'ajouter au dictionnaire.
+     *
+     * @param value le texte
+     * @return le code du texte, {@link #NONE} si le texte est null ou absent du dictionnaire
+     */
+    int find(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NONE : code;
+    }
+
+    /**
+     * Retourne le texte d'un code.
+     *
+     * @param code le code
+     * @return le texte, null pour {@link #NONE}
+     * @throws IndexOutOfBoundsException si le code n'a pas été attribué
+     */
+    String get(int code) {
+        return code == NONE ? null : values.get(code);
+    }
+
+    /**
+     * Retourne l'instance du dictionnaire égale à un texte, en l'ajoutant s'il n'y est pas encore.
+     *
+     * @param value le texte
+     * @return l'instance partagée du texte, null si le texte est null
+     */
+    String intern(String value) {
+        return get(code(value));
+    }
+
+    /**
+     * Retourne le nombre de textes du dictionnaire.
+     *
+     * @return le nombre de codes attribués
+     */
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,333 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+import static com.musigma.utils.Log.getLogger;
+
+/**
+ * La classe FestivalDiff met à jour un festival ouvert avec une autre version du même festival,
+ * par exemple son fichier modifié par ailleurs, en ne modifiant que les éléments qui diffèrent.
+ * <p>
+ * Les éléments sont associés d'une version à l'autre par leur clé : le nom des stocks, le type des tickets,
+ * le stock des avantages, le début des représentations et, pour les artistes, leur nom puis leur rang parmi les homonymes.
+ * Les éléments associés sont modifiés sur place, les autres sont retirés ou ajoutés :
+ * les objets du festival ouvert restent ceux qu'affiche l'interface.
+ * <p>
+ * Les modifications passent par les méthodes du modèle et sont donc notifiées à ses écouteurs ;
+ * elles sont relevées pour mettre à jour l'interface (voir {@link #getAdded(Class)}, {@link #getRemoved(Class)},
+ * {@link #getChanged(Class)}).
+ */
+public final class FestivalDiff {
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = getLogger(FestivalDiff.class);
+
+    private final Set<Object> added = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Object> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * Correspondance des artistes de l'autre version vers ceux du festival ouvert.
+     */
+    private final IdentityHashMap<Artiste, Artiste> artistes = new IdentityHashMap<>();
+    private final Festival target;
+
+    private FestivalDiff(Festival target) {
+        this.target = target;
+    }
+
+    /**
+     * Met à jour un festival pour qu'il soit identique à une autre version du même festival.
+     * Les deux festivals sont entièrement décodés. Si les modifications ne peuvent pas être appliquées une à une,
+     * par exemple parce qu'une valeur intermédiaire est refusée par le modèle, le festival peut rester partiellement modifié
+     * et doit être remplacé par l'autre version.
+     *
+     * @param target le festival ouvert, modifié sur place
+     * @param source l'autre version du festival, non modifiée
+     * @return les éléments du festival ouvert ajoutés, retirés ou modifiés
+     * @throws FestivalException si une modification est refusée par le modèle
+     */
+    public static FestivalDiff apply(Festival target, Festival source) throws FestivalException {
+        target.materialize();
+        source.materialize();
+        FestivalDiff diff = new FestivalDiff(target);
+        FestivalListener recorder = new FestivalListener() {
+            @Override
+            public void propertyChanged(Object element, String property, Object oldValue, Object newValue) {
+                if (!diff.added.contains(element))
+                    diff.changed.add(element);
+            }
+
+            @Override
+            public void elementAdded(Object owner, String collection, int index, Object element) {
+                if (diff.removed.remove(element))
+                    diff.changed.add(element);
+                else
+                    diff.added.add(element);
+                if (owner != target && !diff.added.contains(owner))
+                    diff.changed.add(owner);
+            }
+
+            @Override
+            public void elementRemoved(Object owner, String collection, int index, Object element) {
+                if (!diff.added.remove(element))
+                    diff.removed.add(element);
+                diff.changed.remove(element);
+                if (owner != target && !diff.added.contains(owner))
+                    diff.changed.add(owner);
+            }
+        };
+        target.addListener(recorder);
+        try {
+            diff.applyProperties(source);
+            diff.applyArtistes(source);
+            diff.applyRepresentations(source);
+            diff.applyStocks(source);
+            diff.applyTicketTypes(source);
+        } catch (ArtisteException | RepresentationException | StockException | TypeTicketException | AvantageException e) {
+            throw new FestivalException(e.getMessage());
+        } finally {
+            target.removeListener(recorder);
+        }
+        LOGGER.info(String.format("Applied changes to festival \"%s\": %d added, %d removed, %d changed",
+                target.getName(), diff.added.size(), diff.removed.size(), diff.changed.size()));
+        return diff;
+    }
+
+    private void applyProperties(Festival source) throws FestivalException {
+        if (!Objects.equals(target.getName(), source.getName()))
+            target.setName(source.getName());
+        if (!Objects.equals(target.getStart(), source.getStart()))
+            target.restoreStart(source.getStart()); // Date déjà passée possible dans l'autre version
+        if (target.getLocationPrice() != source.getLocationPrice())
+            target.setLocationPrice(source.getLocationPrice());
+        if (target.getArea() != source.getArea())
+            target.setArea(source.getArea());
+        if (!Objects.equals(target.getLocation(), source.getLocation()))
+            target.setLocation(source.getLocation());
+    }
+
+    /**
+     * Associe les artistes par nom et rang parmi les homonymes, puis met à jour, retire et ajoute les artistes.
+     */
+    private void applyArtistes(Festival source) throws FestivalException, ArtisteException {
+        HashMap<String, ArrayDeque<Artiste>> byName = new HashMap<>();
+        for (Artiste artiste : target.getArtistes())
+            byName.computeIfAbsent(artiste.getName(), name -> new ArrayDeque<>()).add(artiste);
+        List<Artiste> created = new ArrayList<>();
+        for (Artiste artiste : source.getArtistes()) {
+            ArrayDeque<Artiste> candidates = byName.get(artiste.getName());
+            Artiste matched = candidates == null ? null : candidates.poll();
+            if (matched == null) {
+                matched = new Artiste(artiste.getName(), artiste.getGenre(), artiste.getPrice());
+                created.add(matched);
+            } else
+                update(matched, artiste);
+            artistes.put(artiste, matched);
+        }
+        for (ArrayDeque<Artiste> unmatched : byName.values())
+            for (Artiste artiste : unmatched)
+                target.removeArtiste(artiste);
+        target.addArtistes(created);
+    }
+
+    private void update(Artiste target, Artiste source) throws ArtisteException {
+        if (!Objects.equals(target.getGenre(), source.getGenre()))
+            target.setGenre(source.getGenre());
+        if (target.getPrice() != source.getPrice())
+            target.setPrice(source.getPrice());
+    }
+
+    /**
+     * Retourne l'artiste du festival ouvert correspondant à un artiste de l'autre version,
+     * créé hors du festival s'il n'en fait pas partie.
+     */
+    private Artiste artiste(Artiste source) throws ArtisteException {
+        if (source == null)
+            return null;
+        Artiste artiste = artistes.get(source);
+        if (artiste == null) {
+            artiste = new Artiste(source.getName(), source.getGenre(), source.getPrice());
+            artistes.put(source, artiste);
+        }
+        return artiste;
+    }
+
+    /**
+     * Associe les représentations par leur début et leur scène, puis retire, met à jour et ajoute les représentations,
+     * dans cet ordre pour ne pas créer de collision passagère.
+     */
+    private void applyRepresentations(Festival source) throws FestivalException, ArtisteException, RepresentationException {
+        LinkedHashMap<String, Representation> wanted = new LinkedHashMap<>();
+        for (Representation representation : source.getRepresentations())
+            wanted.put(FestivalTree.key(representation), representation);
+        List<Representation> updated = new ArrayList<>();
+        for (Representation representation : new ArrayList<>(target.getRepresentations())) {
+            Representation other = wanted.get(FestivalTree.key(representation));
+            if (other == null || (other.getArtiste() == null && representation.getArtiste() != null))
+                target.removeRepresentation(representation);
+            else
+                updated.add(representation);
+        }
+        for (Representation representation : updated) {
+            Representation other = wanted.remove(FestivalTree.key(representation));
+            if (representation.getDuration() != other.getDuration())
+                representation.setDuration(other.getDuration());
+            Artiste artiste = artiste(other.getArtiste());
+            if (artiste != null && representation.getArtiste() != artiste)
+                representation.setArtiste(artiste);
+        }
+        for (Representation other : wanted.values())
+            target.addRepresentation(new Representation(other.getStartDelta(), other.getDuration(), other.getScene(), artiste(other.getArtiste())));
+    }
+
+    /**
+     * Associe les stocks par nom, puis retire, met à jour et ajoute les stocks.
+     * Les avantages sont alignés avec les types de tickets.
+     */
+    private void applyStocks(Festival source) throws FestivalException, StockException, TypeTicketException {
+        HashMap<String, Stock> wanted = new HashMap<>();
+        for (Stock stock : source.getStocks())
+            wanted.put(stock.getName(), stock);
+        for (Stock stock : new ArrayList<>(target.getStocks())) {
+            Stock other = wanted.remove(stock.getName());
+            if (other == null) {
+                target.removeStock(stock);
+                continue;
+            }
+            if (stock.getQuantity() != other.getQuantity()) {
+                stock.setFixed(false);
+                stock.setQuantity(other.getQuantity());
+            }
+            if (stock.isFixed() != other.isFixed())
+                stock.setFixed(other.isFixed());
+            if (stock.getPrix() != other.getPrix())
+                stock.setPrix(other.getPrix());
+        }
+        List<Stock> created = new ArrayList<>();
+        for (Stock other : source.getStocks())
+            if (wanted.containsKey(other.getName()))
+                created.add(new Stock(other.getName(), other.getQuantity(), other.isFixed(), other.getPrix()));
+        target.addStocks(created);
+    }
+
+    /**
+     * Associe les types de tickets par type, puis retire, met à jour et ajoute les types de tickets et leurs avantages.
+     */
+    private void applyTicketTypes(Festival source) throws FestivalException, TypeTicketException, StockException, AvantageException {
+        HashMap<String, TypeTicket> wanted = new HashMap<>();
+        for (TypeTicket ticketType : source.getTicketTypes())
+            wanted.put(ticketType.getType(), ticketType);
+        HashSet<String> kept = new HashSet<>();
+        for (TypeTicket ticketType : new ArrayList<>(target.getTicketTypes())) {
+            TypeTicket other = wanted.get(ticketType.getType());
+            if (other == null) {
+                for (Avantage avantage : new ArrayList<>(ticketType.getAvantages()))
+                    avantage.disconnect();
+                target.removeTicketType(ticketType);
+                continue;
+            }
+            kept.add(ticketType.getType());
+            if (ticketType.getQuantity() != other.getQuantity())
+                ticketType.setQuantity(other.getQuantity());
+            if (ticketType.getPrice() != other.getPrice())
+                ticketType.setPrice(other.getPrice());
+            applyAvantages(ticketType, other);
+        }
+        List<TypeTicket> created = new ArrayList<>();
+        for (TypeTicket other : source.getTicketTypes())
+            if (!kept.contains(other.getType()))
+                created.add(new TypeTicket(other.getType(), other.getQuantity(), other.getPrice()));
+        target.addTicketTypes(created);
+        for (TypeTicket ticketType : created)
+            applyAvantages(ticketType, wanted.get(ticketType.getType()));
+    }
+
+    /**
+     * Associe les avantages d'un type de ticket par le nom de leur stock, puis retire, met à jour et ajoute les avantages.
+     */
+    private void applyAvantages(TypeTicket ticketType, TypeTicket other) throws TypeTicketException, StockException, AvantageException {
+        HashMap<String, Avantage> wanted = new HashMap<>();
+        for (Avantage avantage : other.getAvantages())
+            wanted.put(avantage.getStock().getName(), avantage);
+        for (Avantage avantage : new ArrayList<>(ticketType.getAvantages())) {
+            String name = avantage.getStock().getName();
+            Avantage matched = wanted.get(name);
+            if (matched == null || target.findStock(name) != avantage.getStock())
+                avantage.disconnect();
+            else {
+                wanted.remove(name);
+                if (avantage.getQuantityByTicket() != matched.getQuantityByTicket())
+                    avantage.setQuantityByTicket(matched.getQuantityByTicket());
+            }
+        }
+        for (Avantage avantage : other.getAvantages()) {
+            Stock stock = target.findStock(avantage.getStock().getName());
+            if (wanted.containsKey(avantage.getStock().getName()) && stock != null)
+                new Avantage(ticketType, stock, avantage.getQuantityByTicket()).connect();
+        }
+    }
+
+    /**
+     * Indique si le festival était déjà identique à l'autre version.
+     *
+     * @return true si aucun élément n'a été modifié, false sinon
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Indique si les propriétés du festival lui-même (nom, début, lieu, prix, surface) ont été modifiées.
+     *
+     * @return true si le festival a été modifié, false sinon
+     */
+    public boolean isFestivalChanged() {
+        return changed.contains(target);
+    }
+
+    /**
+     * Retourne les éléments d'un type ajoutés au festival ouvert.
+     *
+     * @param type le type des éléments (Artiste, Representation, Stock, TypeTicket ou Avantage)
+     * @param <T>  le type des éléments
+     * @return les éléments ajoutés
+     */
+    public <T> List<T> getAdded(Class<T> type) {
+        return filter(added, type);
+    }
+
+    /**
+     * Retourne les éléments d'un type retirés du festival ouvert.
+     *
+     * @param type le type des éléments (Artiste, Representation, Stock, TypeTicket ou Avantage)
+     * @param <T>  le type des éléments
+     * @return les éléments retirés
+     */
+    public <T> List<T> getRemoved(Class<T> type) {
+        return filter(removed, type);
+    }
+
+    /**
+     * Retourne les éléments d'un type modifiés sur place, y compris ceux dont une collection a changé.
+     *
+     * @param type le type des éléments (Artiste, Representation, Stock, TypeTicket ou Avantage)
+     * @param <T>  le type des éléments
+     * @return les éléments modifiés
+     */
+    public <T> List<T> getChanged(Class<T> type) {
+        return filter(changed, type);
+    }
+
+    private static <T> List<T> filter(Set<Object> elements, Class<T> type) {
+        List<T> filtered = new ArrayList<>();
+        for (Object element : elements)
+            if (type.isInstance(element))
+                filtered.add(type.cast(element));
+        return filtered;
+    }
+}
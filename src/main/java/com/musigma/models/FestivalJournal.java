@@ -0,0 +1,777 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static com.musigma.utils.Log.getLogger;
+
+/**
+ * La classe FestivalJournal enregistre les modifications d'un festival depuis la dernière réécriture
+ * complète de son fichier, afin que la sauvegarde n'écrive que ce qui a changé.
+ * <p>
+ * Le journal est écrit à côté du fichier du festival (voir {@link #fileOf(File)}) :
+ * <pre>
+ * en-tête : MAGIC (int), VERSION (short), génération du fichier (long)
+ * entrées : taille (int), contenu, CRC32 du contenu (int)
+ * </pre>
+ * Chaque entrée décrit une modification notifiée par le festival : propriété modifiée, élément ajouté
+ * ou retiré d'une collection. Les éléments y sont désignés par leur identifiant dans le festival, conservé
+ * dans son fichier (voir {@link FestivalCodec}), et retrouvés par l'index du festival sans parcourir ses collections ;
+ * les avantages, par leur type de ticket et leur position parmi ses avantages. Les éléments ajoutés y sont écrits
+ * en entier, avec l'identifiant que le festival leur a attribué et qu'ils retrouvent au rejeu.
+ * Les entrées sont préparées en mémoire à chaque modification puis ajoutées au fichier à la sauvegarde,
+ * éventuellement depuis un autre fil d'exécution (voir {@link #drain()} et {@link #append(byte[])}).
+ * <p>
+ * À l'ouverture, un journal dont la génération n'est pas celle du fichier est ignoré : le fichier a été
+ * réécrit depuis. Une dernière entrée incomplète ou altérée, laissée par une sauvegarde interrompue, termine le journal
+ * et sera écrasée par la prochaine sauvegarde. Une entrée altérée suivie d'autres entrées, ou qui ne peut pas être rejouée,
+ * empêche au contraire l'ouverture du festival : l'ouvrir sans elle perdrait les modifications suivantes
+ * à sa prochaine sauvegarde.
+ */
+final class FestivalJournal implements FestivalListener {
+
+    /**
+     * Nombre magique en tête des journaux ("MGMJ").
+     */
+    static final int MAGIC = 0x4D474D4A;
+    /**
+     * Version du format des entrées.
+     */
+    static final short VERSION = 1;
+    /**
+     * Taille de l'en-tête du journal.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + Long.BYTES;
+
+    private static final byte SET = 1, ADD = 2, REMOVE = 3;
+    private static final byte FESTIVAL = 0, ARTISTE = 1, REPRESENTATION = 2, STOCK = 3, TICKET_TYPE = 4, AVANTAGE = 5;
+    private static final byte NO_ARTISTE = 0, FESTIVAL_ARTISTE = 1, SHARED_ARTISTE = 2, NEW_ARTISTE = 3;
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = getLogger(FestivalJournal.class);
+    /**
+     * Festival dont les modifications sont enregistrées.
+     */
+    private final Festival festival;
+    /**
+     * Fichier du journal.
+     */
+    private final File file;
+    /**
+     * Entrées pas encore écrites dans le fichier.
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    /**
+     * Génération du fichier dont le journal enregistre les modifications.
+     */
+    private final long generation;
+    /**
+     * Taille des entrées valides du fichier, 0 si son en-tête doit être réécrit.
+     */
+    private volatile long length = 0;
+    /**
+     * Si une modification n'a pas pu être enregistrée, le fichier doit alors être réécrit.
+     */
+    private volatile boolean stale = false;
+
+    private FestivalJournal(Festival festival, File file, long generation) {
+        this.festival = festival;
+        this.file = file;
+        this.generation = generation;
+    }
+
+    /**
+     * Retourne le fichier du journal associé au fichier d'un festival.
+     *
+     * @param file le fichier du festival
+     * @return le fichier du journal
+     */
+    static File fileOf(File file) {
+        return new File(file.getPath() + ".journal");
+    }
+
+    /**
+     * Crée un journal vide pour un fichier en cours de réécriture.
+     * Le fichier du journal n'est écrit qu'au premier appel à {@link #append(byte[])},
+     * qui doit suivre la réécriture du fichier du festival.
+     *
+     * @param festival   le festival enregistré
+     * @param file       le fichier du journal
+     * @param generation la génération du fichier réécrit
+     * @return le journal créé
+     */
+    static FestivalJournal create(Festival festival, File file, long generation) {
+        return new FestivalJournal(festival, file, generation);
+    }
+
+    /**
+     * Ouvre le journal d'un festival qui vient d'être chargé et rejoue ses entrées.
+     *
+     * @param festival le festival chargé
+     * @param file     le fichier du journal
+     * @return le journal ouvert, prêt à enregistrer les modifications suivantes
+     * @throws IOException       si le journal ne peut pas être lu
+     * @throws FestivalException si une entrée autre que la dernière est altérée ou ne peut pas être rejouée
+     */
+    static FestivalJournal open(Festival festival, File file) throws IOException, FestivalException {
+        FestivalJournal journal = new FestivalJournal(festival, file, festival.generation);
+        ByteBuffer content;
+        try {
+            content = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        } catch (NoSuchFileException e) {
+            return journal;
+        }
+        short version = content.remaining() < HEADER_SIZE || content.getInt() != MAGIC ? 0 : content.getShort();
+        if (version != VERSION || content.getLong() != festival.generation) {
+            LOGGER.info(String.format("Ignored journal %s of another generation", file.getAbsolutePath()));
+            return journal;
+        }
+
+        int records = 0;
+        CRC32 crc = new CRC32();
+        while (content.remaining() >= Integer.BYTES) {
+            int start = content.position();
+            int size = content.getInt(start);
+            int payload = start + Integer.BYTES;
+            if (size <= 0 || content.limit() - payload < size + Integer.BYTES) // Fin du journal, écrite en partie seulement
+                break;
+            int end = payload + size + Integer.BYTES;
+            crc.reset();
+            crc.update(content.array(), payload, size);
+            if (content.getInt(payload + size) != (int) crc.getValue()) {
+                if (end == content.limit())
+                    break; // Dernière entrée, interrompue pendant son écriture
+                throw corrupted(file, records, "entrée altérée");
+            }
+            try {
+                journal.apply(new DataInputStream(new ByteArrayInputStream(content.array(), payload, size)));
+            } catch (IOException | RuntimeException | FestivalException | ArtisteException | RepresentationException |
+                     StockException | TypeTicketException | AvantageException e) {
+                throw corrupted(file, records, e.getMessage());
+            }
+            content.position(end);
+            records++;
+        }
+        journal.length = content.position();
+        if (content.hasRemaining())
+            LOGGER.warning(String.format("Discarded %d bytes at the end of journal %s", content.remaining(), file.getAbsolutePath()));
+        LOGGER.info(String.format("Replayed %d entries of journal %s", records, file.getAbsolutePath()));
+        return journal;
+    }
+
+    private static FestivalException corrupted(File file, int record, String reason) {
+        LOGGER.warning(String.format("Cannot replay entry %d of journal %s: %s", record, file.getAbsolutePath(), reason));
+        return new FestivalException(String.format("Le journal du festival est corrompu, l'entrée %d ne peut pas être rejouée : %s", record + 1, reason));
+    }
+
+    /**
+     * Indique si une modification n'a pas pu être enregistrée dans le journal,
+     * auquel cas le fichier doit être réécrit entièrement.
+     *
+     * @return true si le journal ne suffit plus à reconstituer le festival, false sinon
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Retourne le fichier du journal.
+     *
+     * @return le fichier du journal
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Retourne la taille du journal, entrées pas encore écrites comprises.
+     *
+     * @return la taille du journal en octets
+     */
+    long length() {
+        return Math.max(length, HEADER_SIZE) + pending.size();
+    }
+
+    /**
+     * Marque le journal comme insuffisant pour reconstituer le festival,
+     * lorsque la réécriture du fichier dont il dépend a échoué.
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Retire les entrées enregistrées depuis le dernier appel, à écrire avec {@link #append(byte[])}.
+     * Doit être appelé depuis le fil d'exécution qui modifie le festival.
+     *
+     * @return les entrées en attente
+     */
+    byte[] drain() {
+        byte[] entries = pending.toByteArray();
+        pending.reset();
+        return entries;
+    }
+
+    /**
+     * Ajoute des entrées au fichier et attend leur écriture sur le disque.
+     * Les appels successifs doivent être faits dans l'ordre des appels à {@link #drain()},
+     * depuis n'importe quel fil d'exécution.
+     *
+     * @param entries les entrées retournées par {@link #drain()}
+     * @throws IOException si le journal ne peut pas être écrit
+     */
+    synchronized void append(byte[] entries) throws IOException {
+        if (entries.length == 0 && length > 0)
+            return;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + entries.length);
+            if (length == 0)
+                buffer.putInt(MAGIC).putShort(VERSION).putLong(generation);
+            buffer.put(entries).flip();
+            channel.truncate(length); // Retire une éventuelle entrée incomplète
+            channel.position(length);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+            length = channel.position();
+        }
+        LOGGER.info(String.format("Appended %d bytes to journal %s", entries.length, file.getAbsolutePath()));
+    }
+
+    @Override
+    public void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        record(out -> {
+            out.writeByte(SET);
+            writeRef(source, out);
+            out.writeUTF(property);
+            writeValue(source, newValue, out);
+        });
+    }
+
+    @Override
+    public void elementAdded(Object source, String collection, int index, Object element) {
+        record(out -> {
+            out.writeByte(ADD);
+            writeRef(source, out);
+            out.writeUTF(collection);
+            writeElement(source, collection, element, out);
+        });
+    }
+
+    @Override
+    public void elementRemoved(Object source, String collection, int index, Object element) {
+        record(out -> {
+            out.writeByte(REMOVE);
+            writeRef(source, out);
+            out.writeUTF(collection);
+            if (element instanceof Avantage)
+                out.writeInt(index);
+            else if (source == festival)
+                out.writeLong(id(element)); // Déjà retiré de l'index du festival
+            else
+                out.writeLong(idOf(element));
+        });
+    }
+
+    /**
+     * Encode une entrée et l'ajoute aux entrées en attente.
+     * Les modifications qui découlent d'une autre ne sont pas enregistrées, le festival les refait en rejouant la première.
+     */
+    private void record(RecordWriter writer) {
+        if (festival.isCascading() || stale)
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writer.write(new DataOutputStream(bytes));
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.writeInt((int) crc.getValue());
+        } catch (UnknownElementException e) {
+            LOGGER.warning(String.format("Journal %s cannot record a change on %s, file will be rewritten", file.getAbsolutePath(), e.getMessage()));
+            stale = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Écriture en mémoire
+        }
+    }
+
+    /**
+     * Encodeur d'une entrée.
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException, UnknownElementException;
+    }
+
+    /**
+     * Levée lorsqu'un élément modifié ne peut pas être désigné dans les collections du festival.
+     */
+    private static final class UnknownElementException extends Exception {
+        private UnknownElementException(Object element) {
+            super(element.getClass().getSimpleName());
+        }
+    }
+
+    private void writeRef(Object element, DataOutput out) throws IOException, UnknownElementException {
+        if (element == festival) {
+            out.writeByte(FESTIVAL);
+        } else if (element instanceof Artiste) {
+            out.writeByte(ARTISTE);
+            try {
+                out.writeLong(idOf(element));
+            } catch (UnknownElementException e) {
+                out.writeLong(0);
+                out.writeLong(representationOf((Artiste) element, null));
+            }
+        } else if (element instanceof Representation) {
+            out.writeByte(REPRESENTATION);
+            out.writeLong(idOf(element));
+        } else if (element instanceof Stock) {
+            out.writeByte(STOCK);
+            out.writeLong(idOf(element));
+        } else if (element instanceof TypeTicket) {
+            out.writeByte(TICKET_TYPE);
+            out.writeLong(idOf(element));
+        } else if (element instanceof Avantage) {
+            Avantage avantage = (Avantage) element;
+            out.writeByte(AVANTAGE);
+            out.writeLong(idOf(avantage.getTicketType()));
+            out.writeInt(position(avantage.getTicketType().getAvantages(), avantage));
+        } else {
+            throw new UnknownElementException(element);
+        }
+    }
+
+    private Object readRef(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case FESTIVAL:
+                return festival;
+            case ARTISTE:
+                long id = in.readLong();
+                return id == 0 ? readRepresentation(in).getArtiste() : found(festival.getArtiste(id));
+            case REPRESENTATION:
+                return readRepresentation(in);
+            case STOCK:
+                return readStock(in);
+            case TICKET_TYPE:
+                return readTicketType(in);
+            case AVANTAGE:
+                return readTicketType(in).getAvantages().get(in.readInt());
+            default:
+                throw new IOException(String.format("Élément de type %d inconnu", kind));
+        }
+    }
+
+    private void writeValue(Object source, Object value, DataOutput out) throws IOException, UnknownElementException {
+        if (value instanceof String) {
+            out.writeByte('S');
+            out.writeUTF((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte('I');
+            out.writeInt((Integer) value);
+        } else if (value instanceof Float) {
+            out.writeByte('F');
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte('D');
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte('T');
+            FestivalCodec.writeDateTime((LocalDateTime) value, out);
+        } else if (value instanceof Artiste) {
+            out.writeByte('A');
+            writeArtiste((Artiste) value, (Representation) source, out);
+        } else {
+            throw new UnknownElementException(value);
+        }
+    }
+
+    private Object readValue(DataInput in) throws IOException, ArtisteException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case 'S':
+                return in.readUTF();
+            case 'I':
+                return in.readInt();
+            case 'F':
+                return in.readFloat();
+            case 'D':
+                return in.readDouble();
+            case 'Z':
+                return in.readBoolean();
+            case 'T':
+                return FestivalCodec.readDateTime(in);
+            case 'A':
+                return readArtiste(in);
+            default:
+                throw new IOException(String.format("Valeur de type %c inconnue", tag));
+        }
+    }
+
+    /**
+     * Écrit l'artiste d'une représentation : par son identifiant dans le festival, par une autre représentation
+     * qui le partage, ou en entier s'il n'est connu que de cette représentation.
+     */
+    private void writeArtiste(Artiste artiste, Representation representation, DataOutput out) throws IOException {
+        if (artiste == null) {
+            out.writeByte(NO_ARTISTE);
+            return;
+        }
+        try {
+            long id = idOf(artiste);
+            out.writeByte(FESTIVAL_ARTISTE);
+            out.writeLong(id);
+            return;
+        } catch (UnknownElementException e) {
+            // Artiste hors festival
+        }
+        try {
+            long shared = representationOf(artiste, representation);
+            out.writeByte(SHARED_ARTISTE);
+            out.writeLong(shared);
+        } catch (UnknownElementException e) {
+            out.writeByte(NEW_ARTISTE);
+            out.writeUTF(artiste.getName());
+            out.writeUTF(artiste.getGenre());
+            out.writeFloat(artiste.getPrice());
+        }
+    }
+
+    private Artiste readArtiste(DataInput in) throws IOException, ArtisteException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case NO_ARTISTE:
+                return null;
+            case FESTIVAL_ARTISTE:
+                return found(festival.getArtiste(in.readLong()));
+            case SHARED_ARTISTE:
+                return readRepresentation(in).getArtiste();
+            case NEW_ARTISTE:
+                return new Artiste(in.readUTF(), in.readUTF(), in.readFloat());
+            default:
+                throw new IOException(String.format("Artiste de type %d inconnu", kind));
+        }
+    }
+
+    /**
+     * Écrit un élément ajouté à une collection, en entier avec son identifiant s'il est nouveau
+     * ou par son identifiant s'il fait déjà partie du festival.
+     */
+    private void writeElement(Object source, String collection, Object element, DataOutput out) throws IOException, UnknownElementException {
+        String key = source.getClass().getSimpleName() + "." + collection;
+        switch (key) {
+            case "Festival.artistes": {
+                Artiste artiste = (Artiste) element;
+                long shared;
+                try {
+                    shared = representationOf(artiste, null);
+                } catch (UnknownElementException e) {
+                    shared = 0;
+                }
+                out.writeLong(artiste.id);
+                out.writeLong(shared);
+                out.writeUTF(artiste.getName());
+                out.writeUTF(artiste.getGenre());
+                out.writeFloat(artiste.getPrice());
+                break;
+            }
+            case "Festival.representations": {
+                Representation representation = (Representation) element;
+                out.writeLong(representation.id);
+                out.writeInt(representation.getStartDelta());
+                out.writeInt(representation.getDuration());
+                out.writeUTF(representation.getScene());
+                writeArtiste(representation.getArtiste(), representation, out);
+                break;
+            }
+            case "Festival.stocks": {
+                Stock stock = (Stock) element;
+                out.writeLong(stock.id);
+                out.writeUTF(stock.getName());
+                out.writeInt(stock.getQuantity());
+                out.writeBoolean(stock.isFixed());
+                out.writeDouble(stock.getPrix());
+                break;
+            }
+            case "Festival.ticketTypes": {
+                TypeTicket ticketType = (TypeTicket) element;
+                out.writeLong(ticketType.id);
+                out.writeUTF(ticketType.getType());
+                out.writeInt(ticketType.getQuantity());
+                out.writeFloat(ticketType.getPrice());
+                break;
+            }
+            case "TypeTicket.avantages": {
+                Avantage avantage = (Avantage) element;
+                out.writeLong(idOf(avantage.getStock()));
+                out.writeInt(avantage.getQuantityByTicket());
+                break;
+            }
+            case "Stock.avantages": {
+                Avantage avantage = (Avantage) element;
+                out.writeLong(idOf(avantage.getTicketType()));
+                out.writeInt(position(avantage.getTicketType().getAvantages(), avantage));
+                break;
+            }
+            default:
+                throw new UnknownElementException(element);
+        }
+    }
+
+    /**
+     * Rejoue une entrée du journal.
+     */
+    private void apply(DataInput in) throws IOException, FestivalException, ArtisteException, RepresentationException, StockException, TypeTicketException, AvantageException {
+        byte operation = in.readByte();
+        Object target = readRef(in);
+        String name = in.readUTF();
+        switch (operation) {
+            case SET:
+                set(target, name, readValue(in));
+                break;
+            case ADD:
+                add(target, name, in);
+                break;
+            case REMOVE:
+                remove(target, name, in);
+                break;
+            default:
+                throw new IOException(String.format("Opération %d inconnue", operation));
+        }
+    }
+
+    private void set(Object target, String property, Object value) throws IOException, FestivalException, ArtisteException, RepresentationException, StockException, TypeTicketException, AvantageException {
+        String key = target.getClass().getSimpleName() + "." + property;
+        switch (key) {
+            case "Festival.name":
+                festival.setName((String) value);
+                break;
+            case "Festival.start":
+                festival.restoreStart((LocalDateTime) value); // La date peut être passée depuis la modification
+                break;
+            case "Festival.locationPrice":
+                festival.setLocationPrice((Float) value);
+                break;
+            case "Festival.area":
+                festival.setArea((Float) value);
+                break;
+            case "Festival.location":
+                festival.setLocation((String) value);
+                break;
+            case "Artiste.name":
+                ((Artiste) target).setName((String) value);
+                break;
+            case "Artiste.genre":
+                ((Artiste) target).setGenre((String) value);
+                break;
+            case "Artiste.price":
+                ((Artiste) target).setPrice((Float) value);
+                break;
+            case "Representation.artiste":
+                ((Representation) target).setArtiste((Artiste) value);
+                break;
+            case "Representation.startDelta":
+                ((Representation) target).setStartDelta((Integer) value);
+                break;
+            case "Representation.duration":
+                ((Representation) target).setDuration((Integer) value);
+                break;
+            case "Representation.scene":
+                ((Representation) target).setScene((String) value);
+                break;
+            case "Stock.name":
+                ((Stock) target).setName((String) value);
+                break;
+            case "Stock.fixed":
+                ((Stock) target).setFixed((Boolean) value);
+                break;
+            case "Stock.quantity":
+                ((Stock) target).setQuantity((Integer) value);
+                break;
+            case "Stock.prix":
+                ((Stock) target).setPrix((Double) value);
+                break;
+            case "TypeTicket.type":
+                ((TypeTicket) target).setType((String) value);
+                break;
+            case "TypeTicket.quantity":
+                ((TypeTicket) target).setQuantity((Integer) value);
+                break;
+            case "TypeTicket.price":
+                ((TypeTicket) target).setPrice((Float) value);
+                break;
+            case "Avantage.quantityByTicket":
+                ((Avantage) target).setQuantityByTicket((Integer) value);
+                break;
+            default:
+                throw new IOException(String.format("Propriété %s inconnue", key));
+        }
+    }
+
+    private void add(Object target, String collection, DataInput in) throws IOException, FestivalException, ArtisteException, StockException, TypeTicketException, AvantageException {
+        String key = target.getClass().getSimpleName() + "." + collection;
+        switch (key) {
+            case "Festival.artistes": {
+                long id = in.readLong();
+                long sharedId = in.readLong();
+                Representation shared = sharedId == 0 ? null : found(festival.getRepresentation(sharedId));
+                Artiste artiste = new Artiste(in.readUTF(), in.readUTF(), in.readFloat());
+                if (shared != null)
+                    artiste = shared.getArtiste();
+                artiste.id = id;
+                festival.addArtiste(artiste);
+                break;
+            }
+            case "Festival.representations": {
+                long id = in.readLong();
+                Representation representation = new Representation(in.readInt(), in.readInt(), in.readUTF(), readArtiste(in));
+                representation.id = id;
+                festival.addRepresentation(representation);
+                break;
+            }
+            case "Festival.stocks": {
+                long id = in.readLong();
+                Stock stock = new Stock(in.readUTF(), in.readInt(), in.readBoolean(), in.readDouble());
+                stock.id = id;
+                festival.addStock(stock);
+                break;
+            }
+            case "Festival.ticketTypes": {
+                long id = in.readLong();
+                TypeTicket ticketType = new TypeTicket(in.readUTF(), in.readInt(), in.readFloat());
+                ticketType.id = id;
+                festival.addTicketType(ticketType);
+                break;
+            }
+            case "TypeTicket.avantages": {
+                TypeTicket ticketType = (TypeTicket) target;
+                Stock stock = readStock(in);
+                ticketType.addAvantage(FestivalCodec.restoreAvantage(ticketType, stock, in.readInt()));
+                break;
+            }
+            case "Stock.avantages": {
+                TypeTicket ticketType = readTicketType(in);
+                ((Stock) target).addAvantage(ticketType.getAvantages().get(in.readInt()));
+                break;
+            }
+            default:
+                throw new IOException(String.format("Collection %s inconnue", key));
+        }
+    }
+
+    private void remove(Object target, String collection, DataInput in) throws IOException, FestivalException, ArtisteException, StockException, TypeTicketException {
+        String key = target.getClass().getSimpleName() + "." + collection;
+        switch (key) {
+            case "Festival.artistes":
+                festival.removeArtiste(found(festival.getArtiste(in.readLong())));
+                break;
+            case "Festival.representations":
+                festival.removeRepresentation(readRepresentation(in));
+                break;
+            case "Festival.stocks":
+                festival.removeStock(readStock(in));
+                break;
+            case "Festival.ticketTypes":
+                festival.removeTicketType(readTicketType(in));
+                break;
+            case "TypeTicket.avantages":
+                ((TypeTicket) target).removeAvantage(((TypeTicket) target).getAvantages().get(in.readInt()));
+                break;
+            case "Stock.avantages":
+                ((Stock) target).removeAvantage(((Stock) target).getAvantages().get(in.readInt()));
+                break;
+            default:
+                throw new IOException(String.format("Collection %s inconnue", key));
+        }
+    }
+
+    /**
+     * Retourne l'identifiant d'une représentation du festival, qui désigne dans le journal
+     * un artiste hors festival par l'une de ses représentations.
+     *
+     * @param excluded une représentation à ne pas retenir, ou null
+     */
+    private long representationOf(Artiste artiste, Representation excluded) throws UnknownElementException {
+        for (Representation representation : festival.getRepresentations(artiste))
+            if (representation != excluded)
+                return representation.id;
+        throw new UnknownElementException(artiste);
+    }
+
+    /**
+     * Retourne l'identifiant d'un artiste, d'une représentation, d'un stock ou d'un type de ticket du festival.
+     */
+    private long idOf(Object element) throws UnknownElementException {
+        long id = id(element);
+        Object registered;
+        if (element instanceof Artiste)
+            registered = festival.getArtiste(id);
+        else if (element instanceof Representation)
+            registered = festival.getRepresentation(id);
+        else if (element instanceof Stock)
+            registered = festival.getStock(id);
+        else
+            registered = festival.getTicketType(id);
+        if (registered != element)
+            throw new UnknownElementException(element);
+        return id;
+    }
+
+    /**
+     * Retourne l'identifiant d'un élément, qu'il fasse encore partie du festival ou non.
+     */
+    private static long id(Object element) throws UnknownElementException {
+        if (element instanceof Artiste)
+            return ((Artiste) element).id;
+        if (element instanceof Representation)
+            return ((Representation) element).id;
+        if (element instanceof Stock)
+            return ((Stock) element).id;
+        if (element instanceof TypeTicket)
+            return ((TypeTicket) element).id;
+        throw new UnknownElementException(element);
+    }
+
+    private Representation readRepresentation(DataInput in) throws IOException {
+        return found(festival.getRepresentation(in.readLong()));
+    }
+
+    private Stock readStock(DataInput in) throws IOException {
+        return found(festival.getStock(in.readLong()));
+    }
+
+    private TypeTicket readTicketType(DataInput in) throws IOException {
+        return found(festival.getTicketType(in.readLong()));
+    }
+
+    private static <T> T found(T element) throws IOException {
+        if (element == null)
+            throw new IOException("Élément absent du festival");
+        return element;
+    }
+
+    private static int position(List<?> elements, Object element) throws UnknownElementException {
+        for (int i = 0; i < elements.size(); i++)
+            if (elements.get(i) == element)
+                return i;
+        throw new UnknownElementException(element);
+    }
+}
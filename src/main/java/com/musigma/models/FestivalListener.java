@@ -0,0 +1,45 @@
+package com.musigma.models;
+
+/**
+ * L'interface FestivalListener est notifiée de chaque modification d'un festival
+ * ou des artistes, représentations, stocks, types de tickets et avantages qu'il contient.
+ * Les notifications ont lieu après la modification, une fois celle-ci validée, et portent la position
+ * des éléments ajoutés ou retirés : un écouteur peut ainsi tenir à jour une vue, un total ou un index
+ * en ne reprenant que ce qui a changé. Les représentations du festival, triées par début, sont notifiées
+ * sans position (-1) : leur place se déduit de leur début et de leur scène. Chaque méthode ne fait rien par défaut.
+ */
+public interface FestivalListener {
+
+    /**
+     * Appelé lorsqu'une propriété d'un élément du festival est modifiée.
+     *
+     * @param source   l'élément modifié (festival, artiste, représentation, stock, type de ticket ou avantage)
+     * @param property le nom de la propriété modifiée
+     * @param oldValue l'ancienne valeur
+     * @param newValue la nouvelle valeur
+     */
+    default void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+    }
+
+    /**
+     * Appelé lorsqu'un élément est ajouté à une collection d'un élément du festival.
+     *
+     * @param source     l'élément propriétaire de la collection
+     * @param collection le nom de la collection
+     * @param index      la position de l'élément ajouté dans la collection, -1 pour les représentations du festival
+     * @param element    l'élément ajouté
+     */
+    default void elementAdded(Object source, String collection, int index, Object element) {
+    }
+
+    /**
+     * Appelé lorsqu'un élément est retiré d'une collection d'un élément du festival.
+     *
+     * @param source     l'élément propriétaire de la collection
+     * @param collection le nom de la collection
+     * @param index      la position qu'occupait l'élément retiré dans la collection, -1 pour les représentations du festival
+     * @param element    l'élément retiré
+     */
+    default void elementRemoved(Object source, String collection, int index, Object element) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static com.musigma.utils.Log.getLogger;
+
+/**
+ * La classe FestivalMerge fusionne deux versions d'un festival modifiées à partir d'une version commune.
+ * <p>
+ * Les versions sont comparées section par section avec leurs arbres de hachage (voir {@link FestivalTree}) :
+ * une section modifiée d'un seul côté est reprise telle quelle, les autres sont fusionnées élément par élément,
+ * puis propriété par propriété pour les éléments modifiés des deux côtés.
+ * Les conflits (même propriété modifiée différemment, élément supprimé d'un côté et modifié de l'autre,
+ * élément refusé par le modèle) sont résolus en faveur de la version locale, ou de l'élément modifié plutôt que supprimé,
+ * et signalés (voir {@link #getConflicts()}).
+ */
+public final class FestivalMerge {
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = getLogger(FestivalMerge.class);
+
+    private final List<String> conflicts = new ArrayList<>();
+    private final EnumMap<FestivalTree.Section, Map<String, Map<String, Object>>> merged = new EnumMap<>(FestivalTree.Section.class);
+    private Festival festival;
+
+    private FestivalMerge() {
+    }
+
+    /**
+     * Fusionne deux versions d'un festival dans un nouveau festival, sans fichier.
+     *
+     * @param base   la version commune
+     * @param ours   la version locale, prioritaire en cas de conflit
+     * @param theirs l'autre version
+     * @return le festival fusionné et les conflits
+     * @throws FestivalException si une version ne peut pas être décodée ou si le festival fusionné est invalide
+     */
+    public static FestivalMerge merge(Festival base, Festival ours, Festival theirs) throws FestivalException {
+        FestivalTree baseTree = FestivalTree.of(base), ourTree = FestivalTree.of(ours), theirTree = FestivalTree.of(theirs);
+        FestivalMerge merge = new FestivalMerge();
+        for (FestivalTree.Section section : FestivalTree.Section.values()) {
+            long baseHash = baseTree.getHash(section), ourHash = ourTree.getHash(section), theirHash = theirTree.getHash(section);
+            if (ourHash == theirHash || baseHash == theirHash)
+                merge.merged.put(section, properties(ourTree.entries(section)));
+            else if (baseHash == ourHash)
+                merge.merged.put(section, properties(theirTree.entries(section)));
+            else
+                merge.merged.put(section, merge.mergeSection(section, baseTree.entries(section), ourTree.entries(section), theirTree.entries(section)));
+        }
+        merge.festival = merge.build();
+        LOGGER.info(String.format("Merged festival \"%s\" with %d conflicts", merge.festival.getName(), merge.conflicts.size()));
+        return merge;
+    }
+
+    private static Map<String, Map<String, Object>> properties(Map<String, FestivalTree.Entry> entries) {
+        Map<String, Map<String, Object>> properties = new LinkedHashMap<>();
+        for (FestivalTree.Entry entry : entries.values())
+            properties.put(entry.key, entry.properties);
+        return properties;
+    }
+
+    /**
+     * Fusionne les éléments d'une section modifiée des deux côtés, dans l'ordre de la version locale
+     * suivi des éléments ajoutés par l'autre version.
+     */
+    private Map<String, Map<String, Object>> mergeSection(FestivalTree.Section section, Map<String, FestivalTree.Entry> base, Map<String, FestivalTree.Entry> ours, Map<String, FestivalTree.Entry> theirs) {
+        Set<String> keys = new LinkedHashSet<>(ours.keySet());
+        keys.addAll(theirs.keySet());
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String key : keys) {
+            FestivalTree.Entry baseEntry = base.get(key), ourEntry = ours.get(key), theirEntry = theirs.get(key);
+            FestivalTree.Entry kept;
+            if (same(ourEntry, theirEntry) || same(baseEntry, theirEntry))
+                kept = ourEntry;
+            else if (same(baseEntry, ourEntry))
+                kept = theirEntry;
+            else if (ourEntry == null || theirEntry == null) {
+                kept = ourEntry == null ? theirEntry : ourEntry;
+                conflict(section, key, "supprimé d'un côté et modifié de l'autre, version modifiée conservée");
+            } else {
+                result.put(key, mergeProperties(section, key, baseEntry, ourEntry, theirEntry));
+                continue;
+            }
+            if (kept != null)
+                result.put(key, kept.properties);
+        }
+        return result;
+    }
+
+    private Map<String, Object> mergeProperties(FestivalTree.Section section, String key, FestivalTree.Entry base, FestivalTree.Entry ours, FestivalTree.Entry theirs) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> property : ours.properties.entrySet()) {
+            Object ourValue = property.getValue(), theirValue = theirs.properties.get(property.getKey());
+            Object value = ourValue;
+            if (!Objects.equals(ourValue, theirValue)) {
+                if (base != null && Objects.equals(base.properties.get(property.getKey()), ourValue))
+                    value = theirValue;
+                else if (base == null || !Objects.equals(base.properties.get(property.getKey()), theirValue))
+                    conflict(section, key, String.format("%s modifié des deux côtés (%s ici, %s dans l'autre version), %s conservé",
+                            property.getKey(), ourValue, theirValue, ourValue));
+            }
+            properties.put(property.getKey(), value);
+        }
+        return properties;
+    }
+
+    private static boolean same(FestivalTree.Entry entry, FestivalTree.Entry other) {
+        return entry == null ? other == null : other != null && entry.hash == other.hash;
+    }
+
+    private void conflict(FestivalTree.Section section, String key, String message) {
+        conflicts.add(section == FestivalTree.Section.FESTIVAL
+                ? String.format("%s : %s", section.getLabel(), message)
+                : String.format("%s \"%s\" : %s", section.getLabel(), key, message));
+    }
+
+    /**
+     * Construit le festival fusionné à partir des propriétés de ses éléments.
+     * Les éléments refusés par le modèle, par exemple une représentation en collision, sont écartés et signalés.
+     */
+    private Festival build() throws FestivalException {
+        Map<String, Object> properties = merged.get(FestivalTree.Section.FESTIVAL).get(FestivalTree.FESTIVAL_KEY);
+        Festival festival = Festival.restore((String) properties.get("name"), (LocalDateTime) properties.get("start"),
+                (Float) properties.get("locationPrice"), (Float) properties.get("area"), (String) properties.get("location"));
+
+        HashMap<String, Artiste> artistes = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : merged.get(FestivalTree.Section.ARTISTES).entrySet())
+            try {
+                properties = entry.getValue();
+                Artiste artiste = new Artiste((String) properties.get("name"), (String) properties.get("genre"), (Float) properties.get("price"));
+                festival.addArtiste(artiste);
+                artistes.put(entry.getKey(), artiste);
+            } catch (ArtisteException | FestivalException e) {
+                rejected(FestivalTree.Section.ARTISTES, entry.getKey(), e);
+            }
+
+        for (Map.Entry<String, Map<String, Object>> entry : merged.get(FestivalTree.Section.REPRESENTATIONS).entrySet())
+            try {
+                properties = entry.getValue();
+                String artisteKey = (String) properties.get("artiste");
+                Artiste artiste = artisteKey == null ? null : artistes.get(artisteKey);
+                if (artisteKey != null && artiste == null)
+                    conflict(FestivalTree.Section.REPRESENTATIONS, entry.getKey(), String.format("l'artiste %s a été supprimé, représentation conservée sans artiste", artisteKey));
+                Representation representation = new Representation((Integer) properties.get("startDelta"), (Integer) properties.get("duration"), (String) properties.get("scene"), artiste);
+                festival.addRepresentation(representation);
+            } catch (FestivalException e) {
+                rejected(FestivalTree.Section.REPRESENTATIONS, entry.getKey(), e);
+            }
+
+        HashMap<String, Stock> stocks = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : merged.get(FestivalTree.Section.STOCKS).entrySet())
+            try {
+                properties = entry.getValue();
+                Stock stock = new Stock(entry.getKey(), (Integer) properties.get("quantity"), (Boolean) properties.get("fixed"), (Double) properties.get("price"));
+                festival.addStock(stock);
+                stocks.put(entry.getKey(), stock);
+            } catch (StockException | FestivalException e) {
+                rejected(FestivalTree.Section.STOCKS, entry.getKey(), e);
+            }
+
+        HashMap<String, TypeTicket> ticketTypes = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : merged.get(FestivalTree.Section.TICKET_TYPES).entrySet())
+            try {
+                properties = entry.getValue();
+                TypeTicket ticketType = new TypeTicket(entry.getKey(), (Integer) properties.get("quantity"), (Float) properties.get("price"));
+                festival.addTicketType(ticketType);
+                ticketTypes.put(entry.getKey(), ticketType);
+            } catch (TypeTicketException | FestivalException e) {
+                rejected(FestivalTree.Section.TICKET_TYPES, entry.getKey(), e);
+            }
+
+        for (Map.Entry<String, Map<String, Object>> entry : merged.get(FestivalTree.Section.AVANTAGES).entrySet()) {
+            properties = entry.getValue();
+            TypeTicket ticketType = ticketTypes.get((String) properties.get("ticketType"));
+            Stock stock = stocks.get((String) properties.get("stock"));
+            if (ticketType == null || stock == null) {
+                conflict(FestivalTree.Section.AVANTAGES, entry.getKey(), "son type de ticket ou son stock a été supprimé, avantage écarté");
+                continue;
+            }
+            try {
+                new Avantage(ticketType, stock, (Integer) properties.get("quantityByTicket")).connect();
+            } catch (AvantageException | TypeTicketException | StockException e) {
+                rejected(FestivalTree.Section.AVANTAGES, entry.getKey(), e);
+            }
+        }
+        return festival;
+    }
+
+    private void rejected(FestivalTree.Section section, String key, Exception e) {
+        conflict(section, key, String.format("refusé par le modèle (%s), écarté", e.getMessage()));
+    }
+
+    /**
+     * Retourne le festival fusionné, sans fichier.
+     *
+     * @return le festival fusionné
+     */
+    public Festival getFestival() {
+        return festival;
+    }
+
+    /**
+     * Retourne les conflits rencontrés et leur résolution, un par ligne.
+     *
+     * @return les conflits, vide si la fusion est automatique
+     */
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Indique si des conflits ont été résolus automatiquement et doivent être vérifiés.
+     *
+     * @return true s'il y a eu des conflits, false sinon
+     */
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+}
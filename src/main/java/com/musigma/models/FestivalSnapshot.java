@@ -0,0 +1,236 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+
+import java.util.*;
+
+/**
+ * La classe FestivalSnapshot copie les éléments d'un festival pour ses instantanés (voir {@link Festival#snapshot()}).
+ * <p>
+ * Chaque copie est gardée et reprise par les instantanés suivants tant que son élément n'est pas modifié : seuls
+ * les éléments modifiés depuis l'instantané précédent sont recopiés, avec les copies qui les référencent.
+ * La copie d'une représentation référence celle de son artiste, et les copies des avantages sont partagées
+ * par celles de leur stock et de leur type de ticket : les stocks et types de tickets reliés par des avantages
+ * sont donc recopiés ensemble. Les collections des instantanés sont refaites à partir de ces copies pour le groupe
+ * modifié, les artistes avec les représentations ou les stocks avec les types de tickets, et partagées sinon.
+ * Les copies appartiennent à l'instantané qui les a créées et refusent toute modification.
+ */
+final class FestivalSnapshot {
+
+    private final IdentityHashMap<Artiste, Artiste> artistes = new IdentityHashMap<>();
+    private final IdentityHashMap<Representation, Representation> representations = new IdentityHashMap<>();
+    private final IdentityHashMap<Stock, Stock> stocks = new IdentityHashMap<>();
+    private final IdentityHashMap<TypeTicket, TypeTicket> ticketTypes = new IdentityHashMap<>();
+    private final IdentityHashMap<Avantage, Avantage> avantages = new IdentityHashMap<>();
+    /**
+     * Copies créées depuis le dernier instantané, à rattacher au prochain.
+     */
+    private final ArrayList<Object> created = new ArrayList<>();
+    /**
+     * Collections du dernier instantané, null si leur groupe a été modifié depuis.
+     */
+    private Cast cast = null;
+    private Billing billing = null;
+
+    /**
+     * Copie des artistes et des représentations d'un festival.
+     */
+    static final class Cast {
+        final ArrayList<Artiste> artistes;
+        final TreeSet<Representation> representations;
+
+        private Cast(ArrayList<Artiste> artistes, TreeSet<Representation> representations) {
+            this.artistes = artistes;
+            this.representations = representations;
+        }
+    }
+
+    /**
+     * Copie des stocks, des types de tickets et de leurs avantages d'un festival.
+     */
+    static final class Billing {
+        final ArrayList<Stock> stocks;
+        final ArrayList<TypeTicket> ticketTypes;
+
+        private Billing(ArrayList<Stock> stocks, ArrayList<TypeTicket> ticketTypes) {
+            this.stocks = stocks;
+            this.ticketTypes = ticketTypes;
+        }
+    }
+
+    /**
+     * Retourne les copies des artistes et des représentations du festival, ainsi que des artistes hors festival
+     * référencés par une représentation. Seuls les éléments sans copie valable sont copiés.
+     *
+     * @param festival le festival entièrement décodé
+     * @return les copies, avec les identifiants des originaux
+     * @throws ArtisteException si un artiste ne peut pas être copié
+     */
+    Cast copyCast(Festival festival) throws ArtisteException {
+        if (cast != null)
+            return cast;
+        ArrayList<Artiste> artisteCopies = new ArrayList<>(festival.getArtistes().size());
+        for (Artiste artiste : festival.getArtistes())
+            artisteCopies.add(copy(artiste));
+        TreeSet<Representation> representationCopies = new TreeSet<>();
+        for (Representation representation : festival.getRepresentations())
+            representationCopies.add(copy(representation));
+        cast = new Cast(artisteCopies, representationCopies);
+        return cast;
+    }
+
+    private Artiste copy(Artiste artiste) throws ArtisteException {
+        Artiste copy = artistes.get(artiste);
+        if (copy == null) {
+            copy = new Artiste(artiste.getName(), artiste.getGenre(), artiste.getPrice());
+            copy.id = artiste.id;
+            artistes.put(artiste, copy);
+            created.add(copy);
+        }
+        return copy;
+    }
+
+    private Representation copy(Representation representation) throws ArtisteException {
+        Representation copy = representations.get(representation);
+        if (copy == null) {
+            Artiste artiste = representation.getArtiste();
+            copy = new Representation(representation.getStartDelta(), representation.getDuration(),
+                    representation.getScene(), artiste == null ? null : copy(artiste));
+            copy.id = representation.id;
+            representations.put(representation, copy);
+            created.add(copy);
+        }
+        return copy;
+    }
+
+    /**
+     * Retourne les copies des stocks, des types de tickets et des avantages du festival, dans l'ordre de chaque liste.
+     * Les avantages dont le stock ne fait pas partie du festival ne sont pas conservés.
+     * Seuls les stocks et types de tickets sans copie valable sont copiés, avec leurs avantages.
+     *
+     * @param festival le festival entièrement décodé
+     * @return les copies, avec les identifiants des originaux
+     * @throws StockException      si un stock ne peut pas être copié
+     * @throws TypeTicketException si un type de ticket ne peut pas être copié
+     * @throws AvantageException   si un avantage ne peut pas être copié
+     */
+    Billing copyBilling(Festival festival) throws StockException, TypeTicketException, AvantageException {
+        if (billing != null)
+            return billing;
+        ArrayList<Stock> stockCopies = new ArrayList<>(festival.getStocks().size());
+        List<Stock> copiedStocks = new ArrayList<>();
+        for (Stock stock : festival.getStocks()) {
+            Stock copy = stocks.get(stock);
+            if (copy == null) {
+                copy = new Stock(stock.getName(), stock.getQuantity(), stock.isFixed(), stock.getPrix());
+                copy.id = stock.id;
+                stocks.put(stock, copy);
+                created.add(copy);
+                copiedStocks.add(stock);
+            }
+            stockCopies.add(copy);
+        }
+
+        ArrayList<TypeTicket> ticketTypeCopies = new ArrayList<>(festival.getTicketTypes().size());
+        for (TypeTicket ticketType : festival.getTicketTypes()) {
+            TypeTicket copy = ticketTypes.get(ticketType);
+            if (copy == null) {
+                copy = new TypeTicket(ticketType.getType(), ticketType.getQuantity(), ticketType.getPrice());
+                copy.id = ticketType.id;
+                for (Avantage avantage : ticketType.getAvantages()) {
+                    Stock stock = avantage.getStock().festival == festival ? stocks.get(avantage.getStock()) : null;
+                    if (stock == null)
+                        continue;
+                    Avantage avantageCopy = FestivalCodec.restoreAvantage(copy, stock, avantage.getQuantityByTicket());
+                    copy.getAvantages().add(avantageCopy);
+                    avantages.put(avantage, avantageCopy);
+                }
+                ticketTypes.put(ticketType, copy);
+                created.add(copy);
+            }
+            ticketTypeCopies.add(copy);
+        }
+        for (Stock stock : copiedStocks)
+            for (Avantage avantage : stock.getAvantages()) {
+                Avantage copy = avantages.get(avantage);
+                if (copy != null)
+                    stocks.get(stock).getAvantages().add(copy);
+            }
+        billing = new Billing(stockCopies, ticketTypeCopies);
+        return billing;
+    }
+
+    /**
+     * Rattache à un instantané les copies créées pour lui, qui refusent dès lors toute modification.
+     *
+     * @param snapshot l'instantané
+     */
+    void attach(Festival snapshot) {
+        for (Object copy : created) {
+            if (copy instanceof Artiste)
+                ((Artiste) copy).festival = snapshot;
+            else if (copy instanceof Representation)
+                ((Representation) copy).festival = snapshot;
+            else if (copy instanceof Stock)
+                ((Stock) copy).festival = snapshot;
+            else
+                ((TypeTicket) copy).festival = snapshot;
+        }
+        created.clear();
+    }
+
+    /**
+     * Écarte les copies qu'une modification notifiée du festival rend invalides.
+     * Les propriétés du festival lui-même sont copiées à chaque instantané.
+     *
+     * @param festival le festival modifié
+     * @param source   l'élément modifié, ou dont une collection a été modifiée
+     * @param element  l'élément ajouté ou retiré, null pour une propriété
+     */
+    void touched(Festival festival, Object source, Object element) {
+        Object changed = source == festival ? element : source;
+        if (changed instanceof Artiste) {
+            artistes.remove(changed);
+            for (Representation representation : festival.getRepresentations((Artiste) changed))
+                representations.remove(representation);
+            cast = null;
+        } else if (changed instanceof Representation) {
+            representations.remove(changed);
+            cast = null;
+        } else if (changed != null) {
+            evictLinked(changed);
+            if (element instanceof Avantage)
+                evictLinked(element); // Déjà détaché de l'autre extrémité s'il a été retiré
+            billing = null;
+        }
+    }
+
+    /**
+     * Écarte les copies d'un stock, d'un type de ticket ou d'un avantage et de tous ceux qui y sont reliés par des avantages.
+     */
+    private void evictLinked(Object element) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        pending.add(element);
+        while (!pending.isEmpty()) {
+            Object next = pending.poll();
+            if (!visited.add(next))
+                continue;
+            List<Avantage> linked;
+            if (next instanceof Stock) {
+                stocks.remove(next);
+                linked = ((Stock) next).getAvantages();
+            } else if (next instanceof TypeTicket) {
+                ticketTypes.remove(next);
+                linked = ((TypeTicket) next).getAvantages();
+            } else {
+                linked = Collections.singletonList((Avantage) next);
+            }
+            for (Avantage avantage : linked) {
+                avantages.remove(avantage);
+                pending.add(avantage.getTicketType());
+                pending.add(avantage.getStock());
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.FestivalException;
+
+import java.io.File;
+
+/**
+ * L'interface FestivalStorage représente la façon dont un festival est enregistré dans son fichier.
+ * <p>
+ * Le stockage est choisi d'après le fichier du festival : les fichiers .mgm sont écrits par {@link FestivalCodec}
+ * et complétés par un journal des modifications, les fichiers {@value TableStorage#EXTENSION} sont des tables
+ * d'éléments mises à jour ligne par ligne. Dans les deux cas, le festival s'utilise de la même façon,
+ * avec {@link Festival#Festival(File)}, {@link Festival#prepareSave()} et {@link Festival#prepareCompact()}.
+ */
+public interface FestivalStorage {
+
+    /**
+     * Retourne le fichier dans lequel le festival est enregistré.
+     *
+     * @return le fichier du stockage
+     */
+    File getFile();
+
+    /**
+     * Prépare l'écriture des modifications du festival depuis la dernière sauvegarde.
+     * Doit être appelé depuis le fil d'exécution qui modifie le festival.
+     *
+     * @param festival le festival enregistré
+     * @return l'écriture à exécuter, éventuellement depuis un autre fil d'exécution
+     * @throws FestivalException si le festival ne peut pas être préparé
+     */
+    FestivalWrite prepareSave(Festival festival) throws FestivalException;
+
+    /**
+     * Prépare la réécriture complète du fichier, qui ne contiendra plus que l'état actuel du festival.
+     * Doit être appelé depuis le fil d'exécution qui modifie le festival.
+     *
+     * @param festival le festival enregistré
+     * @return l'écriture à exécuter, éventuellement depuis un autre fil d'exécution
+     * @throws FestivalException si le festival ne peut pas être encodé
+     */
+    FestivalWrite prepareCompact(Festival festival) throws FestivalException;
+
+    /**
+     * Force la réécriture complète du fichier à la prochaine sauvegarde,
+     * par exemple lorsque le format du fichier change.
+     */
+    void invalidate();
+
+    /**
+     * Arrête de suivre les modifications du festival, qui change de stockage.
+     *
+     * @param festival le festival enregistré
+     */
+    void detach(Festival festival);
+}
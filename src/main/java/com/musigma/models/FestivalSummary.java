@@ -0,0 +1,148 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.FestivalException;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * La classe FestivalSummary résume un festival : son nom, sa date de début et le nombre de ses éléments.
+ * <p>
+ * Le résumé d'un festival ouvert depuis un fichier est lu dans l'en-tête de ses sections,
+ * sans décoder les collections qui ne l'ont pas encore été.
+ */
+public final class FestivalSummary {
+
+    /**
+     * Nom du festival.
+     */
+    private final String name;
+    /**
+     * Date de début du festival.
+     */
+    private final LocalDateTime start;
+    /**
+     * Nombre d'artistes du festival.
+     */
+    private final int artistes;
+    /**
+     * Nombre de représentations du festival.
+     */
+    private final int representations;
+    /**
+     * Nombre de stocks du festival.
+     */
+    private final int stocks;
+    /**
+     * Nombre de types de tickets du festival.
+     */
+    private final int ticketTypes;
+
+    /**
+     * Constructeur de la classe FestivalSummary.
+     *
+     * @param name            le nom du festival
+     * @param start           la date de début du festival
+     * @param artistes        le nombre d'artistes
+     * @param representations le nombre de représentations
+     * @param stocks          le nombre de stocks
+     * @param ticketTypes     le nombre de types de tickets
+     */
+    public FestivalSummary(String name, LocalDateTime start, int artistes, int representations, int stocks, int ticketTypes) {
+        this.name = name;
+        this.start = start;
+        this.artistes = artistes;
+        this.representations = representations;
+        this.stocks = stocks;
+        this.ticketTypes = ticketTypes;
+    }
+
+    /**
+     * Résume un festival, sans décoder ses collections encore dans son fichier.
+     *
+     * @param festival le festival à résumer
+     * @return le résumé du festival
+     * @throws FestivalException si le fichier du festival est corrompu
+     */
+    public static FestivalSummary of(Festival festival) throws FestivalException {
+        FestivalCodec.LazySections sections = festival.sections;
+        boolean cast = sections == null || sections.isCastLoaded();
+        boolean billing = sections == null || sections.isBillingLoaded();
+        return new FestivalSummary(
+                festival.getName(),
+                festival.getStart(),
+                cast ? festival.getArtistes().size() : sections.count(FestivalCodec.SECTION_ARTISTES),
+                cast ? festival.getRepresentations().size() : sections.count(FestivalCodec.SECTION_REPRESENTATIONS),
+                billing ? festival.getStocks().size() : sections.count(FestivalCodec.SECTION_STOCKS),
+                billing ? festival.getTicketTypes().size() : sections.count(FestivalCodec.SECTION_TICKET_TYPES)
+        );
+    }
+
+    /**
+     * Retourne le nom du festival.
+     *
+     * @return le nom du festival
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retourne la date de début du festival.
+     *
+     * @return la date de début du festival
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Retourne le nombre d'artistes du festival.
+     *
+     * @return le nombre d'artistes
+     */
+    public int getArtistes() {
+        return artistes;
+    }
+
+    /**
+     * Retourne le nombre de représentations du festival.
+     *
+     * @return le nombre de représentations
+     */
+    public int getRepresentations() {
+        return representations;
+    }
+
+    /**
+     * Retourne le nombre de stocks du festival.
+     *
+     * @return le nombre de stocks
+     */
+    public int getStocks() {
+        return stocks;
+    }
+
+    /**
+     * Retourne le nombre de types de tickets du festival.
+     *
+     * @return le nombre de types de tickets
+     */
+    public int getTicketTypes() {
+        return ticketTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FestivalSummary that = (FestivalSummary) o;
+        return artistes == that.artistes && representations == that.representations && stocks == that.stocks
+                && ticketTypes == that.ticketTypes && Objects.equals(name, that.name) && Objects.equals(start, that.start);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, start, artistes, representations, stocks, ticketTypes);
+    }
+}
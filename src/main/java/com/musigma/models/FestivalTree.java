@@ -0,0 +1,320 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.FestivalException;
+
+import java.util.*;
+
+/**
+ * La classe FestivalTree est l'arbre de hachage (arbre de Merkle) du contenu d'un festival,
+ * pour trouver ce qui diffère entre deux versions sans parcourir les parties identiques.
+ * <p>
+ * Chaque élément est réduit à sa clé, qui l'identifie d'une version à l'autre comme dans {@link FestivalDiff},
+ * et à ses propriétés ; son empreinte est calculée sur les deux. Dans chaque section, les éléments sont répartis
+ * dans les feuilles d'un arbre de {@link #FANOUT} branches par nœud selon l'empreinte de leur clé :
+ * l'empreinte d'un nœud est la somme de celles des éléments en dessous, celle de la racine combine les sections.
+ * La comparaison de deux arbres ne descend que dans les nœuds dont les empreintes diffèrent,
+ * son coût dépend du nombre de différences et non de la taille des festivals.
+ */
+public final class FestivalTree {
+
+    /**
+     * Nombre de branches de chaque nœud.
+     */
+    public static final int FANOUT = 16;
+    /**
+     * Nombre de niveaux sous chaque section, le dernier étant celui des feuilles.
+     */
+    public static final int DEPTH = 3;
+    /**
+     * Clé du seul élément de la section {@link Section#FESTIVAL}.
+     */
+    static final String FESTIVAL_KEY = "festival";
+
+    private static final int LEAVES = (int) Math.pow(FANOUT, DEPTH);
+
+    /**
+     * Sections du festival, dans l'ordre de l'arbre.
+     */
+    public enum Section {
+        FESTIVAL("Festival"),
+        ARTISTES("Artiste"),
+        REPRESENTATIONS("Représentation"),
+        STOCKS("Stock"),
+        TICKET_TYPES("Type de ticket"),
+        AVANTAGES("Avantage");
+
+        private final String label;
+
+        Section(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Retourne le nom d'un élément de la section, pour l'affichage.
+         *
+         * @return le nom d'un élément
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Élément réduit à sa clé et à ses propriétés.
+     */
+    static final class Entry {
+        final String key;
+        /**
+         * Position de l'élément dans sa section.
+         */
+        final int order;
+        final Map<String, Object> properties;
+        final long hash;
+
+        private Entry(String key, int order, Map<String, Object> properties) {
+            this.key = key;
+            this.order = order;
+            this.properties = Collections.unmodifiableMap(properties);
+            StringBuilder canonical = new StringBuilder(key);
+            for (Map.Entry<String, Object> property : properties.entrySet())
+                canonical.append('\u0000').append(property.getKey()).append('=').append(property.getValue());
+            this.hash = hash(canonical);
+        }
+    }
+
+    /**
+     * Arbre d'une section : empreintes des nœuds intermédiaires par niveau, feuilles présentes seulement si non vides.
+     */
+    private static final class Node {
+        final Map<String, Entry> entries = new LinkedHashMap<>();
+        final long[][] levels = new long[DEPTH - 1][];
+        final HashMap<Integer, List<Entry>> leaves = new HashMap<>();
+        final HashMap<Integer, Long> leafHashes = new HashMap<>();
+        long hash;
+
+        Node() {
+            for (int level = 0, size = FANOUT; level < DEPTH - 1; level++, size *= FANOUT)
+                levels[level] = new long[size];
+        }
+
+        void add(Entry entry) {
+            entries.put(entry.key, entry);
+            int leaf = (int) (hash(entry.key) & (LEAVES - 1));
+            leaves.computeIfAbsent(leaf, index -> new ArrayList<>()).add(entry);
+            leafHashes.merge(leaf, entry.hash, Long::sum);
+            for (int level = DEPTH - 2, index = leaf / FANOUT; level >= 0; level--, index /= FANOUT)
+                levels[level][index] += entry.hash;
+            hash += entry.hash;
+        }
+
+        long hashAt(int level, int index) {
+            return level < DEPTH - 1 ? levels[level][index] : leafHashes.getOrDefault(index, 0L);
+        }
+    }
+
+    private final EnumMap<Section, Node> sections = new EnumMap<>(Section.class);
+    private final long rootHash;
+
+    FestivalTree(Festival festival) {
+        for (Section section : Section.values())
+            sections.put(section, new Node());
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("name", festival.getName());
+        properties.put("start", festival.getStart());
+        properties.put("locationPrice", festival.getLocationPrice());
+        properties.put("area", festival.getArea());
+        properties.put("location", festival.getLocation());
+        add(Section.FESTIVAL, FESTIVAL_KEY, properties);
+
+        IdentityHashMap<Artiste, String> artisteKeys = new IdentityHashMap<>();
+        HashMap<String, Integer> homonyms = new HashMap<>();
+        for (Artiste artiste : festival.getArtistes()) {
+            int rank = homonyms.merge(artiste.getName(), 1, Integer::sum);
+            artisteKeys.put(artiste, rank == 1 ? artiste.getName() : String.format("%s (%d)", artiste.getName(), rank));
+        }
+        for (Artiste artiste : festival.getArtistes()) {
+            properties = new LinkedHashMap<>();
+            properties.put("name", artiste.getName());
+            properties.put("genre", artiste.getGenre());
+            properties.put("price", artiste.getPrice());
+            add(Section.ARTISTES, artisteKeys.get(artiste), properties);
+        }
+        for (Representation representation : festival.getRepresentations()) {
+            Artiste artiste = representation.getArtiste();
+            properties = new LinkedHashMap<>();
+            properties.put("startDelta", representation.getStartDelta());
+            properties.put("duration", representation.getDuration());
+            properties.put("scene", representation.getScene());
+            properties.put("artiste", artiste == null ? null : artisteKeys.getOrDefault(artiste, artiste.getName()));
+            add(Section.REPRESENTATIONS, key(representation), properties);
+        }
+        for (Stock stock : festival.getStocks()) {
+            properties = new LinkedHashMap<>();
+            properties.put("quantity", stock.getQuantity());
+            properties.put("fixed", stock.isFixed());
+            properties.put("price", stock.getPrix());
+            add(Section.STOCKS, stock.getName(), properties);
+        }
+        for (TypeTicket ticketType : festival.getTicketTypes()) {
+            properties = new LinkedHashMap<>();
+            properties.put("quantity", ticketType.getQuantity());
+            properties.put("price", ticketType.getPrice());
+            add(Section.TICKET_TYPES, ticketType.getType(), properties);
+        }
+        for (TypeTicket ticketType : festival.getTicketTypes())
+            for (Avantage avantage : ticketType.getAvantages()) {
+                properties = new LinkedHashMap<>();
+                properties.put("ticketType", ticketType.getType());
+                properties.put("stock", avantage.getStock().getName());
+                properties.put("quantityByTicket", avantage.getQuantityByTicket());
+                add(Section.AVANTAGES, String.format("%s / %s", ticketType.getType(), avantage.getStock().getName()), properties);
+            }
+
+        long root = 0;
+        for (Node node : sections.values())
+            root = mix(root ^ node.hash);
+        rootHash = root;
+    }
+
+    /**
+     * Calcule l'arbre de hachage d'un festival, entièrement décodé au préalable.
+     *
+     * @param festival le festival
+     * @return l'arbre du festival
+     * @throws FestivalException si le festival ne peut pas être décodé
+     */
+    public static FestivalTree of(Festival festival) throws FestivalException {
+        festival.materialize();
+        return new FestivalTree(festival);
+    }
+
+    /**
+     * Retourne la clé d'une représentation : son début et sa scène, sa place dans le planning.
+     *
+     * @param representation la représentation
+     * @return la clé de la représentation, par exemple {@code 60 @ Main Stage}
+     */
+    static String key(Representation representation) {
+        return String.format("%d @ %s", representation.getStartDelta(), representation.getScene());
+    }
+
+    private void add(Section section, String key, Map<String, Object> properties) {
+        Node node = sections.get(section);
+        node.add(new Entry(key, node.entries.size(), properties));
+    }
+
+    /**
+     * Retourne l'empreinte de tout le festival.
+     *
+     * @return l'empreinte de la racine, égale pour deux festivals au même contenu
+     */
+    public long getRootHash() {
+        return rootHash;
+    }
+
+    /**
+     * Retourne l'empreinte d'une section.
+     *
+     * @param section la section
+     * @return l'empreinte de la section, 0 si elle est vide
+     */
+    public long getHash(Section section) {
+        return sections.get(section).hash;
+    }
+
+    /**
+     * Indique si deux arbres décrivent exactement le même contenu, dans le même ordre.
+     * Les empreintes sont comparées d'abord, les propriétés ensuite pour écarter les collisions.
+     *
+     * @param other l'autre arbre
+     * @return true si les festivals ont le même contenu, false sinon
+     */
+    boolean sameContent(FestivalTree other) {
+        if (rootHash != other.rootHash)
+            return false;
+        for (Section section : Section.values()) {
+            Map<String, Entry> entries = entries(section), otherEntries = other.entries(section);
+            if (entries.size() != otherEntries.size())
+                return false;
+            Iterator<Entry> iterator = otherEntries.values().iterator();
+            for (Entry entry : entries.values()) {
+                Entry otherEntry = iterator.next();
+                if (!entry.key.equals(otherEntry.key) || !entry.properties.equals(otherEntry.properties))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retourne les éléments d'une section, dans l'ordre du festival.
+     */
+    Map<String, Entry> entries(Section section) {
+        return sections.get(section).entries;
+    }
+
+    /**
+     * Liste les modifications qui font passer de ce festival à une autre version.
+     *
+     * @param other l'autre version du festival
+     * @return les modifications, par section puis dans l'ordre du festival
+     */
+    public List<FestivalChange> diff(FestivalTree other) {
+        List<FestivalChange> changes = new ArrayList<>();
+        if (rootHash == other.rootHash)
+            return changes;
+        for (Section section : Section.values()) {
+            Node node = sections.get(section), otherNode = other.sections.get(section);
+            if (node.hash != otherNode.hash)
+                diff(section, node, otherNode, 0, 0, changes);
+        }
+        changes.sort(Comparator.comparing(FestivalChange::getSection).thenComparingInt(change -> change.order));
+        return changes;
+    }
+
+    /**
+     * Compare les enfants d'un nœud et descend dans ceux qui diffèrent.
+     */
+    private static void diff(Section section, Node node, Node other, int level, int parent, List<FestivalChange> changes) {
+        for (int index = parent * FANOUT; index < (parent + 1) * FANOUT; index++) {
+            if (node.hashAt(level, index) == other.hashAt(level, index))
+                continue;
+            if (level < DEPTH - 1)
+                diff(section, node, other, level + 1, index, changes);
+            else
+                diffLeaf(section, node, other, index, changes);
+        }
+    }
+
+    private static void diffLeaf(Section section, Node node, Node other, int leaf, List<FestivalChange> changes) {
+        for (Entry entry : node.leaves.getOrDefault(leaf, List.of())) {
+            Entry otherEntry = other.entries.get(entry.key);
+            if (otherEntry == null)
+                changes.add(FestivalChange.removed(section, entry));
+            else if (otherEntry.hash != entry.hash)
+                changes.add(FestivalChange.changed(section, entry, otherEntry));
+        }
+        for (Entry otherEntry : other.leaves.getOrDefault(leaf, List.of()))
+            if (!node.entries.containsKey(otherEntry.key))
+                changes.add(FestivalChange.added(section, otherEntry));
+    }
+
+    /**
+     * Empreinte 64 bits d'un texte (FNV-1a, puis mélange des bits).
+     */
+    private static long hash(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
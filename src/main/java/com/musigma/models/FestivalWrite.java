@@ -0,0 +1,21 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.FestivalException;
+
+/**
+ * L'interface FestivalWrite représente l'écriture d'un festival dans son fichier, préparée par
+ * {@link Festival#prepareSave()} ou {@link Festival#prepareCompact()}.
+ * Le contenu à écrire est figé lors de la préparation : l'écriture peut être faite depuis un autre
+ * fil d'exécution pendant que le festival continue d'être modifié.
+ * Les écritures d'un même festival doivent être faites dans l'ordre de leur préparation.
+ */
+@FunctionalInterface
+public interface FestivalWrite {
+
+    /**
+     * Écrit le contenu préparé et attend son écriture sur le disque.
+     *
+     * @throws FestivalException si le fichier ne peut pas être écrit
+     */
+    void commit() throws FestivalException;
+}
@@ -0,0 +1,174 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.FestivalException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import static com.musigma.utils.Log.getLogger;
+
+/**
+ * La classe FileStorage enregistre un festival dans un fichier .mgm, au format de {@link FestivalCodec},
+ * accompagné du journal des modifications depuis sa dernière réécriture complète (voir {@link FestivalJournal}).
+ */
+final class FileStorage implements FestivalStorage {
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = getLogger(FileStorage.class);
+    /**
+     * Fichier du festival.
+     */
+    private final File file;
+    /**
+     * Journal des modifications depuis la dernière réécriture complète du fichier, null s'il n'y en a pas.
+     */
+    private FestivalJournal journal = null;
+
+    FileStorage(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Rejoue le journal d'un festival qui vient d'être chargé et commence à y enregistrer les modifications.
+     *
+     * @param festival le festival chargé depuis le fichier
+     * @param file     le fichier du festival
+     * @return le stockage du festival
+     * @throws FestivalException si le journal ne peut pas être lu
+     */
+    static FileStorage open(Festival festival, File file) throws FestivalException {
+        FileStorage storage = new FileStorage(file);
+        if (festival.generation == 0)
+            return storage; // Ancien fichier sérialisé, réécrit à la prochaine sauvegarde
+        try {
+            storage.journal = FestivalJournal.open(festival, FestivalJournal.fileOf(file));
+            festival.addListener(storage.journal);
+        } catch (IOException e) {
+            throw new FestivalException("Le journal du festival ne peut pas être lu");
+        }
+        return storage;
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Prépare l'ajout au journal des modifications faites depuis la dernière sauvegarde.
+     * Le fichier est entièrement réécrit s'il n'existe pas encore ou si le journal dépasse la taille du fichier lui-même.
+     */
+    @Override
+    public FestivalWrite prepareSave(Festival festival) throws FestivalException {
+        if (journal == null || journal.isStale() || !file.isFile() || journal.length() > file.length())
+            return prepareCompact(festival);
+        FestivalJournal journal = this.journal;
+        byte[] entries = journal.drain();
+        return () -> {
+            try {
+                journal.append(entries);
+                LOGGER.info(String.format("Saved festival 0x%x to journal %s", System.identityHashCode(festival), journal.getFile().getAbsolutePath()));
+            } catch (IOException e) {
+                journal.invalidate();
+                throw new FestivalException("Le festival n'arrive pas à enregister le journal du fichier");
+            }
+        };
+    }
+
+    /**
+     * Prépare la réécriture complète du fichier, d'abord écrit à côté puis remplaçant l'ancien.
+     * Seul un instantané du festival est pris immédiatement (voir {@link Festival#snapshot()}) :
+     * son encodage et la compression éventuelle sont faits lors de l'écriture.
+     */
+    @Override
+    public FestivalWrite prepareCompact(Festival festival) throws FestivalException {
+        festival.materialize(); // Le fichier projeté en mémoire ne doit plus être lu une fois remplacé
+        festival.generation = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        Festival snapshot = festival.snapshot();
+        detach(festival);
+        FestivalJournal journal = this.journal = FestivalJournal.create(festival, FestivalJournal.fileOf(file), festival.generation);
+        festival.addListener(journal);
+        return () -> {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try {
+                FestivalCodec.write(snapshot, new DataOutputStream(bytes));
+            } catch (IOException e) {
+                journal.invalidate();
+                throw new FestivalException("Le festival n'arrive pas à être encodé");
+            }
+            try {
+                replace(file, bytes.toByteArray(), snapshot.compressionLevel);
+                LOGGER.info(String.format("Saved festival 0x%x to file %s", System.identityHashCode(festival), file.getAbsolutePath()));
+            } catch (IOException e) {
+                journal.invalidate(); // Le journal ne peut pas suivre un fichier qui n'a pas été écrit
+                throw new FestivalException("Le festival n'arrive pas à enregister le fichier");
+            }
+            try {
+                journal.append(new byte[0]);
+            } catch (IOException e) {
+                // L'ancien journal, d'une autre génération, sera ignoré : le fichier est à jour
+                LOGGER.warning(String.format("Journal of file %s cannot be created", file.getAbsolutePath()));
+            }
+        };
+    }
+
+    @Override
+    public void invalidate() {
+        if (journal != null)
+            journal.invalidate();
+    }
+
+    @Override
+    public void detach(Festival festival) {
+        if (journal != null)
+            festival.removeListener(journal);
+    }
+
+    /**
+     * Remplace le contenu d'un fichier en écrivant d'abord un fichier temporaire dans le même dossier,
+     * synchronisé sur le disque puis renommé, afin qu'une interruption ne laisse jamais un fichier incomplet.
+     *
+     * @param target  le fichier à remplacer
+     * @param content le nouveau contenu
+     * @param level   le niveau de compression (voir {@link FestivalCodec#compress}), 0 pour écrire le contenu tel quel
+     * @throws IOException si le fichier ne peut pas être écrit
+     */
+    static void replace(File target, byte[] content, int level) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                if (level > 0) {
+                    FestivalCodec.compress(content, Channels.newOutputStream(channel), level);
+                } else {
+                    ByteBuffer buffer = ByteBuffer.wrap(content);
+                    while (buffer.hasRemaining())
+                        channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        try (FileChannel directory = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            directory.force(true); // Rend le renommage durable, pas supporté par tous les systèmes
+        } catch (IOException e) {
+            LOGGER.fine(String.format("Directory of %s cannot be synchronized", path));
+        }
+    }
+}
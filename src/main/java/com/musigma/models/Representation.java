@@ -14,10 +14,26 @@ import static com.musigma.utils.Log.getLogger;
  */
 public class Representation implements Comparable<Representation>, Serializable {
 
+    /**
+     * Identifiant de sérialisation des premières versions (voir {@link Festival}).
+     */
+    private static final long serialVersionUID = 5548964316468785604L;
     /**
      * Logger pour afficher les logs.
      */
     private static final Logger LOGGER = getLogger(Representation.class);
+    /**
+     * Festival auquel appartient la représentation, null si elle n'a pas été ajoutée à un festival.
+     */
+    transient Festival festival;
+    /**
+     * Identifiant de la représentation dans son festival, 0 si elle n'a jamais été ajoutée à un festival.
+     */
+    transient long id;
+    /**
+     * Code de la scène dans le dictionnaire des scènes du festival, valable tant que la représentation en fait partie.
+     */
+    transient int sceneCode = FestivalDictionary.NONE;
 
     /**
      * Delta de début par rapport au festival en minute
@@ -48,12 +64,11 @@ public class Representation implements Comparable<Representation>, Serializable
      * @param artiste    l'artiste associé à la représentation
      */
     public Representation(int startDelta, int duration, String scene, Artiste artiste) {
-        LOGGER.info("Initialized Representation");
         this.startDelta = startDelta;
         this.duration = duration;
         this.scene = scene;
         this.artiste = artiste;
-        LOGGER.info("Created Representation");
+        LOGGER.fine("Created Representation"); // Créées par milliers dans les grands plannings
     }
 
     /**
@@ -72,10 +87,18 @@ public class Representation implements Comparable<Representation>, Serializable
      * @throws RepresentationException si l'artiste est null
      */
     public void setArtiste(Artiste artiste) throws RepresentationException {
+        checkWritable();
         if (artiste == null)
             throw new RepresentationException("Artiste null, doit être défini");
+        Artiste oldArtiste = this.artiste;
         this.artiste = artiste;
         LOGGER.info("Set Representation.artiste");
+        if (festival != null) {
+            if (artiste.festival == null) // Artiste hors festival, suivi à travers ses représentations
+                artiste.festival = festival;
+            festival.relinked(this, oldArtiste);
+            festival.firePropertyChanged(this, "artiste", oldArtiste, artiste);
+        }
     }
 
     /**
@@ -91,13 +114,20 @@ public class Representation implements Comparable<Representation>, Serializable
      * Défini la différence par rapport au début de la représentation en minutes.
      *
      * @param startDelta la différence de la date de début de la représentation avec la date de début du festival en minute
-     * @throws RepresentationException si la différence est négative
+     * @throws RepresentationException si la différence est négative ou si la représentation entrerait en collision avec une autre
      */
     public void setStartDelta(int startDelta) throws RepresentationException {
+        checkWritable();
         if (startDelta < 0)
             throw new RepresentationException("La différence avec la date de début du festival est négative, doit être positif");
-        this.startDelta = startDelta;
+        int oldStartDelta = this.startDelta;
+        if (festival != null)
+            festival.reschedule(this, startDelta, duration, scene, () -> this.startDelta = startDelta);
+        else
+            this.startDelta = startDelta;
         LOGGER.info("Set Representation.startDelta");
+        if (festival != null)
+            festival.firePropertyChanged(this, "startDelta", oldStartDelta, startDelta);
     }
 
     /**
@@ -113,13 +143,56 @@ public class Representation implements Comparable<Representation>, Serializable
      * Défini la durée de la représentation.
      *
      * @param duration la durée de la représentation
-     * @throws RepresentationException si la durée est négative ou nulle
+     * @throws RepresentationException si la durée est négative ou nulle ou si la représentation entrerait en collision avec une autre
      */
     public void setDuration(int duration) throws RepresentationException {
+        checkWritable();
         if (duration <= 0)
             throw new RepresentationException("La durée est négative ou nulle, doit être positif et non nulle");
-        this.duration = duration;
+        int oldDuration = this.duration;
+        if (festival != null)
+            festival.reschedule(this, startDelta, duration, scene, () -> this.duration = duration);
+        else
+            this.duration = duration;
         LOGGER.info("Set Representation.duration");
+        if (festival != null)
+            festival.firePropertyChanged(this, "duration", oldDuration, duration);
+    }
+
+    /**
+     * Défini le début et la durée de la représentation en une seule modification du planning.
+     * Contrairement à deux appels successifs à {@link #setStartDelta(int)} et {@link #setDuration(int)},
+     * la représentation n'est jamais vérifiée contre elle-même dans une position intermédiaire,
+     * et reste inchangée si le nouveau créneau est refusé.
+     *
+     * @param startDelta la différence de la date de début de la représentation avec la date de début du festival en minute
+     * @param duration   la durée de la représentation
+     * @throws RepresentationException si la différence est négative, si la durée est négative ou nulle
+     *                                 ou si la représentation entrerait en collision avec une autre
+     */
+    public void setSchedule(int startDelta, int duration) throws RepresentationException {
+        checkWritable();
+        if (startDelta < 0)
+            throw new RepresentationException("La différence avec la date de début du festival est négative, doit être positif");
+        if (duration <= 0)
+            throw new RepresentationException("La durée est négative ou nulle, doit être positif et non nulle");
+        int oldStartDelta = this.startDelta;
+        int oldDuration = this.duration;
+        Runnable change = () -> {
+            this.startDelta = startDelta;
+            this.duration = duration;
+        };
+        if (festival != null)
+            festival.reschedule(this, startDelta, duration, scene, change);
+        else
+            change.run();
+        LOGGER.info("Set Representation.startDelta and Representation.duration");
+        if (festival != null) {
+            if (oldStartDelta != startDelta)
+                festival.firePropertyChanged(this, "startDelta", oldStartDelta, startDelta);
+            if (oldDuration != duration)
+                festival.firePropertyChanged(this, "duration", oldDuration, duration);
+        }
     }
 
     /**
@@ -135,13 +208,20 @@ public class Representation implements Comparable<Representation>, Serializable
      * Défini la scène de la représentation.
      *
      * @param scene la scène de la représentation
-     * @throws RepresentationException si la scène est null ou vide
+     * @throws RepresentationException si la scène est null ou vide ou si la représentation entrerait en collision avec une autre
      */
     public void setScene(String scene) throws RepresentationException {
+        checkWritable();
         if (scene == null || scene.isBlank())
             throw new RepresentationException("La scene est null ou vide, doit être définie");
-        this.scene = scene;
+        String oldScene = this.scene;
+        if (festival != null)
+            festival.reschedule(this, startDelta, duration, scene, () -> this.scene = scene);
+        else
+            this.scene = scene;
         LOGGER.info("Set Representation.scene");
+        if (festival != null)
+            festival.firePropertyChanged(this, "scene", oldScene, scene);
     }
 
     /**
@@ -159,32 +239,62 @@ public class Representation implements Comparable<Representation>, Serializable
         //       b        b + b_d
         //       |--------->|
         // Alors il y a collision car a < b & b < a + a_d
-        if (!scene.equals(representation.getScene()))
+        if (festival != null && festival == representation.festival && sceneCode != FestivalDictionary.NONE
+                ? sceneCode != representation.sceneCode
+                : !getScene().equals(representation.getScene()))
             return false;
-        return startDelta < representation.getStartDelta() ? (representation.getStartDelta() < startDelta + duration) : (startDelta < representation.getStartDelta() + representation.getDuration());
+        return getStartDelta() < representation.getStartDelta() ? (representation.getStartDelta() < getStartDelta() + getDuration()) : (getStartDelta() < representation.getStartDelta() + representation.getDuration());
     }
 
     /**
-     * Compare cette représentation à une autre représentation par date de début.
+     * Compare cette représentation à une autre représentation par date de début, puis par scène
+     * pour distinguer les représentations simultanées sur des scènes différentes.
      *
      * @param representation la représentation à comparer
      * @return un nombre négatif, zéro ou un nombre positif si cette représentation est antérieure, égale ou postérieure à la représentation spécifiée
      */
     @Override
     public int compareTo(Representation representation) {
-        return startDelta - representation.getStartDelta();
+        return compare(getStartDelta(), getScene(), representation.getStartDelta(), representation.getScene());
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Representation that = (Representation) o;
-        return startDelta == that.startDelta && duration == that.duration && Objects.equals(scene, that.scene) && Objects.equals(artiste, that.artiste);
+    /**
+     * Compare deux places du planning, par début puis par scène.
+     */
+    static int compare(int startDelta, String scene, int otherStartDelta, String otherScene) {
+        int order = Integer.compare(startDelta, otherStartDelta);
+        if (order != 0 || Objects.equals(scene, otherScene))
+            return order;
+        if (scene == null || otherScene == null)
+            return scene == null ? -1 : 1;
+        return scene.compareTo(otherScene);
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(startDelta, duration, scene, artiste);
+    /**
+     * Remplace la scène par l'instance du dictionnaire des scènes du festival et retient son code.
+     *
+     * @param scenes le dictionnaire des scènes du festival
+     */
+    void intern(FestivalDictionary scenes) {
+        sceneCode = scenes.code(scene);
+        scene = scenes.get(sceneCode);
+    }
+
+    /**
+     * Retourne l'identifiant de la représentation, attribué par son festival et conservé ensuite,
+     * même si la représentation est modifiée.
+     *
+     * @return l'identifiant, 0 si la représentation n'a jamais été ajoutée à un festival
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Vérifie que la représentation n'est pas la copie d'un instantané (voir {@link Festival#snapshot()}).
+     */
+    private void checkWritable() throws RepresentationException {
+        if (festival != null && festival.isSnapshot())
+            throw new RepresentationException(Festival.READ_ONLY_MESSAGE);
     }
 }
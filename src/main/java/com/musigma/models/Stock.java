@@ -4,7 +4,8 @@ import com.musigma.models.exception.StockException;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Logger;
 
 import static com.musigma.utils.Log.getLogger;
@@ -15,10 +16,22 @@ import static com.musigma.utils.Log.getLogger;
  */
 public class Stock implements Serializable {
 
+    /**
+     * Identifiant de sérialisation des premières versions (voir {@link Festival}).
+     */
+    private static final long serialVersionUID = 9112400334023397067L;
     /**
      * Logger pour afficher les logs.
      */
     private static final Logger LOGGER = getLogger(Serializable.class);
+    /**
+     * Festival auquel appartient le stock, null s'il n'a pas été ajouté à un festival.
+     */
+    transient Festival festival;
+    /**
+     * Identifiant du stock dans son festival, 0 s'il n'a jamais été ajouté à un festival.
+     */
+    transient long id;
     /**
      * Liste des avantages associés à ce stock.
      */
@@ -72,13 +85,21 @@ public class Stock implements Serializable {
      * Définit le nom du stock.
      *
      * @param name le nom du stock
-     * @throws StockException si le nom est null ou vide
+     * @throws StockException si le nom est null ou vide, ou déjà pris par un autre stock du festival
      */
     public void setName(String name) throws StockException {
+        checkWritable();
         if (name == null || name.isBlank())
             throw new StockException("Le nom est null ou vide, doit être défini");
+        if (festival != null && festival.findStock(name) != null && festival.findStock(name) != this)
+            throw new StockException("Un autre stock existe avec le même nom");
+        String oldName = this.name;
         this.name = name;
         LOGGER.info("Set Stock.name");
+        if (festival != null) {
+            festival.renamed(this, id, oldName);
+            festival.firePropertyChanged(this, "name", oldName, name);
+        }
     }
 
     /**
@@ -94,10 +115,15 @@ public class Stock implements Serializable {
      * Définit si la quantité du stock est fixe ou non.
      *
      * @param fixed true pour fixer la quantité, false pour la rendre non fixe
+     * @throws StockException si le stock est la copie d'un instantané
      */
-    public void setFixed(boolean fixed) {
+    public void setFixed(boolean fixed) throws StockException {
+        checkWritable();
+        boolean oldFixed = this.fixed;
         this.fixed = fixed;
         LOGGER.info("Set Stock.fixed");
+        if (festival != null)
+            festival.firePropertyChanged(this, "fixed", oldFixed, fixed);
     }
 
     /**
@@ -116,14 +142,18 @@ public class Stock implements Serializable {
      * @throws StockException si la quantité est négative ou nulle (0)
      */
     public void setQuantity(int quantity) throws StockException {
+        checkWritable();
         if (fixed) {
             throw new StockException("La quantité est fixée, doit préalablement être défixée");
         }
         if (quantity <= 0) {
             throw new StockException("La quantité absolue est négative ou nulle (0), doit être défini");
         }
+        int oldQuantity = this.quantity;
         this.quantity = quantity;
         LOGGER.info("Set Stock.quantity");
+        if (festival != null)
+            festival.firePropertyChanged(this, "quantity", oldQuantity, quantity);
     }
 
     /**
@@ -142,20 +172,24 @@ public class Stock implements Serializable {
      * @throws StockException si le prix est négatif ou nul (0)
      */
     public void setPrix(double prix) throws StockException {
+        checkWritable();
         if (prix <= 0) {
             throw new StockException("Le prix est négatif ou nul (0), doit être défini");
         }
+        double oldPrix = this.prix;
         this.prix = prix;
         LOGGER.info("Set Stock.prix");
+        if (festival != null)
+            festival.firePropertyChanged(this, "prix", oldPrix, prix);
     }
 
     /**
      * Retourne la liste des avantages associés à ce stock.
      *
-     * @return la liste des avantages
+     * @return la liste des avantages, non modifiable si le stock est la copie d'un instantané
      */
-    public ArrayList<Avantage> getAvantages() {
-        return avantages;
+    public List<Avantage> getAvantages() {
+        return festival != null && festival.isSnapshot() ? Collections.unmodifiableList(avantages) : avantages;
     }
 
     /**
@@ -165,12 +199,15 @@ public class Stock implements Serializable {
      * @throws StockException si l'avantage est null
      */
     public void addAvantage(Avantage avantage) throws StockException {
+        checkWritable();
         if (avantage == null)
             throw new StockException("L'avantage est null, doit être défini");
         if (avantages.contains(avantage))
             return;
         avantages.add(avantage);
         LOGGER.info("Added Avantage to Stock.avantages");
+        if (festival != null)
+            festival.fireElementAdded(this, "avantages", avantages.size() - 1, avantage);
     }
 
     /**
@@ -180,22 +217,23 @@ public class Stock implements Serializable {
      * @throws StockException si l'avantage n'est pas trouvé dans la liste
      */
     public void removeAvantage(Avantage avantage) throws StockException {
-        if (!avantages.remove(avantage))
+        checkWritable();
+        int index = avantages.indexOf(avantage);
+        if (index < 0)
             throw new StockException("L'avantage n'a pas été trouvé");
+        avantages.remove(index);
         LOGGER.info("Removed Avantage from Stock.avantages");
+        if (festival != null)
+            festival.fireElementRemoved(this, "avantages", index, avantage);
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Stock stock = (Stock) o;
-        return quantity == stock.quantity && fixed == stock.fixed && Objects.equals(name, stock.name) && Objects.equals(avantages, stock.avantages);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(name, quantity, fixed, avantages);
+    /**
+     * Retourne l'identifiant du stock dans son festival, qui ne change pas quand son nom ou sa quantité sont modifiés.
+     *
+     * @return l'identifiant, 0 si le stock n'a jamais été ajouté à un festival
+     */
+    public long getId() {
+        return id;
     }
 
     @Override
@@ -203,4 +241,11 @@ public class Stock implements Serializable {
         return this.getName();
     }
 
+    /**
+     * Vérifie que le stock n'est pas la copie d'un instantané (voir {@link Festival#snapshot()}).
+     */
+    private void checkWritable() throws StockException {
+        if (festival != null && festival.isSnapshot())
+            throw new StockException(Festival.READ_ONLY_MESSAGE);
+    }
 }
@@ -0,0 +1,615 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import static com.musigma.utils.Log.getLogger;
+
+/**
+ * La classe TableStorage enregistre un festival dans un fichier {@value #EXTENSION}, sous forme de tables
+ * d'artistes, de représentations, de stocks, de types de tickets et d'avantages mises à jour ligne par ligne.
+ * <p>
+ * Chaque élément du festival est une ligne désignée par son identifiant dans le festival, le festival
+ * lui-même étant la ligne 0. Les lignes se référencent par ces identifiants (artiste d'une représentation,
+ * stock d'un avantage) ; les avantages sont écrits dans la ligne de leur type de ticket.
+ * Le fichier est une suite d'enregistrements ajoutés à la fin :
+ * <pre>
+ * en-tête         : MAGIC (int), VERSION (short)
+ * enregistrements : taille (int), table (byte), opération (byte), identifiant (long), contenu, CRC32 (int)
+ * festival        : nom, début, prix de location, superficie, emplacement
+ * artiste         : rang (long, -1 hors festival), nom, genre, prix
+ * représentation  : début, durée, scène, identifiant de l'artiste (-1 sans artiste)
+ * stock           : rang, nom, quantité, fixe, prix
+ * type de ticket  : rang, type, quantité, prix, nombre puis (identifiant du stock, quantité par ticket) de ses avantages
+ * </pre>
+ * Un enregistrement remplace la ligne de même identifiant, ou la supprime ; il n'a pas de contenu dans ce cas.
+ * Le rang est croissant dans l'ordre d'ajout au festival : les artistes, stocks et types de tickets sont rechargés
+ * dans l'ordre de leur liste, même lorsqu'un élément y est remis sous son identifiant.
+ * <p>
+ * Les éléments modifiés sont notés au fil des notifications du festival, puis seules leurs lignes sont écrites
+ * à la sauvegarde. L'index des lignes vivantes permet de connaître la place occupée par les lignes remplacées :
+ * le fichier est réécrit lorsqu'elles occupent plus de place que les lignes vivantes.
+ * Un enregistrement incomplet ou altérée, laissé par une sauvegarde interrompue, termine le fichier
+ * et sera écrasé par la prochaine sauvegarde.
+ */
+final class TableStorage implements FestivalStorage, FestivalListener {
+
+    /**
+     * Extension des fichiers enregistrés par ce stockage.
+     */
+    static final String EXTENSION = ".mgdb";
+    /**
+     * Nombre magique en tête des fichiers de tables ("MGDB").
+     */
+    static final int MAGIC = 0x4D474442;
+    /**
+     * Version du format des enregistrements.
+     */
+    static final short VERSION = 1;
+    /**
+     * Taille de l'en-tête du fichier.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+
+    private static final byte UPSERT = 1, DELETE = 2;
+    private static final byte FESTIVAL = 0, ARTISTE = 1, REPRESENTATION = 2, STOCK = 3, TICKET_TYPE = 4;
+    private static final long FESTIVAL_ID = 0;
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = getLogger(TableStorage.class);
+    /**
+     * Fichier des tables.
+     */
+    private final File file;
+    /**
+     * Index des lignes vivantes : taille du dernier enregistrement de chaque identifiant.
+     */
+    private final HashMap<Long, Integer> rows = new HashMap<>();
+    /**
+     * Éléments modifiés depuis la dernière sauvegarde.
+     */
+    private final Set<Object> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * Rang des artistes, stocks et types de tickets du festival par identifiant.
+     */
+    private final HashMap<Long, Long> ranks = new HashMap<>();
+    /**
+     * Prochain rang attribué.
+     */
+    private long nextRank = 0;
+    /**
+     * Taille du fichier une fois les écritures préparées exécutées.
+     */
+    private long size = 0;
+    /**
+     * Taille de l'en-tête et des lignes vivantes.
+     */
+    private long live = 0;
+    /**
+     * Taille des enregistrements valides du fichier.
+     */
+    private long length = 0;
+    /**
+     * Si une écriture a échoué, le fichier doit alors être réécrit.
+     */
+    private volatile boolean stale = false;
+
+    /**
+     * Constructeur de la classe TableStorage, pour un fichier à écrire entièrement à la prochaine sauvegarde.
+     *
+     * @param file le fichier des tables
+     */
+    TableStorage(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Indique si un fichier doit être enregistré par ce stockage, d'après son extension.
+     *
+     * @param file le fichier du festival
+     * @return true si le fichier est un fichier de tables, false sinon
+     */
+    static boolean isTableFile(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(EXTENSION);
+    }
+
+    /**
+     * Indique si un contenu commence par l'en-tête des fichiers de tables, sans modifier sa position.
+     *
+     * @param buffer le contenu du fichier
+     * @return true si le contenu est un fichier de tables, false sinon
+     */
+    static boolean isTable(ByteBuffer buffer) {
+        return buffer.remaining() >= Integer.BYTES && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Charge un festival depuis un fichier de tables et commence à suivre ses modifications.
+     *
+     * @param file   le fichier des tables
+     * @param buffer le contenu du fichier
+     * @return le festival entièrement chargé, enregistré par ce stockage
+     * @throws FestivalException si le fichier est corrompu
+     */
+    static Festival read(File file, ByteBuffer buffer) throws FestivalException {
+        TableStorage storage = new TableStorage(file);
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+            throw new FestivalException("Le fichier du festival est corrompu");
+        short version = buffer.getShort();
+        if (version > VERSION)
+            throw new FestivalException(String.format("La version %d du fichier n'est pas supportée", version));
+
+        List<TreeMap<Long, byte[]>> tables = new ArrayList<>();
+        for (int table = FESTIVAL; table <= TICKET_TYPE; table++)
+            tables.add(new TreeMap<>());
+        int records = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int start = buffer.position();
+            int recordSize = buffer.getInt(start);
+            int body = start + Integer.BYTES;
+            if (recordSize < 2 + Long.BYTES || buffer.limit() - body < recordSize + Integer.BYTES)
+                break;
+            byte[] record = new byte[recordSize];
+            buffer.position(body);
+            buffer.get(record);
+            crc.reset();
+            crc.update(record);
+            ByteBuffer in = ByteBuffer.wrap(record);
+            byte table = in.get();
+            byte operation = in.get();
+            long id = in.getLong();
+            if (buffer.getInt() != (int) crc.getValue() || table < FESTIVAL || table > TICKET_TYPE) {
+                buffer.position(start);
+                break;
+            }
+            for (TreeMap<Long, byte[]> rows : tables)
+                rows.remove(id);
+            if (operation == DELETE) {
+                storage.rows.remove(id);
+            } else {
+                tables.get(table).put(id, Arrays.copyOfRange(record, in.position(), record.length));
+                storage.rows.put(id, recordSize + 2 * Integer.BYTES);
+            }
+            records++;
+        }
+        storage.length = storage.size = buffer.position();
+        storage.live = HEADER_SIZE;
+        for (int rowSize : storage.rows.values())
+            storage.live += rowSize;
+        if (buffer.hasRemaining())
+            LOGGER.warning(String.format("Discarded %d bytes at the end of %s", buffer.remaining(), file.getAbsolutePath()));
+
+        Festival festival;
+        try {
+            festival = storage.restore(tables);
+        } catch (IOException | RuntimeException | FestivalException | ArtisteException | StockException |
+                 TypeTicketException | AvantageException e) {
+            throw new FestivalException("Le fichier du festival est corrompu");
+        }
+        festival.addListener(storage);
+        festival.storage = storage;
+        LOGGER.info(String.format("Read %d records (%d rows) of %s", records, storage.rows.size(), file.getAbsolutePath()));
+        return festival;
+    }
+
+    /**
+     * Reconstitue le festival à partir des lignes vivantes, les éléments de chaque liste dans l'ordre de leur rang.
+     * Les références vers des lignes absentes sont ignorées.
+     */
+    private Festival restore(List<TreeMap<Long, byte[]>> tables) throws IOException, FestivalException, ArtisteException, StockException, TypeTicketException, AvantageException {
+        byte[] header = tables.get(FESTIVAL).get(FESTIVAL_ID);
+        if (header == null)
+            throw new IOException("Ligne du festival absente");
+        DataInputStream in = input(header);
+        Festival festival = Festival.restore(in.readUTF(), FestivalCodec.readDateTime(in), in.readFloat(), in.readFloat(), in.readUTF());
+
+        HashMap<Long, Object> elements = new HashMap<>();
+        TreeMap<Long, Artiste> artistes = new TreeMap<>();
+        for (Map.Entry<Long, byte[]> row : tables.get(ARTISTE).entrySet()) {
+            in = input(row.getValue());
+            long rank = in.readLong();
+            Artiste artiste = new Artiste(in.readUTF(), in.readUTF(), in.readFloat());
+            artiste.id = row.getKey();
+            if (rank >= 0)
+                artistes.put(rank(row.getKey(), rank), artiste);
+            elements.put(row.getKey(), artiste);
+        }
+        festival.getArtistes().addAll(artistes.values());
+        for (Map.Entry<Long, byte[]> row : tables.get(REPRESENTATION).entrySet()) {
+            in = input(row.getValue());
+            int startDelta = in.readInt(), duration = in.readInt();
+            String scene = in.readUTF();
+            Object artiste = elements.get(in.readLong());
+            Representation representation = new Representation(startDelta, duration, scene, artiste instanceof Artiste ? (Artiste) artiste : null);
+            representation.id = row.getKey();
+            festival.getRepresentations().add(representation);
+        }
+        TreeMap<Long, Stock> stocks = new TreeMap<>();
+        for (Map.Entry<Long, byte[]> row : tables.get(STOCK).entrySet()) {
+            in = input(row.getValue());
+            long rank = rank(row.getKey(), in.readLong());
+            Stock stock = new Stock(in.readUTF(), in.readInt(), in.readBoolean(), in.readDouble());
+            stock.id = row.getKey();
+            stocks.put(rank, stock);
+            elements.put(row.getKey(), stock);
+        }
+        festival.getStocks().addAll(stocks.values());
+        TreeMap<Long, TypeTicket> ticketTypes = new TreeMap<>();
+        for (Map.Entry<Long, byte[]> row : tables.get(TICKET_TYPE).entrySet()) {
+            in = input(row.getValue());
+            long rank = rank(row.getKey(), in.readLong());
+            TypeTicket ticketType = new TypeTicket(in.readUTF(), in.readInt(), in.readFloat());
+            ticketType.id = row.getKey();
+            int avantages = in.readInt();
+            for (int i = 0; i < avantages; i++) {
+                Object stock = elements.get(in.readLong());
+                int quantityByTicket = in.readInt();
+                if (!(stock instanceof Stock)) {
+                    LOGGER.warning(String.format("Skipped avantage of ticket type %d with a missing stock", row.getKey()));
+                    continue;
+                }
+                Avantage avantage = FestivalCodec.restoreAvantage(ticketType, (Stock) stock, quantityByTicket);
+                ticketType.getAvantages().add(avantage);
+                ((Stock) stock).getAvantages().add(avantage);
+            }
+            ticketTypes.put(rank, ticketType);
+        }
+        festival.getTicketTypes().addAll(ticketTypes.values());
+        festival.adopt();
+        for (TreeMap<Long, byte[]> rows : tables)
+            if (!rows.isEmpty())
+                festival.lastId = Math.max(festival.lastId, rows.lastKey()); // Artistes hors festival
+        return festival;
+    }
+
+    /**
+     * Retient le rang lu dans la ligne d'un élément d'une liste du festival.
+     */
+    private long rank(long id, long rank) {
+        ranks.put(id, rank);
+        nextRank = Math.max(nextRank, rank + 1);
+        return rank;
+    }
+
+    private static DataInputStream input(byte[] content) {
+        return new DataInputStream(new ByteArrayInputStream(content));
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Prépare l'écriture des lignes des éléments modifiés depuis la dernière sauvegarde.
+     * Le fichier est entièrement réécrit s'il n'existe pas encore ou si les lignes remplacées
+     * y occupent plus de place que les lignes vivantes.
+     */
+    @Override
+    public FestivalWrite prepareSave(Festival festival) throws FestivalException {
+        if (stale || !file.isFile() || size - live > live)
+            return prepareCompact(festival);
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            List<Object> live = new ArrayList<>();
+            for (Object element : dirty) {
+                if (isLive(festival, element))
+                    live.add(element);
+                else
+                    delete(element, records); // Avant les lignes écrites, qui peuvent reprendre son identifiant
+            }
+            for (Object element : live)
+                upsert(festival, element, records);
+        } catch (IOException e) {
+            throw new FestivalException("Le festival n'arrive pas à être encodé");
+        }
+        int rowCount = dirty.size();
+        dirty.clear();
+        byte[] content = records.toByteArray();
+        size += content.length;
+        return () -> {
+            try {
+                append(content);
+                LOGGER.info(String.format("Saved %d rows of festival 0x%x to %s", rowCount, System.identityHashCode(festival), file.getAbsolutePath()));
+            } catch (IOException e) {
+                stale = true;
+                throw new FestivalException("Le festival n'arrive pas à enregister le fichier");
+            }
+        };
+    }
+
+    /**
+     * Prépare la réécriture du fichier avec une ligne par élément du festival, classés à nouveau
+     * dans l'ordre de leurs listes.
+     */
+    @Override
+    public FestivalWrite prepareCompact(Festival festival) throws FestivalException {
+        festival.materialize();
+        detach(festival);
+        rows.clear();
+        ranks.clear();
+        dirty.clear();
+        nextRank = 0;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            upsert(festival, festival, bytes);
+            for (Artiste artiste : festival.getArtistes())
+                upsert(festival, artiste, bytes);
+            for (Representation representation : festival.getRepresentations())
+                upsert(festival, representation, bytes);
+            for (Representation representation : festival.getRepresentations())
+                if (representation.getArtiste() != null && !rows.containsKey(festival.identify(representation.getArtiste())))
+                    upsert(festival, representation.getArtiste(), bytes); // Artiste hors festival
+            for (Stock stock : festival.getStocks())
+                upsert(festival, stock, bytes);
+            for (TypeTicket ticketType : festival.getTicketTypes())
+                upsert(festival, ticketType, bytes);
+        } catch (IOException e) {
+            throw new FestivalException("Le festival n'arrive pas à être encodé");
+        }
+        festival.addListener(this);
+        byte[] content = bytes.toByteArray();
+        live = HEADER_SIZE;
+        for (int rowSize : rows.values())
+            live += rowSize;
+        size = content.length;
+        return () -> {
+            try {
+                synchronized (this) {
+                    FileStorage.replace(file, content, 0);
+                    length = content.length;
+                    stale = false;
+                }
+                LOGGER.info(String.format("Saved festival 0x%x to file %s", System.identityHashCode(festival), file.getAbsolutePath()));
+            } catch (IOException e) {
+                stale = true;
+                throw new FestivalException("Le festival n'arrive pas à enregister le fichier");
+            }
+        };
+    }
+
+    @Override
+    public void invalidate() {
+        stale = true;
+    }
+
+    @Override
+    public void detach(Festival festival) {
+        festival.removeListener(this);
+    }
+
+    /**
+     * Ajoute des enregistrements à la fin du fichier et attend leur écriture sur le disque.
+     * Un enregistrement incomplet laissé par une écriture interrompue est d'abord retiré.
+     */
+    private synchronized void append(byte[] records) throws IOException {
+        if (records.length == 0)
+            return;
+        if (stale) {
+            LOGGER.warning(String.format("Skipped rows of %s, file will be rewritten", file.getAbsolutePath()));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            channel.truncate(length);
+            channel.position(length);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+            length = channel.position();
+        }
+    }
+
+    @Override
+    public void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        if (source instanceof Avantage) {
+            dirty.add(((Avantage) source).getTicketType());
+            return;
+        }
+        dirty.add(source);
+        if (source instanceof Representation && "artiste".equals(property)) {
+            if (oldValue != null)
+                dirty.add(oldValue); // Peut ne plus être référencé
+            if (newValue != null)
+                dirty.add(newValue);
+        }
+    }
+
+    @Override
+    public void elementAdded(Object source, String collection, int index, Object element) {
+        String key = source.getClass().getSimpleName() + "." + collection;
+        switch (key) {
+            case "Festival.artistes":
+            case "Festival.ticketTypes":
+                ranks.put(id(element), nextRank++);
+                dirty.add(element);
+                break;
+            case "Festival.stocks":
+                ranks.put(id(element), nextRank++);
+                dirty.add(element);
+                for (Avantage avantage : ((Stock) element).getAvantages())
+                    dirty.add(avantage.getTicketType()); // Avantages ignorés tant que le stock était retiré
+                break;
+            case "Festival.representations":
+                dirty.add(element);
+                if (((Representation) element).getArtiste() != null)
+                    dirty.add(((Representation) element).getArtiste());
+                break;
+            case "TypeTicket.avantages":
+                dirty.add(source);
+                break;
+            default:
+                break; // Stock.avantages : même avantage que TypeTicket.avantages
+        }
+    }
+
+    @Override
+    public void elementRemoved(Object source, String collection, int index, Object element) {
+        String key = source.getClass().getSimpleName() + "." + collection;
+        switch (key) {
+            case "Festival.artistes":
+            case "Festival.ticketTypes":
+                ranks.remove(id(element));
+                dirty.add(element);
+                break;
+            case "Festival.stocks":
+                ranks.remove(id(element));
+                dirty.add(element);
+                for (Avantage avantage : ((Stock) element).getAvantages())
+                    dirty.add(avantage.getTicketType());
+                break;
+            case "Festival.representations":
+                dirty.add(element);
+                if (((Representation) element).getArtiste() != null)
+                    dirty.add(((Representation) element).getArtiste());
+                break;
+            case "TypeTicket.avantages":
+                dirty.add(source);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Retourne l'identifiant d'un élément, qu'il fasse encore partie du festival ou non.
+     */
+    private static long id(Object element) {
+        if (element instanceof Artiste)
+            return ((Artiste) element).id;
+        if (element instanceof Representation)
+            return ((Representation) element).id;
+        if (element instanceof Stock)
+            return ((Stock) element).id;
+        if (element instanceof TypeTicket)
+            return ((TypeTicket) element).id;
+        return FESTIVAL_ID;
+    }
+
+    /**
+     * Indique si un élément modifié fait toujours partie du festival et doit avoir une ligne.
+     * Un artiste hors festival en garde une tant qu'une représentation le référence.
+     */
+    private static boolean isLive(Festival festival, Object element) {
+        if (element == festival)
+            return true;
+        if (element instanceof Artiste)
+            return festival.getArtiste(id(element)) == element || !festival.getRepresentations((Artiste) element).isEmpty();
+        if (element instanceof Representation)
+            return ((Representation) element).festival == festival;
+        if (element instanceof Stock)
+            return ((Stock) element).festival == festival;
+        if (element instanceof TypeTicket)
+            return ((TypeTicket) element).festival == festival;
+        return false;
+    }
+
+    /**
+     * Encode la ligne d'un élément et l'ajoute aux enregistrements.
+     */
+    private void upsert(Festival festival, Object element, ByteArrayOutputStream records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte table;
+        long id = id(element);
+        if (element == festival) {
+            table = FESTIVAL;
+            out.writeUTF(festival.getName());
+            FestivalCodec.writeDateTime(festival.getStart(), out);
+            out.writeFloat(festival.getLocationPrice());
+            out.writeFloat(festival.getArea());
+            out.writeUTF(festival.getLocation());
+        } else if (element instanceof Artiste) {
+            Artiste artiste = (Artiste) element;
+            table = ARTISTE;
+            boolean member = festival.getArtiste(id) == artiste;
+            id = festival.identify(artiste);
+            out.writeLong(member ? rankOf(id) : -1);
+            out.writeUTF(artiste.getName());
+            out.writeUTF(artiste.getGenre());
+            out.writeFloat(artiste.getPrice());
+        } else if (element instanceof Representation) {
+            Representation representation = (Representation) element;
+            table = REPRESENTATION;
+            out.writeInt(representation.getStartDelta());
+            out.writeInt(representation.getDuration());
+            out.writeUTF(representation.getScene());
+            out.writeLong(representation.getArtiste() == null ? -1 : festival.identify(representation.getArtiste()));
+        } else if (element instanceof Stock) {
+            Stock stock = (Stock) element;
+            table = STOCK;
+            out.writeLong(rankOf(id));
+            out.writeUTF(stock.getName());
+            out.writeInt(stock.getQuantity());
+            out.writeBoolean(stock.isFixed());
+            out.writeDouble(stock.getPrix());
+        } else {
+            TypeTicket ticketType = (TypeTicket) element;
+            table = TICKET_TYPE;
+            out.writeLong(rankOf(id));
+            out.writeUTF(ticketType.getType());
+            out.writeInt(ticketType.getQuantity());
+            out.writeFloat(ticketType.getPrice());
+            List<Avantage> avantages = new ArrayList<>();
+            for (Avantage avantage : ticketType.getAvantages())
+                if (avantage.getStock().festival == festival)
+                    avantages.add(avantage);
+            out.writeInt(avantages.size());
+            for (Avantage avantage : avantages) {
+                out.writeLong(avantage.getStock().id);
+                out.writeInt(avantage.getQuantityByTicket());
+            }
+        }
+        int recordSize = record(table, UPSERT, id, bytes.toByteArray(), records);
+        Integer previous = rows.put(id, recordSize);
+        live += recordSize - (previous == null ? 0 : previous);
+    }
+
+    private long rankOf(long id) {
+        Long rank = ranks.get(id);
+        if (rank == null) {
+            rank = nextRank++;
+            ranks.put(id, rank);
+        }
+        return rank;
+    }
+
+    /**
+     * Ajoute aux enregistrements la suppression de la ligne d'un élément retiré du festival, s'il en a une.
+     */
+    private void delete(Object element, ByteArrayOutputStream records) throws IOException {
+        long id = id(element);
+        if (!rows.containsKey(id))
+            return;
+        record(FESTIVAL, DELETE, id, new byte[0], records);
+        live -= rows.remove(id);
+    }
+
+    /**
+     * Écrit un enregistrement et retourne sa taille dans le fichier.
+     */
+    private static int record(byte table, byte operation, long id, byte[] content, ByteArrayOutputStream records) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(2 + Long.BYTES + content.length);
+        record.put(table).put(operation).putLong(id).put(content);
+        CRC32 crc = new CRC32();
+        crc.update(record.array());
+        DataOutputStream out = new DataOutputStream(records);
+        out.writeInt(record.capacity());
+        out.write(record.array());
+        out.writeInt((int) crc.getValue());
+        return record.capacity() + 2 * Integer.BYTES;
+    }
+}
@@ -4,7 +4,8 @@ import com.musigma.models.exception.TypeTicketException;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Logger;
 
 import static com.musigma.utils.Log.getLogger;
@@ -15,10 +16,22 @@ import static com.musigma.utils.Log.getLogger;
  */
 public class TypeTicket implements Serializable {
 
+    /**
+     * Identifiant de sérialisation des premières versions (voir {@link Festival}).
+     */
+    private static final long serialVersionUID = -2186175099360819784L;
     /**
      * Logger de la class
      */
     private static final Logger LOGGER = getLogger(TypeTicket.class);
+    /**
+     * Festival auquel appartient le type de ticket, null s'il n'a pas été ajouté à un festival.
+     */
+    transient Festival festival;
+    /**
+     * Identifiant du type de ticket dans son festival, 0 s'il n'a jamais été ajouté à un festival.
+     */
+    transient long id;
     /**
      * Liste des avantages associés à ce type de ticket
      */
@@ -66,13 +79,21 @@ public class TypeTicket implements Serializable {
      * Définit le type du ticket.
      *
      * @param type le type du ticket
-     * @throws TypeTicketException si le type est null ou vide
+     * @throws TypeTicketException si le type est null ou vide, ou déjà pris par un autre type de ticket du festival
      */
     public void setType(String type) throws TypeTicketException {
+        checkWritable();
         if (type == null || type.isBlank())
             throw new TypeTicketException("Le type est null ou vide, doit être défini");
+        if (festival != null && festival.findTicketType(type) != null && festival.findTicketType(type) != this)
+            throw new TypeTicketException("Un autre type ticket existe avec le même nom");
+        String oldType = this.type;
         this.type = type;
         LOGGER.info("Set TypeTicket.type");
+        if (festival != null) {
+            festival.renamed(this, id, oldType);
+            festival.firePropertyChanged(this, "type", oldType, type);
+        }
     }
 
     /**
@@ -91,6 +112,7 @@ public class TypeTicket implements Serializable {
      * @throws TypeTicketException si la quantité n'est pas positive
      */
     public void setQuantity(int quantity) throws TypeTicketException {
+        checkWritable();
         if (quantity < 0)
             throw new TypeTicketException("La quantité est négative, doit être positive");
         for (Avantage avantage : avantages) {
@@ -98,8 +120,11 @@ public class TypeTicket implements Serializable {
             if (stock.isFixed() && quantity * avantage.getQuantityByTicket() > stock.getQuantity())
                 throw new TypeTicketException("La quantité de ticket multiplé par le nombre d'avantage par ticket surpasse le stock limité");
         }
+        int oldQuantity = this.quantity;
         this.quantity = quantity;
         LOGGER.info("Set TypeTicket.quantity");
+        if (festival != null)
+            festival.firePropertyChanged(this, "quantity", oldQuantity, quantity);
     }
 
     /**
@@ -118,19 +143,23 @@ public class TypeTicket implements Serializable {
      * @throws TypeTicketException si le prix n'est pas positif
      */
     public void setPrice(float price) throws TypeTicketException {
+        checkWritable();
         if (price < 0)
             throw new TypeTicketException("Le prix est négatif, doit être positif");
+        float oldPrice = this.price;
         this.price = price;
         LOGGER.info("Set TypeTicket.price");
+        if (festival != null)
+            festival.firePropertyChanged(this, "price", oldPrice, price);
     }
 
     /**
      * Retourne la liste des avantages associés à ce type de ticket.
      *
-     * @return la liste des avantages
+     * @return la liste des avantages, non modifiable si le type de ticket est la copie d'un instantané
      */
-    public ArrayList<Avantage> getAvantages() {
-        return avantages;
+    public List<Avantage> getAvantages() {
+        return festival != null && festival.isSnapshot() ? Collections.unmodifiableList(avantages) : avantages;
     }
 
     /**
@@ -140,12 +169,15 @@ public class TypeTicket implements Serializable {
      * @throws TypeTicketException si l'avantage est null
      */
     public void addAvantage(Avantage avantage) throws TypeTicketException {
+        checkWritable();
         if (avantage == null)
             throw new TypeTicketException("L'avantage est null, doit être défini");
         if (avantages.contains(avantage))
             return;
         avantages.add(avantage);
         LOGGER.info("Added Avantage to TypeTicket.avantages");
+        if (festival != null)
+            festival.fireElementAdded(this, "avantages", avantages.size() - 1, avantage);
     }
 
     /**
@@ -155,21 +187,30 @@ public class TypeTicket implements Serializable {
      * @throws TypeTicketException si l'avantage n'est pas trouvé dans la liste
      */
     public void removeAvantage(Avantage avantage) throws TypeTicketException {
-        if (!avantages.remove(avantage))
+        checkWritable();
+        int index = avantages.indexOf(avantage);
+        if (index < 0)
             throw new TypeTicketException("L'avantage n'a pas été trouvé");
+        avantages.remove(index);
         LOGGER.info("Removed Avantage from TypeTicket.avantages");
+        if (festival != null)
+            festival.fireElementRemoved(this, "avantages", index, avantage);
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        TypeTicket that = (TypeTicket) o;
-        return quantity == that.quantity && Float.compare(price, that.price) == 0 && Objects.equals(type, that.type) && Objects.equals(avantages, that.avantages);
+    /**
+     * Retourne l'identifiant du type de ticket dans son festival, qui ne change pas quand son type ou son prix sont modifiés.
+     *
+     * @return l'identifiant, 0 si le type de ticket n'a jamais été ajouté à un festival
+     */
+    public long getId() {
+        return id;
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(type, quantity, price, avantages);
+    /**
+     * Vérifie que le type de ticket n'est pas la copie d'un instantané (voir {@link Festival#snapshot()}).
+     */
+    private void checkWritable() throws TypeTicketException {
+        if (festival != null && festival.isSnapshot())
+            throw new TypeTicketException(Festival.READ_ONLY_MESSAGE);
     }
 }
@@ -0,0 +1,45 @@
+package com.musigma.models.exception;
+
+import java.util.List;
+
+/**
+ * La classe ImportException représente l'ensemble des erreurs trouvées lors d'un import,
+ * signalées ensemble plutôt qu'à la première ligne invalide.
+ */
+public class ImportException extends FestivalException {
+    /**
+     * Nombre maximal d'erreurs reprises dans le message, les autres restent disponibles avec {@link #getErrors()}.
+     */
+    public static final int MAX_REPORTED_ERRORS = 20;
+
+    /**
+     * Erreurs de l'import, une par ligne invalide.
+     */
+    private final List<String> errors;
+
+    /**
+     * Constructeur de la classe ImportException.
+     *
+     * @param errors les erreurs de l'import, une par ligne invalide
+     */
+    public ImportException(List<String> errors) {
+        super(summarize(errors));
+        this.errors = List.copyOf(errors);
+    }
+
+    private static String summarize(List<String> errors) {
+        String message = String.join("\n", errors.subList(0, Math.min(errors.size(), MAX_REPORTED_ERRORS)));
+        if (errors.size() > MAX_REPORTED_ERRORS)
+            message += String.format("\n... et %d autres erreurs", errors.size() - MAX_REPORTED_ERRORS);
+        return message;
+    }
+
+    /**
+     * Retourne toutes les erreurs de l'import.
+     *
+     * @return les erreurs, une par ligne invalide
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,203 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.FestivalListener;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Classe utilitaire pour sauvegarder automatiquement un festival après ses modifications.
+ * <p>
+ * Les modifications rapprochées, comme la saisie d'un champ touche après touche, sont regroupées :
+ * la sauvegarde est lancée une fois le festival inchangé pendant le délai de calme,
+ * et au plus tard après le délai maximal depuis la première modification non sauvegardée.
+ * L'attente se fait sur un fil d'exécution dédié ; seule la sauvegarde est lancée dans le fil de l'interface.
+ * Les festivals sans fichier ne sont pas sauvegardés automatiquement.
+ */
+public class AutoSaver implements FestivalListener, AutoCloseable {
+
+    /**
+     * Délai de calme par défaut avant une sauvegarde automatique.
+     */
+    public static final Duration DEFAULT_QUIET_PERIOD = Duration.ofSeconds(2);
+    /**
+     * Délai maximal par défaut entre une modification et sa sauvegarde automatique.
+     */
+    public static final Duration DEFAULT_MAX_LATENCY = Duration.ofSeconds(30);
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(AutoSaver.class);
+    /**
+     * Fil d'exécution qui attend la fin des délais.
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "festival-autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Exécuteur du fil de l'interface, qui modifie le festival.
+     */
+    private final Executor fxExecutor;
+    /**
+     * Sauvegarde à lancer dans le fil de l'interface.
+     */
+    private final Consumer<Festival> save;
+    /**
+     * Festival surveillé.
+     */
+    private volatile Festival festival = null;
+    /**
+     * Durée sans modification avant de sauvegarder (ns).
+     */
+    private long quietPeriod = DEFAULT_QUIET_PERIOD.toNanos();
+    /**
+     * Durée maximale entre une modification et sa sauvegarde (ns).
+     */
+    private long maxLatency = DEFAULT_MAX_LATENCY.toNanos();
+    /**
+     * Si la sauvegarde automatique est active.
+     */
+    private boolean enabled = true;
+    /**
+     * Si une sauvegarde est programmée.
+     */
+    private boolean pending = false;
+    /**
+     * Instants de la première et de la dernière modification non sauvegardées (ns).
+     */
+    private long firstChange, lastChange;
+
+    /**
+     * Constructeur de la classe AutoSaver.
+     *
+     * @param fxExecutor l'exécuteur du fil d'exécution qui modifie le festival, {@code Platform::runLater} pour l'interface
+     * @param save       la sauvegarde à lancer, qui ne doit pas bloquer ce fil d'exécution
+     */
+    public AutoSaver(Executor fxExecutor, Consumer<Festival> save) {
+        this.fxExecutor = fxExecutor;
+        this.save = save;
+    }
+
+    /**
+     * Surveille les modifications d'un festival, à la place du festival surveillé jusqu'ici.
+     *
+     * @param festival le festival à surveiller
+     */
+    public synchronized void watch(Festival festival) {
+        if (this.festival != null)
+            this.festival.removeListener(this);
+        this.festival = festival;
+        pending = false;
+        festival.addListener(this);
+        LOGGER.info(String.format("Watching festival \"%s\" for autosave", festival.getName()));
+    }
+
+    /**
+     * Définit les délais de la sauvegarde automatique.
+     *
+     * @param quietPeriod la durée sans modification avant de sauvegarder
+     * @param maxLatency  la durée maximale entre une modification et sa sauvegarde
+     */
+    public synchronized void setDelays(Duration quietPeriod, Duration maxLatency) {
+        this.quietPeriod = quietPeriod.toNanos();
+        this.maxLatency = Math.max(maxLatency.toNanos(), this.quietPeriod);
+        LOGGER.info(String.format("Set autosave delays to %s, at most %s", quietPeriod, maxLatency));
+    }
+
+    /**
+     * Active ou désactive la sauvegarde automatique.
+     *
+     * @param enabled true pour sauvegarder automatiquement, false sinon
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        pending &= enabled;
+        LOGGER.info(String.format("Set autosave %s", enabled ? "on" : "off"));
+    }
+
+    /**
+     * Indique si la sauvegarde automatique est active.
+     *
+     * @return true si les modifications sont sauvegardées automatiquement, false sinon
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void propertyChanged(Object source, String property, Object oldValue, Object newValue) {
+        changed();
+    }
+
+    @Override
+    public void elementAdded(Object source, String collection, int index, Object element) {
+        changed();
+    }
+
+    @Override
+    public void elementRemoved(Object source, String collection, int index, Object element) {
+        changed();
+    }
+
+    /**
+     * Note une modification et programme la sauvegarde si elle ne l'est pas encore.
+     */
+    private synchronized void changed() {
+        if (!enabled)
+            return;
+        lastChange = System.nanoTime();
+        if (pending)
+            return;
+        pending = true;
+        firstChange = lastChange;
+        schedule(quietPeriod);
+    }
+
+    private void schedule(long delay) {
+        if (!scheduler.isShutdown())
+            scheduler.schedule(this::check, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Lance la sauvegarde si l'un des délais est écoulé, sinon attend le plus proche.
+     * Les modifications survenues pendant l'attente la prolongent sans reprogrammation.
+     */
+    private synchronized void check() {
+        if (!pending)
+            return;
+        long now = System.nanoTime();
+        long remaining = Math.min(lastChange + quietPeriod, firstChange + maxLatency) - now;
+        if (remaining > 0) {
+            schedule(remaining);
+            return;
+        }
+        pending = false;
+        Festival festival = this.festival;
+        fxExecutor.execute(() -> {
+            if (festival != this.festival || festival.getFile() == null)
+                return;
+            LOGGER.info(String.format("Autosaving festival \"%s\"", festival.getName()));
+            save.accept(festival);
+        });
+    }
+
+    /**
+     * Arrête la sauvegarde automatique, sans lancer les sauvegardes programmées.
+     */
+    @Override
+    public synchronized void close() {
+        pending = false;
+        if (festival != null)
+            festival.removeListener(this);
+        scheduler.shutdownNow();
+    }
+}
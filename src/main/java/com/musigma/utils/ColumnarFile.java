@@ -0,0 +1,574 @@
+package com.musigma.utils;
+
+import com.musigma.models.*;
+import com.musigma.models.exception.FestivalException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Fichier d'analyse en colonnes de plusieurs festivals (.mgcol), à projeter en mémoire pour agréger
+ * les valeurs sans analyser de texte.
+ * <p>
+ * Chaque table regroupe les éléments de tous les festivals exportés, dans l'ordre des festivals ;
+ * la colonne {@code festival} donne la ligne du festival dans la table {@code festivals}
+ * et les relations (artiste d'une représentation, type de ticket et stock d'un avantage) sont des numéros de ligne,
+ * -1 si l'élément n'est pas relié. Les dates sont le nombre de secondes depuis le 1er janvier 1970,
+ * l'heure locale du festival étant comptée comme UTC.
+ * <p>
+ * Toutes les valeurs sont en petit-boutiste, le format est :
+ * <pre>
+ * en-tête  : MAGIC (int), VERSION (short), 0 (short), nombre de tables (int), 0 (int)
+ * table    : nom, nombre de lignes (int), nombre de colonnes (short), puis ses colonnes
+ * colonne  : nom, type (byte), position (long), taille (long) des valeurs dans le fichier
+ * valeurs  : alignées sur 8 octets, une valeur de taille fixe par ligne ;
+ *            pour les chaînes, lignes + 1 positions (int) dans les octets UTF-8 qui les suivent
+ * </pre>
+ * Les noms sont écrits comme leur taille (short) suivie de leurs octets UTF-8.
+ */
+public final class ColumnarFile {
+
+    /**
+     * Nombre magique en tête des fichiers en colonnes ("MGCL").
+     */
+    public static final int MAGIC = 0x4D47434C;
+    /**
+     * Version du format écrite par cette classe.
+     */
+    public static final short VERSION = 1;
+    /**
+     * Extension des fichiers en colonnes.
+     */
+    public static final String EXTENSION = ".mgcol";
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(ColumnarFile.class);
+    private static final int HEADER_SIZE = 16;
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * Type des valeurs d'une colonne, avec son code dans le fichier.
+     */
+    public enum Type {
+        INT32(1, 4),
+        INT64(2, 8),
+        FLOAT32(3, 4),
+        FLOAT64(4, 8),
+        BOOL(5, 1),
+        TIMESTAMP(6, 8),
+        UTF8(7, 4);
+
+        private final byte code;
+        private final int width;
+
+        Type(int code, int width) {
+            this.code = (byte) code;
+            this.width = width;
+        }
+
+        private static Type of(byte code) throws FestivalException {
+            for (Type type : values())
+                if (type.code == code)
+                    return type;
+            throw new FestivalException("Le fichier en colonnes est corrompu");
+        }
+    }
+
+    /**
+     * Tables du fichier, par nom, dans l'ordre du fichier.
+     */
+    private final LinkedHashMap<String, Table> tables = new LinkedHashMap<>();
+
+    private ColumnarFile() {
+    }
+
+    /**
+     * Projette un fichier en colonnes en mémoire. Les valeurs sont lues à la demande.
+     *
+     * @param file le fichier en colonnes
+     * @return le fichier ouvert
+     * @throws FestivalException si le fichier ne peut pas être lu ou n'est pas un fichier en colonnes
+     */
+    public static ColumnarFile open(File file) throws FestivalException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new FestivalException("Le fichier en colonnes ne peut pas être lu");
+        }
+        ColumnarFile columnar = new ColumnarFile();
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new FestivalException("Le fichier n'est pas un fichier en colonnes");
+            short version = buffer.getShort();
+            if (version > VERSION)
+                throw new FestivalException(String.format("La version %d du fichier en colonnes n'est pas supportée", version));
+            buffer.getShort();
+            int count = buffer.getInt();
+            buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                Table table = new Table(readName(buffer), buffer.getInt());
+                short columns = buffer.getShort();
+                for (int j = 0; j < columns; j++) {
+                    String name = readName(buffer);
+                    Type type = Type.of(buffer.get());
+                    long position = buffer.getLong(), length = buffer.getLong();
+                    if (position < 0 || length < 0 || position + length > buffer.capacity())
+                        throw new FestivalException("Le fichier en colonnes est corrompu");
+                    ByteBuffer values = buffer.duplicate().position((int) position).limit((int) (position + length)).slice().order(ByteOrder.LITTLE_ENDIAN);
+                    table.columns.put(name, new Column(name, type, table.rows, values));
+                }
+                columnar.tables.put(table.name, table);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new FestivalException("Le fichier en colonnes est corrompu");
+        }
+        return columnar;
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Retourne les noms des tables du fichier.
+     *
+     * @return les noms des tables, dans l'ordre du fichier
+     */
+    public Set<String> getTables() {
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    /**
+     * Retourne une table du fichier.
+     *
+     * @param name le nom de la table
+     * @return la table
+     * @throws IllegalArgumentException si le fichier n'a pas de table de ce nom
+     */
+    public Table getTable(String name) {
+        Table table = tables.get(name);
+        if (table == null)
+            throw new IllegalArgumentException(String.format("No table %s in columnar file", name));
+        return table;
+    }
+
+    /**
+     * Écrit des festivals dans un fichier en colonnes.
+     * Les festivals sont entièrement décodés avant l'écriture.
+     *
+     * @param festivals les festivals à exporter
+     * @param file      le fichier en colonnes
+     * @throws FestivalException si un festival ne peut pas être décodé ou si le fichier ne peut pas être écrit
+     */
+    public static void write(List<Festival> festivals, File file) throws FestivalException {
+        TableBuilder festivalTable = new TableBuilder("festivals");
+        ColumnBuilder festivalName = festivalTable.column("name", Type.UTF8),
+                festivalLocation = festivalTable.column("location", Type.UTF8),
+                festivalStart = festivalTable.column("start", Type.TIMESTAMP),
+                festivalLocationPrice = festivalTable.column("locationPrice", Type.FLOAT32),
+                festivalArea = festivalTable.column("area", Type.FLOAT32);
+        TableBuilder artisteTable = new TableBuilder("artistes");
+        ColumnBuilder artisteFestival = artisteTable.column("festival", Type.INT32),
+                artisteName = artisteTable.column("name", Type.UTF8),
+                artisteGenre = artisteTable.column("genre", Type.UTF8),
+                artistePrice = artisteTable.column("price", Type.FLOAT32);
+        TableBuilder representationTable = new TableBuilder("representations");
+        ColumnBuilder representationFestival = representationTable.column("festival", Type.INT32),
+                representationScene = representationTable.column("scene", Type.UTF8),
+                representationArtiste = representationTable.column("artiste", Type.INT32),
+                representationStart = representationTable.column("start", Type.TIMESTAMP),
+                representationDuration = representationTable.column("duration", Type.INT32);
+        TableBuilder stockTable = new TableBuilder("stocks");
+        ColumnBuilder stockFestival = stockTable.column("festival", Type.INT32),
+                stockName = stockTable.column("name", Type.UTF8),
+                stockQuantity = stockTable.column("quantity", Type.INT32),
+                stockPrice = stockTable.column("price", Type.FLOAT64),
+                stockFixed = stockTable.column("fixed", Type.BOOL);
+        TableBuilder ticketTypeTable = new TableBuilder("ticketTypes");
+        ColumnBuilder ticketTypeFestival = ticketTypeTable.column("festival", Type.INT32),
+                ticketTypeType = ticketTypeTable.column("type", Type.UTF8),
+                ticketTypePrice = ticketTypeTable.column("price", Type.FLOAT32),
+                ticketTypeQuantity = ticketTypeTable.column("quantity", Type.INT32);
+        TableBuilder avantageTable = new TableBuilder("avantages");
+        ColumnBuilder avantageFestival = avantageTable.column("festival", Type.INT32),
+                avantageTicketType = avantageTable.column("ticketType", Type.INT32),
+                avantageStock = avantageTable.column("stock", Type.INT32),
+                avantageQuantity = avantageTable.column("quantityByTicket", Type.INT32);
+
+        for (Festival festival : festivals) {
+            festival.materialize();
+            int row = festivalTable.rows++;
+            festivalName.putString(festival.getName());
+            festivalLocation.putString(festival.getLocation());
+            festivalStart.putTimestamp(festival.getStart());
+            festivalLocationPrice.putFloat(festival.getLocationPrice());
+            festivalArea.putFloat(festival.getArea());
+
+            IdentityHashMap<Artiste, Integer> artistes = new IdentityHashMap<>();
+            for (Artiste artiste : festival.getArtistes()) {
+                artistes.put(artiste, artisteTable.rows++);
+                artisteFestival.putInt(row);
+                artisteName.putString(artiste.getName());
+                artisteGenre.putString(artiste.getGenre());
+                artistePrice.putFloat(artiste.getPrice());
+            }
+            for (Representation representation : festival.getRepresentations()) {
+                representationTable.rows++;
+                representationFestival.putInt(row);
+                representationScene.putString(representation.getScene());
+                representationArtiste.putInt(artistes.getOrDefault(representation.getArtiste(), -1));
+                representationStart.putTimestamp(festival.getStart().plusMinutes(representation.getStartDelta()));
+                representationDuration.putInt(representation.getDuration());
+            }
+            IdentityHashMap<Stock, Integer> stocks = new IdentityHashMap<>();
+            for (Stock stock : festival.getStocks()) {
+                stocks.put(stock, stockTable.rows++);
+                stockFestival.putInt(row);
+                stockName.putString(stock.getName());
+                stockQuantity.putInt(stock.getQuantity());
+                stockPrice.putDouble(stock.getPrix());
+                stockFixed.putBoolean(stock.isFixed());
+            }
+            for (TypeTicket ticketType : festival.getTicketTypes()) {
+                int ticketTypeRow = ticketTypeTable.rows++;
+                ticketTypeFestival.putInt(row);
+                ticketTypeType.putString(ticketType.getType());
+                ticketTypePrice.putFloat(ticketType.getPrice());
+                ticketTypeQuantity.putInt(ticketType.getQuantity());
+                for (Avantage avantage : ticketType.getAvantages()) {
+                    avantageTable.rows++;
+                    avantageFestival.putInt(row);
+                    avantageTicketType.putInt(ticketTypeRow);
+                    avantageStock.putInt(stocks.getOrDefault(avantage.getStock(), -1));
+                    avantageQuantity.putInt(avantage.getQuantityByTicket());
+                }
+            }
+        }
+
+        List<TableBuilder> tables = List.of(festivalTable, artisteTable, representationTable, stockTable, ticketTypeTable, avantageTable);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(tables, channel);
+        } catch (IOException e) {
+            throw new FestivalException(String.format("Le fichier d'export %s ne peut pas être écrit", file.getName()));
+        }
+        LOGGER.info(String.format("Exported %d festivals to columnar file %s", festivals.size(), file.getName()));
+    }
+
+    /**
+     * Écrit l'en-tête, le répertoire des tables puis les valeurs de chaque colonne, alignées sur 8 octets.
+     */
+    private static void write(List<TableBuilder> tables, FileChannel channel) throws IOException {
+        int directorySize = HEADER_SIZE;
+        for (TableBuilder table : tables) {
+            directorySize += nameSize(table.name) + Integer.BYTES + Short.BYTES;
+            for (ColumnBuilder column : table.columns)
+                directorySize += nameSize(column.name) + 1 + 2 * Long.BYTES;
+        }
+        ByteBuffer directory = ByteBuffer.allocate(directorySize).order(ByteOrder.LITTLE_ENDIAN);
+        directory.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(tables.size()).putInt(0);
+        long position = align(directorySize);
+        for (TableBuilder table : tables) {
+            putName(directory, table.name);
+            directory.putInt(table.rows).putShort((short) table.columns.size());
+            for (ColumnBuilder column : table.columns) {
+                putName(directory, column.name);
+                directory.put(column.type.code).putLong(position).putLong(column.size());
+                position = align(position + column.size());
+            }
+        }
+        directory.flip();
+        ByteBuffer padding = ByteBuffer.allocate(ALIGNMENT);
+        write(channel, directory);
+        for (TableBuilder table : tables)
+            for (ColumnBuilder column : table.columns) {
+                pad(channel, padding);
+                write(channel, column.values.flip());
+                if (column.data != null)
+                    write(channel, column.data.flip());
+            }
+        pad(channel, padding);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static void pad(FileChannel channel, ByteBuffer padding) throws IOException {
+        padding.clear().limit((int) (align(channel.position()) - channel.position()));
+        write(channel, padding);
+    }
+
+    private static long align(long position) {
+        return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static int nameSize(String name) {
+        return Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void putName(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Table d'un fichier en colonnes.
+     */
+    public static final class Table {
+        private final String name;
+        private final int rows;
+        private final LinkedHashMap<String, Column> columns = new LinkedHashMap<>();
+
+        private Table(String name, int rows) {
+            this.name = name;
+            this.rows = rows;
+        }
+
+        /**
+         * Retourne le nom de la table.
+         *
+         * @return le nom de la table
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retourne le nombre de lignes de la table.
+         *
+         * @return le nombre de lignes
+         */
+        public int getRowCount() {
+            return rows;
+        }
+
+        /**
+         * Retourne les noms des colonnes de la table.
+         *
+         * @return les noms des colonnes, dans l'ordre du fichier
+         */
+        public Set<String> getColumns() {
+            return Collections.unmodifiableSet(columns.keySet());
+        }
+
+        /**
+         * Retourne une colonne de la table.
+         *
+         * @param name le nom de la colonne
+         * @return la colonne
+         * @throws IllegalArgumentException si la table n'a pas de colonne de ce nom
+         */
+        public Column getColumn(String name) {
+            Column column = columns.get(name);
+            if (column == null)
+                throw new IllegalArgumentException(String.format("No column %s in table %s", name, this.name));
+            return column;
+        }
+    }
+
+    /**
+     * Colonne d'un fichier en colonnes, dont les valeurs sont lues directement dans le fichier projeté.
+     */
+    public static final class Column {
+        private final String name;
+        private final Type type;
+        private final int rows;
+        private final ByteBuffer values;
+
+        private Column(String name, Type type, int rows, ByteBuffer values) throws FestivalException {
+            if (values.capacity() < (long) type.width * (type == Type.UTF8 ? rows + 1 : rows))
+                throw new FestivalException("Le fichier en colonnes est corrompu");
+            this.name = name;
+            this.type = type;
+            this.rows = rows;
+            this.values = values;
+        }
+
+        /**
+         * Retourne le nom de la colonne.
+         *
+         * @return le nom de la colonne
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retourne le type des valeurs de la colonne.
+         *
+         * @return le type des valeurs
+         */
+        public Type getType() {
+            return type;
+        }
+
+        private int index(Type expected, int row) {
+            if (type != expected)
+                throw new IllegalStateException(String.format("Column %s is %s, not %s", name, type, expected));
+            return Objects.checkIndex(row, rows) * type.width;
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne INT32.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public int getInt(int row) {
+            return values.getInt(index(Type.INT32, row));
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne INT64.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public long getLong(int row) {
+            return values.getLong(index(Type.INT64, row));
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne FLOAT32.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public float getFloat(int row) {
+            return values.getFloat(index(Type.FLOAT32, row));
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne FLOAT64.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public double getDouble(int row) {
+            return values.getDouble(index(Type.FLOAT64, row));
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne BOOL.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public boolean getBoolean(int row) {
+            return values.get(index(Type.BOOL, row)) != 0;
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne TIMESTAMP.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public LocalDateTime getTimestamp(int row) {
+            return LocalDateTime.ofEpochSecond(values.getLong(index(Type.TIMESTAMP, row)), 0, ZoneOffset.UTC);
+        }
+
+        /**
+         * Retourne la valeur d'une ligne d'une colonne UTF8.
+         *
+         * @param row le numéro de la ligne
+         * @return la valeur de la ligne
+         */
+        public String getString(int row) {
+            int index = index(Type.UTF8, row), data = (rows + 1) * Integer.BYTES;
+            int start = values.getInt(index), end = values.getInt(index + Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            values.duplicate().position(data + start).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class TableBuilder {
+        private final String name;
+        private final List<ColumnBuilder> columns = new ArrayList<>();
+        private int rows = 0;
+
+        private TableBuilder(String name) {
+            this.name = name;
+        }
+
+        private ColumnBuilder column(String name, Type type) {
+            ColumnBuilder column = new ColumnBuilder(name, type);
+            columns.add(column);
+            return column;
+        }
+    }
+
+    /**
+     * Valeurs d'une colonne en cours d'écriture ; pour les chaînes, les positions puis les octets UTF-8.
+     */
+    private static final class ColumnBuilder {
+        private final String name;
+        private final Type type;
+        private ByteBuffer values;
+        private ByteBuffer data;
+
+        private ColumnBuilder(String name, Type type) {
+            this.name = name;
+            this.type = type;
+            values = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+            if (type == Type.UTF8) {
+                data = ByteBuffer.allocate(256);
+                values.putInt(0);
+            }
+        }
+
+        private long size() {
+            return values.position() + (data == null ? 0 : data.position());
+        }
+
+        private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+            if (buffer.remaining() >= bytes)
+                return buffer;
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes)).order(buffer.order());
+            return grown.put(buffer.flip());
+        }
+
+        private void putInt(int value) {
+            values = ensure(values, Integer.BYTES).putInt(value);
+        }
+
+        private void putFloat(float value) {
+            values = ensure(values, Float.BYTES).putFloat(value);
+        }
+
+        private void putDouble(double value) {
+            values = ensure(values, Double.BYTES).putDouble(value);
+        }
+
+        private void putBoolean(boolean value) {
+            values = ensure(values, 1).put((byte) (value ? 1 : 0));
+        }
+
+        private void putTimestamp(LocalDateTime value) {
+            values = ensure(values, Long.BYTES).putLong(value.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        private void putString(String value) {
+            byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            data = ensure(data, bytes.length).put(bytes);
+            putInt(data.position());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.musigma.utils;
+
+import com.musigma.models.*;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Classe utilitaire pour garder en mémoire les festivals récemment fermés,
+ * afin de les rouvrir instantanément depuis les fichiers récents.
+ * <p>
+ * Le cache est borné en nombre de festivals et en taille estimée (voir {@link #estimateSize(Festival)}) :
+ * les festivals utilisés le moins récemment sont retirés en premier.
+ * Chaque festival est gardé avec l'empreinte de son fichier (voir {@link FileStamp}) ;
+ * il est ignoré si le fichier a été modifié depuis.
+ * <p>
+ * Un festival rouvert est retiré du cache : il ne doit y être remis qu'une fois fermé,
+ * sans modifications non sauvegardées.
+ */
+public class FestivalCache {
+
+    /**
+     * Taille estimée d'un élément du festival (octets), hors chaînes de caractères.
+     */
+    private static final int ELEMENT_SIZE = 96;
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(FestivalCache.class);
+    /**
+     * Nombre maximal de festivals gardés.
+     */
+    private final int maxEntries;
+    /**
+     * Taille estimée maximale des festivals gardés (octets).
+     */
+    private final long maxSize;
+    /**
+     * Festivals gardés par fichier, du moins récemment utilisé au plus récemment utilisé.
+     */
+    private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Taille estimée des festivals gardés (octets).
+     */
+    private long size = 0;
+
+    /**
+     * Constructeur de la classe FestivalCache.
+     *
+     * @param maxEntries le nombre maximal de festivals gardés
+     * @param maxSize    la taille estimée maximale des festivals gardés, en octets
+     */
+    public FestivalCache(int maxEntries, long maxSize) {
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Garde un festival fermé, identifié par son fichier.
+     * Seuls les festivals entièrement chargés et identiques à leur fichier doivent y être mis.
+     * Les festivals utilisés le moins récemment sont retirés si le cache dépasse ses bornes.
+     *
+     * @param festival le festival fermé
+     */
+    public synchronized void put(Festival festival) {
+        File file = festival.getFile();
+        if (file == null || !festival.isMaterialized())
+            return;
+        FileStamp stamp = FileStamp.of(file);
+        if (stamp.isMissing())
+            return;
+        remove(file);
+        Entry entry = new Entry(festival, stamp, estimateSize(festival));
+        if (entry.size > maxSize) {
+            LOGGER.info(String.format("Festival \"%s\" is too large to be cached", festival.getName()));
+            return;
+        }
+        entries.put(file, entry);
+        size += entry.size;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || size > maxSize) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            size -= evicted.size;
+            LOGGER.info(String.format("Evicted festival \"%s\" from cache", evicted.festival.getName()));
+        }
+        LOGGER.info(String.format("Cached festival \"%s\" (%d bytes estimated)", festival.getName(), entry.size));
+    }
+
+    /**
+     * Retire du cache le festival d'un fichier pour le rouvrir.
+     *
+     * @param file le fichier du festival
+     * @return le festival gardé, ou null s'il n'est pas dans le cache ou si son fichier a été modifié depuis
+     */
+    public synchronized Festival take(File file) {
+        Entry entry = remove(file);
+        if (entry == null)
+            return null;
+        if (!entry.stamp.equals(FileStamp.of(file))) {
+            LOGGER.info(String.format("Cached festival \"%s\" is outdated by its file", entry.festival.getName()));
+            return null;
+        }
+        LOGGER.info(String.format("Reopened festival \"%s\" from cache", entry.festival.getName()));
+        return entry.festival;
+    }
+
+    /**
+     * Retire du cache le festival d'un fichier, par exemple s'il est remplacé par un autre festival.
+     *
+     * @param file le fichier du festival
+     */
+    public synchronized void invalidate(File file) {
+        remove(file);
+    }
+
+    private Entry remove(File file) {
+        Entry entry = entries.remove(file);
+        if (entry != null)
+            size -= entry.size;
+        return entry;
+    }
+
+    /**
+     * Retourne le nombre de festivals gardés.
+     *
+     * @return le nombre de festivals dans le cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Retourne la taille estimée des festivals gardés.
+     *
+     * @return la taille en octets
+     */
+    public synchronized long getRetainedSize() {
+        return size;
+    }
+
+    /**
+     * Estime la mémoire retenue par un festival chargé : un coût fixe par élément,
+     * auquel s'ajoute la taille de ses chaînes de caractères.
+     *
+     * @param festival le festival entièrement chargé
+     * @return la taille estimée en octets
+     */
+    public static long estimateSize(Festival festival) {
+        long size = ELEMENT_SIZE + chars(festival.getName()) + chars(festival.getLocation());
+        for (Artiste artiste : festival.getArtistes())
+            size += ELEMENT_SIZE + chars(artiste.getName()) + chars(artiste.getGenre());
+        for (Representation representation : festival.getRepresentations())
+            size += ELEMENT_SIZE + chars(representation.getScene());
+        for (Stock stock : festival.getStocks())
+            size += ELEMENT_SIZE + chars(stock.getName()) + (long) ELEMENT_SIZE * stock.getAvantages().size();
+        for (TypeTicket ticketType : festival.getTicketTypes())
+            size += ELEMENT_SIZE + chars(ticketType.getType());
+        return size;
+    }
+
+    private static long chars(String string) {
+        return string == null ? 0 : 40 + string.length() * 2L;
+    }
+
+    /**
+     * Festival gardé, avec l'empreinte de son fichier et sa taille estimée.
+     */
+    private static final class Entry {
+        private final Festival festival;
+        private final FileStamp stamp;
+        private final long size;
+
+        private Entry(Festival festival, FileStamp stamp, long size) {
+            this.festival = festival;
+            this.stamp = stamp;
+            this.size = size;
+        }
+    }
+}
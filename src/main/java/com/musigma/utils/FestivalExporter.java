@@ -0,0 +1,516 @@
+package com.musigma.utils;
+
+import com.musigma.models.*;
+import com.musigma.models.exception.FestivalException;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Classe utilitaire pour exporter les données d'un festival en CSV, en JSON ou en colonnes (voir {@link ColumnarFile}),
+ * depuis l'interface ou en ligne de commande (voir {@link #run}).
+ * <p>
+ * Les lignes sont écrites au fil du parcours des collections du festival, à travers un tampon de taille fixe
+ * vidé dans le canal du fichier : la mémoire utilisée ne dépend pas de la taille du festival.
+ * Les représentations sont exportées avec leurs dates absolues de début et de fin,
+ * calculées à partir du début du festival.
+ * <p>
+ * Un export JSON est un unique document contenant toutes les tables ;
+ * un export CSV écrit une table par fichier, à côté du fichier demandé (voir {@link #csvFile}).
+ */
+public class FestivalExporter {
+
+    /**
+     * Taille du tampon d'écriture (caractères).
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(FestivalExporter.class);
+
+    /**
+     * Format d'export, déterminé par l'extension du fichier.
+     */
+    public enum Format {
+        CSV(".csv"),
+        JSON(".json"),
+        COLUMNS(ColumnarFile.EXTENSION);
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * Retourne l'extension des fichiers de ce format.
+         *
+         * @return l'extension, point compris
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Retourne le format d'un fichier d'après son extension.
+         *
+         * @param file le fichier d'export
+         * @return le format du fichier
+         * @throws FestivalException si l'extension ne correspond à aucun format
+         */
+        public static Format of(File file) throws FestivalException {
+            String name = file.getName().toLowerCase();
+            for (Format format : values())
+                if (name.endsWith(format.extension))
+                    return format;
+            throw new FestivalException("Le fichier d'export doit avoir l'extension .csv, .json ou .mgcol");
+        }
+    }
+
+    /**
+     * Table exportée, avec ses colonnes et le parcours de ses lignes dans le festival.
+     */
+    public enum Table {
+        ARTISTES("artistes", "name", "genre", "price") {
+            @Override
+            void write(Festival festival, Rows rows) throws IOException {
+                for (Artiste artiste : festival.getArtistes()) {
+                    rows.begin();
+                    rows.text(artiste.getName());
+                    rows.text(artiste.getGenre());
+                    rows.number(artiste.getPrice());
+                    rows.end();
+                }
+            }
+        },
+        REPRESENTATIONS("representations", "scene", "artiste", "start", "end", "duration") {
+            @Override
+            void write(Festival festival, Rows rows) throws IOException {
+                LocalDateTime start = festival.getStart();
+                for (Representation representation : festival.getRepresentations()) {
+                    LocalDateTime begin = start.plusMinutes(representation.getStartDelta());
+                    Artiste artiste = representation.getArtiste();
+                    rows.begin();
+                    rows.text(representation.getScene());
+                    rows.text(artiste == null ? null : artiste.getName());
+                    rows.text(begin.toString());
+                    rows.text(begin.plusMinutes(representation.getDuration()).toString());
+                    rows.number(representation.getDuration());
+                    rows.end();
+                }
+            }
+        },
+        STOCKS("stocks", "name", "quantity", "fixed", "price") {
+            @Override
+            void write(Festival festival, Rows rows) throws IOException {
+                for (Stock stock : festival.getStocks()) {
+                    rows.begin();
+                    rows.text(stock.getName());
+                    rows.number(stock.getQuantity());
+                    rows.bool(stock.isFixed());
+                    rows.number(stock.getPrix());
+                    rows.end();
+                }
+            }
+        },
+        TICKET_TYPES("ticketTypes", "type", "quantity", "price") {
+            @Override
+            void write(Festival festival, Rows rows) throws IOException {
+                for (TypeTicket ticketType : festival.getTicketTypes()) {
+                    rows.begin();
+                    rows.text(ticketType.getType());
+                    rows.number(ticketType.getQuantity());
+                    rows.number(ticketType.getPrice());
+                    rows.end();
+                }
+            }
+        },
+        AVANTAGES("avantages", "ticketType", "stock", "quantityByTicket") {
+            @Override
+            void write(Festival festival, Rows rows) throws IOException {
+                for (TypeTicket ticketType : festival.getTicketTypes())
+                    for (Avantage avantage : ticketType.getAvantages()) {
+                        rows.begin();
+                        rows.text(ticketType.getType());
+                        rows.text(avantage.getStock().getName());
+                        rows.number(avantage.getQuantityByTicket());
+                        rows.end();
+                    }
+            }
+        };
+
+        private final String name;
+        private final String[] columns;
+
+        Table(String name, String... columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        /**
+         * Retourne le nom de la table, utilisé comme clé JSON et suffixe des fichiers CSV.
+         *
+         * @return le nom de la table
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Retourne les colonnes de la table, dans l'ordre de l'export.
+         *
+         * @return les noms des colonnes
+         */
+        String[] columns() {
+            return columns;
+        }
+
+        /**
+         * Écrit les lignes de la table dans l'ordre du festival.
+         *
+         * @param festival le festival exporté
+         * @param rows     la destination des lignes
+         * @throws IOException si l'écriture échoue
+         */
+        abstract void write(Festival festival, Rows rows) throws IOException;
+    }
+
+    /**
+     * Exporte un festival dans un fichier, au format donné par son extension.
+     * Le festival est entièrement décodé avant l'export.
+     *
+     * @param festival le festival à exporter
+     * @param target   le fichier d'export (.csv, .json ou .mgcol)
+     * @return les fichiers écrits : le fichier demandé en JSON et en colonnes, un fichier par table en CSV
+     * @throws FestivalException si le format n'est pas reconnu ou si un fichier ne peut pas être écrit
+     */
+    public static List<File> export(Festival festival, File target) throws FestivalException {
+        Format format = Format.of(target);
+        if (format == Format.COLUMNS) {
+            ColumnarFile.write(List.of(festival), target);
+            return List.of(target);
+        }
+        festival.materialize();
+        List<File> files = new ArrayList<>();
+        try {
+            if (format == Format.JSON) {
+                try (FileChannel channel = open(target)) {
+                    writeJson(festival, channel);
+                }
+                files.add(target);
+            } else for (Table table : Table.values()) {
+                File file = csvFile(target, table);
+                try (FileChannel channel = open(file)) {
+                    writeCsv(festival, table, channel);
+                }
+                files.add(file);
+            }
+        } catch (IOException e) {
+            throw new FestivalException(String.format("Le fichier d'export %s ne peut pas être écrit", target.getName()));
+        }
+        LOGGER.info(String.format("Exported festival \"%s\" to %d %s files", festival.getName(), files.size(), format));
+        return files;
+    }
+
+    /**
+     * Retourne le fichier CSV d'une table : le nom du fichier demandé suivi du nom de la table,
+     * par exemple {@code festival-artistes.csv} pour {@code festival.csv}.
+     *
+     * @param target le fichier d'export demandé
+     * @param table  la table exportée
+     * @return le fichier de la table
+     */
+    public static File csvFile(File target, Table table) {
+        String name = target.getName();
+        String base = name.toLowerCase().endsWith(Format.CSV.extension) ? name.substring(0, name.length() - Format.CSV.extension.length()) : name;
+        return new File(target.getAbsoluteFile().getParentFile(), String.format("%s-%s%s", base, table.name, Format.CSV.extension));
+    }
+
+    private static FileChannel open(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Écrit une table du festival en CSV (RFC 4180) : une ligne d'en-tête puis une ligne par élément.
+     * Le canal n'est pas fermé.
+     *
+     * @param festival le festival entièrement décodé
+     * @param table    la table à écrire
+     * @param channel  le canal de destination
+     * @throws IOException si l'écriture échoue
+     */
+    public static void writeCsv(Festival festival, Table table, WritableByteChannel channel) throws IOException {
+        Writer writer = writer(channel);
+        CsvRows rows = new CsvRows(writer);
+        rows.begin();
+        for (String column : table.columns)
+            rows.text(column);
+        rows.end();
+        table.write(festival, rows);
+        writer.flush();
+    }
+
+    /**
+     * Écrit le festival en JSON : ses attributs puis un tableau d'objets par table.
+     * Le canal n'est pas fermé.
+     *
+     * @param festival le festival entièrement décodé
+     * @param channel  le canal de destination
+     * @throws IOException si l'écriture échoue
+     */
+    public static void writeJson(Festival festival, WritableByteChannel channel) throws IOException {
+        Writer writer = writer(channel);
+        writer.write("{\n  \"name\": ");
+        JsonRows.string(writer, festival.getName());
+        writer.write(",\n  \"location\": ");
+        JsonRows.string(writer, festival.getLocation());
+        writer.write(",\n  \"start\": ");
+        JsonRows.string(writer, festival.getStart().toString());
+        writer.write(",\n  \"locationPrice\": ");
+        writer.write(Rows.trim(Float.toString(festival.getLocationPrice())));
+        writer.write(",\n  \"area\": ");
+        writer.write(Rows.trim(Float.toString(festival.getArea())));
+        for (Table table : Table.values()) {
+            writer.write(",\n  \"");
+            writer.write(table.name);
+            writer.write("\": [");
+            JsonRows rows = new JsonRows(writer, table.columns);
+            table.write(festival, rows);
+            writer.write(rows.count == 0 ? "]" : "\n  ]");
+        }
+        writer.write("\n}\n");
+        writer.flush();
+    }
+
+    private static Writer writer(WritableByteChannel channel) {
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+    }
+
+    /**
+     * Exporte des festivals en ligne de commande : {@code --export <festival>... <export.csv|export.json|export.mgcol>}.
+     * Seul l'export en colonnes accepte plusieurs festivals.
+     *
+     * @param args   les fichiers des festivals puis le fichier d'export
+     * @param out    la sortie des fichiers écrits
+     * @param err    la sortie des erreurs
+     * @return le code de sortie : 0 en cas de succès, 1 si l'export échoue, 2 si les arguments sont invalides
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length < 2) {
+            err.println("Usage : --export <fichier du festival>... <fichier d'export .csv, .json ou .mgcol>");
+            return 2;
+        }
+        File target = new File(args[args.length - 1]);
+        try {
+            if (args.length > 2 && Format.of(target) != Format.COLUMNS) {
+                err.println("Seul l'export en colonnes (.mgcol) accepte plusieurs festivals");
+                return 2;
+            }
+            List<Festival> festivals = new ArrayList<>();
+            for (int i = 0; i < args.length - 1; i++)
+                festivals.add(Festival.Festival(new File(args[i])));
+            List<File> files;
+            if (festivals.size() == 1)
+                files = export(festivals.get(0), target);
+            else {
+                ColumnarFile.write(festivals, target);
+                files = List.of(target);
+            }
+            for (File file : files)
+                out.println(file.getPath());
+            return 0;
+        } catch (FestivalException e) {
+            err.println("Export du festival impossible : " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Destination des lignes d'une table, cellule par cellule.
+     */
+    abstract static class Rows {
+        abstract void begin() throws IOException;
+
+        abstract void text(String value) throws IOException;
+
+        /**
+         * Écrit une cellule sans guillemets : nombre, booléen, ou valeur absente si null.
+         */
+        abstract void literal(String value) throws IOException;
+
+        abstract void end() throws IOException;
+
+        void number(int value) throws IOException {
+            literal(Integer.toString(value));
+        }
+
+        void number(float value) throws IOException {
+            literal(Float.isFinite(value) ? trim(Float.toString(value)) : null);
+        }
+
+        void number(double value) throws IOException {
+            literal(Double.isFinite(value) ? trim(Double.toString(value)) : null);
+        }
+
+        void bool(boolean value) throws IOException {
+            literal(Boolean.toString(value));
+        }
+
+        /**
+         * Retire la partie décimale nulle d'un nombre : {@code 60} plutôt que {@code 60.0}.
+         */
+        static String trim(String number) {
+            return number.endsWith(".0") ? number.substring(0, number.length() - 2) : number;
+        }
+    }
+
+    /**
+     * Lignes CSV, séparées par CRLF ; les cellules contenant un séparateur, un guillemet ou un retour à la ligne
+     * sont entourées de guillemets.
+     */
+    private static final class CsvRows extends Rows {
+        private final Writer writer;
+        private boolean first;
+
+        private CsvRows(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        void begin() {
+            first = true;
+        }
+
+        private void separate() throws IOException {
+            if (!first)
+                writer.write(',');
+            first = false;
+        }
+
+        @Override
+        void text(String value) throws IOException {
+            separate();
+            if (value == null)
+                return;
+            boolean quoted = false;
+            for (int i = 0; i < value.length() && !quoted; i++) {
+                char c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quoted) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"')
+                    writer.write('"');
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+
+        @Override
+        void literal(String value) throws IOException {
+            separate();
+            if (value != null)
+                writer.write(value);
+        }
+
+        @Override
+        void end() throws IOException {
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * Lignes JSON, un objet par ligne dont les clés sont les colonnes de la table.
+     */
+    private static final class JsonRows extends Rows {
+        private final Writer writer;
+        private final String[] columns;
+        private int column;
+        private int count = 0;
+
+        private JsonRows(Writer writer, String[] columns) {
+            this.writer = writer;
+            this.columns = columns;
+        }
+
+        @Override
+        void begin() throws IOException {
+            writer.write(count++ == 0 ? "\n    {" : ",\n    {");
+            column = 0;
+        }
+
+        private void key() throws IOException {
+            if (column > 0)
+                writer.write(", ");
+            writer.write('"');
+            writer.write(columns[column++]);
+            writer.write("\": ");
+        }
+
+        @Override
+        void text(String value) throws IOException {
+            key();
+            string(writer, value);
+        }
+
+        @Override
+        void literal(String value) throws IOException {
+            key();
+            writer.write(value == null ? "null" : value);
+        }
+
+        @Override
+        void end() throws IOException {
+            writer.write('}');
+        }
+
+        private static void string(Writer writer, String value) throws IOException {
+            if (value == null) {
+                writer.write("null");
+                return;
+            }
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20)
+                            writer.write(String.format("\\u%04x", (int) c));
+                        else
+                            writer.write(c);
+                }
+            }
+            writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.musigma.utils;
+
+import com.musigma.models.Artiste;
+import com.musigma.models.Festival;
+import com.musigma.models.Stock;
+import com.musigma.models.TypeTicket;
+import com.musigma.models.exception.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Classe utilitaire pour importer en masse les artistes, stocks et types de tickets d'un festival depuis des fichiers CSV,
+ * au format des tables de {@link FestivalExporter}.
+ * <p>
+ * La table de chaque fichier est reconnue à sa ligne d'en-tête ; l'ordre des colonnes est libre
+ * et les colonnes inconnues sont ignorées. Les fichiers sont lus ligne par ligne et toutes les lignes sont validées
+ * avant de modifier le festival : les noms en double, dans les fichiers ou avec le festival, sont détectés en un seul passage.
+ * Toutes les erreurs sont signalées ensemble (voir {@link ImportException}) ; s'il y en a, rien n'est importé.
+ */
+public class FestivalImporter {
+
+    /**
+     * Tables pouvant être importées, dans l'ordre où les en-têtes sont reconnus.
+     */
+    private static final FestivalExporter.Table[] TABLES = {
+            FestivalExporter.Table.ARTISTES,
+            FestivalExporter.Table.STOCKS,
+            FestivalExporter.Table.TICKET_TYPES
+    };
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(FestivalImporter.class);
+
+    /**
+     * Erreurs trouvées dans les fichiers lus.
+     */
+    private final List<String> errors = new ArrayList<>();
+    private final List<Artiste> artistes = new ArrayList<>();
+    private final List<Stock> stocks = new ArrayList<>();
+    private final List<TypeTicket> ticketTypes = new ArrayList<>();
+    /**
+     * Noms des stocks et des types de tickets déjà pris, dans le festival ou par les lignes lues.
+     */
+    private final HashSet<String> stockNames = new HashSet<>(), ticketTypeNames = new HashSet<>();
+
+    private FestivalImporter(Festival festival) {
+        for (Stock stock : festival.getStocks())
+            stockNames.add(stock.getName());
+        for (TypeTicket ticketType : festival.getTicketTypes())
+            ticketTypeNames.add(ticketType.getType());
+    }
+
+    /**
+     * Importe des fichiers CSV dans un festival, en une seule fois.
+     *
+     * @param festival le festival à compléter
+     * @param files    les fichiers CSV, chacun contenant une table
+     * @return le nombre d'éléments importés
+     * @throws ImportException   si des lignes sont invalides, aucun élément n'est alors importé
+     * @throws FestivalException si le festival ne peut pas être décodé
+     */
+    public static int importFiles(Festival festival, List<File> files) throws FestivalException {
+        festival.materialize();
+        FestivalImporter importer = new FestivalImporter(festival);
+        for (File file : files)
+            importer.read(file);
+        if (!importer.errors.isEmpty()) {
+            LOGGER.warning(String.format("Import of %d files rejected with %d errors", files.size(), importer.errors.size()));
+            throw new ImportException(importer.errors);
+        }
+        festival.addArtistes(importer.artistes);
+        festival.addStocks(importer.stocks);
+        festival.addTicketTypes(importer.ticketTypes);
+        int count = importer.artistes.size() + importer.stocks.size() + importer.ticketTypes.size();
+        LOGGER.info(String.format("Imported %d elements from %d files into festival \"%s\"", count, files.size(), festival.getName()));
+        return count;
+    }
+
+    /**
+     * Lit un fichier CSV et valide ses lignes, les erreurs sont ajoutées à celles de l'import.
+     *
+     * @param file le fichier CSV
+     */
+    private void read(File file) {
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))) {
+            List<String> header = reader.next();
+            if (header == null) {
+                error(file, reader.line(), "Le fichier est vide");
+                return;
+            }
+            if (!header.isEmpty() && header.get(0).startsWith("\uFEFF"))
+                header.set(0, header.get(0).substring(1));
+            FestivalExporter.Table table = null;
+            int[] indexes = null;
+            for (int i = 0; i < TABLES.length && table == null; i++) {
+                indexes = indexes(header, TABLES[i].columns());
+                if (indexes != null)
+                    table = TABLES[i];
+            }
+            if (table == null) {
+                error(file, reader.line(), "En-tête non reconnu, les colonnes doivent être celles des artistes (name, genre, price), des stocks (name, quantity, fixed, price) ou des types de tickets (type, quantity, price)");
+                return;
+            }
+            int rows = 0;
+            for (List<String> row = reader.next(); row != null; row = reader.next()) {
+                if (row.size() == 1 && row.get(0).isBlank())
+                    continue;
+                rows++;
+                try {
+                    add(table, row, indexes);
+                } catch (ArtisteException | StockException | TypeTicketException | FestivalException e) {
+                    error(file, reader.line(), e.getMessage());
+                }
+            }
+            LOGGER.info(String.format("Read %d %s rows from %s", rows, table.getName(), file.getName()));
+        } catch (IOException e) {
+            error(file, 0, String.format("Le fichier ne peut pas être lu (%s)", e.getMessage()));
+        }
+    }
+
+    /**
+     * Crée l'élément d'une ligne et vérifie que son nom n'est pas déjà pris.
+     */
+    private void add(FestivalExporter.Table table, List<String> row, int[] indexes) throws ArtisteException, StockException, TypeTicketException, FestivalException {
+        switch (table) {
+            case ARTISTES:
+                artistes.add(new Artiste(cell(row, indexes[0]), cell(row, indexes[1]), parseFloat(row, indexes[2], "price")));
+                break;
+            case STOCKS:
+                Stock stock = new Stock(cell(row, indexes[0]), parseInt(row, indexes[1], "quantity"), parseBoolean(row, indexes[2], "fixed"), parseDouble(row, indexes[3], "price"));
+                if (!stockNames.add(stock.getName()))
+                    throw new FestivalException(String.format("Un autre stock existe avec le même nom : %s", stock.getName()));
+                stocks.add(stock);
+                break;
+            default:
+                TypeTicket ticketType = new TypeTicket(cell(row, indexes[0]), parseInt(row, indexes[1], "quantity"), parseFloat(row, indexes[2], "price"));
+                if (!ticketTypeNames.add(ticketType.getType()))
+                    throw new FestivalException(String.format("Un autre type ticket existe avec le même nom : %s", ticketType.getType()));
+                ticketTypes.add(ticketType);
+        }
+    }
+
+    private void error(File file, int line, String message) {
+        errors.add(line > 0 ? String.format("%s, ligne %d : %s", file.getName(), line, message) : String.format("%s : %s", file.getName(), message));
+    }
+
+    /**
+     * Retourne la position des colonnes d'une table dans un en-tête.
+     *
+     * @return les positions dans l'ordre des colonnes, null s'il en manque une
+     */
+    private static int[] indexes(List<String> header, String[] columns) {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = -1;
+            for (int j = 0; j < header.size() && indexes[i] < 0; j++)
+                if (header.get(j).trim().equalsIgnoreCase(columns[i]))
+                    indexes[i] = j;
+            if (indexes[i] < 0)
+                return null;
+        }
+        return indexes;
+    }
+
+    private static String cell(List<String> row, int index) {
+        return index < row.size() ? row.get(index).trim() : "";
+    }
+
+    private static int parseInt(List<String> row, int index, String column) throws FestivalException {
+        try {
+            return Integer.parseInt(cell(row, index));
+        } catch (NumberFormatException e) {
+            throw notANumber(row, index, column);
+        }
+    }
+
+    private static float parseFloat(List<String> row, int index, String column) throws FestivalException {
+        try {
+            return Float.parseFloat(cell(row, index));
+        } catch (NumberFormatException e) {
+            throw notANumber(row, index, column);
+        }
+    }
+
+    private static double parseDouble(List<String> row, int index, String column) throws FestivalException {
+        try {
+            return Double.parseDouble(cell(row, index));
+        } catch (NumberFormatException e) {
+            throw notANumber(row, index, column);
+        }
+    }
+
+    private static boolean parseBoolean(List<String> row, int index, String column) throws FestivalException {
+        String value = cell(row, index);
+        if (value.equalsIgnoreCase("true"))
+            return true;
+        if (value.equalsIgnoreCase("false"))
+            return false;
+        throw new FestivalException(String.format("La valeur \"%s\" de la colonne %s doit être true ou false", value, column));
+    }
+
+    private static FestivalException notANumber(List<String> row, int index, String column) {
+        return new FestivalException(String.format("La valeur \"%s\" de la colonne %s n'est pas un nombre", cell(row, index), column));
+    }
+
+    /**
+     * Lecteur d'enregistrements CSV (RFC 4180) : cellules séparées par des virgules,
+     * entre guillemets si elles contiennent une virgule, un guillemet doublé ou un retour à la ligne.
+     */
+    private static final class CsvReader implements AutoCloseable {
+        private final Reader reader;
+        private final StringBuilder cell = new StringBuilder();
+        private final List<String> record = new ArrayList<>();
+        private int line = 1;
+        private int start = 1;
+
+        private CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Lit l'enregistrement suivant.
+         *
+         * @return les cellules de l'enregistrement, réutilisées à l'appel suivant, ou null à la fin du fichier
+         * @throws IOException si le fichier ne peut pas être lu ou si un guillemet n'est pas fermé
+         */
+        private List<String> next() throws IOException {
+            record.clear();
+            cell.setLength(0);
+            start = line;
+            int c = reader.read();
+            if (c < 0)
+                return null;
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0)
+                        throw new IOException(String.format("Guillemet non fermé à la ligne %d", start));
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next != '"') {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else if (c == '\n')
+                        line++;
+                    cell.append((char) c);
+                } else if (c == '"' && cell.length() == 0)
+                    quoted = true;
+                else if (c == ',') {
+                    record.add(cell.toString());
+                    cell.setLength(0);
+                } else if (c == '\n' || c < 0) {
+                    line++;
+                    record.add(cell.toString());
+                    return record;
+                } else if (c != '\r')
+                    cell.append((char) c);
+                c = reader.read();
+            }
+        }
+
+        /**
+         * Retourne la ligne du fichier où commence le dernier enregistrement lu.
+         *
+         * @return le numéro de ligne, à partir de 1
+         */
+        private int line() {
+            return start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
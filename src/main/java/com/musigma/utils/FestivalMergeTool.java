@@ -0,0 +1,78 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.FestivalChange;
+import com.musigma.models.FestivalMerge;
+import com.musigma.models.FestivalTree;
+import com.musigma.models.exception.FestivalException;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Classe utilitaire pour comparer et fusionner des fichiers de festival en ligne de commande,
+ * sans lancer l'interface (voir {@link FestivalTree} et {@link FestivalMerge}).
+ */
+public class FestivalMergeTool {
+
+    /**
+     * Affiche les modifications entre deux fichiers de festival, une par ligne.
+     * Comme {@code diff}, retourne 0 si les festivals sont identiques, 1 s'ils diffèrent et 2 en cas d'erreur.
+     *
+     * @param args <ancien fichier> <nouveau fichier>
+     * @param out  la sortie des modifications
+     * @param err  la sortie des erreurs
+     * @return le code de sortie
+     */
+    public static int runDiff(String[] args, PrintStream out, PrintStream err) {
+        if (args.length != 2) {
+            err.println("Usage : --diff <ancien fichier du festival> <nouveau fichier du festival>");
+            return 2;
+        }
+        try {
+            FestivalTree before = FestivalTree.of(Festival.Festival(new File(args[0])));
+            FestivalTree after = FestivalTree.of(Festival.Festival(new File(args[1])));
+            List<FestivalChange> changes = before.diff(after);
+            for (FestivalChange change : changes)
+                out.println(change);
+            return changes.isEmpty() ? 0 : 1;
+        } catch (FestivalException e) {
+            err.println("Comparaison des festivals impossible : " + e.getMessage());
+            return 2;
+        }
+    }
+
+    /**
+     * Fusionne deux fichiers de festival modifiés à partir d'un fichier commun et écrit le résultat.
+     * Les conflits sont affichés, résolus en faveur de la version locale ;
+     * retourne 0 si la fusion est automatique, 1 s'il y a eu des conflits et 2 en cas d'erreur.
+     *
+     * @param args <fichier commun> <fichier local> <autre fichier> <fichier fusionné>
+     * @param out  la sortie du fichier écrit
+     * @param err  la sortie des conflits et des erreurs
+     * @return le code de sortie
+     */
+    public static int runMerge(String[] args, PrintStream out, PrintStream err) {
+        if (args.length != 4) {
+            err.println("Usage : --merge <fichier commun> <fichier local> <autre fichier> <fichier fusionné>");
+            return 2;
+        }
+        try {
+            FestivalMerge merge = FestivalMerge.merge(
+                    Festival.Festival(new File(args[0])),
+                    Festival.Festival(new File(args[1])),
+                    Festival.Festival(new File(args[2])));
+            Festival festival = merge.getFestival();
+            festival.setFile(new File(args[3]));
+            festival.compact();
+            for (String conflict : merge.getConflicts())
+                err.println("Conflit : " + conflict);
+            out.println(festival.getFile().getPath());
+            return merge.hasConflicts() ? 1 : 0;
+        } catch (FestivalException e) {
+            err.println("Fusion des festivals impossible : " + e.getMessage());
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.FestivalWrite;
+import com.musigma.models.exception.FestivalException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Classe utilitaire pour sauvegarder les festivals en arrière-plan.
+ * <p>
+ * Chaque sauvegarde est préparée depuis le fil d'exécution qui la demande, celui qui modifie le festival,
+ * puis écrite par un fil d'exécution dédié (voir {@link Festival#prepareSave()}).
+ * Les sauvegardes demandées pendant une écriture sont regroupées en une seule,
+ * préparée une fois l'écriture terminée. Le résultat est transmis à l'exécuteur de rappel,
+ * {@code Platform::runLater} pour l'interface.
+ * <p>
+ * Les écritures d'un festival devant suivre l'ordre de leur préparation, un festival confié à cette classe
+ * ne doit plus être sauvegardé directement avec {@link Festival#save()} ou {@link Festival#compact()}.
+ */
+public class FestivalSaver implements AutoCloseable {
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(FestivalSaver.class);
+    /**
+     * Fil d'exécution des écritures.
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "festival-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Exécuteur des rappels, qui est aussi le fil d'exécution qui prépare les sauvegardes regroupées.
+     */
+    private final Executor callbackExecutor;
+    /**
+     * Sauvegardes demandées pendant l'écriture en cours.
+     */
+    private final List<Request> queued = new ArrayList<>();
+    /**
+     * Si une écriture est en cours.
+     */
+    private boolean writing = false;
+
+    /**
+     * Constructeur de la classe FestivalSaver.
+     *
+     * @param callbackExecutor l'exécuteur des rappels, dans le fil d'exécution qui modifie les festivals
+     */
+    public FestivalSaver(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Demande la sauvegarde d'un festival dans son fichier.
+     * Si une écriture est en cours, la sauvegarde sera préparée à la fin de celle-ci,
+     * regroupée avec les autres demandes pour le même festival.
+     *
+     * @param festival le festival à sauvegarder
+     * @param callback appelé avec null une fois le festival écrit, ou avec l'erreur rencontrée
+     */
+    public void save(Festival festival, Consumer<FestivalException> callback) {
+        request(festival, false, callback);
+    }
+
+    /**
+     * Demande la réécriture complète du fichier d'un festival, regroupée comme {@link #save(Festival, Consumer)}.
+     *
+     * @param festival le festival à réécrire
+     * @param callback appelé avec null une fois le festival écrit, ou avec l'erreur rencontrée
+     */
+    public void compact(Festival festival, Consumer<FestivalException> callback) {
+        request(festival, true, callback);
+    }
+
+    private void request(Festival festival, boolean compact, Consumer<FestivalException> callback) {
+        Request request;
+        synchronized (this) {
+            if (writing) {
+                for (Request other : queued)
+                    if (other.festival == festival) {
+                        other.compact |= compact;
+                        other.callbacks.add(callback);
+                        LOGGER.info(String.format("Merged save of festival \"%s\"", festival.getName()));
+                        return;
+                    }
+                request = new Request(festival, compact);
+                request.callbacks.add(callback);
+                queued.add(request);
+                LOGGER.info(String.format("Queued save of festival \"%s\"", festival.getName()));
+                return;
+            }
+            writing = true;
+            request = new Request(festival, compact);
+            request.callbacks.add(callback);
+        }
+        start(request);
+    }
+
+    /**
+     * Indique si une écriture est en cours ou en attente.
+     *
+     * @return true si une sauvegarde n'est pas terminée, false sinon
+     */
+    public synchronized boolean isSaving() {
+        return writing;
+    }
+
+    /**
+     * Prépare une sauvegarde et confie son écriture au fil d'exécution dédié.
+     */
+    private void start(Request request) {
+        FestivalWrite write;
+        try {
+            write = request.prepare();
+        } catch (FestivalException e) {
+            finish(request, e);
+            return;
+        }
+        writer.execute(() -> {
+            FestivalException error = null;
+            try {
+                write.commit();
+            } catch (FestivalException e) {
+                error = e;
+            }
+            FestivalException result = error;
+            callbackExecutor.execute(() -> finish(request, result));
+        });
+    }
+
+    /**
+     * Transmet le résultat d'une écriture et lance la sauvegarde suivante.
+     */
+    private void finish(Request request, FestivalException error) {
+        if (error == null)
+            LOGGER.info(String.format("Saved festival \"%s\" in background", request.festival.getName()));
+        else
+            LOGGER.severe(String.format("Background save of festival \"%s\" failed: %s", request.festival.getName(), error.getMessage()));
+        for (Consumer<FestivalException> callback : request.callbacks)
+            callback.accept(error);
+        Request next;
+        synchronized (this) {
+            if (queued.isEmpty()) {
+                writing = false;
+                return;
+            }
+            next = queued.remove(0);
+        }
+        start(next);
+    }
+
+    /**
+     * Attend la fin des écritures en cours et écrit les sauvegardes en attente, sans transmettre leur résultat.
+     * Doit être appelé depuis le fil d'exécution qui modifie les festivals, avant de quitter l'application.
+     */
+    @Override
+    public void close() {
+        List<Request> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(queued);
+            queued.clear();
+        }
+        for (Request request : remaining)
+            try {
+                FestivalWrite write = request.prepare();
+                writer.execute(() -> {
+                    try {
+                        write.commit();
+                    } catch (FestivalException e) {
+                        LOGGER.severe(String.format("Save of festival \"%s\" failed on close: %s", request.festival.getName(), e.getMessage()));
+                    }
+                });
+            } catch (FestivalException e) {
+                LOGGER.severe(String.format("Save of festival \"%s\" failed on close: %s", request.festival.getName(), e.getMessage()));
+            }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES))
+                LOGGER.severe("Background saves did not finish on close");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sauvegarde demandée d'un festival et rappels à appeler une fois écrite.
+     */
+    private static final class Request {
+        private final Festival festival;
+        private final List<Consumer<FestivalException>> callbacks = new ArrayList<>();
+        private boolean compact;
+
+        private Request(Festival festival, boolean compact) {
+            this.festival = festival;
+            this.compact = compact;
+        }
+
+        private FestivalWrite prepare() throws FestivalException {
+            return compact ? festival.prepareCompact() : festival.prepareSave();
+        }
+    }
+}
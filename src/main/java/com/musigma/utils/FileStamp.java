@@ -0,0 +1,91 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+
+import java.io.File;
+
+/**
+ * Empreinte d'un fichier de festival et de son journal : date de dernière modification et taille.
+ * Deux empreintes différentes d'un même fichier indiquent qu'il a été modifié entre-temps,
+ * sans avoir à l'ouvrir.
+ */
+public final class FileStamp {
+
+    /**
+     * Empreinte d'un fichier introuvable.
+     */
+    public static final FileStamp MISSING = new FileStamp(0, -1);
+
+    /**
+     * Date de la dernière modification du fichier ou de son journal (ms).
+     */
+    private final long lastModified;
+    /**
+     * Taille du fichier et de son journal (octets), -1 si le fichier est introuvable.
+     */
+    private final long length;
+
+    /**
+     * Constructeur de la classe FileStamp.
+     *
+     * @param lastModified la date de la dernière modification du fichier ou de son journal
+     * @param length       la taille du fichier et de son journal, -1 si le fichier est introuvable
+     */
+    public FileStamp(long lastModified, long length) {
+        this.lastModified = lastModified;
+        this.length = length;
+    }
+
+    /**
+     * Relève l'empreinte actuelle d'un fichier de festival.
+     *
+     * @param file le fichier du festival
+     * @return l'empreinte du fichier et de son journal, {@link #MISSING} si le fichier n'existe pas
+     */
+    public static FileStamp of(File file) {
+        if (!file.isFile())
+            return MISSING;
+        File journal = Festival.journalOf(file);
+        return new FileStamp(Math.max(file.lastModified(), journal.lastModified()), file.length() + journal.length());
+    }
+
+    /**
+     * Retourne la date de la dernière modification du fichier ou de son journal.
+     *
+     * @return la date en millisecondes depuis l'epoch
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Retourne la taille du fichier et de son journal.
+     *
+     * @return la taille en octets, -1 si le fichier est introuvable
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Indique si le fichier était introuvable.
+     *
+     * @return true si le fichier n'existait pas, false sinon
+     */
+    public boolean isMissing() {
+        return length < 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileStamp stamp = (FileStamp) o;
+        return lastModified == stamp.lastModified && length == stamp.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(lastModified) * 31 + Long.hashCode(length);
+    }
+}
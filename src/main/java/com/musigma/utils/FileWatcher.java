@@ -0,0 +1,187 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.exception.FestivalException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Classe utilitaire pour surveiller le fichier du festival ouvert et son journal,
+ * afin de relire le festival lorsqu'ils sont modifiés par une autre application ou un autre utilisateur.
+ * <p>
+ * Le dossier du fichier est surveillé avec un {@link WatchService} sur un fil d'exécution dédié.
+ * Les événements rapprochés sont regroupés (voir {@link #DEBOUNCE_MILLIS}), puis le festival est relu en arrière-plan
+ * si l'empreinte du fichier (voir {@link FileStamp}) diffère de la dernière connue : les écritures de l'application elle-même
+ * doivent être signalées avec {@link #acknowledge()} pour ne pas être relues.
+ */
+public class FileWatcher implements AutoCloseable {
+
+    /**
+     * Délai sans nouvel événement avant de relire le fichier (millisecondes).
+     */
+    public static final long DEBOUNCE_MILLIS = 250;
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(FileWatcher.class);
+    /**
+     * Exécuteur du rappel, {@code Platform::runLater} pour l'interface.
+     */
+    private final Executor callbackExecutor;
+    /**
+     * Appelé avec le festival relu et l'empreinte du fichier lu.
+     */
+    private final BiConsumer<Festival, FileStamp> onChange;
+    /**
+     * Fichier surveillé, null si aucun.
+     */
+    private File file;
+    /**
+     * Empreinte du fichier à sa dernière lecture ou écriture par l'application.
+     */
+    private FileStamp known = FileStamp.MISSING;
+    /**
+     * Service de surveillance du dossier du fichier, null si aucun fichier n'est surveillé.
+     */
+    private WatchService service;
+
+    /**
+     * Constructeur de la classe FileWatcher, sans fichier surveillé.
+     *
+     * @param callbackExecutor l'exécuteur du rappel
+     * @param onChange         appelé avec le festival relu et l'empreinte du fichier lu, lorsque le fichier a été modifié
+     */
+    public FileWatcher(Executor callbackExecutor, BiConsumer<Festival, FileStamp> onChange) {
+        this.callbackExecutor = callbackExecutor;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Surveille un autre fichier, dont l'état actuel est considéré comme connu.
+     *
+     * @param file le fichier du festival ouvert, null pour arrêter la surveillance
+     */
+    public synchronized void watch(File file) {
+        if (file != null && file.equals(this.file)) {
+            acknowledge();
+            return;
+        }
+        stop();
+        this.file = file;
+        if (file == null)
+            return;
+        known = FileStamp.of(file);
+        Path directory = file.getAbsoluteFile().getParentFile().toPath();
+        try {
+            WatchService watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            service = watchService;
+            Thread thread = new Thread(() -> run(watchService, file), "festival-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            LOGGER.info(String.format("Watching festival file %s", file.getName()));
+        } catch (IOException e) {
+            LOGGER.warning(String.format("Cannot watch festival file %s: %s", file.getName(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Considère l'état actuel du fichier comme connu, après une écriture de l'application.
+     */
+    public synchronized void acknowledge() {
+        if (file != null)
+            known = FileStamp.of(file);
+    }
+
+    /**
+     * Considère une empreinte du fichier comme connue, après avoir appliqué le festival relu.
+     *
+     * @param stamp l'empreinte du fichier lu
+     */
+    public synchronized void acknowledge(FileStamp stamp) {
+        known = stamp;
+    }
+
+    /**
+     * Indique si une empreinte correspond au dernier état connu du fichier surveillé.
+     *
+     * @param stamp l'empreinte du fichier
+     * @return true si le fichier n'a pas changé depuis sa dernière lecture ou écriture par l'application
+     */
+    public synchronized boolean isKnown(FileStamp stamp) {
+        return known.equals(stamp);
+    }
+
+    private synchronized boolean isWatching(WatchService watchService) {
+        return service == watchService;
+    }
+
+    /**
+     * Attend les modifications du fichier ou de son journal, puis relit le festival une fois les événements regroupés.
+     */
+    private void run(WatchService watchService, File file) {
+        String name = file.getName(), journal = Festival.journalOf(file).getName();
+        try {
+            while (isWatching(watchService)) {
+                WatchKey key = watchService.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    relevant |= event.kind() == OVERFLOW || (context != null && (context.toString().equals(name) || context.toString().equals(journal)));
+                }
+                key.reset();
+                if (!relevant)
+                    continue;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                FileStamp stamp = FileStamp.of(file);
+                if (stamp.isMissing() || isKnown(stamp))
+                    continue;
+                try {
+                    Festival festival = Festival.Festival(file);
+                    festival.materialize();
+                    LOGGER.info(String.format("Festival file %s changed on disk", name));
+                    callbackExecutor.execute(() -> {
+                        if (isWatching(watchService))
+                            onChange.accept(festival, stamp);
+                    });
+                } catch (FestivalException e) {
+                    LOGGER.warning(String.format("Cannot read changed festival file %s: %s", name, e.getMessage()));
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.info(String.format("Stopped watching festival file %s", name));
+        }
+    }
+
+    private void stop() {
+        if (service == null)
+            return;
+        try {
+            service.close();
+        } catch (IOException e) {
+            LOGGER.warning("Cannot close watch service: " + e.getMessage());
+        }
+        service = null;
+    }
+
+    /**
+     * Arrête la surveillance du fichier.
+     */
+    @Override
+    public synchronized void close() {
+        stop();
+        file = null;
+    }
+}
@@ -0,0 +1,316 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.FestivalSummary;
+import com.musigma.models.exception.FestivalException;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Classe utilitaire pour conserver les fichiers récents d'une session à l'autre,
+ * avec un résumé de chaque festival (voir {@link FestivalSummary}).
+ * <p>
+ * Chaque entrée retient l'empreinte du fichier et de son journal au moment du résumé (voir {@link FileStamp}) :
+ * un fichier modifié ou supprimé depuis est détecté sans l'ouvrir, et seul son résumé est relu en arrière-plan.
+ * L'index est enregistré dans un format binaire :
+ * <pre>
+ * en-tête : MAGIC (int), VERSION (short), nombre d'entrées (int)
+ * entrée  : chemin, date de modification (long), taille (long), résumé présent (boolean),
+ *           puis nom, début (ISO-8601), nombres d'artistes, de représentations, de stocks et de types de tickets
+ * </pre>
+ */
+public class SessionIndex {
+
+    /**
+     * Nombre magique en tête des fichiers d'index ("MGMI").
+     */
+    public static final int MAGIC = 0x4D474D49;
+    /**
+     * Version du format écrite par cette classe.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Logger pour afficher les logs.
+     */
+    private static final Logger LOGGER = Log.getLogger(SessionIndex.class);
+    /**
+     * Empreinte d'un fichier pas encore lu, différente de celle de tout fichier existant ou introuvable.
+     */
+    private static final FileStamp UNREAD = new FileStamp(0, 0);
+    /**
+     * Nombre maximal de fichiers conservés.
+     */
+    private final int capacity;
+    /**
+     * Entrées de l'index, de la plus récente à la plus ancienne.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Constructeur de la classe SessionIndex, pour un index vide.
+     *
+     * @param capacity le nombre maximal de fichiers conservés
+     */
+    public SessionIndex(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Charge l'index depuis un fichier.
+     *
+     * @param file     le fichier de l'index
+     * @param capacity le nombre maximal de fichiers conservés
+     * @return l'index chargé, vide si le fichier n'existe pas
+     * @throws IOException si le fichier ne peut pas être lu ou n'est pas un index
+     */
+    public static SessionIndex load(File file, int capacity) throws IOException {
+        SessionIndex index = new SessionIndex(capacity);
+        if (!file.isFile())
+            return index;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(String.format("%s is not a session index", file));
+            short version = in.readShort();
+            if (version > VERSION)
+                throw new IOException(String.format("Session index version %d is not supported", version));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                File entryFile = new File(in.readUTF());
+                FileStamp stamp = new FileStamp(in.readLong(), in.readLong());
+                FestivalSummary summary = null;
+                if (in.readBoolean())
+                    summary = new FestivalSummary(in.readUTF(), LocalDateTime.parse(in.readUTF()),
+                            in.readInt(), in.readInt(), in.readInt(), in.readInt());
+                if (index.entries.size() < capacity)
+                    index.entries.add(new Entry(entryFile, stamp, summary));
+            }
+        }
+        LOGGER.info(String.format("Loaded session index with %d files", index.entries.size()));
+        return index;
+    }
+
+    /**
+     * Crée un index à partir de la liste de fichiers récents sérialisée par les versions précédentes.
+     * Les résumés sont lus au premier {@link #refresh}.
+     *
+     * @param file     le fichier de l'ancienne session
+     * @param capacity le nombre maximal de fichiers conservés
+     * @return l'index des fichiers de l'ancienne session
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    @SuppressWarnings("unchecked")
+    public static SessionIndex importLegacy(File file, int capacity) throws IOException {
+        SessionIndex index = new SessionIndex(capacity);
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
+            for (File recent : (List<File>) in.readObject())
+                if (recent != null && index.entries.size() < capacity && index.indexOf(recent) < 0)
+                    index.entries.add(new Entry(recent, UNREAD, null));
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException(String.format("%s is not a previous session", file), e);
+        }
+        LOGGER.info(String.format("Imported %d files from previous session", index.entries.size()));
+        return index;
+    }
+
+    /**
+     * Enregistre l'index dans un fichier, remplacé seulement une fois entièrement écrit.
+     *
+     * @param file le fichier de l'index
+     * @throws IOException si le fichier ne peut pas être écrit
+     */
+    public synchronized void save(File file) throws IOException {
+        Path path = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.file.getPath());
+                    out.writeLong(entry.stamp.getLastModified());
+                    out.writeLong(entry.stamp.getLength());
+                    out.writeBoolean(entry.summary != null);
+                    if (entry.summary != null) {
+                        out.writeUTF(entry.summary.getName());
+                        out.writeUTF(entry.summary.getStart().toString());
+                        out.writeInt(entry.summary.getArtistes());
+                        out.writeInt(entry.summary.getRepresentations());
+                        out.writeInt(entry.summary.getStocks());
+                        out.writeInt(entry.summary.getTicketTypes());
+                    }
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        LOGGER.info(String.format("Saved session index with %d files", entries.size()));
+    }
+
+    /**
+     * Retourne les entrées de l'index, de la plus récente à la plus ancienne.
+     *
+     * @return une copie des entrées
+     */
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /**
+     * Place un fichier en tête de l'index, en conservant son résumé s'il y était déjà.
+     * Le fichier le plus ancien est retiré si l'index est plein.
+     *
+     * @param file le fichier ouvert ou enregistré
+     */
+    public synchronized void add(File file) {
+        int index = indexOf(file);
+        Entry entry = index < 0 ? new Entry(file, UNREAD, null) : entries.remove(index);
+        entries.add(0, entry);
+        if (entries.size() > capacity)
+            entries.remove(capacity);
+        LOGGER.info(String.format("Added %s to session index", file.getName()));
+    }
+
+    /**
+     * Retire un fichier de l'index.
+     *
+     * @param file le fichier à retirer
+     */
+    public synchronized void remove(File file) {
+        int index = indexOf(file);
+        if (index >= 0)
+            entries.remove(index);
+    }
+
+    private int indexOf(File file) {
+        for (int i = 0; i < entries.size(); i++)
+            if (entries.get(i).file.equals(file))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Relit en arrière-plan le résumé des fichiers modifiés ou supprimés depuis leur dernier résumé.
+     * Les autres fichiers ne sont pas ouverts.
+     *
+     * @param background       l'exécuteur des lectures
+     * @param callbackExecutor l'exécuteur du rappel, {@code Platform::runLater} pour l'interface
+     * @param onChange         appelé une fois les entrées mises à jour, si au moins l'une a changé
+     */
+    public void refresh(Executor background, Executor callbackExecutor, Runnable onChange) {
+        List<Entry> snapshot = getEntries();
+        background.execute(() -> {
+            List<Entry> updated = new ArrayList<>();
+            for (Entry entry : snapshot)
+                if (entry.isStale())
+                    updated.add(Entry.read(entry.file));
+            if (updated.isEmpty())
+                return;
+            synchronized (this) {
+                for (Entry entry : updated) {
+                    int index = indexOf(entry.file);
+                    if (index >= 0)
+                        entries.set(index, entry);
+                }
+            }
+            LOGGER.info(String.format("Refreshed %d files of session index", updated.size()));
+            callbackExecutor.execute(onChange);
+        });
+    }
+
+    /**
+     * Fichier récent et résumé de son festival.
+     */
+    public static final class Entry {
+        /**
+         * Fichier du festival.
+         */
+        private final File file;
+        /**
+         * Empreinte du fichier et de son journal lors du résumé.
+         */
+        private final FileStamp stamp;
+        /**
+         * Résumé du festival, null si le fichier n'a pas pu être lu.
+         */
+        private final FestivalSummary summary;
+
+        private Entry(File file, FileStamp stamp, FestivalSummary summary) {
+            this.file = file;
+            this.stamp = stamp;
+            this.summary = summary;
+        }
+
+        /**
+         * Lit le résumé d'un fichier, sans décoder les collections du festival.
+         *
+         * @param file le fichier du festival
+         * @return l'entrée du fichier
+         */
+        private static Entry read(File file) {
+            FileStamp stamp = FileStamp.of(file);
+            if (stamp.isMissing())
+                return new Entry(file, stamp, null);
+            try {
+                return new Entry(file, stamp, FestivalSummary.of(Festival.Festival(file)));
+            } catch (FestivalException e) {
+                LOGGER.warning(String.format("Cannot summarize %s: %s", file, e.getMessage()));
+                return new Entry(file, stamp, null);
+            }
+        }
+
+        /**
+         * Indique si le fichier a été modifié ou supprimé depuis son résumé, d'après son empreinte.
+         *
+         * @return true si le résumé doit être relu, false sinon
+         */
+        public boolean isStale() {
+            return !FileStamp.of(file).equals(stamp);
+        }
+
+        /**
+         * Indique si le fichier n'existait plus lors de la dernière vérification.
+         *
+         * @return true si le fichier est introuvable, false sinon
+         */
+        public boolean isMissing() {
+            return stamp.isMissing();
+        }
+
+        /**
+         * Retourne le fichier du festival.
+         *
+         * @return le fichier du festival
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Retourne l'empreinte du fichier et de son journal lors du résumé.
+         *
+         * @return l'empreinte du fichier
+         */
+        public FileStamp getStamp() {
+            return stamp;
+        }
+
+        /**
+         * Retourne le résumé du festival.
+         *
+         * @return le résumé, null si le fichier n'a pas encore été lu ou n'a pas pu l'être
+         */
+        public FestivalSummary getSummary() {
+            return summary;
+        }
+    }
+}
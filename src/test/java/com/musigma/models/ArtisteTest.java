@@ -1,9 +1,12 @@
 package com.musigma.models;
 
 import com.musigma.models.exception.ArtisteException;
+import com.musigma.models.exception.FestivalException;
+import com.musigma.models.exception.RepresentationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -44,18 +47,18 @@ class ArtisteTest {
     }
 
     @Test
-    void addRepresentation() {
-        assertDoesNotThrow(() -> artiste.addRepresentation(representation), "Un artiste doit pouvoir ajouter une nouvelle représentation");
-        assertTrue(artiste.getRepresentations().contains(representation), "L'artiste doit avoir ajouter la nouvelle représentation");
-        assertThrows(ArtisteException.class, () -> artiste.addRepresentation(null), "Un artiste ne doit pas pouvoir ajouter null comme représentation");
-    }
-
-    @Test
-    void removeRepresentation() throws ArtisteException {
-        artiste.addRepresentation(representation);
-        assertDoesNotThrow(() -> artiste.removeRepresentation(representation), "Un artiste doit pouvoir retirer une de ces représentations");
-        assertFalse(artiste.getRepresentations().contains(representation), "L'artiste doit avoir retiré la représentation");
-        assertThrows(ArtisteException.class, () -> artiste.removeRepresentation(representation), "Un artiste ne doit pas pouvoir retirer une representation n'étant pas parmis les siennes");
+    void getRepresentations() throws FestivalException, RepresentationException, ArtisteException {
+        assertTrue(artiste.getRepresentations().isEmpty(), "Un artiste hors festival ne doit avoir aucune représentation");
+        Festival festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.addArtiste(artiste);
+        Representation own = new Representation(120, 30, "Scene name", artiste);
+        festival.addRepresentation(own);
+        festival.addRepresentation(representation);
+        assertEquals(1, artiste.getRepresentations().size(), "L'artiste ne doit avoir que ses représentations");
+        assertSame(own, artiste.getRepresentations().first(), "L'artiste doit avoir la représentation qui le désigne");
+        own.setArtiste(representation.getArtiste());
+        assertTrue(artiste.getRepresentations().isEmpty(), "L'artiste ne doit plus avoir la représentation qui ne le désigne plus");
+        assertThrows(UnsupportedOperationException.class, () -> artiste.getRepresentations().add(own), "Les représentations d'un artiste ne doivent pas être modifiables");
     }
 
     @Override
@@ -0,0 +1,94 @@
+package com.musigma.models;
+
+import com.musigma.utils.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compare le format binaire de {@link FestivalCodec} à la sérialisation Java
+ * sur un festival généré : taille du fichier, temps d'écriture et de lecture.
+ * <p>
+ * Lancement : {@code java com.musigma.models.FestivalCodecBenchmark [représentations] [itérations]}
+ */
+public class FestivalCodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int representations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Log.getLogger(FestivalCodecBenchmark.class); // Charge la configuration des logs avant de les couper
+        Logger.getLogger("").setLevel(Level.OFF);
+
+        Festival festival = generate(representations);
+        byte[] serialized = serialize(festival), encoded = encode(festival);
+        System.out.printf("Festival : %d représentations, %d stocks, %d tickets%n",
+                festival.getRepresentations().size(), festival.getStocks().size(), festival.getTicketTypes().size());
+        System.out.printf("Taille   : serialization %d o, codec %d o (%.1f%%)%n",
+                serialized.length, encoded.length, 100.0 * encoded.length / serialized.length);
+
+        for (int i = 0; i < iterations / 2; i++) { // Échauffement du JIT
+            deserialize(serialize(festival));
+            decode(encode(festival));
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) serialize(festival);
+        long t1 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) encode(festival);
+        long t2 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) deserialize(serialized);
+        long t3 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) decode(encoded);
+        long t4 = System.nanoTime();
+        for (int i = 0; i < iterations; i++) FestivalCodec.read(ByteBuffer.wrap(encoded));
+        long t5 = System.nanoTime();
+        System.out.printf("Écriture : serialization %.2f ms, codec %.2f ms%n", (t1 - t0) / 1e6 / iterations, (t2 - t1) / 1e6 / iterations);
+        System.out.printf("Lecture  : serialization %.2f ms, codec %.2f ms%n", (t3 - t2) / 1e6 / iterations, (t4 - t3) / 1e6 / iterations);
+        System.out.printf("Ouverture sans décodage des collections : codec %.2f ms%n", (t5 - t4) / 1e6 / iterations);
+    }
+
+    static Festival generate(int representations) throws Exception {
+        Festival festival = new Festival("Benchmark", LocalDateTime.now().plusDays(1), 1000, 50_000, "Paris");
+        for (int i = 0; i < representations / 4; i++)
+            festival.addArtiste(new Artiste("Artiste " + i, "Genre " + i % 12, 100 + i));
+        for (int i = 0; i < representations; i++)
+            festival.addRepresentation(new Representation(i * 60, 45, "Scène " + i % 8, festival.getArtistes().get(i % festival.getArtistes().size())));
+        for (int i = 0; i < 200; i++)
+            festival.addStock(new Stock("Stock " + i, 1_000_000, i % 2 == 0, 1 + i));
+        for (int i = 0; i < 20; i++) {
+            TypeTicket ticketType = new TypeTicket("Ticket " + i, 100, 20 + i);
+            festival.addTicketType(ticketType);
+            for (int j = i; j < festival.getStocks().size(); j += 20)
+                new Avantage(ticketType, festival.getStocks().get(j), 1 + j % 3).connect();
+        }
+        return festival;
+    }
+
+    private static byte[] serialize(Festival festival) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(festival);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Festival deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Festival) in.readObject();
+        }
+    }
+
+    private static byte[] encode(Festival festival) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FestivalCodec.write(festival, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static Festival decode(byte[] bytes) throws Exception {
+        Festival festival = FestivalCodec.read(ByteBuffer.wrap(bytes));
+        festival.materialize();
+        return festival;
+    }
+}
@@ -0,0 +1,257 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalCodecTest {
+
+    Festival festival;
+    Stock stock;
+    TypeTicket ticketType;
+    Artiste artiste;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        artiste = new Artiste("DCAC", "rock", 100f);
+        stock = new Stock("Bouteille Coca", 100, true, 2.5);
+        ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", artiste));
+        new Avantage(ticketType, stock, 2).connect();
+    }
+
+    private byte[] encode(Festival festival) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FestivalCodec.write(festival, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private Festival roundTrip(Festival festival) throws IOException, FestivalException {
+        return FestivalCodec.read(ByteBuffer.wrap(encode(festival)));
+    }
+
+    /**
+     * Retourne le contenu des sections d'un festival encodé, par identifiant.
+     */
+    private static Map<Short, byte[]> sections(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        Map<Short, byte[]> sections = new LinkedHashMap<>();
+        for (int i = 0; i < buffer.getShort(8); i++) {
+            int entry = 10 + i * 14;
+            int offset = (int) buffer.getLong(entry + 2);
+            sections.put(buffer.getShort(entry), Arrays.copyOfRange(encoded, offset, offset + buffer.getInt(entry + 10)));
+        }
+        return sections;
+    }
+
+    /**
+     * Assemble un fichier à partir de ses sections, avec l'en-tête et la table d'une version donnée du format.
+     */
+    private static byte[] assemble(int version, int compatible, Map<Short, byte[]> sections) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FestivalCodec.MAGIC);
+        out.writeShort(version);
+        out.writeShort(compatible);
+        out.writeShort(sections.size());
+        long offset = bytes.size() + sections.size() * 14L;
+        for (Map.Entry<Short, byte[]> section : sections.entrySet()) {
+            out.writeShort(section.getKey());
+            out.writeLong(offset);
+            out.writeInt(section.getValue().length);
+            offset += section.getValue().length;
+        }
+        for (byte[] section : sections.values())
+            out.write(section);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void roundTrip() throws IOException, FestivalException {
+        Festival decoded = roundTrip(festival);
+        assertEquals(festival, decoded, "Le festival décodé doit être identique au festival encodé");
+        Avantage avantage = decoded.getTicketTypes().get(0).getAvantages().get(0);
+        assertSame(decoded.getStocks().get(0), avantage.getStock(), "L'avantage doit être relié au stock décodé");
+        assertSame(avantage, decoded.getStocks().get(0).getAvantages().get(0), "Le stock doit partager l'avantage de son type de ticket");
+        assertSame(decoded.getArtistes().get(0), decoded.getRepresentations().first().getArtiste(), "La représentation doit être reliée à l'artiste décodé");
+    }
+
+    @Test
+    void orphanArtiste() throws IOException, FestivalException, ArtisteException {
+        festival.addRepresentation(new Representation(240, 30, "Main Stage", new Artiste("Invité", "jazz", 10)));
+        Festival decoded = roundTrip(festival);
+        assertEquals(1, decoded.getArtistes().size(), "Un artiste hors festival ne doit pas être ajouté au festival");
+        assertEquals("Invité", decoded.getRepresentations().last().getArtiste().getName(), "La représentation doit conserver son artiste hors festival");
+    }
+
+    @Test
+    void pastStart() throws IOException, FestivalException {
+        LocalDateTime past = LocalDateTime.now().minusYears(1);
+        Festival decoded = roundTrip(Festival.restore("Ancien", past, 0, 1, "Lyon"));
+        assertEquals(past, decoded.getStart(), "Un festival passé doit pouvoir être relu");
+    }
+
+    @Test
+    void fixedStockOverflow() throws IOException, FestivalException, StockException {
+        stock.setFixed(false);
+        assertDoesNotThrow(() -> stock.setQuantity(10), "Le stock défixé doit pouvoir être requantifié");
+        stock.setFixed(true);
+        assertDoesNotThrow(() -> roundTrip(festival), "Un état accepté lors de l'enregistrement doit pouvoir être relu");
+    }
+
+    @Test
+    void legacyFile() throws IOException, FestivalException {
+        File file = new File(String.format("%s/legacy.mgm", System.getProperty("java.io.tmpdir")));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+            oos.writeObject(festival);
+        }
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival.getName(), loaded.getName(), "Un ancien fichier sérialisé doit toujours pouvoir être chargé");
+    }
+
+    @Test
+    void legacySerializedFile() throws URISyntaxException, FestivalException {
+        File file = new File(getClass().getResource("legacy.mgm").toURI()); // Enregistré par la première version
+        Festival loaded = Festival.Festival(file);
+        assertEquals("Festival historique", loaded.getName(), "Un fichier sérialisé par la première version doit toujours pouvoir être chargé");
+        assertEquals("DCAC", loaded.getRepresentations().first().getArtiste().getName(), "Les représentations sérialisées doivent être chargées");
+        assertEquals(2, loaded.getStocks().get(0).getAvantages().get(0).getQuantityByTicket(), "Les avantages sérialisés doivent être chargés");
+    }
+
+    @Test
+    void futureVersion() throws IOException {
+        byte[] incompatible = assemble(FestivalCodec.VERSION + 1, FestivalCodec.VERSION + 1, sections(encode(festival)));
+        assertThrows(FestivalException.class, () -> FestivalCodec.read(ByteBuffer.wrap(incompatible)), "Un format plus récent et incompatible ne doit pas être lu");
+        byte[] truncated = Arrays.copyOf(incompatible, 6);
+        assertThrows(FestivalException.class, () -> FestivalCodec.read(ByteBuffer.wrap(truncated)), "Un en-tête incomplet ne doit pas être lu");
+    }
+
+    @Test
+    void compatibleFutureVersion() throws IOException, FestivalException {
+        Map<Short, byte[]> sections = sections(encode(festival));
+        ByteArrayOutputStream stocks = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(stocks);
+        out.writeByte(6);
+        out.writeBytes("SIZDJS"); // Champ ajouté à la fin des stocks par une version plus récente
+        out.writeInt(1);
+        out.writeUTF(stock.getName());
+        out.writeInt(stock.getQuantity());
+        out.writeBoolean(stock.isFixed());
+        out.writeDouble(stock.getPrix());
+        out.writeLong(stock.getId());
+        out.writeUTF("Fournisseur");
+        sections.put(FestivalCodec.SECTION_STOCKS, stocks.toByteArray());
+        sections.put((short) 99, new byte[]{1, 2, 3}); // Section inconnue
+        Festival decoded = FestivalCodec.read(ByteBuffer.wrap(assemble(FestivalCodec.VERSION + 1, FestivalCodec.VERSION, sections)));
+        assertEquals(festival, decoded, "Les champs et sections inconnus d'un format plus récent et compatible doivent être ignorés");
+    }
+
+    @Test
+    void dictionary() throws IOException, FestivalException, ArtisteException {
+        Artiste other = new Artiste("Invité", "rock", 10);
+        festival.addArtiste(other);
+        for (int i = 1; i <= 20; i++)
+            festival.addRepresentation(new Representation(60 + 60 * i, 30, i % 2 == 0 ? "Main Stage" : "Second Stage", other));
+        Festival decoded = roundTrip(festival);
+        assertEquals(festival, decoded, "Le festival décodé doit être identique au festival encodé");
+        assertSame(decoded.getArtistes().get(0).getGenre(), decoded.getArtistes().get(1).getGenre(), "Les artistes décodés doivent partager leur genre");
+        List<Representation> mainStage = decoded.findRepresentations("Main Stage", 0, 24 * 60);
+        assertSame(mainStage.get(0).getScene(), mainStage.get(1).getScene(), "Les représentations décodées doivent partager leur scène");
+        String encoded = new String(encode(festival), StandardCharsets.ISO_8859_1);
+        assertEquals(encoded.indexOf("Second Stage"), encoded.lastIndexOf("Second Stage"), "Une scène répétée ne doit être écrite qu'une fois");
+        assertEquals(encoded.indexOf("rock"), encoded.lastIndexOf("rock"), "Un genre répété ne doit être écrit qu'une fois");
+    }
+
+    @Test
+    void upgrade() throws IOException, FestivalException {
+        File file = new File(String.format("%s/upgrade.mgm", System.getProperty("java.io.tmpdir")));
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
+            oos.writeObject(festival);
+        }
+        Files.deleteIfExists(FestivalJournal.fileOf(file).toPath());
+        Festival loaded = Festival.Festival(file);
+        loaded.setName("Renamed Festival");
+        loaded.save();
+        assertEquals(FestivalCodec.MAGIC, ByteBuffer.wrap(Files.readAllBytes(file.toPath())).getInt(0), "Un ancien fichier sérialisé doit être réécrit dans le format du codec");
+        assertEquals("Renamed Festival", Festival.Festival(file).getName(), "La réécriture doit conserver les modifications");
+    }
+
+    @Test
+    void lazySections() throws FestivalException {
+        File file = new File(String.format("%s/lazy.mgm", System.getProperty("java.io.tmpdir")));
+        festival.setFile(file);
+        festival.save();
+
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival.getName(), loaded.getName(), "Les informations du festival doivent être lues à l'ouverture");
+        assertFalse(loaded.isMaterialized(), "Les collections ne doivent pas être décodées à l'ouverture");
+        assertEquals(1, loaded.getRepresentations().size(), "Les représentations doivent être décodées au premier accès");
+        assertFalse(loaded.isMaterialized(), "Les stocks ne doivent pas être décodés avec les représentations");
+        assertEquals(1, loaded.getStocks().get(0).getAvantages().size(), "Les avantages doivent être décodés avec les stocks");
+        assertTrue(loaded.isMaterialized(), "Le festival doit être entièrement chargé");
+        assertEquals(festival, loaded, "Le festival chargé doit être identique au festival enregistré");
+    }
+
+    @Test
+    void saveLazyFestival() throws FestivalException {
+        File file = new File(String.format("%s/lazy-save.mgm", System.getProperty("java.io.tmpdir")));
+        festival.setFile(file);
+        festival.save();
+
+        Festival loaded = Festival.Festival(file);
+        assertDoesNotThrow(loaded::save, "Un festival partiellement chargé doit pouvoir être réenregistré dans son fichier");
+        assertEquals(festival, Festival.Festival(file), "Le réenregistrement ne doit perdre aucune collection");
+    }
+
+    @Test
+    void corruptedSection() throws IOException, FestivalException {
+        Map<Short, byte[]> sections = sections(encode(festival));
+        ByteBuffer.wrap(sections.get(FestivalCodec.SECTION_AVANTAGES)).putInt(1 + 3 + Integer.BYTES, 99); // Type de ticket inexistant
+        Festival decoded = FestivalCodec.read(ByteBuffer.wrap(assemble(FestivalCodec.VERSION, FestivalCodec.COMPATIBLE_VERSION, sections)));
+        assertThrows(IllegalStateException.class, decoded::getStocks, "Un index invalide doit signaler le fichier corrompu");
+        assertThrows(IllegalStateException.class, decoded::getTicketTypes, "Les sections en erreur ne doivent pas être considérées comme décodées");
+        assertEquals("DCAC", decoded.getArtistes().get(0).getName(), "Les autres sections doivent rester lisibles");
+        assertFalse(decoded.isMaterialized(), "Le festival ne doit pas être considéré comme entièrement chargé");
+    }
+
+    @Test
+    void compressed() throws IOException, FestivalException, StockException {
+        for (int i = 0; i < 100; i++)
+            festival.addStock(new Stock("Bouteille d'eau " + i, 100, false, 1));
+        byte[] encoded = encode(festival);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FestivalCodec.compress(encoded, bytes, 9);
+        ByteBuffer compressed = ByteBuffer.wrap(bytes.toByteArray());
+        assertTrue(FestivalCodec.isCompressed(compressed), "Le contenu compressé doit être reconnu par son en-tête");
+        assertTrue(compressed.remaining() < encoded.length, "Les noms répétés doivent être compressés");
+        Festival decoded = FestivalCodec.read(compressed);
+        assertEquals(festival, decoded, "Le festival décompressé doit être identique au festival encodé");
+        assertEquals(9, decoded.getCompressionLevel(), "Le niveau de compression doit être conservé");
+    }
+
+    @Test
+    void corruptedCompression() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FestivalCodec.compress(encode(festival), bytes, 1);
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() / 2);
+        assertThrows(FestivalException.class, () -> FestivalCodec.read(ByteBuffer.wrap(truncated)), "Un contenu compressé interrompu ne doit pas être lu");
+        assertThrows(IllegalArgumentException.class, () -> FestivalCodec.compress(new byte[0], bytes, 10), "Un niveau de compression invalide doit être refusé");
+    }
+}
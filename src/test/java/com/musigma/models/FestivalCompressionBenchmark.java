@@ -0,0 +1,59 @@
+package com.musigma.models;
+
+import com.musigma.utils.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compare les niveaux de compression des fichiers .mgm sur un festival généré :
+ * taille du fichier, temps de compression et temps d'ouverture (décompression et décodage complet).
+ * Le niveau 0 correspond au fichier non compressé.
+ * <p>
+ * Lancement : {@code java com.musigma.models.FestivalCompressionBenchmark [représentations] [itérations]}
+ */
+public class FestivalCompressionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int representations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Log.getLogger(FestivalCompressionBenchmark.class); // Charge la configuration des logs avant de les couper
+        Logger.getLogger("").setLevel(Level.OFF);
+
+        Festival festival = FestivalCodecBenchmark.generate(representations);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FestivalCodec.write(festival, new DataOutputStream(bytes));
+        byte[] encoded = bytes.toByteArray();
+        System.out.printf("Festival : %d représentations, %d o encodés%n", festival.getRepresentations().size(), encoded.length);
+        System.out.println("Niveau | Taille (o) |  Ratio | Écriture (ms) | Ouverture (ms)");
+
+        for (int level = 0; level <= 9; level++) {
+            for (int i = 0; i < iterations / 2; i++) // Échauffement du JIT
+                open(compress(encoded, level));
+            byte[] file = compress(encoded, level);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) compress(encoded, level);
+            long t1 = System.nanoTime();
+            for (int i = 0; i < iterations; i++) open(file);
+            long t2 = System.nanoTime();
+            System.out.printf("%6d | %10d | %5.1f%% | %13.2f | %14.2f%n", level, file.length, 100.0 * file.length / encoded.length,
+                    (t1 - t0) / 1e6 / iterations, (t2 - t1) / 1e6 / iterations);
+        }
+    }
+
+    private static byte[] compress(byte[] encoded, int level) throws IOException {
+        if (level == 0)
+            return encoded;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FestivalCodec.compress(encoded, bytes, level);
+        return bytes.toByteArray();
+    }
+
+    private static void open(byte[] file) throws Exception {
+        FestivalCodec.read(ByteBuffer.wrap(file)).materialize();
+    }
+}
@@ -0,0 +1,111 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalDiffTest {
+
+    Festival festival;
+    Festival changed;
+    Stock stock;
+    TypeTicket ticketType;
+    Artiste artiste;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        artiste = new Artiste("DCAC", "rock", 100f);
+        stock = new Stock("Bouteille Coca", 100, true, 2.5);
+        ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addStock(new Stock("Bière", 200, false, 3));
+        festival.addTicketType(ticketType);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", null));
+        new Avantage(ticketType, stock, 2).connect();
+        festival.setFile(new File(String.format("%s/diff.mgm", System.getProperty("java.io.tmpdir"))));
+        festival.compact();
+        changed = Festival.Festival(festival.getFile());
+        changed.materialize();
+    }
+
+    @Test
+    void unchanged() throws FestivalException {
+        FestivalDiff diff = FestivalDiff.apply(festival, changed);
+        assertTrue(diff.isEmpty(), "Aucune modification ne doit être trouvée entre deux versions identiques");
+        assertFalse(diff.isFestivalChanged(), "Le festival ne doit pas être modifié");
+    }
+
+    @Test
+    void properties() throws FestivalException {
+        changed.setName("Autre Festival");
+        changed.setArea(800);
+        FestivalDiff diff = FestivalDiff.apply(festival, changed);
+        assertTrue(diff.isFestivalChanged(), "Les propriétés du festival doivent être modifiées");
+        assertEquals("Autre Festival", festival.getName(), "Le nom doit être repris de l'autre version");
+        assertEquals(800, festival.getArea(), "La surface doit être reprise de l'autre version");
+        assertEquals(changed, festival, "Le festival doit être identique à l'autre version");
+    }
+
+    @Test
+    void changedInPlace() throws FestivalException, StockException, AvantageException {
+        Stock other = changed.getStocks().get(0);
+        other.setPrix(4);
+        changed.getTicketTypes().get(0).getAvantages().get(0).setQuantityByTicket(3);
+        FestivalDiff diff = FestivalDiff.apply(festival, changed);
+        assertSame(stock, festival.getStocks().get(0), "Le stock modifié doit être conservé");
+        assertEquals(4, stock.getPrix(), "Le prix du stock doit être repris de l'autre version");
+        assertEquals(3, ticketType.getAvantages().get(0).getQuantityByTicket(), "La quantité de l'avantage doit être reprise de l'autre version");
+        assertEquals(List.of(stock), diff.getChanged(Stock.class), "Seul le stock modifié doit être signalé");
+        assertTrue(diff.getAdded(Stock.class).isEmpty(), "Aucun stock ne doit être ajouté");
+        assertEquals(changed, festival, "Le festival doit être identique à l'autre version");
+    }
+
+    @Test
+    void fixedQuantity() throws FestivalException, StockException {
+        Stock other = changed.getStocks().get(0);
+        other.setFixed(false);
+        other.setQuantity(150);
+        other.setFixed(true);
+        FestivalDiff.apply(festival, changed);
+        assertEquals(150, stock.getQuantity(), "La quantité d'un stock fixe doit être reprise de l'autre version");
+        assertTrue(stock.isFixed(), "Le stock doit rester fixe");
+    }
+
+    @Test
+    void addedAndRemoved() throws FestivalException, StockException, TypeTicketException, ArtisteException, RepresentationException {
+        changed.removeStock(changed.getStocks().get(1));
+        changed.addStock(new Stock("Eau", 50, false, 1));
+        TypeTicket otherTicketType = changed.getTicketTypes().get(0);
+        otherTicketType.getAvantages().get(0).disconnect();
+        changed.removeTicketType(otherTicketType);
+        changed.addArtiste(new Artiste("Nouvel Artiste", "jazz", 50f));
+        changed.addRepresentation(new Representation(120, 45, "Petite Scène", null));
+        Stock removed = festival.getStocks().get(1);
+        FestivalDiff diff = FestivalDiff.apply(festival, changed);
+        assertEquals(List.of(removed), diff.getRemoved(Stock.class), "Le stock retiré doit être signalé");
+        assertEquals("Eau", diff.getAdded(Stock.class).get(0).getName(), "Le stock ajouté doit être signalé");
+        assertEquals(List.of(ticketType), diff.getRemoved(TypeTicket.class), "Le type de ticket retiré doit être signalé");
+        assertTrue(stock.getAvantages().isEmpty(), "Les avantages du type de ticket retiré doivent être retirés");
+        assertEquals(1, diff.getAdded(Artiste.class).size(), "L'artiste ajouté doit être signalé");
+        assertEquals(1, diff.getAdded(Representation.class).size(), "La représentation ajoutée doit être signalée");
+        assertSame(artiste, festival.getArtistes().get(0), "L'artiste inchangé doit être conservé");
+        assertEquals(changed, festival, "Le festival doit être identique à l'autre version");
+    }
+
+    @Test
+    void recorderRemoved() throws FestivalException {
+        changed.setName("Autre Festival");
+        FestivalDiff diff = FestivalDiff.apply(festival, changed);
+        festival.setLocation("Lyon");
+        assertTrue(diff.getChanged(Festival.class).contains(festival), "Le festival modifié doit être signalé");
+        assertEquals(1, diff.getChanged(Festival.class).size(), "Les modifications après l'application ne doivent pas être enregistrées");
+    }
+}
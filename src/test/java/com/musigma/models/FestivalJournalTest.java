@@ -0,0 +1,248 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalJournalTest {
+
+    Festival festival;
+    Stock stock;
+    TypeTicket ticketType;
+    Artiste artiste;
+    File file;
+    File journal;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        artiste = new Artiste("DCAC", "rock", 100f);
+        stock = new Stock("Bouteille Coca", 100, true, 2.5);
+        ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", artiste));
+        new Avantage(ticketType, stock, 2).connect();
+        file = new File(String.format("%s/journal.mgm", System.getProperty("java.io.tmpdir")));
+        journal = FestivalJournal.fileOf(file);
+        festival.setFile(file);
+        festival.save();
+    }
+
+    @Test
+    void appendOnly() throws IOException, FestivalException, StockException {
+        byte[] snapshot = Files.readAllBytes(file.toPath());
+        long length = journal.length();
+        stock.setPrix(3);
+        festival.save();
+        assertArrayEquals(snapshot, Files.readAllBytes(file.toPath()), "Le fichier du festival ne doit pas être réécrit à la sauvegarde");
+        assertTrue(journal.length() > length, "La modification doit être ajoutée au journal");
+        assertEquals(3, Festival.Festival(file).getStocks().get(0).getPrix(), "La modification du journal doit être rejouée au chargement");
+    }
+
+    @Test
+    void replay() throws Exception {
+        festival.setName("Renamed Festival");
+        artiste.setGenre("metal");
+        festival.addRepresentation(new Representation(120, 30, "Main Stage", new Artiste("Invité", "jazz", 10)));
+        festival.getRepresentations().last().getArtiste().setName("Invité surprise");
+        festival.getRepresentations().first().setScene("Second Stage");
+        Stock beer = new Stock("Bière", 500, false, 4);
+        festival.addStock(beer);
+        new Avantage(ticketType, beer, 1).connect();
+        ticketType.getAvantages().get(0).setQuantityByTicket(3);
+        festival.removeStock(stock);
+        festival.addTicketType(new TypeTicket("Standard", 100, 20));
+        festival.save();
+
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival, loaded, "Le festival rejoué doit être identique au festival enregistré");
+        Avantage avantage = loaded.getTicketTypes().get(0).getAvantages().get(0);
+        assertSame(loaded.getStocks().get(0), avantage.getStock(), "L'avantage rejoué doit être relié au stock du festival");
+        assertSame(avantage, loaded.getStocks().get(0).getAvantages().get(0), "Le stock doit partager l'avantage de son type de ticket");
+    }
+
+    @Test
+    void movedRepresentation() throws Exception {
+        festival.addRepresentation(new Representation(120, 30, "Main Stage", null));
+        Representation moved = festival.getRepresentations().first();
+        moved.setStartDelta(180);
+        moved.setDuration(45);
+        festival.getRepresentations().first().setScene("Second Stage");
+        festival.save();
+
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival, loaded, "Les représentations déplacées doivent être rejouées à leur nouvelle place");
+        assertEquals(45, loaded.getRepresentations().last().getDuration(), "La représentation déplacée doit être retrouvée après son déplacement");
+    }
+
+    @Test
+    void ids() throws Exception {
+        festival.addRepresentation(new Representation(120, 30, "Main Stage", null));
+        Stock water = new Stock("Eau", 50, false, 1);
+        festival.addStock(water);
+        festival.removeStock(water);
+        festival.compact();
+        Representation last = festival.getRepresentations().last();
+        festival.removeRepresentation(festival.getRepresentations().first());
+        Stock beer = new Stock("Bière", 500, false, 4);
+        festival.addStock(beer);
+        festival.save();
+
+        Festival loaded = Festival.Festival(file);
+        assertSame(loaded.getRepresentations().first(), loaded.getRepresentation(last.getId()), "Les éléments du fichier doivent garder leur identifiant");
+        assertEquals("Bière", loaded.getStock(beer.getId()).getName(), "Les éléments rejoués doivent retrouver leur identifiant");
+        loaded.getRepresentation(last.getId()).setDuration(45);
+        loaded.save();
+        assertEquals(45, Festival.Festival(file).getRepresentation(last.getId()).getDuration(), "Le journal doit désigner les éléments par leur identifiant");
+    }
+
+    @Test
+    void lazyIds() throws Exception {
+        long representation = festival.getRepresentations().first().getId();
+        Festival loaded = Festival.Festival(file);
+        Stock beer = new Stock("Bière", 500, false, 4);
+        loaded.addStock(beer);
+        loaded.save();
+        assertEquals(representation, loaded.getRepresentations().first().getId(), "Un élément ajouté avant le décodage des représentations ne doit pas prendre leur identifiant");
+        assertEquals("Bière", Festival.Festival(file).getStock(beer.getId()).getName(), "L'élément ajouté doit être rejoué avec son identifiant");
+    }
+
+    @Test
+    void replayTwice() throws Exception {
+        artiste.setPrice(200);
+        festival.save();
+        Festival loaded = Festival.Festival(file);
+        loaded.getArtistes().get(0).setName("AC/DC");
+        loaded.save();
+        Festival reloaded = Festival.Festival(file);
+        assertEquals(200, reloaded.getArtistes().get(0).getPrice(), "Les modifications d'une sauvegarde précédente doivent être conservées");
+        assertEquals("AC/DC", reloaded.getArtistes().get(0).getName(), "Les modifications d'un festival rechargé doivent être ajoutées au journal");
+    }
+
+    @Test
+    void tornEntry() throws Exception {
+        ticketType.setPrice(80);
+        festival.save();
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write(new byte[]{0, 0, 0, 42, 1, 2}); // Entrée interrompue
+        }
+        Festival loaded = Festival.Festival(file);
+        assertEquals(80, loaded.getTicketTypes().get(0).getPrice(), "Les entrées complètes doivent être rejouées");
+        loaded.getTicketTypes().get(0).setPrice(90);
+        loaded.save();
+        assertEquals(90, Festival.Festival(file).getTicketTypes().get(0).getPrice(), "L'entrée interrompue doit être écrasée par la sauvegarde suivante");
+    }
+
+    @Test
+    void corruptedEntry() throws Exception {
+        ticketType.setPrice(80);
+        festival.save();
+        stock.setPrix(3);
+        festival.save();
+        artiste.setPrice(200);
+        festival.save();
+        byte[] entries = Files.readAllBytes(journal.toPath());
+        ByteBuffer content = ByteBuffer.wrap(entries);
+        int second = 14 + Integer.BYTES + content.getInt(14) + Integer.BYTES; // Après l'en-tête et la première entrée
+        entries[second + Integer.BYTES + content.getInt(second) - 1] ^= 1;
+        Files.write(journal.toPath(), entries);
+        assertThrows(FestivalException.class, () -> Festival.Festival(file), "Une entrée altérée au milieu du journal doit empêcher l'ouverture");
+        assertArrayEquals(entries, Files.readAllBytes(journal.toPath()), "Le journal ne doit pas être modifié");
+    }
+
+    @Test
+    void unknownElement() throws Exception {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(entry);
+        out.writeByte(1); // Modification d'une propriété
+        out.writeByte(3); // D'un stock absent du festival
+        out.writeLong(999);
+        out.writeUTF("prix");
+        out.writeByte('D');
+        out.writeDouble(3);
+        CRC32 crc = new CRC32();
+        crc.update(entry.toByteArray());
+        stock.setPrix(4);
+        festival.save();
+        try (DataOutputStream append = new DataOutputStream(new FileOutputStream(journal, true))) {
+            append.writeInt(entry.size());
+            entry.writeTo(append);
+            append.writeInt((int) crc.getValue());
+        }
+        assertThrows(FestivalException.class, () -> Festival.Festival(file), "Une entrée intacte qui ne peut pas être rejouée doit empêcher l'ouverture");
+    }
+
+    @Test
+    void otherGeneration() throws Exception {
+        festival.addStock(new Stock("Bière", 500, false, 4));
+        festival.save();
+        byte[] entries = Files.readAllBytes(journal.toPath());
+        festival.compact();
+        Files.write(journal.toPath(), entries);
+        assertEquals(festival, Festival.Festival(file), "Le journal d'un fichier réécrit depuis ne doit pas être rejoué");
+    }
+
+    @Test
+    void compact() throws Exception {
+        stock.setName("Canette Coca");
+        festival.save();
+        long length = journal.length();
+        festival.compact();
+        assertTrue(journal.length() < length, "La compaction doit vider le journal");
+        assertEquals(festival, Festival.Festival(file), "La compaction doit conserver les modifications du journal");
+    }
+
+    @Test
+    void preparedWrites() throws Exception {
+        stock.setPrix(3);
+        FestivalWrite first = festival.prepareSave();
+        stock.setPrix(4);
+        FestivalWrite compaction = festival.prepareCompact();
+        stock.setPrix(5);
+        FestivalWrite last = festival.prepareSave();
+        first.commit();
+        compaction.commit();
+        last.commit();
+        assertEquals(5, Festival.Festival(file).getStocks().get(0).getPrix(), "Les écritures préparées doivent pouvoir être faites plus tard, dans l'ordre");
+    }
+
+    @Test
+    void atomicReplace() throws Exception {
+        festival.compact();
+        File[] leftovers = file.getParentFile().listFiles((dir, name) -> name.startsWith(file.getName()) && name.endsWith(".tmp"));
+        assertEquals(0, leftovers == null ? 0 : leftovers.length, "Le fichier temporaire doit remplacer le fichier du festival");
+    }
+
+    @Test
+    void lazyFestival() throws Exception {
+        Festival loaded = Festival.Festival(file);
+        loaded.setLocation("Lyon");
+        loaded.save();
+        assertFalse(loaded.isMaterialized(), "Sauvegarder dans le journal ne doit pas décoder les collections");
+        assertEquals("Lyon", Festival.Festival(file).getLocation(), "La modification doit être rejouée");
+    }
+
+    @Test
+    void compressedFile() throws Exception {
+        festival.setCompressionLevel(FestivalCodec.DEFAULT_COMPRESSION_LEVEL);
+        stock.setPrix(3);
+        festival.save();
+        assertTrue(FestivalCodec.isCompressed(ByteBuffer.wrap(Files.readAllBytes(file.toPath()))), "Changer de niveau de compression doit réécrire le fichier compressé");
+        ticketType.setPrice(80);
+        festival.save();
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival, loaded, "Le journal d'un fichier compressé doit être rejoué");
+        assertEquals(FestivalCodec.DEFAULT_COMPRESSION_LEVEL, loaded.getCompressionLevel(), "Le festival chargé doit rester compressé");
+        assertThrows(FestivalException.class, () -> festival.setCompressionLevel(10), "Un niveau de compression invalide doit être refusé");
+    }
+}
@@ -0,0 +1,97 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalMergeTest {
+
+    Festival base;
+    Festival ours;
+    Festival theirs;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        base = create();
+        ours = create();
+        theirs = create();
+    }
+
+    static Festival create() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        Festival festival = new Festival("Valid Festival", LocalDateTime.of(2030, 7, 14, 18, 0), 100, 500, "Paris");
+        Artiste artiste = new Artiste("DCAC", "rock", 100f);
+        Representation representation = new Representation(60, 30, "Main Stage", artiste);
+        festival.addArtiste(artiste);
+        festival.addRepresentation(representation);
+        Stock stock = new Stock("Bouteille Coca", 100, false, 2.5);
+        festival.addStock(stock);
+        festival.addStock(new Stock("Bière", 200, false, 3));
+        TypeTicket ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addTicketType(ticketType);
+        new Avantage(ticketType, stock, 2).connect();
+        return festival;
+    }
+
+    static long hash(Festival festival) throws FestivalException {
+        return FestivalTree.of(festival).getRootHash();
+    }
+
+    @Test
+    void unchanged() throws FestivalException {
+        FestivalMerge merge = FestivalMerge.merge(base, ours, theirs);
+        assertFalse(merge.hasConflicts(), "Aucun conflit ne doit être trouvé");
+        assertEquals(hash(base), hash(merge.getFestival()), "Le festival fusionné doit être identique aux versions");
+        assertEquals(1, merge.getFestival().getArtistes().get(0).getRepresentations().size(), "Les représentations de l'artiste doivent être reliées");
+    }
+
+    @Test
+    void oneSide() throws FestivalException, StockException {
+        theirs.getStocks().get(0).setPrix(4);
+        theirs.setName("Autre Festival");
+        FestivalMerge merge = FestivalMerge.merge(base, ours, theirs);
+        assertFalse(merge.hasConflicts(), "Les modifications d'un seul côté ne doivent pas être en conflit");
+        assertEquals(hash(theirs), hash(merge.getFestival()), "Les modifications de l'autre version doivent être reprises");
+    }
+
+    @Test
+    void bothSides() throws FestivalException, StockException, TypeTicketException {
+        ours.getStocks().get(0).setPrix(4);
+        ours.addTicketType(new TypeTicket("Standard", 100, 30));
+        theirs.getStocks().get(0).setQuantity(150);
+        theirs.removeStock(theirs.getStocks().get(1));
+        FestivalMerge merge = FestivalMerge.merge(base, ours, theirs);
+        Festival festival = merge.getFestival();
+        assertFalse(merge.hasConflicts(), "Des propriétés différentes du même élément ne doivent pas être en conflit");
+        Stock stock = festival.getStocks().get(0);
+        assertEquals(4, stock.getPrix(), "Le prix modifié localement doit être repris");
+        assertEquals(150, stock.getQuantity(), "La quantité modifiée par l'autre version doit être reprise");
+        assertEquals(1, festival.getStocks().size(), "Le stock supprimé par l'autre version doit être supprimé");
+        assertEquals(2, festival.getTicketTypes().size(), "Le type de ticket ajouté localement doit être repris");
+        assertEquals(1, stock.getAvantages().size(), "L'avantage doit être relié au stock fusionné");
+    }
+
+    @Test
+    void conflicts() throws FestivalException, StockException, TypeTicketException {
+        ours.getStocks().get(0).setPrix(4);
+        theirs.getStocks().get(0).setPrix(5);
+        ours.getStocks().get(1).setPrix(6);
+        theirs.removeStock(theirs.getStocks().get(1));
+        FestivalMerge merge = FestivalMerge.merge(base, ours, theirs);
+        assertEquals(2, merge.getConflicts().size(), "Les deux conflits doivent être signalés");
+        assertEquals(4, merge.getFestival().getStocks().get(0).getPrix(), "La version locale doit être conservée en cas de conflit");
+        assertEquals(2, merge.getFestival().getStocks().size(), "L'élément modifié doit être conservé plutôt que supprimé");
+    }
+
+    @Test
+    void rejected() throws FestivalException {
+        ours.addRepresentation(new Representation(100, 30, "Main Stage", null));
+        theirs.addRepresentation(new Representation(110, 30, "Main Stage", null));
+        FestivalMerge merge = FestivalMerge.merge(base, ours, theirs);
+        assertEquals(1, merge.getConflicts().size(), "La représentation en collision doit être signalée");
+        assertEquals(2, merge.getFestival().getRepresentations().size(), "La représentation en collision doit être écartée");
+    }
+}
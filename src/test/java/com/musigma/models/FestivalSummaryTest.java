@@ -0,0 +1,59 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalSummaryTest {
+
+    Festival festival;
+    File file;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, ArtisteException {
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        Artiste artiste = new Artiste("DCAC", "rock", 100f);
+        festival.addArtiste(artiste);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", artiste));
+        festival.addRepresentation(new Representation(120, 30, "Main Stage", new Artiste("Invité", "jazz", 10)));
+        festival.addStock(new Stock("Bouteille Coca", 100, true, 2.5));
+        festival.addTicketType(new TypeTicket("VIP", 10, 60));
+        festival.addTicketType(new TypeTicket("Standard", 100, 20));
+        file = new File(String.format("%s/summary.mgm", System.getProperty("java.io.tmpdir")));
+        festival.setFile(file);
+        festival.save();
+    }
+
+    @Test
+    void of() throws FestivalException {
+        FestivalSummary summary = FestivalSummary.of(festival);
+        assertEquals("Valid Festival", summary.getName(), "Le résumé doit contenir le nom du festival");
+        assertEquals(festival.getStart(), summary.getStart(), "Le résumé doit contenir la date de début");
+        assertEquals(1, summary.getArtistes(), "Seuls les artistes du festival doivent être comptés");
+        assertEquals(2, summary.getRepresentations(), "Toutes les représentations doivent être comptées");
+        assertEquals(1, summary.getStocks(), "Tous les stocks doivent être comptés");
+        assertEquals(2, summary.getTicketTypes(), "Tous les types de tickets doivent être comptés");
+    }
+
+    @Test
+    void lazyFestival() throws FestivalException {
+        Festival loaded = Festival.Festival(file);
+        assertEquals(FestivalSummary.of(festival), FestivalSummary.of(loaded), "Le résumé d'un festival ouvert doit être identique");
+        assertFalse(loaded.isMaterialized(), "Le résumé ne doit pas décoder les collections");
+    }
+
+    @Test
+    void journal() throws Exception {
+        festival.setName("Renamed Festival");
+        festival.addStock(new Stock("Bière", 500, false, 4));
+        festival.save();
+        FestivalSummary summary = FestivalSummary.of(Festival.Festival(file));
+        assertEquals("Renamed Festival", summary.getName(), "Le résumé doit tenir compte du journal");
+        assertEquals(2, summary.getStocks(), "Les éléments ajoutés dans le journal doivent être comptés");
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -146,6 +148,28 @@ class FestivalTest {
         assertThrows(FestivalException.class, () -> festival.addStock(null), "Le festival ne doit pas pouvoir ajouter null comme stock");
     }
 
+    @Test
+    void addStocks() throws StockException, FestivalException {
+        festival.addStock(stock);
+        Stock beer = new Stock("Bière", 500, false, 4), water = new Stock("Eau", 200, false, 1);
+        assertDoesNotThrow(() -> festival.addStocks(List.of(beer, water)), "Le festival doit pouvoir ajouter des stocks en une fois");
+        assertEquals(List.of(stock, beer, water), festival.getStocks(), "Les stocks doivent être ajoutés à la fin, dans l'ordre");
+        Stock other = new Stock("Autre", 10, false, 1);
+        assertThrows(FestivalException.class, () -> festival.addStocks(List.of(other, new Stock("Eau", 10, false, 1))), "Un nom déjà pris doit refuser tout le lot");
+        assertThrows(FestivalException.class, () -> festival.addStocks(List.of(other, new Stock("Autre", 10, false, 1))), "Un nom en double dans le lot doit le refuser");
+        assertFalse(festival.getStocks().contains(other), "Aucun stock d'un lot refusé ne doit être ajouté");
+    }
+
+    @Test
+    void addTicketTypes() throws TypeTicketException, FestivalException {
+        festival.addTicketType(ticketType);
+        TypeTicket standard = new TypeTicket("Standard", 100, 20);
+        assertThrows(FestivalException.class, () -> festival.addTicketTypes(List.of(standard, new TypeTicket("VIP", 1, 1))), "Un nom déjà pris doit refuser tout le lot");
+        assertEquals(1, festival.getTicketTypes().size(), "Aucun type de ticket d'un lot refusé ne doit être ajouté");
+        festival.addTicketTypes(List.of(standard));
+        assertEquals(List.of(ticketType, standard), festival.getTicketTypes(), "Les types de tickets doivent être ajoutés à la fin");
+    }
+
     @Test
     void removeStock() throws StockException, FestivalException {
         festival.addStock(stock);
@@ -179,6 +203,288 @@ class FestivalTest {
         assertEquals(festival, clonedFestival, "Le festival doit conserver les informations");
     }
 
+    @Test
+    void load() throws Exception {
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addRepresentation(newRepresentation(1, 1));
+        File testFile = new File(String.format("%s/test3.mgm", System.getProperty("java.io.tmpdir")));
+        festival.setFile(testFile);
+        festival.save();
+
+        List<Double> progress = new ArrayList<>();
+        Festival loaded = Festival.load(testFile, progress::add);
+        assertTrue(loaded.isMaterialized(), "Le festival doit être entièrement décodé par le chargement");
+        assertEquals(festival, loaded, "Le festival doit conserver les informations");
+        assertEquals(0, (double) progress.get(0), "L'avancement doit commencer à 0");
+        assertEquals(1, (double) progress.get(progress.size() - 1), "L'avancement doit finir à 1");
+        for (int i = 1; i < progress.size(); i++)
+            assertTrue(progress.get(i) >= progress.get(i - 1), "L'avancement ne doit pas reculer");
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> Festival.load(testFile, p -> {
+        }), "Le chargement doit être abandonné si le fil d'exécution est interrompu");
+        assertFalse(Thread.interrupted(), "L'interruption doit être consommée par l'abandon du chargement");
+    }
+
+    @Test
+    void modCount() throws Exception {
+        long modCount = festival.getModCount();
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        assertTrue(festival.getModCount() > modCount, "L'ajout d'éléments doit compter comme une modification");
+        modCount = festival.getModCount();
+        stock.setPrix(3);
+        stock.setPrix(2.5);
+        assertEquals(modCount + 2, festival.getModCount(), "Deux modifications qui s'annulent doivent être comptées");
+        modCount = festival.getModCount();
+        avantage.connect();
+        assertTrue(festival.getModCount() > modCount, "La connexion d'un avantage doit compter comme une modification");
+
+        festival.setFile(new File(String.format("%s/modcount.mgm", System.getProperty("java.io.tmpdir"))));
+        festival.compact();
+        Festival loaded = Festival.Festival(festival.getFile());
+        modCount = loaded.getModCount();
+        loaded.materialize();
+        assertEquals(modCount, loaded.getModCount(), "Le décodage du fichier ne doit pas compter comme une modification");
+    }
+
+    @Test
+    void scenes() throws Exception {
+        Representation main = newRepresentation(16, 240);
+        Representation second = new Representation(16 * 60, 60, "Second Stage", artiste);
+        festival.addRepresentation(main);
+        assertDoesNotThrow(() -> festival.addRepresentation(second), "Deux représentations simultanées sur des scènes différentes doivent pouvoir être ajoutées");
+        assertEquals(2, festival.getRepresentations().size(), "Les deux représentations simultanées doivent être conservées");
+        festival.addRepresentation(newRepresentation(21, 60));
+        assertThrows(FestivalException.class, () -> festival.addRepresentation(newRepresentation(19, 30)), "Une représentation pendant une longue représentation doit être refusée");
+        assertEquals(List.of(main), festival.findRepresentations("Main Stage", 17 * 60, 30), "La représentation en cours doit être trouvée sur sa scène");
+        assertTrue(festival.findRepresentations("Third Stage", 16 * 60, 600).isEmpty(), "Une scène sans représentation doit être libre");
+
+        assertThrows(RepresentationException.class, () -> second.setScene("Main Stage"), "Une représentation ne doit pas être déplacée sur une scène occupée");
+        assertThrows(RepresentationException.class, () -> main.setDuration(330), "Une représentation ne doit pas être allongée sur la suivante");
+        assertEquals("Second Stage", second.getScene(), "La représentation refusée ne doit pas être modifiée");
+        second.setStartDelta(22 * 60);
+        assertSame(second, festival.getRepresentations().last(), "La représentation déplacée doit être triée à son nouveau début");
+        assertEquals(List.of(second), festival.findRepresentations("Second Stage", 22 * 60, 10), "La représentation déplacée doit être trouvée à son nouveau créneau");
+        assertTrue(festival.findRepresentations("Second Stage", 16 * 60, 60).isEmpty(), "L'ancien créneau doit être libéré");
+        assertThrows(RepresentationException.class, () -> main.setStartDelta(20 * 60), "Le début seul ne doit pas pousser la représentation sur la suivante");
+        assertDoesNotThrow(() -> main.setSchedule(20 * 60, 60), "Le début et la durée modifiés ensemble doivent laisser le créneau libre");
+        assertEquals(60, main.getDuration(), "La durée doit être changée avec le début");
+        assertEquals(List.of(main), festival.findRepresentations("Main Stage", 20 * 60, 10), "La représentation doit être trouvée à son nouveau créneau");
+        assertThrows(RepresentationException.class, () -> main.setSchedule(20 * 60 + 30, 60), "Un créneau en collision doit être refusé");
+        assertEquals(20 * 60, main.getStartDelta(), "La représentation refusée ne doit pas être modifiée");
+        festival.removeRepresentation(main);
+        assertTrue(festival.findRepresentations("Main Stage", 16 * 60, 60).isEmpty(), "Une représentation retirée doit libérer son créneau");
+    }
+
+    @Test
+    void dictionaries() throws Exception {
+        Representation main = new Representation(0, 60, new String("Main Stage"), artiste);
+        Representation later = new Representation(60, 60, new String("Main Stage"), artiste);
+        Representation second = new Representation(30, 60, "Second Stage", artiste);
+        festival.addRepresentation(main);
+        festival.addRepresentation(later);
+        festival.addRepresentation(second);
+        assertSame(main.getScene(), later.getScene(), "Les représentations d'une même scène doivent partager son nom");
+        assertFalse(main.isColliding(second), "Des représentations sur des scènes différentes ne doivent pas être en collision");
+        second.setStartDelta(240);
+        second.setScene(new String("Main Stage"));
+        assertSame(main.getScene(), second.getScene(), "Une représentation déplacée doit partager le nom de sa nouvelle scène");
+        assertTrue(new Representation(250, 10, "Main Stage", null).isColliding(second), "La collision doit être détectée avec une représentation hors festival");
+        assertEquals(List.of(second), festival.findRepresentations(new String("Main Stage"), 250, 10), "Le planning d'une scène doit être retrouvé par son code");
+        int scenes = festival.sceneDictionary().size();
+        assertTrue(festival.findRepresentations("Third Stage", 0, 600).isEmpty(), "Une scène inconnue doit être libre");
+        assertEquals(scenes, festival.sceneDictionary().size(), "Une recherche ne doit pas ajouter de scène au dictionnaire");
+
+        Artiste other = new Artiste("Invité", new String("rock"), 10f);
+        festival.addArtiste(artiste);
+        festival.addArtiste(other);
+        assertSame(artiste.getGenre(), other.getGenre(), "Les artistes d'un même genre doivent partager son nom");
+        other.setGenre("jazz");
+        artiste.setGenre(new String("jazz"));
+        assertSame(other.getGenre(), artiste.getGenre(), "Un genre modifié doit être partagé avec les autres artistes");
+    }
+
+    @Test
+    void snapshot() throws Exception {
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        Representation representation = new Representation(60, 30, "Main Stage", artiste);
+        festival.addRepresentation(representation);
+        avantage.connect();
+
+        Festival snapshot = festival.snapshot();
+        assertTrue(snapshot.isSnapshot(), "L'instantané doit être reconnu");
+        assertEquals(festival, snapshot, "L'instantané doit avoir le contenu du festival");
+        assertNotSame(artiste, snapshot.getArtistes().get(0), "L'instantané ne doit pas partager les éléments du festival");
+        assertEquals(artiste.getId(), snapshot.getArtistes().get(0).getId(), "Les copies doivent garder l'identifiant de leur élément");
+        assertSame(snapshot.getArtistes().get(0), snapshot.getRepresentations().first().getArtiste(), "Les copies doivent être reliées entre elles");
+        assertSame(snapshot.getStocks().get(0).getAvantages().get(0), snapshot.getTicketTypes().get(0).getAvantages().get(0), "Les avantages copiés doivent être partagés par leur stock et leur type de ticket");
+
+        artiste.setName("Renamed");
+        representation.setDuration(45);
+        festival.setName("Renamed Festival");
+        assertEquals("DCAC", snapshot.getArtistes().get(0).getName(), "L'instantané ne doit pas voir les modifications suivantes");
+        assertEquals(30, snapshot.getRepresentations().first().getDuration(), "L'instantané ne doit pas voir les modifications suivantes");
+        assertEquals("Valid Festival", snapshot.getName(), "L'instantané ne doit pas voir les modifications suivantes");
+
+        Festival next = festival.snapshot();
+        assertEquals(festival, next, "Un nouvel instantané doit avoir le contenu actuel du festival");
+        assertSame(snapshot.getStocks().get(0), next.getStocks().get(0), "Les stocks inchangés doivent être partagés entre les instantanés");
+        assertNotSame(snapshot.getArtistes().get(0), next.getArtistes().get(0), "Les artistes modifiés doivent être recopiés");
+        festival.addArtiste(new Artiste("Invité", "jazz", 10f));
+        stock.setPrix(3);
+        Festival last = festival.snapshot();
+        assertSame(next.getArtistes().get(0), last.getArtistes().get(0), "Les artistes inchangés doivent être partagés même si d'autres sont ajoutés");
+        assertSame(next.getRepresentations().first(), last.getRepresentations().first(), "Les représentations inchangées doivent être partagées entre les instantanés");
+        assertEquals(3, last.getStocks().get(0).getPrix(), "Les stocks modifiés doivent être recopiés");
+        assertSame(last.getStocks().get(0), last.getTicketTypes().get(0).getAvantages().get(0).getStock(), "Les types de tickets reliés à un stock modifié doivent être recopiés avec lui");
+
+        assertSame(last, last.snapshot(), "Un instantané doit être son propre instantané");
+        assertThrows(FestivalException.class, () -> last.setName("Autre"), "Un instantané ne doit pas être modifié");
+        assertThrows(FestivalException.class, () -> last.addArtiste(new Artiste("Invité", "jazz", 10f)), "Un instantané ne doit pas être modifié");
+        assertThrows(TypeTicketException.class, last::optimizeResult, "Un instantané ne doit pas être optimisé");
+    }
+
+    @Test
+    void snapshotImmutable() throws Exception {
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", artiste));
+        avantage.connect();
+        Festival snapshot = festival.snapshot();
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getArtistes().add(artiste), "Les artistes d'un instantané ne doivent pas être modifiables");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getRepresentations().pollFirst(), "Les représentations d'un instantané ne doivent pas être modifiables");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getStocks().clear(), "Les stocks d'un instantané ne doivent pas être modifiables");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getTicketTypes().remove(0), "Les types de tickets d'un instantané ne doivent pas être modifiables");
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getStocks().get(0).getAvantages().clear(), "Les avantages d'un instantané ne doivent pas être modifiables");
+
+        assertThrows(ArtisteException.class, () -> snapshot.getArtistes().get(0).setName("Autre"), "Les copies d'un instantané ne doivent pas être modifiées");
+        assertThrows(RepresentationException.class, () -> snapshot.getRepresentations().first().setDuration(45), "Les copies d'un instantané ne doivent pas être modifiées");
+        assertThrows(StockException.class, () -> snapshot.getStocks().get(0).setFixed(true), "Les copies d'un instantané ne doivent pas être modifiées");
+        assertThrows(TypeTicketException.class, () -> snapshot.getTicketTypes().get(0).setPrice(80), "Les copies d'un instantané ne doivent pas être modifiées");
+        assertThrows(AvantageException.class, () -> snapshot.getTicketTypes().get(0).getAvantages().get(0).setQuantityByTicket(3), "Les copies d'un instantané ne doivent pas être modifiées");
+        assertEquals(festival, snapshot, "Les modifications refusées ne doivent pas changer l'instantané");
+        assertEquals(festival, festival.snapshot(), "Les modifications refusées ne doivent pas changer les instantanés suivants");
+    }
+
+    @Test
+    void artisteRepresentations() throws Exception {
+        festival.addArtiste(artiste);
+        Artiste guest = new Artiste("Invité", "jazz", 10f);
+        Representation late = newRepresentation(20, 60), early = newRepresentation(14, 60);
+        Representation other = new Representation(16 * 60, 60, "Main Stage", guest);
+        festival.addRepresentation(late);
+        festival.addRepresentation(early);
+        festival.addRepresentation(other);
+        assertEquals(List.of(early, late), List.copyOf(festival.getRepresentations(artiste)), "Les représentations de l'artiste doivent être triées par début");
+        assertEquals(List.of(other), List.copyOf(festival.getRepresentations(guest)), "Un artiste hors festival doit retrouver ses représentations");
+
+        late.setStartDelta(12 * 60);
+        assertEquals(List.of(late, early), List.copyOf(festival.getRepresentations(artiste)), "La représentation déplacée doit être triée à son nouveau début");
+        other.setArtiste(artiste);
+        assertTrue(festival.getRepresentations(guest).isEmpty(), "L'ancien artiste ne doit plus avoir la représentation");
+        assertEquals(3, festival.getRepresentations(artiste).size(), "Le nouvel artiste doit avoir la représentation");
+        festival.removeRepresentation(early);
+        assertEquals(List.of(late, other), List.copyOf(festival.getRepresentations(artiste)), "La représentation retirée ne doit plus être liée à l'artiste");
+        assertThrows(UnsupportedOperationException.class, () -> festival.getRepresentations(artiste).clear(), "Les représentations de l'artiste ne doivent pas être modifiables");
+    }
+
+    @Test
+    void findByName() throws Exception {
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        festival.addArtiste(artiste);
+        Artiste homonym = new Artiste("DCAC", "jazz", 50f);
+        festival.addArtiste(homonym);
+        assertSame(stock, festival.findStock("Bouteille Coca"), "Le stock doit être retrouvé par son nom");
+        assertSame(ticketType, festival.findTicketType("VIP"), "Le type de ticket doit être retrouvé par son type");
+        assertSame(artiste, festival.findArtiste("DCAC"), "Le premier artiste homonyme doit être retrouvé par son nom");
+
+        stock.setName("Canette Coca");
+        ticketType.setType("Premium");
+        artiste.setName("ACDC");
+        assertNull(festival.findStock("Bouteille Coca"), "L'ancien nom du stock ne doit plus être indexé");
+        assertSame(stock, festival.findStock("Canette Coca"), "Le stock renommé doit être retrouvé par son nouveau nom");
+        assertSame(ticketType, festival.findTicketType("Premium"), "Le type de ticket renommé doit être retrouvé par son nouveau type");
+        assertSame(homonym, festival.findArtiste("DCAC"), "L'homonyme restant doit être retrouvé par son nom");
+        assertSame(artiste, festival.findArtiste("ACDC"), "L'artiste renommé doit être retrouvé par son nouveau nom");
+
+        Stock other = new Stock("Bière", 200, false, 3);
+        festival.addStock(other);
+        assertThrows(StockException.class, () -> other.setName("Canette Coca"), "Un stock ne doit pas prendre le nom d'un autre stock du festival");
+        assertThrows(FestivalException.class, () -> festival.addStock(new Stock("Canette Coca", 1, false, 1)), "Un stock ne doit pas être ajouté avec un nom déjà pris");
+
+        festival.removeStock(stock);
+        assertNull(festival.findStock("Canette Coca"), "Un stock retiré ne doit plus être retrouvé par son nom");
+        other.setName("Canette Coca");
+        assertSame(other, festival.findStock("Canette Coca"), "Le nom d'un stock retiré doit être libéré");
+        assertThrows(FestivalException.class, () -> festival.removeStock(stock), "Un stock déjà retiré ne doit pas être trouvé");
+
+        festival.setFile(new File(String.format("%s/names.mgm", System.getProperty("java.io.tmpdir"))));
+        festival.compact();
+        Festival loaded = Festival.Festival(festival.getFile());
+        assertEquals("Canette Coca", loaded.findStock("Canette Coca").getName(), "Les stocks chargés doivent être retrouvés par leur nom");
+        assertEquals("Premium", loaded.findTicketType("Premium").getType(), "Les types de tickets chargés doivent être retrouvés par leur type");
+        assertEquals("jazz", loaded.findArtiste("DCAC").getGenre(), "Les artistes chargés doivent être retrouvés par leur nom");
+    }
+
+    @Test
+    void listener() throws Exception {
+        List<String> events = new ArrayList<>();
+        FestivalListener listener = new FestivalListener() {
+            @Override
+            public void elementAdded(Object source, String collection, int index, Object element) {
+                events.add(String.format("+%s[%d]", collection, index));
+            }
+
+            @Override
+            public void elementRemoved(Object source, String collection, int index, Object element) {
+                events.add(String.format("-%s[%d]", collection, index));
+            }
+        };
+        festival.addStock(stock);
+        festival.addListener(listener);
+        Stock biere = new Stock("Bière", 200, false, 3);
+        festival.addStock(biere);
+        stock.setPrix(3);
+        festival.removeStock(stock);
+        assertEquals(List.of("+stocks[1]", "-stocks[0]"), events, "Seuls les ajouts et retraits écoutés doivent être notifiés, avec leur position");
+        festival.removeListener(listener);
+        festival.removeStock(biere);
+        assertEquals(2, events.size(), "Un écouteur retiré ne doit plus être notifié");
+    }
+
+    @Test
+    void ids() throws Exception {
+        assertEquals(0, stock.getId(), "Un stock hors festival ne doit pas avoir d'identifiant");
+        festival.addStock(stock);
+        festival.addArtiste(artiste);
+        long id = stock.getId();
+        assertNotEquals(0, id, "Le festival doit attribuer un identifiant au stock");
+        assertNotEquals(id, artiste.getId(), "Les identifiants doivent être uniques dans le festival");
+        stock.setPrix(3);
+        assertEquals(id, stock.getId(), "L'identifiant ne doit pas changer avec les valeurs du stock");
+        assertSame(stock, festival.getStock(id), "Le stock doit être retrouvé par son identifiant");
+        assertNull(festival.getArtiste(id), "Un identifiant de stock ne doit pas désigner un artiste");
+        Stock same = new Stock("Bouteille Coca", 100, true, 3);
+        assertNotEquals(stock, same, "Deux stocks aux mêmes valeurs doivent rester distincts");
+        festival.removeStock(stock);
+        assertNull(festival.getStock(id), "Un stock retiré ne doit plus être retrouvé");
+        festival.addStock(stock);
+        assertEquals(id, stock.getId(), "Un stock remis dans le festival doit garder son identifiant");
+
+        festival.setFile(new File(String.format("%s/ids.mgm", System.getProperty("java.io.tmpdir"))));
+        festival.compact();
+        Festival loaded = Festival.Festival(festival.getFile());
+        Stock loadedStock = loaded.getStocks().get(0);
+        assertSame(loadedStock, loaded.getStock(loadedStock.getId()), "Les éléments chargés doivent être retrouvés par leur identifiant");
+    }
+
     @Test
     void optimizeResult() throws FestivalException, StockException, TypeTicketException, AvantageException {
         festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 14000, "Paris");
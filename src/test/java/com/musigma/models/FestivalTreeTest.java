@@ -0,0 +1,69 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalTreeTest {
+
+    Festival festival;
+    Festival other;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        festival = create();
+        other = create();
+    }
+
+    static Festival create() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        Festival festival = new Festival("Valid Festival", LocalDateTime.of(2030, 7, 14, 18, 0), 100, 500, "Paris");
+        Artiste artiste = new Artiste("DCAC", "rock", 100f);
+        festival.addArtiste(artiste);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", artiste));
+        for (int i = 0; i < 1000; i++)
+            festival.addStock(new Stock("Stock " + i, 100, false, 2.5));
+        TypeTicket ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addTicketType(ticketType);
+        new Avantage(ticketType, festival.getStocks().get(0), 2).connect();
+        return festival;
+    }
+
+    @Test
+    void same() throws FestivalException {
+        FestivalTree tree = FestivalTree.of(festival), otherTree = FestivalTree.of(other);
+        assertEquals(tree.getRootHash(), otherTree.getRootHash(), "Deux festivals au même contenu doivent avoir la même empreinte");
+        assertTrue(tree.diff(otherTree).isEmpty(), "Aucune modification ne doit être trouvée entre deux festivals identiques");
+    }
+
+    @Test
+    void changes() throws FestivalException, StockException, TypeTicketException {
+        other.getStocks().get(500).setPrix(3);
+        other.removeStock(other.getStocks().get(10));
+        other.addTicketType(new TypeTicket("Standard", 100, 30));
+        other.setLocation("Lyon");
+        FestivalTree tree = FestivalTree.of(festival), otherTree = FestivalTree.of(other);
+        assertNotEquals(tree.getRootHash(), otherTree.getRootHash(), "Les empreintes doivent différer");
+        assertEquals(tree.getHash(FestivalTree.Section.ARTISTES), otherTree.getHash(FestivalTree.Section.ARTISTES), "Les sections inchangées doivent garder leur empreinte");
+        List<FestivalChange> changes = tree.diff(otherTree);
+        assertEquals(4, changes.size(), "Seuls les éléments modifiés doivent être signalés");
+        assertEquals("Modification : Festival : location Paris → Lyon", changes.get(0).toString(), "La modification du festival doit être lisible");
+        assertEquals("Suppression : Stock \"Stock 10\"", changes.get(1).toString(), "Les modifications doivent suivre l'ordre du festival");
+        assertEquals("Modification : Stock \"Stock 500\" : price 2.5 → 3.0", changes.get(2).toString(), "Seule la propriété modifiée doit être signalée");
+        assertEquals(FestivalChange.Kind.ADDED, changes.get(3).getKind(), "Le type de ticket doit être ajouté");
+        assertEquals("Standard", changes.get(3).getKey(), "Le type de ticket ajouté doit être identifié par son type");
+    }
+
+    @Test
+    void representations() throws FestivalException, RepresentationException {
+        Representation representation = other.getRepresentations().first();
+        representation.setDuration(45);
+        List<FestivalChange> changes = FestivalTree.of(festival).diff(FestivalTree.of(other));
+        assertEquals(1, changes.size(), "Seule la représentation doit être modifiée");
+        assertEquals("Modification : Représentation \"60 @ Main Stage\" : duration 30 → 45", changes.get(0).toString(), "La représentation doit être identifiée par son début et sa scène");
+    }
+}
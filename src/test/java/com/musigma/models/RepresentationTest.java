@@ -41,6 +41,16 @@ class RepresentationTest {
         assertThrows(RepresentationException.class, () -> representation.setDuration(-30), "La durée ne doit pas pouvoir être négative");
     }
 
+    @Test
+    void setSchedule() {
+        assertDoesNotThrow(() -> representation.setSchedule(200, 120), "Le début et la durée doivent pouvoir être changés ensemble sans exception");
+        assertEquals(200, representation.getStartDelta(), "Le début doit être changé pour le nouveau valide");
+        assertEquals(120, representation.getDuration(), "La durée doit être changée pour la nouvelle valide");
+        assertThrows(RepresentationException.class, () -> representation.setSchedule(-100, 60), "Le début ne doit pas pouvoir être négatif");
+        assertThrows(RepresentationException.class, () -> representation.setSchedule(100, 0), "La durée ne doit pas pouvoir être nulle");
+        assertEquals(200, representation.getStartDelta(), "Un créneau refusé ne doit pas modifier la représentation");
+    }
+
     @Test
     void setScene() {
         assertThrows(RepresentationException.class, () -> representation.setScene(null), "La scène ne doit pas pouvoir être null");
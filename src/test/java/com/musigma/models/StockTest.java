@@ -30,7 +30,7 @@ class StockTest {
     }
 
     @Test
-    void setAbsoluteQuantity() {
+    void setAbsoluteQuantity() throws StockException {
         stock.setFixed(true);
         assertThrows(StockException.class, () -> stock.setQuantity(200), "Le stock ne doit pas pouvoir être requantifié tant qu'il est fixé");
         stock.setFixed(false);
@@ -57,7 +57,7 @@ class StockTest {
     }
 
     @Test
-    void setFixed() {
+    void setFixed() throws StockException {
         stock.setFixed(true);
         assertTrue(stock.isFixed(), "Le stock doit avoir été fixé");
         stock.setFixed(false);
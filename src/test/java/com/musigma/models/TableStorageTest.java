@@ -0,0 +1,167 @@
+package com.musigma.models;
+
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableStorageTest {
+
+    Festival festival;
+    Stock stock;
+    TypeTicket ticketType;
+    Artiste artiste;
+    File file;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException, TypeTicketException, AvantageException, ArtisteException {
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        artiste = new Artiste("DCAC", "rock", 100f);
+        stock = new Stock("Bouteille Coca", 100, true, 2.5);
+        ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addArtiste(artiste);
+        festival.addStock(stock);
+        festival.addTicketType(ticketType);
+        festival.addRepresentation(new Representation(60, 30, "Main Stage", artiste));
+        festival.addRepresentation(new Representation(120, 30, "Second Stage", null));
+        new Avantage(ticketType, stock, 2).connect();
+        file = new File(String.format("%s/tables%s", System.getProperty("java.io.tmpdir"), TableStorage.EXTENSION));
+        festival.setFile(file);
+        festival.save();
+    }
+
+    @Test
+    void roundTrip() throws FestivalException {
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival, loaded, "Le festival chargé depuis les tables doit être identique au festival enregistré");
+        assertTrue(loaded.isMaterialized(), "Les tables doivent être entièrement lues à l'ouverture");
+        Artiste loadedArtiste = loaded.getArtistes().get(0);
+        assertSame(loaded.getRepresentations().first(), loadedArtiste.getRepresentations().first(), "Les représentations de l'artiste doivent être celles du festival qui le désignent");
+        assertSame(loadedArtiste, loaded.getRepresentations().first().getArtiste(), "La représentation doit désigner l'artiste du festival");
+        assertSame(loaded.getStocks().get(0).getAvantages().get(0), loaded.getTicketTypes().get(0).getAvantages().get(0), "Le stock doit partager l'avantage de son type de ticket");
+    }
+
+    @Test
+    void rowUpdate() throws IOException, FestivalException, StockException {
+        byte[] snapshot = Files.readAllBytes(file.toPath());
+        stock.setPrix(3);
+        festival.save();
+        byte[] updated = Files.readAllBytes(file.toPath());
+        for (int i = 0; i < snapshot.length; i++)
+            assertEquals(snapshot[i], updated[i], "Les lignes déjà écrites ne doivent pas être réécrites");
+        assertTrue(updated.length - snapshot.length < 64, "Seule la ligne du stock modifié doit être ajoutée");
+        assertEquals(3, Festival.Festival(file).getStocks().get(0).getPrix(), "La ligne modifiée doit remplacer l'ancienne au chargement");
+    }
+
+    @Test
+    void changes() throws Exception {
+        festival.setName("Renamed Festival");
+        artiste.setGenre("metal");
+        festival.addRepresentation(new Representation(180, 30, "Main Stage", new Artiste("Invité", "jazz", 10)));
+        festival.getRepresentations().last().getArtiste().setName("Invité surprise");
+        festival.getRepresentations().first().setScene("Second Stage");
+        Stock beer = new Stock("Bière", 500, false, 4);
+        festival.addStock(beer);
+        new Avantage(ticketType, beer, 1).connect();
+        ticketType.getAvantages().get(0).setQuantityByTicket(3);
+        festival.removeStock(stock);
+        festival.addTicketType(new TypeTicket("Standard", 100, 20));
+        festival.save();
+
+        Festival loaded = Festival.Festival(file);
+        assertEquals(festival, loaded, "Les lignes modifiées doivent reconstituer le festival enregistré");
+        assertEquals(1, loaded.getTicketTypes().get(0).getAvantages().size(), "L'avantage du stock retiré doit être supprimé");
+        assertSame(loaded.getStocks().get(0), loaded.getTicketTypes().get(0).getAvantages().get(0).getStock(), "L'avantage doit être relié au stock du festival");
+    }
+
+    @Test
+    void order() throws Exception {
+        festival.addArtiste(new Artiste("Second", "pop", 50));
+        festival.save();
+        festival.removeArtiste(artiste);
+        festival.addArtiste(artiste);
+        festival.save();
+        Festival loaded = Festival.Festival(file);
+        assertEquals("Second", loaded.getArtistes().get(0).getName(), "Les artistes doivent être rechargés dans l'ordre du festival");
+        assertEquals(festival, loaded, "Les artistes rechargés doivent être identiques à ceux du festival");
+        assertSame(loaded.getArtistes().get(1), loaded.getRepresentations().first().getArtiste(), "La représentation doit suivre l'artiste remis dans le festival");
+    }
+
+    @Test
+    void elementIds() throws Exception {
+        Artiste guest = new Artiste("Invité", "jazz", 10);
+        festival.addRepresentation(new Representation(180, 30, "Main Stage", guest));
+        festival.save();
+        Festival loaded = Festival.Festival(file);
+        assertEquals(artiste.getId(), loaded.getArtistes().get(0).getId(), "Les lignes doivent garder l'identifiant de leur élément");
+        assertEquals(stock.getId(), loaded.getStocks().get(0).getId(), "Les lignes doivent garder l'identifiant de leur élément");
+        assertEquals(ticketType.getId(), loaded.getTicketTypes().get(0).getId(), "Les lignes doivent garder l'identifiant de leur élément");
+        assertEquals(guest.getId(), loaded.getRepresentations().last().getArtiste().getId(), "L'artiste hors festival doit garder son identifiant");
+        loaded.addStock(new Stock("Bière", 200, false, 3));
+        assertNotEquals(guest.getId(), loaded.getStocks().get(1).getId(), "Un élément ajouté ne doit pas reprendre l'identifiant de l'artiste hors festival");
+        loaded.save();
+        assertEquals(loaded, Festival.Festival(file), "L'élément ajouté doit avoir sa propre ligne");
+    }
+
+    @Test
+    void reopen() throws Exception {
+        artiste.setPrice(200);
+        festival.save();
+        Festival loaded = Festival.Festival(file);
+        loaded.getArtistes().get(0).setName("AC/DC");
+        loaded.removeTicketType(loaded.getTicketTypes().get(0));
+        loaded.save();
+        Festival reloaded = Festival.Festival(file);
+        assertEquals(200, reloaded.getArtistes().get(0).getPrice(), "Les lignes d'une sauvegarde précédente doivent être conservées");
+        assertEquals("AC/DC", reloaded.getArtistes().get(0).getName(), "Les modifications d'un festival rechargé doivent être écrites");
+        assertTrue(reloaded.getTicketTypes().isEmpty(), "Le type de ticket retiré doit être supprimé");
+        assertTrue(reloaded.getStocks().get(0).getAvantages().isEmpty(), "Les avantages du type de ticket retiré doivent être supprimés");
+    }
+
+    @Test
+    void tornRecord() throws Exception {
+        ticketType.setPrice(80);
+        festival.save();
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0, 42, 1, 2}); // Enregistrement interrompu
+        }
+        Festival loaded = Festival.Festival(file);
+        assertEquals(80, loaded.getTicketTypes().get(0).getPrice(), "Les enregistrements complets doivent être lus");
+        loaded.getTicketTypes().get(0).setPrice(90);
+        loaded.save();
+        assertEquals(90, Festival.Festival(file).getTicketTypes().get(0).getPrice(), "L'enregistrement interrompu doit être écrasé par la sauvegarde suivante");
+    }
+
+    @Test
+    void compaction() throws Exception {
+        long initial = file.length();
+        for (int i = 0; i < 50; i++) {
+            festival.setName("Festival " + i);
+            artiste.setPrice(100 + i);
+            festival.save();
+        }
+        assertTrue(file.length() < 2 * initial + 64, "Le fichier doit être réécrit lorsque les lignes remplacées dépassent les lignes vivantes");
+        assertEquals(festival, Festival.Festival(file), "La réécriture doit conserver les modifications");
+    }
+
+    @Test
+    void switchFormat() throws Exception {
+        File mgm = new File(String.format("%s/tables.mgm", System.getProperty("java.io.tmpdir")));
+        Festival loaded = Festival.Festival(file);
+        loaded.setFile(mgm);
+        loaded.getStocks().get(0).setName("Canette Coca");
+        loaded.save();
+        Festival converted = Festival.Festival(mgm);
+        assertEquals(loaded, converted, "Un festival chargé depuis les tables doit pouvoir être enregistré en .mgm");
+        converted.setFile(file);
+        converted.save();
+        assertEquals(converted, Festival.Festival(file), "Un festival .mgm doit pouvoir être enregistré en tables");
+    }
+}
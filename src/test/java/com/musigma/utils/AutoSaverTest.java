@@ -0,0 +1,72 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.exception.FestivalException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutoSaverTest {
+
+    AtomicInteger saves;
+    AutoSaver autoSaver;
+    Festival festival;
+
+    @BeforeEach
+    void setUp() throws FestivalException {
+        saves = new AtomicInteger();
+        autoSaver = new AutoSaver(Runnable::run, festival -> saves.incrementAndGet());
+        autoSaver.setDelays(Duration.ofMillis(100), Duration.ofMillis(400));
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.setFile(new File(String.format("%s/autosave.mgm", System.getProperty("java.io.tmpdir"))));
+        autoSaver.watch(festival);
+    }
+
+    @AfterEach
+    void tearDown() {
+        autoSaver.close();
+    }
+
+    @Test
+    void debounce() throws Exception {
+        for (int i = 0; i < 20; i++)
+            festival.setName("Festival " + i); // Saisie touche après touche
+        assertEquals(0, saves.get(), "La sauvegarde ne doit pas être lancée pendant la saisie");
+        Thread.sleep(300);
+        assertEquals(1, saves.get(), "Les modifications rapprochées doivent être sauvegardées une seule fois");
+    }
+
+    @Test
+    void maxLatency() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            festival.setLocationPrice(i);
+            Thread.sleep(40);
+        }
+        assertTrue(saves.get() >= 2, "Des modifications continues doivent être sauvegardées au plus tard après le délai maximal");
+    }
+
+    @Test
+    void withoutFile() throws Exception {
+        Festival unsaved = new Festival("Sans fichier", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        autoSaver.watch(unsaved);
+        unsaved.setName("Modifié");
+        festival.setName("Plus surveillé");
+        Thread.sleep(300);
+        assertEquals(0, saves.get(), "Un festival sans fichier ou qui n'est plus surveillé ne doit pas être sauvegardé");
+    }
+
+    @Test
+    void disabled() throws Exception {
+        autoSaver.setEnabled(false);
+        festival.setName("Modifié");
+        Thread.sleep(300);
+        assertEquals(0, saves.get(), "La sauvegarde automatique désactivée ne doit rien sauvegarder");
+    }
+}
@@ -0,0 +1,116 @@
+package com.musigma.utils;
+
+import com.musigma.models.*;
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarFileTest {
+
+    Festival first, second;
+    File file;
+
+    private static Festival festival(String name, LocalDateTime start) throws FestivalException, ArtisteException, StockException, TypeTicketException, AvantageException {
+        Festival festival = new Festival(name, start, 100, 500, "Paris");
+        Artiste artiste = new Artiste("DCAC", "rock", 100.5f);
+        festival.addArtiste(artiste);
+        festival.addRepresentation(new Representation(90, 45, "Main Stage", artiste));
+        festival.addRepresentation(new Representation(180, 30, "Scène Été", null));
+        Stock stock = new Stock("Bouteille Coca", 100, true, 2.5);
+        festival.addStock(stock);
+        festival.addStock(new Stock("Bière", 500, false, 4));
+        TypeTicket ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addTicketType(ticketType);
+        new Avantage(ticketType, stock, 2).connect();
+        return festival;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        first = festival("Premier", LocalDateTime.of(2030, 7, 14, 18, 0));
+        second = festival("Second", LocalDateTime.of(2031, 1, 1, 0, 0));
+        second.removeArtiste(second.getArtistes().get(0));
+        file = new File(System.getProperty("java.io.tmpdir"), "columns" + ColumnarFile.EXTENSION);
+        ColumnarFile.write(List.of(first, second), file);
+    }
+
+    @Test
+    void tables() throws FestivalException {
+        ColumnarFile columnar = ColumnarFile.open(file);
+        assertEquals(List.of("festivals", "artistes", "representations", "stocks", "ticketTypes", "avantages"), List.copyOf(columnar.getTables()), "Le fichier doit contenir une table par collection");
+        assertEquals(2, columnar.getTable("festivals").getRowCount(), "Chaque festival doit être une ligne");
+        assertEquals(4, columnar.getTable("stocks").getRowCount(), "Les stocks des festivals doivent être regroupés");
+        ColumnarFile.Column festival = columnar.getTable("stocks").getColumn("festival");
+        assertEquals(List.of(0, 0, 1, 1), List.of(festival.getInt(0), festival.getInt(1), festival.getInt(2), festival.getInt(3)), "Chaque ligne doit désigner son festival");
+    }
+
+    @Test
+    void values() throws FestivalException {
+        ColumnarFile columnar = ColumnarFile.open(file);
+        ColumnarFile.Table stocks = columnar.getTable("stocks");
+        assertEquals("Bière", stocks.getColumn("name").getString(1), "Les chaînes doivent être relues en UTF-8");
+        assertEquals(500, stocks.getColumn("quantity").getInt(1), "Les quantités doivent être relues");
+        assertEquals(2.5, stocks.getColumn("price").getDouble(0), "Les prix doivent être relus");
+        assertTrue(stocks.getColumn("fixed").getBoolean(0), "Les booléens doivent être relus");
+        assertEquals(100.5f, columnar.getTable("artistes").getColumn("price").getFloat(0), "Les prix des artistes doivent être relus");
+        ColumnarFile.Table representations = columnar.getTable("representations");
+        assertEquals(LocalDateTime.of(2030, 7, 14, 19, 30), representations.getColumn("start").getTimestamp(0), "Les représentations doivent être datées à partir du début du festival");
+        assertEquals(LocalDateTime.of(2031, 1, 1, 3, 0), representations.getColumn("start").getTimestamp(3), "Les dates doivent suivre le début de chaque festival");
+        assertEquals(0, representations.getColumn("artiste").getInt(0), "La représentation doit désigner la ligne de son artiste");
+        assertEquals(-1, representations.getColumn("artiste").getInt(1), "Une représentation sans artiste doit valoir -1");
+        assertEquals(-1, representations.getColumn("artiste").getInt(2), "Un artiste retiré du festival ne doit pas être désigné");
+        assertEquals("Scène Été", representations.getColumn("scene").getString(3), "Les scènes doivent être relues");
+    }
+
+    @Test
+    void avantages() throws FestivalException {
+        ColumnarFile.Table avantages = ColumnarFile.open(file).getTable("avantages");
+        assertEquals(2, avantages.getRowCount(), "Chaque avantage doit être une ligne");
+        assertEquals(2, avantages.getColumn("stock").getInt(1), "L'avantage doit désigner la ligne de son stock");
+        assertEquals(1, avantages.getColumn("ticketType").getInt(1), "L'avantage doit désigner la ligne de son type de ticket");
+        assertEquals(2, avantages.getColumn("quantityByTicket").getInt(0), "La quantité par ticket doit être relue");
+    }
+
+    @Test
+    void typedAccess() throws FestivalException {
+        ColumnarFile.Table stocks = ColumnarFile.open(file).getTable("stocks");
+        assertThrows(IllegalStateException.class, () -> stocks.getColumn("name").getInt(0), "Une colonne ne doit être lue que selon son type");
+        assertThrows(IndexOutOfBoundsException.class, () -> stocks.getColumn("quantity").getInt(4), "Une ligne hors de la table doit être refusée");
+        assertThrows(IllegalArgumentException.class, () -> stocks.getColumn("genre"), "Une colonne inconnue doit être refusée");
+    }
+
+    @Test
+    void corrupted() throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        File truncated = new File(System.getProperty("java.io.tmpdir"), "columns-truncated" + ColumnarFile.EXTENSION);
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(FestivalException.class, () -> ColumnarFile.open(truncated), "Un fichier tronqué doit être refusé");
+        bytes[0] = 0;
+        Files.write(truncated.toPath(), bytes);
+        assertThrows(FestivalException.class, () -> ColumnarFile.open(truncated), "Un fichier sans nombre magique doit être refusé");
+    }
+
+    @Test
+    void commandLine() throws FestivalException {
+        File firstFile = new File(System.getProperty("java.io.tmpdir"), "columns-first.mgm"), secondFile = new File(System.getProperty("java.io.tmpdir"), "columns-second.mgm");
+        first.setFile(firstFile);
+        first.save();
+        second.setFile(secondFile);
+        second.save();
+        PrintStream out = new PrintStream(new ByteArrayOutputStream(), true);
+        assertEquals(0, FestivalExporter.run(new String[]{firstFile.getPath(), secondFile.getPath(), file.getPath()}, out, out), "Plusieurs festivals doivent pouvoir être exportés en colonnes");
+        assertEquals(2, ColumnarFile.open(file).getTable("festivals").getRowCount(), "Le fichier doit contenir les deux festivals");
+        assertEquals(2, FestivalExporter.run(new String[]{firstFile.getPath(), secondFile.getPath(), "export.json"}, out, out), "Un export JSON ne doit accepter qu'un festival");
+    }
+}
@@ -0,0 +1,84 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.Stock;
+import com.musigma.models.exception.FestivalException;
+import com.musigma.models.exception.StockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalCacheTest {
+
+    FestivalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FestivalCache(2, 1 << 20);
+    }
+
+    private Festival saved(String name) throws FestivalException {
+        Festival festival = new Festival(name, LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.setFile(new File(String.format("%s/cache-%s.mgm", System.getProperty("java.io.tmpdir"), name)));
+        festival.save();
+        return festival;
+    }
+
+    @Test
+    void take() throws FestivalException {
+        Festival festival = saved("A");
+        cache.put(festival);
+        assertSame(festival, cache.take(festival.getFile()), "Le festival fermé doit être rendu sans relire son fichier");
+        assertNull(cache.take(festival.getFile()), "Le festival rouvert doit être retiré du cache");
+        assertEquals(0, cache.getRetainedSize(), "La taille du cache doit être libérée");
+    }
+
+    @Test
+    void leastRecentlyUsed() throws FestivalException {
+        Festival a = saved("A"), b = saved("B"), c = saved("C");
+        cache.put(a);
+        cache.put(b);
+        cache.put(a); // A redevient le plus récemment utilisé
+        cache.put(c);
+        assertEquals(2, cache.size(), "Le cache ne doit pas dépasser son nombre de festivals");
+        assertNull(cache.take(b.getFile()), "Le festival utilisé le moins récemment doit être retiré");
+        assertSame(a, cache.take(a.getFile()), "Le festival utilisé récemment doit être gardé");
+    }
+
+    @Test
+    void retainedSize() throws FestivalException, StockException {
+        Festival small = saved("Petit"), large = saved("Grand");
+        for (int i = 0; i < 100; i++)
+            large.addStock(new Stock("Stock " + i, 10, false, 1));
+        large.save();
+        cache = new FestivalCache(10, FestivalCache.estimateSize(large) + FestivalCache.estimateSize(small) - 1);
+        cache.put(small);
+        cache.put(large);
+        assertNull(cache.take(small.getFile()), "Le festival le plus ancien doit être retiré quand la taille est dépassée");
+        assertTrue(FestivalCache.estimateSize(large) > FestivalCache.estimateSize(small), "La taille estimée doit croître avec les éléments");
+        cache = new FestivalCache(10, FestivalCache.estimateSize(small));
+        cache.put(large);
+        assertEquals(0, cache.size(), "Un festival plus grand que le cache ne doit pas être gardé");
+    }
+
+    @Test
+    void modifiedFile() throws Exception {
+        Festival festival = saved("A");
+        cache.put(festival);
+        Festival other = Festival.Festival(festival.getFile());
+        other.setName("Modifié ailleurs");
+        Thread.sleep(10);
+        other.save();
+        assertNull(cache.take(festival.getFile()), "Un festival dont le fichier a été modifié ne doit pas être rendu");
+    }
+
+    @Test
+    void withoutFile() throws FestivalException {
+        cache.put(new Festival("Sans fichier", LocalDateTime.now().plusDays(1), 100, 500, "Paris"));
+        assertEquals(0, cache.size(), "Un festival sans fichier ne doit pas être gardé");
+    }
+}
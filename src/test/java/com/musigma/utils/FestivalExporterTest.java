@@ -0,0 +1,97 @@
+package com.musigma.utils;
+
+import com.musigma.models.*;
+import com.musigma.models.exception.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalExporterTest {
+
+    Festival festival;
+    File directory;
+
+    @BeforeEach
+    void setUp() throws FestivalException, ArtisteException, StockException, TypeTicketException, AvantageException {
+        festival = new Festival("Festival \"Été\"", LocalDateTime.of(2030, 7, 14, 18, 0), 100, 500, "Paris");
+        Artiste artiste = new Artiste("DCAC", "rock, hard", 100.5f);
+        festival.addArtiste(artiste);
+        festival.addRepresentation(new Representation(90, 45, "Main Stage", artiste));
+        Stock stock = new Stock("Bouteille Coca", 100, true, 2.5);
+        festival.addStock(stock);
+        TypeTicket ticketType = new TypeTicket("VIP", 10, 60);
+        festival.addTicketType(ticketType);
+        new Avantage(ticketType, stock, 2).connect();
+        directory = new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    private String csv(FestivalExporter.Table table) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FestivalExporter.writeCsv(festival, table, Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void csvRows() throws IOException {
+        assertEquals("name,genre,price\r\nDCAC,\"rock, hard\",100.5\r\n", csv(FestivalExporter.Table.ARTISTES), "Les cellules contenant un séparateur doivent être entre guillemets");
+        assertEquals("name,quantity,fixed,price\r\nBouteille Coca,100,true,2.5\r\n", csv(FestivalExporter.Table.STOCKS), "Les stocks doivent être exportés ligne par ligne");
+        assertEquals("ticketType,stock,quantityByTicket\r\nVIP,Bouteille Coca,2\r\n", csv(FestivalExporter.Table.AVANTAGES), "Les avantages doivent relier type de ticket et stock");
+    }
+
+    @Test
+    void absoluteTimes() throws IOException {
+        assertEquals("scene,artiste,start,end,duration\r\nMain Stage,DCAC,2030-07-14T19:30,2030-07-14T20:15,45\r\n",
+                csv(FestivalExporter.Table.REPRESENTATIONS), "Les représentations doivent être datées à partir du début du festival");
+    }
+
+    @Test
+    void json() throws IOException, FestivalException {
+        File file = new File(directory, "export.json");
+        assertEquals(List.of(file), FestivalExporter.export(festival, file), "L'export JSON doit écrire un seul fichier");
+        String json = Files.readString(file.toPath());
+        assertTrue(json.startsWith("{\n  \"name\": \"Festival \\\"Été\\\"\""), "Les chaînes doivent être échappées");
+        assertTrue(json.contains("\"representations\": [\n    {\"scene\": \"Main Stage\", \"artiste\": \"DCAC\", \"start\": \"2030-07-14T19:30\", \"end\": \"2030-07-14T20:15\", \"duration\": 45}\n  ]"),
+                "Chaque représentation doit être un objet avec ses dates absolues");
+        assertTrue(json.contains("\"ticketTypes\": [\n    {\"type\": \"VIP\", \"quantity\": 10, \"price\": 60}"), "Les types de tickets doivent être exportés");
+        assertTrue(json.endsWith("]\n}\n"), "Le document doit être complet");
+    }
+
+    @Test
+    void csvFiles() throws FestivalException, IOException {
+        File target = new File(directory, "export.csv");
+        List<File> files = FestivalExporter.export(festival, target);
+        assertEquals(FestivalExporter.Table.values().length, files.size(), "L'export CSV doit écrire un fichier par table");
+        assertEquals(new File(directory, "export-stocks.csv").getAbsoluteFile(), FestivalExporter.csvFile(target, FestivalExporter.Table.STOCKS), "Le fichier d'une table doit être nommé d'après le fichier demandé");
+        assertEquals(csv(FestivalExporter.Table.TICKET_TYPES), Files.readString(FestivalExporter.csvFile(target, FestivalExporter.Table.TICKET_TYPES).toPath()), "Le fichier doit contenir la table exportée");
+    }
+
+    @Test
+    void unknownFormat() {
+        assertThrows(FestivalException.class, () -> FestivalExporter.export(festival, new File(directory, "export.xml")), "Une extension inconnue doit être refusée");
+    }
+
+    @Test
+    void commandLine() throws FestivalException, IOException {
+        File file = new File(directory, "export-source.mgm");
+        festival.setFile(file);
+        festival.save();
+        File target = new File(directory, "export-command.json");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(), err = new ByteArrayOutputStream();
+        int code = FestivalExporter.run(new String[]{file.getPath(), target.getPath()}, new PrintStream(out, true), new PrintStream(err, true));
+        assertEquals(0, code, "L'export en ligne de commande doit réussir");
+        assertTrue(Files.readString(target.toPath()).contains("\"stocks\": ["), "Le fichier d'export doit être écrit");
+        assertEquals(2, FestivalExporter.run(new String[]{file.getPath()}, new PrintStream(out, true), new PrintStream(err, true)), "Des arguments manquants doivent être signalés");
+        assertEquals(1, FestivalExporter.run(new String[]{new File(directory, "missing.mgm").getPath(), target.getPath()}, new PrintStream(out, true), new PrintStream(err, true)), "Un festival illisible doit faire échouer l'export");
+    }
+}
@@ -0,0 +1,89 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.Stock;
+import com.musigma.models.exception.FestivalException;
+import com.musigma.models.exception.ImportException;
+import com.musigma.models.exception.StockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalImporterTest {
+
+    Festival festival;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException {
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.addStock(new Stock("Bouteille Coca", 100, true, 2.5));
+    }
+
+    private File csv(String name, String content) throws IOException {
+        File file = new File(System.getProperty("java.io.tmpdir"), name);
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    void importFiles() throws IOException, FestivalException {
+        File artistes = csv("import-artistes.csv", "\uFEFFprice,name,genre,country\r\n100.5,DCAC,\"rock, \"\"hard\"\"\",AU\r\n\r\n50,\"Les\nMultilignes\",pop,FR\r\n");
+        File stocks = csv("import-stocks.csv", "name,quantity,fixed,price\nBière,500,false,4\n");
+        File ticketTypes = csv("import-tickets.csv", "type,quantity,price\nVIP,10,60\nStandard,100,20");
+        assertEquals(5, FestivalImporter.importFiles(festival, List.of(artistes, stocks, ticketTypes)), "Toutes les lignes doivent être importées");
+        assertEquals("rock, \"hard\"", festival.getArtistes().get(0).getGenre(), "Les cellules entre guillemets doivent être décodées");
+        assertEquals("Les\nMultilignes", festival.getArtistes().get(1).getName(), "Une cellule peut contenir un retour à la ligne");
+        assertEquals(100.5f, festival.getArtistes().get(0).getPrice(), "Les colonnes doivent être lues d'après l'en-tête");
+        assertEquals("Bière", festival.getStocks().get(1).getName(), "Les stocks doivent être ajoutés après ceux du festival");
+        assertEquals("Standard", festival.getTicketTypes().get(1).getType(), "La dernière ligne sans retour à la ligne doit être lue");
+    }
+
+    private static List<String> describe(List<Stock> stocks) {
+        List<String> described = new ArrayList<>();
+        for (Stock stock : stocks)
+            described.add(String.format("%s %d %b %s", stock.getName(), stock.getQuantity(), stock.isFixed(), stock.getPrix()));
+        return described;
+    }
+
+    @Test
+    void exported() throws IOException, FestivalException {
+        File target = new File(System.getProperty("java.io.tmpdir"), "import-roundtrip.csv");
+        FestivalExporter.export(festival, target);
+        Festival imported = new Festival("Imported Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        FestivalImporter.importFiles(imported, List.of(FestivalExporter.csvFile(target, FestivalExporter.Table.STOCKS)));
+        assertEquals(describe(festival.getStocks()), describe(imported.getStocks()), "Les tables exportées doivent pouvoir être réimportées");
+    }
+
+    @Test
+    void errors() throws IOException {
+        File stocks = csv("import-invalid.csv", "name,quantity,fixed,price\nBouteille Coca,10,false,1\nEau,abc,false,1\nEau,10,peut-être,1\nJus,10,false,1\nJus,20,false,1\n,10,false,1\n");
+        File unknown = csv("import-unknown.csv", "scene,start\nMain Stage,0\n");
+        ImportException e = assertThrows(ImportException.class, () -> FestivalImporter.importFiles(festival, List.of(stocks, unknown)), "Les lignes invalides doivent refuser l'import");
+        List<String> errors = e.getErrors();
+        assertEquals(6, errors.size(), "Toutes les erreurs doivent être signalées ensemble");
+        assertTrue(errors.get(0).startsWith("import-invalid.csv, ligne 2"), "Un nom déjà pris dans le festival doit être signalé avec sa ligne");
+        assertTrue(errors.get(1).contains("abc"), "Une quantité invalide doit être signalée");
+        assertTrue(errors.get(3).startsWith("import-invalid.csv, ligne 6"), "Un nom en double dans le fichier doit être signalé");
+        assertTrue(errors.get(5).startsWith("import-unknown.csv"), "Un en-tête inconnu doit être signalé");
+        assertEquals(1, festival.getStocks().size(), "Aucune ligne ne doit être importée");
+    }
+
+    @Test
+    void summary() {
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < ImportException.MAX_REPORTED_ERRORS + 5; i++)
+            errors.add("erreur " + i);
+        ImportException e = new ImportException(errors);
+        assertTrue(e.getMessage().endsWith("... et 5 autres erreurs"), "Le message doit résumer les erreurs au-delà de la limite");
+        assertEquals(errors, e.getErrors(), "Toutes les erreurs doivent rester disponibles");
+    }
+}
@@ -0,0 +1,71 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.Stock;
+import com.musigma.models.exception.FestivalException;
+import com.musigma.models.exception.StockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalMergeToolTest {
+
+    File directory;
+    File base;
+    ByteArrayOutputStream out;
+    ByteArrayOutputStream err;
+
+    @BeforeEach
+    void setUp() throws FestivalException, StockException {
+        directory = new File(System.getProperty("java.io.tmpdir"));
+        Festival festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.addStock(new Stock("Bouteille Coca", 100, false, 2.5));
+        base = write(festival, "merge-base.mgm");
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    private File write(Festival festival, String name) throws FestivalException {
+        File file = new File(directory, name);
+        festival.setFile(file);
+        festival.compact();
+        return file;
+    }
+
+    private int run(boolean merge, String... args) {
+        PrintStream outStream = new PrintStream(out, true, StandardCharsets.UTF_8), errStream = new PrintStream(err, true, StandardCharsets.UTF_8);
+        return merge ? FestivalMergeTool.runMerge(args, outStream, errStream) : FestivalMergeTool.runDiff(args, outStream, errStream);
+    }
+
+    @Test
+    void diff() throws FestivalException, StockException {
+        Festival changed = Festival.Festival(base);
+        changed.getStocks().get(0).setPrix(3);
+        File file = write(changed, "merge-changed.mgm");
+        assertEquals(0, run(false, base.getPath(), base.getPath()), "Des fichiers identiques doivent retourner 0");
+        assertEquals(1, run(false, base.getPath(), file.getPath()), "Des fichiers différents doivent retourner 1");
+        assertEquals("Modification : Stock \"Bouteille Coca\" : price 2.5 → 3.0", out.toString(StandardCharsets.UTF_8).trim(), "La modification doit être affichée");
+        assertEquals(2, run(false, base.getPath()), "Des arguments invalides doivent retourner 2");
+    }
+
+    @Test
+    void merge() throws FestivalException, StockException {
+        Festival ours = Festival.Festival(base);
+        ours.getStocks().get(0).setPrix(3);
+        Festival theirs = Festival.Festival(base);
+        theirs.getStocks().get(0).setQuantity(150);
+        File target = new File(directory, "merge-result.mgm");
+        int code = run(true, base.getPath(), write(ours, "merge-ours.mgm").getPath(), write(theirs, "merge-theirs.mgm").getPath(), target.getPath());
+        assertEquals(0, code, "Une fusion sans conflit doit retourner 0");
+        Stock stock = Festival.Festival(target).getStocks().get(0);
+        assertEquals(3, stock.getPrix(), "La modification locale doit être fusionnée");
+        assertEquals(150, stock.getQuantity(), "La modification de l'autre version doit être fusionnée");
+    }
+}
@@ -0,0 +1,111 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.Stock;
+import com.musigma.models.exception.FestivalException;
+import com.musigma.models.exception.StockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FestivalSaverTest {
+
+    LinkedBlockingQueue<Runnable> callbacks;
+    FestivalSaver saver;
+    Festival festival;
+    File file;
+
+    @BeforeEach
+    void setUp() throws FestivalException {
+        callbacks = new LinkedBlockingQueue<>();
+        saver = new FestivalSaver(callbacks::add);
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        file = new File(String.format("%s/saver.mgm", System.getProperty("java.io.tmpdir")));
+        festival.setFile(file);
+    }
+
+    @AfterEach
+    void tearDown() {
+        saver.close();
+    }
+
+    /**
+     * Exécute le prochain rappel transmis par le fil d'écriture, comme le ferait le fil de l'interface.
+     */
+    private void runCallback() throws InterruptedException {
+        Runnable callback = callbacks.poll(10, TimeUnit.SECONDS);
+        assertNotNull(callback, "L'écriture doit se terminer");
+        callback.run();
+    }
+
+    @Test
+    void save() throws Exception {
+        List<FestivalException> results = new ArrayList<>();
+        saver.save(festival, results::add);
+        assertTrue(saver.isSaving(), "La sauvegarde doit être en cours jusqu'au rappel");
+        runCallback();
+        assertFalse(saver.isSaving(), "La sauvegarde doit être terminée après le rappel");
+        assertEquals(1, results.size(), "Le rappel doit être appelé une fois");
+        assertNull(results.get(0), "La sauvegarde doit réussir");
+        assertEquals(festival, Festival.Festival(file), "Le festival doit être écrit dans son fichier");
+    }
+
+    @Test
+    void merge() throws Exception {
+        List<FestivalException> results = new ArrayList<>();
+        saver.save(festival, results::add);
+        for (int i = 0; i < 3; i++) {
+            festival.addStock(new Stock("Stock " + i, 10, false, 1));
+            saver.save(festival, results::add);
+        }
+        runCallback();
+        assertEquals(1, results.size(), "Les sauvegardes demandées pendant l'écriture doivent attendre sa fin");
+        runCallback();
+        assertEquals(4, results.size(), "Les sauvegardes en attente doivent être regroupées en une écriture");
+        assertTrue(results.stream().allMatch(Objects::isNull), "Les sauvegardes doivent réussir");
+        assertTrue(callbacks.isEmpty(), "Une seule écriture doit suivre la première");
+        assertEquals(festival, Festival.Festival(file), "La dernière version du festival doit être écrite");
+    }
+
+    @Test
+    void consistentSnapshot() throws Exception {
+        saver.save(festival, error -> {
+        });
+        festival.addStock(new Stock("Ajouté pendant l'écriture", 10, false, 1)); // Le fil de l'interface continue
+        runCallback();
+        saver.save(festival, error -> {
+        });
+        runCallback();
+        assertEquals(festival, Festival.Festival(file), "Les modifications faites pendant une écriture doivent être écrites ensuite");
+    }
+
+    @Test
+    void error() throws Exception {
+        festival.setFile(new File(file.getParentFile(), "absent/saver.mgm"));
+        List<FestivalException> results = new ArrayList<>();
+        saver.save(festival, results::add);
+        runCallback();
+        assertNotNull(results.get(0), "L'erreur d'écriture doit être transmise au rappel");
+    }
+
+    @Test
+    void close() throws StockException, FestivalException {
+        saver.save(festival, error -> {
+        });
+        saver.save(festival, error -> {
+        });
+        festival.addStock(new Stock("Dernier", 10, false, 1));
+        saver.close();
+        assertEquals(festival, Festival.Festival(file), "Les sauvegardes en attente doivent être écrites à la fermeture");
+    }
+}
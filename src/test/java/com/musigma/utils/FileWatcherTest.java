@@ -0,0 +1,64 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.exception.FestivalException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWatcherTest {
+
+    CountDownLatch changes;
+    AtomicReference<Festival> reloaded;
+    FileWatcher watcher;
+    Festival festival;
+    File file;
+
+    @BeforeEach
+    void setUp() throws FestivalException {
+        changes = new CountDownLatch(1);
+        reloaded = new AtomicReference<>();
+        watcher = new FileWatcher(Runnable::run, (changed, stamp) -> {
+            reloaded.set(changed);
+            changes.countDown();
+        });
+        File directory = new File(System.getProperty("java.io.tmpdir"), "musigma-watcher");
+        directory.mkdirs();
+        file = new File(directory, "watched.mgm");
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.setFile(file);
+        festival.compact();
+        watcher.watch(file);
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.close();
+    }
+
+    @Test
+    void externalChange() throws Exception {
+        Festival other = Festival.Festival(file);
+        other.setName("Modifié ailleurs");
+        Thread.sleep(20); // Date de modification différente sur les systèmes de fichiers peu précis
+        other.compact();
+        assertTrue(changes.await(10, TimeUnit.SECONDS), "La modification du fichier par ailleurs doit être signalée");
+        assertEquals("Modifié ailleurs", reloaded.get().getName(), "Le festival relu doit contenir la modification");
+    }
+
+    @Test
+    void ownChange() throws Exception {
+        festival.setName("Modifié ici");
+        festival.compact();
+        watcher.acknowledge();
+        assertFalse(changes.await(2 * FileWatcher.DEBOUNCE_MILLIS + 500, TimeUnit.MILLISECONDS), "Les écritures de l'application ne doivent pas être relues");
+    }
+}
@@ -0,0 +1,110 @@
+package com.musigma.utils;
+
+import com.musigma.models.Festival;
+import com.musigma.models.FestivalSummary;
+import com.musigma.models.exception.FestivalException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionIndexTest {
+
+    File directory;
+    File indexFile;
+    File festivalFile;
+    Festival festival;
+    SessionIndex index;
+    AtomicInteger changes;
+
+    @BeforeEach
+    void setUp() throws FestivalException {
+        directory = new File(System.getProperty("java.io.tmpdir"));
+        indexFile = new File(directory, "session.idx");
+        festivalFile = new File(directory, "session.mgm");
+        festival = new Festival("Valid Festival", LocalDateTime.now().plusDays(1), 100, 500, "Paris");
+        festival.setFile(festivalFile);
+        festival.save();
+        index = new SessionIndex(3);
+        changes = new AtomicInteger();
+    }
+
+    private void refresh() {
+        index.refresh(Runnable::run, Runnable::run, changes::incrementAndGet);
+    }
+
+    @Test
+    void refreshSummary() {
+        index.add(festivalFile);
+        refresh();
+        SessionIndex.Entry entry = index.getEntries().get(0);
+        assertEquals("Valid Festival", entry.getSummary().getName(), "Le résumé du fichier doit être lu");
+        assertEquals(festivalFile.length() + Festival.journalOf(festivalFile).length(), entry.getStamp().getLength(), "La taille du fichier et de son journal doit être retenue");
+        assertEquals(1, changes.get(), "Le rappel doit être appelé après la lecture");
+        refresh();
+        assertEquals(1, changes.get(), "Un fichier inchangé ne doit pas être relu");
+    }
+
+    @Test
+    void staleFiles() throws Exception {
+        index.add(festivalFile);
+        refresh();
+        festival.setName("Renamed Festival");
+        festival.save();
+        assertTrue(index.getEntries().get(0).isStale(), "Une modification du journal doit être détectée sans ouvrir le fichier");
+        refresh();
+        assertEquals("Renamed Festival", index.getEntries().get(0).getSummary().getName(), "Le résumé doit être relu");
+        assertTrue(festivalFile.delete() && Festival.journalOf(festivalFile).delete());
+        refresh();
+        assertTrue(index.getEntries().get(0).isMissing(), "Un fichier supprimé doit être signalé");
+    }
+
+    @Test
+    void saveAndLoad() throws IOException {
+        index.add(festivalFile);
+        index.add(new File(directory, "absent.mgm"));
+        refresh();
+        index.save(indexFile);
+        SessionIndex loaded = SessionIndex.load(indexFile, 3);
+        assertEquals(2, loaded.getEntries().size(), "Toutes les entrées doivent être relues");
+        SessionIndex.Entry entry = loaded.getEntries().get(1);
+        assertEquals(festivalFile, entry.getFile(), "L'ordre des entrées doit être conservé");
+        FestivalSummary summary = entry.getSummary();
+        assertEquals(index.getEntries().get(1).getSummary(), summary, "Le résumé doit être conservé");
+        assertFalse(entry.isStale(), "Un fichier inchangé ne doit pas être relu après le chargement de l'index");
+        assertTrue(loaded.getEntries().get(0).isMissing(), "Un fichier introuvable doit rester signalé");
+    }
+
+    @Test
+    void capacity() {
+        for (int i = 0; i < 5; i++)
+            index.add(new File(directory, "recent" + i + ".mgm"));
+        index.add(new File(directory, "recent3.mgm"));
+        List<SessionIndex.Entry> entries = index.getEntries();
+        assertEquals(3, entries.size(), "L'index ne doit pas dépasser sa capacité");
+        assertEquals("recent3.mgm", entries.get(0).getFile().getName(), "Le fichier rouvert doit passer en tête");
+        assertEquals("recent4.mgm", entries.get(1).getFile().getName(), "Les autres fichiers doivent garder leur ordre");
+    }
+
+    @Test
+    void importLegacy() throws IOException {
+        File legacy = new File(directory, "previousSession.ser");
+        ArrayList<File> recentFiles = new ArrayList<>(List.of(festivalFile, new File(directory, "absent.mgm")));
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            out.writeObject(recentFiles);
+        }
+        index = SessionIndex.importLegacy(legacy, 3);
+        assertEquals(2, index.getEntries().size(), "Les fichiers de l'ancienne session doivent être repris");
+        refresh();
+        assertEquals("Valid Festival", index.getEntries().get(0).getSummary().getName(), "Les résumés doivent être lus au premier rafraîchissement");
+    }
+}